@@ -73,6 +73,33 @@ public abstract class AutomatonSimulator {
    */
   public abstract boolean simulateInput(String input);
 
+  /**
+   * Runs the automaton on an input that need not be a string, such as a slice of a larger buffer.
+   * Simulators that can read the input in place override this; by default the input is copied
+   * to a string.
+   *
+   * @param input the input to be run on the automaton
+   * @return true if the automaton accepts the input
+   */
+  public boolean simulateInput(CharSequence input) {
+    return simulateInput(input.toString());
+  }
+
+  /**
+   * Returns if an input has a string at a position, without copying the input.
+   *
+   * @param input the input
+   * @param prefix the string looked for
+   * @param position the position in the input where the string is looked for
+   * @return true if the string is in the input at the position
+   */
+  protected static boolean startsWith(CharSequence input, String prefix, int position) {
+    if (position + prefix.length() > input.length()) return false;
+    for (int i = 0; i < prefix.length(); i++)
+      if (input.charAt(position + i) != prefix.charAt(i)) return false;
+    return true;
+  }
+
   /** The default constructor */
   public Automaton getAutomaton() {
     return myAutomaton;
@@ -0,0 +1,144 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata;
+
+import automata.mealy.MealyMachine;
+import automata.mealy.MealyTransducer;
+import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * The corpus simulator runs every input of an {@link InputCorpus} on an
+ * automaton and writes one result per line to an output file, in the order of
+ * the inputs. Nothing is kept from one input to the next, so memory use does
+ * not grow with the size of the corpus. For acceptors the result is
+ * "Accept" or "Reject"; for Mealy and Moore machines it is the output of the
+ * machine, or "Reject" if the machine could not process the whole input.
+ *
+ * @see automata.InputCorpus
+ */
+public class CorpusSimulator {
+    /**
+     * The result written for an accepted input.
+     */
+    public static final String ACCEPT = "Accept";
+    /**
+     * The result written for a rejected input.
+     */
+    public static final String REJECT = "Reject";
+
+    /**
+     * There is no reason for this class to ever be constructed.
+     */
+    private CorpusSimulator() {
+    }
+
+    /**
+     * A monitor lets a run of a corpus be stopped between inputs.
+     */
+    public interface Monitor {
+        /**
+         * Returns if the run should stop before its next input.
+         *
+         * @return <CODE>true</CODE> if no more inputs should be run
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Runs every input of a corpus file on the automaton of a simulator,
+     * writing the results to another file. The simulator is taken rather than
+     * created here since creating some simulators asks the user questions.
+     *
+     * @param simulator the simulator for the automaton to run
+     * @param corpus    the file of inputs, one per line
+     * @param results   the file to write the results to
+     * @param monitor   the monitor asked before each input if the run should
+     *                  stop, or <CODE>null</CODE> if it runs to the end
+     * @return the number of inputs run
+     * @throws IOException if reading the corpus or writing the results fails
+     */
+    public static long simulate(AutomatonSimulator simulator, File corpus,
+                                File results, Monitor monitor)
+            throws IOException {
+        InputCorpus inputs = new InputCorpus(corpus);
+        try {
+            Writer writer = new BufferedWriter(new FileWriter(results));
+            try {
+                return simulate(simulator, inputs, writer, monitor);
+            } finally {
+                writer.close();
+            }
+        } finally {
+            inputs.close();
+        }
+    }
+
+    /**
+     * Runs every input of a corpus on the automaton of a simulator, writing
+     * one result per line. Mealy and Moore machines are run by a
+     * {@link MealyTransducer} instead of the simulator. If the monitor stops
+     * the run, the results of the inputs run so far are written.
+     *
+     * @param simulator the simulator for the automaton to run
+     * @param corpus    the inputs
+     * @param results   the destination of the results
+     * @param monitor   the monitor asked before each input if the run should
+     *                  stop, or <CODE>null</CODE> if it runs to the end
+     * @return the number of inputs run
+     * @throws IOException if writing the results fails
+     */
+    public static long simulate(AutomatonSimulator simulator,
+                                InputCorpus corpus, Writer results,
+                                Monitor monitor) throws IOException {
+        Automaton automaton = simulator.getAutomaton();
+        long count = 0;
+        if (automaton instanceof MealyMachine) {
+            MealyTransducer transducer = new MealyTransducer(
+                    (MealyMachine) automaton);
+            CharArrayWriter output = new CharArrayWriter();
+            for (CharSequence input : corpus) {
+                if (monitor != null && monitor.isCancelled())
+                    break;
+                output.reset();
+                if (transducer.transduce(CharBuffer.wrap(input), output))
+                    output.writeTo(results);
+                else
+                    results.write(REJECT);
+                results.write('\n');
+                count++;
+            }
+        } else {
+            for (CharSequence input : corpus) {
+                if (monitor != null && monitor.isCancelled())
+                    break;
+                boolean accepted = simulator.simulateInput(input);
+                results.write(accepted ? ACCEPT : REJECT);
+                results.write('\n');
+                count++;
+            }
+        }
+        results.flush();
+        return count;
+    }
+}
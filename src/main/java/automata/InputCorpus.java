@@ -0,0 +1,217 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An input corpus is a file of input strings, one per line, that is read by
+ * memory mapping the file rather than by reading it into strings. The inputs
+ * are returned as <CODE>CharSequence</CODE> views of the mapped bytes, so a
+ * corpus of millions of inputs can be iterated over with memory use that does
+ * not depend on its size. The file is mapped a window at a time, so files
+ * larger than what may be mapped at once are also supported.
+ * <p>
+ * Each byte of the file is read as one character in the ISO-8859-1 encoding,
+ * which covers the alphabets JFLAP machines are built over. Lines may end in
+ * either "\n" or "\r\n", and an empty line is the empty input.
+ *
+ * @see automata.CorpusSimulator
+ */
+public class InputCorpus implements Iterable<CharSequence>, Closeable {
+    /**
+     * The number of bytes mapped at once, unless a single line is longer.
+     */
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    /**
+     * The file the corpus is read from.
+     */
+    private RandomAccessFile myFile;
+    /**
+     * The channel of the file.
+     */
+    private FileChannel myChannel;
+    /**
+     * The size of the file in bytes.
+     */
+    private long mySize;
+
+    /**
+     * Opens a corpus file.
+     *
+     * @param file the file of inputs
+     * @throws IOException if the file cannot be opened
+     */
+    public InputCorpus(File file) throws IOException {
+        myFile = new RandomAccessFile(file, "r");
+        myChannel = myFile.getChannel();
+        mySize = myChannel.size();
+    }
+
+    /**
+     * Returns an iterator over the inputs of the corpus, starting from the
+     * first line of the file.
+     *
+     * @return an iterator over the inputs
+     */
+    public Iterator<CharSequence> iterator() {
+        return new LineIterator();
+    }
+
+    /**
+     * Closes the file. Inputs already returned remain readable.
+     *
+     * @throws IOException if closing the file fails
+     */
+    public void close() throws IOException {
+        myFile.close();
+    }
+
+    /**
+     * The iterator over the lines of the file, which keeps one window of the
+     * file mapped and maps the next window when a line runs past its end.
+     */
+    private class LineIterator implements Iterator<CharSequence> {
+        /**
+         * The currently mapped window.
+         */
+        private MappedByteBuffer myWindow;
+        /**
+         * The file offset of the start of the window.
+         */
+        private long myWindowStart;
+        /**
+         * The file offset of the start of the next line.
+         */
+        private long myPosition;
+
+        public boolean hasNext() {
+            return myPosition < mySize;
+        }
+
+        public CharSequence next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            try {
+                long windowSize = WINDOW_SIZE;
+                while (true) {
+                    if (myWindow == null
+                            || myPosition >= myWindowStart + myWindow.limit())
+                        map(windowSize);
+                    int start = (int) (myPosition - myWindowStart);
+                    int limit = myWindow.limit();
+                    int end = start;
+                    while (end < limit && myWindow.get(end) != '\n')
+                        end++;
+                    boolean windowReachesEnd = myWindowStart + limit == mySize;
+                    if (end == limit && !windowReachesEnd) {
+                        /* The line continues past the window, so map a window
+                         * starting at the line, or a larger one if it already
+                         * does. */
+                        if (start == 0)
+                            windowSize = Math.min(windowSize * 2,
+                                    Integer.MAX_VALUE);
+                        myWindow = null;
+                        continue;
+                    }
+                    myPosition = myWindowStart + Math.min(end + 1, limit);
+                    if (end < limit && end > start
+                            && myWindow.get(end - 1) == '\r')
+                        end--;
+                    return new ByteSequence(myWindow, start, end);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Maps a window of the file beginning at the current position.
+         *
+         * @param windowSize the number of bytes to map
+         * @throws IOException if the file cannot be mapped
+         */
+        private void map(long windowSize) throws IOException {
+            myWindowStart = myPosition;
+            long length = Math.min(windowSize, mySize - myPosition);
+            myWindow = myChannel.map(FileChannel.MapMode.READ_ONLY,
+                    myWindowStart, length);
+        }
+    }
+
+    /**
+     * A character sequence backed by a range of bytes in a buffer, with each
+     * byte read as one ISO-8859-1 character.
+     */
+    private static class ByteSequence implements CharSequence {
+        /**
+         * The buffer holding the bytes.
+         */
+        private ByteBuffer myBuffer;
+        /**
+         * The index of the first byte.
+         */
+        private int myStart;
+        /**
+         * The index one past the last byte.
+         */
+        private int myEnd;
+
+        public ByteSequence(ByteBuffer buffer, int start, int end) {
+            myBuffer = buffer;
+            myStart = start;
+            myEnd = end;
+        }
+
+        public int length() {
+            return myEnd - myStart;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length())
+                throw new IndexOutOfBoundsException("" + index);
+            return (char) (myBuffer.get(myStart + index) & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end)
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            return new ByteSequence(myBuffer, myStart + start, myStart + end);
+        }
+
+        public String toString() {
+            char[] chars = new char[length()];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = (char) (myBuffer.get(myStart + i) & 0xff);
+            return new String(chars);
+        }
+    }
+}
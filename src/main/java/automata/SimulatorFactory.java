@@ -32,8 +32,19 @@ public class SimulatorFactory {
   public static AutomatonSimulator getSimulator(Automaton automaton) {
     if (automaton instanceof automata.fsa.FiniteStateAutomaton)
       return new automata.fsa.FSAStepWithClosureSimulator(automaton);
-    else if (automaton instanceof automata.pda.PushdownAutomaton)
-      return new automata.pda.PDAStepWithClosureSimulator(automaton);
+    else if (automaton instanceof automata.pda.PushdownAutomaton) {
+      /*
+       * A PDA without nondeterministic states has a single computation on
+       * any input, which the DPDA simulator follows in one pass.
+       */
+      NondeterminismDetector d = NondeterminismDetectorFactory.getDetector(automaton);
+      State[] nd = d.getNondeterministicStates(automaton);
+      if (nd.length > 0) {
+        return new automata.pda.PDAStepWithClosureSimulator(automaton);
+      } else {
+        return new automata.pda.DPDASimulator(automaton);
+      }
+    }
     else if (automaton instanceof automata.turing.TuringMachine) {
       NondeterminismDetector d = NondeterminismDetectorFactory.getDetector(automaton);
       State[] nd = d.getNondeterministicStates(automaton);
@@ -23,9 +23,13 @@ import automata.Configuration;
 import automata.State;
 import automata.Transition;
 import debug.EDebug;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * The FSA step by state simulator object simulates the behavior of a finite
@@ -168,4 +172,109 @@ public class FSAStepByStateSimulator extends AutomatonSimulator {
         return false;
     }
 
+    /**
+     * Runs the automaton on an input without copying it. Rather than
+     * configurations, the simulation keeps pairs of a state and a position in
+     * the input, each visited once, so that the input is only ever read in
+     * place.
+     *
+     * @param input the input to be run on the automaton
+     * @return true if the automaton accepts the input
+     */
+    public boolean simulateInput(CharSequence input) {
+        myConfigurations.clear();
+        PositionSearch search = new PositionSearch();
+        Configuration[] initialConfigs = getInitialConfigurations("");
+        for (int k = 0; k < initialConfigs.length; k++)
+            search.add(initialConfigs[k].getCurrentState(), 0);
+        while (!search.states.isEmpty()) {
+            State state = search.states.removeFirst();
+            int position = search.positions.removeFirst().intValue();
+            if (position == input.length()
+                    && myAutomaton.isFinalState(state))
+                return true;
+            step(search, state, input, position);
+        }
+        return false;
+    }
+
+    /**
+     * Adds to a search the pairs reachable in one step from a state at a
+     * position in the input, as {@link #stepConfiguration} does for
+     * configurations.
+     *
+     * @param search   the search
+     * @param state    the state
+     * @param input    the input
+     * @param position the position in the input
+     */
+    void step(PositionSearch search, State state, CharSequence input,
+              int position) {
+        Transition[] transitions = myAutomaton.getTransitionsFromState(state);
+        for (int k = 0; k < transitions.length; k++) {
+            String transLabel = ((FSATransition) transitions[k]).getLabel();
+            int read = matchLength(transLabel, input, position);
+            if (read >= 0)
+                search.add(transitions[k].getToState(), position + read);
+        }
+    }
+
+    /**
+     * Returns how much of the input a transition label reads at a position.
+     * A label with a range such as <CODE>[a-z]</CODE> reads one character in
+     * the range; any other label reads itself.
+     *
+     * @param transLabel the label of the transition
+     * @param input      the input
+     * @param position   the position in the input
+     * @return the number of characters read, or -1 if the label does not
+     * match the input there
+     */
+    static int matchLength(String transLabel, CharSequence input, int position) {
+        int range = transLabel.indexOf("[");
+        if (range < 0)
+            return startsWith(input, transLabel, position) ? transLabel
+                    .length() : -1;
+        if (position >= input.length())
+            return -1;
+        char c = input.charAt(position);
+        return c >= transLabel.charAt(range + 1)
+                && c <= transLabel.charAt(range + 3) ? 1 : -1;
+    }
+
+    /**
+     * The pairs of a state and a position in the input a simulation has yet
+     * to step from, with the pairs it has already seen.
+     */
+    static class PositionSearch {
+        /**
+         * The pairs to step from, as states and positions.
+         */
+        final ArrayDeque<State> states = new ArrayDeque<>();
+        final ArrayDeque<Integer> positions = new ArrayDeque<>();
+        /**
+         * The positions seen for each state.
+         */
+        private final Map<State, BitSet> seen = new HashMap<>();
+
+        /**
+         * Adds a pair to step from, if it was not seen before.
+         *
+         * @param state    the state
+         * @param position the position in the input
+         */
+        void add(State state, int position) {
+            BitSet at = seen.get(state);
+            if (at == null) {
+                at = new BitSet();
+                seen.put(state, at);
+            }
+            if (at.get(position))
+                return;
+            at.set(position);
+            states.addLast(state);
+            positions.addLast(position);
+        }
+    }
+
 }
@@ -121,4 +121,35 @@ public class FSAStepWithClosureSimulator extends FSAStepByStateSimulator {
         return list;
     }
 
+    /**
+     * Adds to a search the pairs reachable in one step from a state at a
+     * position in the input, taking the closure of the states reached as
+     * {@link #stepConfiguration} does.
+     *
+     * @param search   the search
+     * @param state    the state
+     * @param input    the input
+     * @param position the position in the input
+     */
+    void step(PositionSearch search, State state, CharSequence input,
+              int position) {
+        Transition[] transitions = myAutomaton.getTransitionsFromState(state);
+        for (int k = 0; k < transitions.length; k++) {
+            String transLabel = ((FSATransition) transitions[k]).getLabel();
+            if (transLabel.length() == 0)
+                continue;
+            int read = matchLength(transLabel, input, position);
+            if (read < 0)
+                continue;
+            State toState = transitions[k].getToState();
+            if (transLabel.contains("[")) {
+                search.add(toState, position + read);
+                continue;
+            }
+            State[] closure = ClosureTaker.getClosure(toState, myAutomaton);
+            for (int i = 0; i < closure.length; i++)
+                search.add(closure[i], position + read);
+        }
+    }
+
 }
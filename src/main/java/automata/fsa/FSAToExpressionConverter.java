@@ -0,0 +1,232 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.fsa;
+
+import automata.Automaton;
+import automata.State;
+import automata.Transition;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import regular.Expression;
+import regular.ExpressionFactory;
+
+/**
+ * The <CODE>FSAToExpressionConverter</CODE> converts a finite state
+ * automaton to a regular expression by removing states, like the
+ * {@link FSAToRegularExpressionConverter}, but without any of the views and
+ * without changing the automaton. The labels are kept as {@link Expression}s
+ * made by one {@link ExpressionFactory}, so they share their common parts and
+ * are simplified as they are made, and the expression is written as a string
+ * only at the end.
+ * <p>
+ * The order in which states are removed matters much to the size of the
+ * expression. Each time, the state removed is the one whose removal adds the
+ * least to the sizes of the labels, as estimated from the sizes of the labels
+ * into it, out of it and on its loop; this keeps states with few transitions
+ * to be removed first.
+ *
+ * @see regular.ExpressionToDFAConverter
+ */
+
+public class FSAToExpressionConverter {
+    /**
+     * The factory the labels are made by.
+     */
+    private ExpressionFactory myFactory = new ExpressionFactory();
+    /**
+     * The size of each label found so far.
+     */
+    private Map<Expression, Long> mySizes = new HashMap<>();
+    /**
+     * For each state, the labels of the transitions out of it, by the state
+     * they go to.
+     */
+    private List<Map<Integer, Expression>> myOut;
+    /**
+     * For each state, the labels of the transitions into it, by the state
+     * they come from.
+     */
+    private List<Map<Integer, Expression>> myIn;
+
+    /**
+     * Instantiates a converter.
+     */
+    public FSAToExpressionConverter() {
+    }
+
+    /**
+     * Converts an automaton to a regular expression string.
+     *
+     * @param automaton the finite state automaton, which is not changed
+     * @return the regular expression for the language of the automaton
+     */
+    public static String convertToRegularExpression(Automaton automaton) {
+        return new FSAToExpressionConverter().convert(automaton).toString();
+    }
+
+    /**
+     * Converts an automaton to a regular expression. The states of the
+     * automaton are numbered, with a new initial state before the initial
+     * state and a new final state after the final states, and then every
+     * other state is removed.
+     *
+     * @param automaton the finite state automaton, which is not changed
+     * @return the regular expression for the language of the automaton
+     * @throws UnsupportedOperationException if a label is not a properly
+     *                                       formed expression
+     */
+    public Expression convert(Automaton automaton) {
+        State[] states = automaton.getStates();
+        int count = states.length + 2, initial = states.length, last = initial + 1;
+        myOut = new ArrayList<>(count);
+        myIn = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            myOut.add(new HashMap<Integer, Expression>());
+            myIn.add(new HashMap<Integer, Expression>());
+        }
+        Map<State, Integer> index = new HashMap<>();
+        for (int i = 0; i < states.length; i++)
+            index.put(states[i], i);
+
+        Transition[] transitions = automaton.getTransitions();
+        for (int i = 0; i < transitions.length; i++) {
+            String label = ((FSATransition) transitions[i]).getLabel();
+            Expression e = label.length() == 0 ? myFactory.lambda() : myFactory
+                    .make(Expression.parse(label));
+            add(index.get(transitions[i].getFromState()), index
+                    .get(transitions[i].getToState()), e);
+        }
+        if (automaton.getInitialState() != null)
+            add(initial, index.get(automaton.getInitialState()), myFactory
+                    .lambda());
+        State[] finals = automaton.getFinalStates();
+        for (int i = 0; i < finals.length; i++)
+            add(index.get(finals[i]), last, myFactory.lambda());
+
+        boolean[] removed = new boolean[states.length];
+        for (int removals = 0; removals < states.length; removals++) {
+            int best = -1;
+            long bestWeight = Long.MAX_VALUE;
+            for (int k = 0; k < states.length; k++) {
+                if (removed[k])
+                    continue;
+                long weight = getWeight(k);
+                if (weight < bestWeight) {
+                    best = k;
+                    bestWeight = weight;
+                }
+            }
+            remove(best);
+            removed[best] = true;
+        }
+        Expression e = myOut.get(initial).get(last);
+        myOut = myIn = null;
+        mySizes.clear();
+        return e == null ? myFactory.empty() : e;
+    }
+
+    /**
+     * Adds a label from one state to another, or-ed with any label already
+     * there.
+     *
+     * @param from the state the label is from
+     * @param to   the state the label is to
+     * @param e    the label
+     */
+    private void add(int from, int to, Expression e) {
+        if (e.getKind() == Expression.EMPTY)
+            return;
+        Expression old = myOut.get(from).get(to);
+        if (old != null)
+            e = myFactory.or(old, e);
+        myOut.get(from).put(to, e);
+        myIn.get(to).put(from, e);
+    }
+
+    /**
+     * Estimates how much removing a state adds to the sizes of the labels.
+     * Each label into the state is copied for every transition out of it, and
+     * each label out of it for every transition into it, with the loop copied
+     * for every pair; the labels removed are subtracted.
+     *
+     * @param k the state
+     * @return the estimated growth, which may be negative
+     */
+    private long getWeight(int k) {
+        Expression loop = myOut.get(k).get(k);
+        int in = myIn.get(k).size() - (loop == null ? 0 : 1);
+        int out = myOut.get(k).size() - (loop == null ? 0 : 1);
+        long inSize = 0, outSize = 0;
+        for (Map.Entry<Integer, Expression> entry : myIn.get(k).entrySet())
+            if (entry.getKey() != k)
+                inSize += size(entry.getValue());
+        for (Map.Entry<Integer, Expression> entry : myOut.get(k).entrySet())
+            if (entry.getKey() != k)
+                outSize += size(entry.getValue());
+        long loopSize = loop == null ? 0 : size(loop);
+        return inSize * (out - 1) + outSize * (in - 1) + loopSize
+                * ((long) in * out - 1);
+    }
+
+    /**
+     * Returns the size of an expression, the number of nodes in it as a tree.
+     *
+     * @param e the expression
+     * @return the size of the expression
+     */
+    private long size(Expression e) {
+        Long size = mySizes.get(e);
+        if (size != null)
+            return size;
+        long s = 1;
+        for (int i = 0; i < e.getChildCount(); i++)
+            s += size(e.getChild(i));
+        mySizes.put(e, s);
+        return s;
+    }
+
+    /**
+     * Removes a state, adding the label <I>r(pk)r(kk)*r(kq)</I> from each
+     * state <I>p</I> into it to each state <I>q</I> out of it.
+     *
+     * @param k the state to remove
+     */
+    private void remove(int k) {
+        Expression loop = myOut.get(k).remove(k);
+        myIn.get(k).remove(k);
+        Expression star = loop == null ? myFactory.lambda() : myFactory
+                .star(loop);
+        Iterator<Map.Entry<Integer, Expression>> it = myIn.get(k).entrySet()
+                .iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Expression> in = it.next();
+            int p = in.getKey();
+            myOut.get(p).remove(k);
+            Expression pk = myFactory.cat(in.getValue(), star);
+            for (Map.Entry<Integer, Expression> out : myOut.get(k).entrySet())
+                add(p, out.getKey(), myFactory.cat(pk, out.getValue()));
+        }
+        for (Integer q : myOut.get(k).keySet())
+            myIn.get(q).remove(k);
+        myIn.get(k).clear();
+        myOut.get(k).clear();
+    }
+}
@@ -21,6 +21,7 @@ import automata.Automaton;
 import automata.State;
 import automata.Transition;
 import grammar.Production;
+import grammar.SymbolTable;
 import grammar.reg.RegularGrammar;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -106,7 +107,8 @@ public class FSAToRegularGrammarConverter {
         Iterator<Object> it = stateList.iterator();
         while (it.hasNext()) {
             State state = (State) it.next();
-            MAP.put(state, VARIABLE.removeFirst());
+            MAP.put(state, VARIABLE.isEmpty() ? SymbolTable.OPEN + "q"
+                    + state.getID() + SymbolTable.CLOSE : VARIABLE.removeFirst());
         }
     }
 
@@ -0,0 +1,159 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.graph;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Counts the crossings of the edges of a graph, each edge drawn as a straight line between
+ * its vertices.  Edges that share a vertex, and edges that only touch, are not counted as
+ * crossing.  The count is used to compare layouts of the same graph.
+ * <p>
+ * The edges are swept from left to right in the order of their left ends, keeping a list of
+ * those the sweep line is crossing; a new edge is only tested against the edges in the list
+ * whose heights overlap its own, so edges far apart are never compared.
+ *
+ * @see automata.graph.LayoutAlgorithm
+ */
+public class CrossingCounter {
+    /**
+     * The ends of the edges, with the left end first.
+     */
+    private double[] x1, y1, x2, y2;
+    /**
+     * The vertices at the ends of the edges.
+     */
+    private int[] from, to;
+
+    /**
+     * Counts the crossings of the edges of a graph.
+     *
+     * @param graph the graph
+     * @return the number of pairs of edges that cross
+     */
+    public static long countCrossings(Graph graph) {
+        return new CrossingCounter().count(graph);
+    }
+
+    /**
+     * Counts the crossings of the edges of a graph.
+     *
+     * @param graph the graph
+     * @return the number of pairs of edges that cross
+     */
+    private long count(Graph graph) {
+        Object[] vertices = graph.vertices();
+        Map<Object, Integer> index = new HashMap<>();
+        for (int i = 0; i < vertices.length; i++)
+            index.put(vertices[i], i);
+        int edges = 0;
+        for (int i = 0; i < vertices.length; i++)
+            edges += graph.adjacent(vertices[i]).size();
+        x1 = new double[edges];
+        y1 = new double[edges];
+        x2 = new double[edges];
+        y2 = new double[edges];
+        from = new int[edges];
+        to = new int[edges];
+        edges = 0;
+        for (int i = 0; i < vertices.length; i++) {
+            Point2D p = graph.pointForVertex(vertices[i]);
+            Iterator<Object> it = graph.adjacent(vertices[i]).iterator();
+            while (it.hasNext()) {
+                Integer j = index.get(it.next());
+                // Each edge is in the adjacency of both its ends; take it once.
+                if (j == null || j.intValue() <= i)
+                    continue;
+                Point2D q = graph.pointForVertex(vertices[j.intValue()]);
+                boolean leftFirst = p.getX() <= q.getX();
+                x1[edges] = leftFirst ? p.getX() : q.getX();
+                y1[edges] = leftFirst ? p.getY() : q.getY();
+                x2[edges] = leftFirst ? q.getX() : p.getX();
+                y2[edges] = leftFirst ? q.getY() : p.getY();
+                from[edges] = i;
+                to[edges] = j.intValue();
+                edges++;
+            }
+        }
+
+        Integer[] order = new Integer[edges];
+        for (int e = 0; e < edges; e++)
+            order[e] = e;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return Double.compare(x1[a.intValue()], x1[b.intValue()]);
+            }
+        });
+
+        long crossings = 0;
+        int[] active = new int[edges];
+        int actives = 0;
+        for (int k = 0; k < edges; k++) {
+            int e = order[k].intValue();
+            double top = Math.min(y1[e], y2[e]), bottom = Math.max(y1[e], y2[e]);
+            int kept = 0;
+            for (int m = 0; m < actives; m++) {
+                int a = active[m];
+                // Edges wholly left of the sweep line leave the list.
+                if (x2[a] < x1[e])
+                    continue;
+                active[kept++] = a;
+                if (Math.max(y1[a], y2[a]) < top || Math.min(y1[a], y2[a]) > bottom)
+                    continue;
+                if (crosses(a, e))
+                    crossings++;
+            }
+            actives = kept;
+            active[actives++] = e;
+        }
+        return crossings;
+    }
+
+    /**
+     * Returns whether two edges cross at a point inside both.
+     *
+     * @param a the first edge
+     * @param b the second edge
+     * @return true if the edges cross
+     */
+    private boolean crosses(int a, int b) {
+        if (from[a] == from[b] || from[a] == to[b] || to[a] == from[b] || to[a] == to[b])
+            return false;
+        double d1 = side(a, x1[b], y1[b]), d2 = side(a, x2[b], y2[b]);
+        double d3 = side(b, x1[a], y1[a]), d4 = side(b, x2[a], y2[a]);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0))
+                && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    /**
+     * Returns which side of the line through an edge a point is on.
+     *
+     * @param e the edge
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return positive on one side, negative on the other, and zero on the line
+     */
+    private double side(int e, double x, double y) {
+        return (x2[e] - x1[e]) * (y - y1[e]) - (y2[e] - y1[e]) * (x - x1[e]);
+    }
+}
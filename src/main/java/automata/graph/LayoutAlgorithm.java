@@ -41,6 +41,14 @@ public abstract class LayoutAlgorithm {
      * The minimum space between vertices.
      */
     protected double vertexBuffer;
+    /**
+     * The listener told of the positions as the layout goes, or <code>null</code>.
+     */
+    private LayoutListener listener;
+    /**
+     * Whether the layout has been asked to stop.
+     */
+    private volatile boolean cancelled = false;
 
     public LayoutAlgorithm() {
         size = new Dimension(900, 900);
@@ -187,6 +195,52 @@ public abstract class LayoutAlgorithm {
         }
     }
 
+    /**
+     * Sets the listener told of the positions of the vertices as the layout goes.  Only
+     * algorithms that move the vertices many times tell the listener anything.
+     *
+     * @param l the listener, or <code>null</code> for none.
+     */
+    public void setLayoutListener(LayoutListener l) {
+        listener = l;
+    }
+
+    /**
+     * Returns whether a listener is to be told of the positions as the layout goes.
+     *
+     * @return true if there is a listener
+     */
+    protected boolean hasLayoutListener() {
+        return listener != null;
+    }
+
+    /**
+     * Tells the listener, if any, of the positions of the vertices so far.
+     *
+     * @param graph the graph being laid out.
+     */
+    protected void fireLayoutProgress(Graph graph) {
+        if (listener != null)
+            listener.layoutProgress(graph);
+    }
+
+    /**
+     * Asks the layout to stop.  This may be called from any thread; an algorithm that
+     * moves the vertices many times stops soon after, leaving the graph partly laid out.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether the layout has been asked to stop.
+     *
+     * @return true if {@link #cancel} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     /**
      * Moves the vertices of the states of the graph so that they are in some pleasing position.
      *
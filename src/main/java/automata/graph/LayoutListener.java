@@ -0,0 +1,37 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.graph;
+
+import java.util.EventListener;
+
+/**
+ * An interface that those interested in the positions of the vertices of a graph while a
+ * {@link LayoutAlgorithm} is still moving them should implement.
+ *
+ * @see LayoutAlgorithm#setLayoutListener
+ */
+public interface LayoutListener extends EventListener {
+    /**
+     * Registers with the listener that the layout has moved the vertices.  This is called on
+     * the thread doing the layout, which goes on changing the graph once this returns, so the
+     * listener should copy any positions it wants to keep.
+     *
+     * @param graph the graph being laid out
+     */
+    void layoutProgress(Graph graph);
+}
@@ -0,0 +1,569 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.graph.layout;
+
+import automata.graph.Graph;
+import automata.graph.LayoutAlgorithm;
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A variant of the {@link GEMLayoutAlgorithm} for graphs with many vertices.
+ * The forces are the same, but the positions are kept in arrays of doubles
+ * and the edges in arrays of vertex indices, and the repulsion of the other
+ * vertices is estimated with a quadtree in the manner of Barnes and Hut: a
+ * square of the tree far enough from a vertex pushes it as one mass at its
+ * center of mass. A round of the layout then takes time proportional to
+ * <I>n</I> log <I>n</I> rather than <I>n</I><SUP>2</SUP>.
+ * <p>
+ * Rather than moving one vertex at a time, each round finds the impulse of
+ * every movable vertex from the positions at the start of the round and then
+ * moves them all, so the impulses of a round may be found in parallel. As in
+ * the GEM algorithm, each vertex is moved 120 times.
+ */
+
+public class FastGEMLayoutAlgorithm extends LayoutAlgorithm {
+    private static final Random RANDOM = new Random();
+    private static final double TEMPERATURE = 3.0;
+    private static final double OPTIMAL_EDGE_LENGTH = 100.0,
+            GRAVITATIONAL_CONSTANT = 1.0 / 16.0;
+    /**
+     * The number of rounds, each moving every movable vertex once.
+     */
+    private static final int ROUNDS = 120;
+    /**
+     * A square of the quadtree whose side is less than this times its
+     * distance from a vertex pushes the vertex as one mass.
+     */
+    private static final double THETA = 0.5;
+    /**
+     * The number of vertices whose impulses are found together in one task.
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    /**
+     * Default constructor.
+     */
+    public FastGEMLayoutAlgorithm() {
+        super();
+    }
+
+    /**
+     * Constructor allowing the user to customize certain values.  The <code>vertexDim</code>
+     * is not used in this algorithm, but it is here so the superclass constructor can
+     * be used and for the <code>LayoutAlgorithmFactory</code>.
+     *
+     * @param pSize   value for <code>size</code>.
+     * @param vDim    value for <code>vertexDim</code>.
+     * @param vBuffer value for <code>vertexBuffer</code>.
+     */
+    public FastGEMLayoutAlgorithm(Dimension pSize, Dimension vDim, double vBuffer) {
+        super(pSize, vDim, vBuffer);
+    }
+
+    public void layout(Graph graph, Set<Object> isovertices) {
+        if (isovertices == null)
+            isovertices = new HashSet<>();
+        Object[] vArray = graph.vertices();
+        int n = vArray.length;
+        Map<Object, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            index.put(vArray[i], i);
+
+        // The positions, and which vertices are moved.
+        double[] x = new double[n], y = new double[n];
+        int[] movable = new int[n];
+        int movables = 0;
+        for (int i = 0; i < n; i++) {
+            Point2D point = graph.pointForVertex(vArray[i]);
+            x[i] = point.getX();
+            y[i] = point.getY();
+            if (!isovertices.contains(vArray[i]))
+                movable[movables++] = i;
+        }
+        if (movables == 0)
+            return;
+
+        // The edges, as the indices of each vertex's neighbors in one array.
+        int[] firstEdge = new int[n + 1];
+        double[] theta = new double[n];
+        for (int i = 0; i < n; i++) {
+            Set<Object> adjacent = graph.adjacent(vArray[i]);
+            firstEdge[i + 1] = firstEdge[i] + adjacent.size();
+            theta[i] = adjacent.size();
+            theta[i] *= 1.0 + theta[i] / 2.0;
+        }
+        int[] neighbors = new int[firstEdge[n]];
+        for (int i = 0; i < n; i++) {
+            int e = firstEdge[i];
+            Iterator<Object> it = graph.adjacent(vArray[i]).iterator();
+            while (it.hasNext()) {
+                Integer j = index.get(it.next());
+                if (j != null && j.intValue() != i)
+                    neighbors[e++] = j.intValue();
+            }
+            // Loops and unknown vertices leave unused places.
+            while (e < firstEdge[i + 1])
+                neighbors[e++] = i;
+        }
+
+        Layout layout = new Layout(x, y, movable, movables, firstEdge,
+                neighbors, theta, getOptimalEdgeLength(graph, isovertices));
+        for (int round = 0; round < ROUNDS; round++) {
+            if (isCancelled())
+                return;
+            layout.round();
+            if (hasLayoutListener() && round + 1 < ROUNDS) {
+                for (int k = 0; k < movables; k++) {
+                    int i = movable[k];
+                    graph.moveVertex(vArray[i], new Point2D.Double(x[i], y[i]));
+                }
+                fireLayoutProgress(graph);
+            }
+        }
+
+        for (int k = 0; k < movables; k++) {
+            int i = movable[k];
+            graph.moveVertex(vArray[i], new Point2D.Double(x[i], y[i]));
+        }
+        //Finally, shift all points onto the screen.
+        shiftOntoScreen(graph, size, vertexDim, true);
+    }
+
+    /**
+     * Determines an optimal edge length. With isovertices, we want optimal
+     * length to be about average of existing edges that will remain
+     * unchanged due to isovertex status.
+     *
+     * @param graph       the graph
+     * @param isovertices the vertices that are not moved
+     * @return the optimal edge length
+     */
+    private static double getOptimalEdgeLength(Graph graph,
+                                               Set<Object> isovertices) {
+        int count = 0;
+        double lengths = 0.0;
+        Iterator<Object> it = isovertices.iterator();
+        while (it.hasNext()) {
+            Object vertex = it.next();
+            Iterator<Object> it2 = graph.adjacent(vertex).iterator();
+            while (it2.hasNext()) {
+                Object other = it2.next();
+                if (other == vertex || !isovertices.contains(other)
+                        || graph.pointForVertex(other) == null)
+                    continue;
+                lengths += graph.pointForVertex(vertex).distance(
+                        graph.pointForVertex(other));
+                count++;
+            }
+        }
+        // Each edge is counted from both ends, which leaves the average.
+        return count > 0 ? lengths / (double) count : OPTIMAL_EDGE_LENGTH;
+    }
+
+    /**
+     * The state of a layout in progress.
+     */
+    private static class Layout {
+        /**
+         * The positions of the vertices.
+         */
+        private final double[] x, y;
+        /**
+         * The indices of the movable vertices.
+         */
+        private final int[] movable;
+        /**
+         * The number of movable vertices.
+         */
+        private final int movables;
+        /**
+         * For each vertex, the index of its first neighbor in
+         * <CODE>neighbors</CODE>, and after the last vertex the length.
+         */
+        private final int[] firstEdge;
+        /**
+         * The neighbors of all the vertices.
+         */
+        private final int[] neighbors;
+        /**
+         * The mass of each vertex, from its degree.
+         */
+        private final double[] theta;
+        /**
+         * The square of the optimal edge length.
+         */
+        private final double optimalSquared;
+        /**
+         * The impulses of the movable vertices in this round, two for each.
+         */
+        private final double[] impulses;
+        /**
+         * The quadtree of the positions at the start of this round.
+         */
+        private final QuadTree tree;
+        /**
+         * The barycenter of the graph at the start of this round.
+         */
+        private double centerX, centerY;
+
+        Layout(double[] x, double[] y, int[] movable, int movables,
+               int[] firstEdge, int[] neighbors, double[] theta,
+               double optimalEdgeLength) {
+            this.x = x;
+            this.y = y;
+            this.movable = movable;
+            this.movables = movables;
+            this.firstEdge = firstEdge;
+            this.neighbors = neighbors;
+            this.theta = theta;
+            optimalSquared = optimalEdgeLength * optimalEdgeLength;
+            impulses = new double[2 * movables];
+            tree = new QuadTree(x, y);
+        }
+
+        /**
+         * Moves each movable vertex once.
+         */
+        void round() {
+            int n = x.length;
+            centerX = centerY = 0.0;
+            for (int i = 0; i < n; i++) {
+                centerX += x[i];
+                centerY += y[i];
+            }
+            centerX /= n;
+            centerY /= n;
+            tree.build();
+            // The random disturbance is chosen here, so that the parallel
+            // tasks do not share the generator.
+            for (int k = 0; k < impulses.length; k++)
+                impulses[k] = RANDOM.nextDouble() * 10.0 - 5.0;
+            if (movables <= CHUNK_SIZE)
+                computeImpulses(0, movables);
+            else
+                ForkJoinPool.commonPool().invoke(
+                        new ImpulseAction(this, 0, movables));
+
+            for (int k = 0; k < movables; k++) {
+                double px = impulses[2 * k], py = impulses[2 * k + 1];
+                if (px == 0.0 && py == 0.0)
+                    continue;
+                double absp = Math.sqrt(px * px + py * py);
+                int i = movable[k];
+                x[i] += px * TEMPERATURE / absp;
+                y[i] += py * TEMPERATURE / absp;
+            }
+        }
+
+        /**
+         * Adds the forces on some of the movable vertices to their impulses.
+         *
+         * @param from the first of the movable vertices
+         * @param to   the one after the last of the movable vertices
+         */
+        void computeImpulses(int from, int to) {
+            double[] force = new double[2];
+            int[] stack = tree.newStack();
+            for (int k = from; k < to; k++) {
+                int i = movable[k];
+                double xi = x[i], yi = y[i], t = theta[i];
+                // Attraction to the barycenter.
+                double px = (centerX - xi) * GRAVITATIONAL_CONSTANT * t;
+                double py = (centerY - yi) * GRAVITATIONAL_CONSTANT * t;
+                // Repulsion from the other vertices.
+                tree.repulsion(i, optimalSquared, force, stack);
+                px += force[0];
+                py += force[1];
+                // Attraction along the edges.
+                for (int e = firstEdge[i]; e < firstEdge[i + 1]; e++) {
+                    int j = neighbors[e];
+                    if (j == i)
+                        continue;
+                    double dx = xi - x[j], dy = yi - y[j];
+                    double d2 = dx * dx + dy * dy;
+                    px -= dx * d2 / (optimalSquared * t);
+                    py -= dy * d2 / (optimalSquared * t);
+                }
+                impulses[2 * k] += px;
+                impulses[2 * k + 1] += py;
+            }
+        }
+    }
+
+    /**
+     * Finds the impulses of a range of the movable vertices, splitting the
+     * range in half until it is small.
+     */
+    private static class ImpulseAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /**
+         * The layout.
+         */
+        private final Layout layout;
+        /**
+         * The first of the movable vertices and the one after the last.
+         */
+        private final int from, to;
+
+        ImpulseAction(Layout layout, int from, int to) {
+            this.layout = layout;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                layout.computeImpulses(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ImpulseAction(layout, from, middle),
+                    new ImpulseAction(layout, middle, to));
+        }
+    }
+
+    /**
+     * A quadtree of the positions of the vertices, kept in arrays. Each node
+     * is a square; a leaf holds a list of vertices, and an inner node the
+     * count and the sums of the positions of the vertices under it. Vertices
+     * too close together to be parted are kept in one leaf.
+     */
+    private static class QuadTree {
+        /**
+         * The deepest a node may be.
+         */
+        private static final int MAXIMUM_DEPTH = 48;
+        /**
+         * The positions of the vertices.
+         */
+        private final double[] x, y;
+        /**
+         * For each vertex, the next vertex in the same leaf, or -1.
+         */
+        private final int[] next;
+        /**
+         * For each node, the first of its four children, or -1 for a leaf.
+         */
+        private int[] children;
+        /**
+         * For each leaf, the first vertex in it, or -1.
+         */
+        private int[] first;
+        /**
+         * For each node, the number of vertices under it and the sums of
+         * their positions.
+         */
+        private double[] mass, sumX, sumY;
+        /**
+         * For each node, its center and half the length of its side.
+         */
+        private double[] nodeX, nodeY, half;
+        /**
+         * The number of nodes.
+         */
+        private int nodes;
+
+        QuadTree(double[] x, double[] y) {
+            this.x = x;
+            this.y = y;
+            next = new int[x.length];
+            allocate(Math.max(16, x.length * 2));
+        }
+
+        /**
+         * Makes room for a number of nodes.
+         *
+         * @param capacity the number of nodes
+         */
+        private void allocate(int capacity) {
+            children = copy(children, capacity);
+            first = copy(first, capacity);
+            mass = copy(mass, capacity);
+            sumX = copy(sumX, capacity);
+            sumY = copy(sumY, capacity);
+            nodeX = copy(nodeX, capacity);
+            nodeY = copy(nodeY, capacity);
+            half = copy(half, capacity);
+        }
+
+        private static int[] copy(int[] array, int length) {
+            return array == null ? new int[length] : Arrays.copyOf(array,
+                    length);
+        }
+
+        private static double[] copy(double[] array, int length) {
+            return array == null ? new double[length] : Arrays.copyOf(array,
+                    length);
+        }
+
+        /**
+         * Builds the tree from the current positions.
+         */
+        void build() {
+            double minX = Double.POSITIVE_INFINITY, minY = minX;
+            double maxX = Double.NEGATIVE_INFINITY, maxY = maxX;
+            for (int i = 0; i < x.length; i++) {
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            nodes = 0;
+            int root = newNode((minX + maxX) / 2.0, (minY + maxY) / 2.0, Math
+                    .max(Math.max(maxX - minX, maxY - minY) / 2.0, 1.0));
+            for (int i = 0; i < x.length; i++)
+                insert(root, i);
+        }
+
+        /**
+         * Adds an empty leaf.
+         *
+         * @param cx the x coordinate of its center
+         * @param cy the y coordinate of its center
+         * @param h  half the length of its side
+         * @return the index of the leaf
+         */
+        private int newNode(double cx, double cy, double h) {
+            if (nodes == children.length)
+                allocate(nodes * 2);
+            children[nodes] = -1;
+            first[nodes] = -1;
+            mass[nodes] = sumX[nodes] = sumY[nodes] = 0.0;
+            nodeX[nodes] = cx;
+            nodeY[nodes] = cy;
+            half[nodes] = h;
+            return nodes++;
+        }
+
+        /**
+         * Adds a vertex under a node.
+         *
+         * @param node   the node
+         * @param vertex the vertex
+         */
+        private void insert(int node, int vertex) {
+            for (int depth = 0; ; depth++) {
+                mass[node]++;
+                sumX[node] += x[vertex];
+                sumY[node] += y[vertex];
+                if (children[node] < 0) {
+                    int other = first[node];
+                    if (other < 0 || depth == MAXIMUM_DEPTH
+                            || (x[other] == x[vertex] && y[other] == y[vertex])) {
+                        next[vertex] = other;
+                        first[node] = vertex;
+                        return;
+                    }
+                    // Split the leaf, moving its vertices down.
+                    double h = half[node] / 2.0;
+                    int c = nodes;
+                    for (int q = 0; q < 4; q++)
+                        newNode(nodeX[node] + ((q & 1) == 0 ? -h : h),
+                                nodeY[node] + ((q & 2) == 0 ? -h : h), h);
+                    children[node] = c;
+                    first[node] = -1;
+                    while (other >= 0) {
+                        int following = next[other];
+                        int child = c + quadrant(node, other);
+                        mass[child]++;
+                        sumX[child] += x[other];
+                        sumY[child] += y[other];
+                        next[other] = first[child];
+                        first[child] = other;
+                        other = following;
+                    }
+                }
+                node = children[node] + quadrant(node, vertex);
+            }
+        }
+
+        /**
+         * Returns which child of a node a vertex is in.
+         *
+         * @param node   the node
+         * @param vertex the vertex
+         * @return the index of the child among the four
+         */
+        private int quadrant(int node, int vertex) {
+            return (x[vertex] < nodeX[node] ? 0 : 1)
+                    + (y[vertex] < nodeY[node] ? 0 : 2);
+        }
+
+        /**
+         * Returns an array large enough to hold the nodes waiting to be
+         * visited in finding a repulsion.
+         *
+         * @return the array
+         */
+        int[] newStack() {
+            return new int[3 * MAXIMUM_DEPTH + 4];
+        }
+
+        /**
+         * Finds the repulsion of the other vertices on a vertex.
+         *
+         * @param vertex         the vertex
+         * @param optimalSquared the square of the optimal edge length
+         * @param force          the array to put the force in
+         * @param stack          an array from {@link #newStack}
+         */
+        void repulsion(int vertex, double optimalSquared, double[] force,
+                       int[] stack) {
+            double xi = x[vertex], yi = y[vertex], fx = 0.0, fy = 0.0;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                if (children[node] < 0) {
+                    for (int j = first[node]; j >= 0; j = next[j]) {
+                        double dx = xi - x[j], dy = yi - y[j];
+                        if (dx == 0.0 && dy == 0.0)
+                            continue;
+                        double d2 = dx * dx + dy * dy;
+                        fx += dx * optimalSquared / d2;
+                        fy += dy * optimalSquared / d2;
+                    }
+                    continue;
+                }
+                double m = mass[node];
+                double dx = xi - sumX[node] / m, dy = yi - sumY[node] / m;
+                double d2 = dx * dx + dy * dy, side = 2.0 * half[node];
+                if (side * side < THETA * THETA * d2) {
+                    fx += m * dx * optimalSquared / d2;
+                    fy += m * dy * optimalSquared / d2;
+                    continue;
+                }
+                for (int q = 0; q < 4; q++)
+                    if (mass[children[node] + q] > 0.0)
+                        stack[top++] = children[node] + q;
+            }
+            force[0] = fx;
+            force[1] = fy;
+        }
+    }
+}
@@ -34,6 +34,10 @@ import java.util.Set;
  * Mehldau in their 1994 paper. At present the rotation detection is not built
  * in, as forcing speedier convergence is totally unnecessary for our limited
  * applications.
+ * <p>
+ * Graphs with many movable vertices are laid out by the
+ * {@link FastGEMLayoutAlgorithm} instead, which estimates the repulsion with
+ * a quadtree.
  *
  * @author Thomas Finley
  */
@@ -45,6 +49,10 @@ public class GEMLayoutAlgorithm extends LayoutAlgorithm {
     private static final double Tmax = 256.0, Tmin = 3.0;
     private static final double OPTIMAL_EDGE_LENGTH = 100.0,
             GRAVITATIONAL_CONSTANT = 1.0 / 16.0;
+    /**
+     * The number of movable vertices from which the fast variant is used.
+     */
+    private static final int LARGE_GRAPH = 256;
     private Map<Object, Record> records;
 
     /**
@@ -71,6 +79,24 @@ public class GEMLayoutAlgorithm extends LayoutAlgorithm {
         if (isovertices == null)
             isovertices = EMPTY_SET;
         Object[] vArray = graph.vertices();
+        if (vArray.length - isovertices.size() >= LARGE_GRAPH) {
+            LayoutAlgorithm fast = new FastGEMLayoutAlgorithm(size,
+                    vertexDim, vertexBuffer) {
+                public boolean isCancelled() {
+                    return GEMLayoutAlgorithm.this.isCancelled();
+                }
+
+                protected boolean hasLayoutListener() {
+                    return GEMLayoutAlgorithm.this.hasLayoutListener();
+                }
+
+                protected void fireLayoutProgress(Graph graph) {
+                    GEMLayoutAlgorithm.this.fireLayoutProgress(graph);
+                }
+            };
+            fast.layout(graph, isovertices);
+            return;
+        }
         int Rmax = 120 * (vArray.length - isovertices.size());
         double Tglobal = Tmin + 1.0;
 
@@ -111,7 +137,11 @@ public class GEMLayoutAlgorithm extends LayoutAlgorithm {
         // Iterate until done.
         ArrayList<Object> vertices = new ArrayList<>();
         for (int i = 0; i < Rmax && Tglobal > Tmin; i++) {
+            if (isCancelled())
+                return;
             if (vertices.isEmpty()) {
+                if (i > 0)
+                    fireLayoutProgress(graph);
                 vertices = getMovableVertices(graph, isovertices);
                 if (vertices.size() == 0)
                     return;
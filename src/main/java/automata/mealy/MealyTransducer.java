@@ -0,0 +1,260 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.mealy;
+
+import automata.State;
+import automata.Transition;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Mealy transducer runs a deterministic Mealy or Moore machine over a
+ * stream of input and writes the output to a stream. Unlike the
+ * {@link MealyStepByStateSimulator}, which keeps the whole input and the
+ * output accumulated so far in each configuration, the transducer compiles
+ * the machine into a table from (state, symbol) to (next state, output) once,
+ * and then reads and writes in blocks, so the length of the input is limited
+ * only by the streams.
+ *
+ * <p>Transitions whose labels are longer than one character are supported by
+ * looking ahead in the input buffer. The machine must be deterministic, since
+ * there is only ever one current state.
+ *
+ * @see automata.mealy.MealyNondeterminismDetector
+ */
+public class MealyTransducer {
+    /**
+     * The size of the input and output buffers.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The index of the initial state.
+     */
+    private int myInitial;
+    /**
+     * The output produced before any input is read, which is the output of
+     * the initial state for a Moore machine.
+     */
+    private char[] myInitialOutput;
+    /**
+     * The smallest character that begins a transition label.
+     */
+    private char myMinChar;
+    /**
+     * For each character from <CODE>myMinChar</CODE> on, its column in the
+     * table, or -1 if no label begins with it.
+     */
+    private int[] myColumns;
+    /**
+     * The number of columns in the table.
+     */
+    private int myColumnCount;
+    /**
+     * The table, indexed by state times column count plus column, of the
+     * transitions that leave that state on a label beginning with that
+     * column's character.
+     */
+    private int[][] myCells;
+    /**
+     * For each transition, the index of the state it goes to.
+     */
+    private int[] myTargets;
+    /**
+     * For each transition, its label.
+     */
+    private char[][] myLabels;
+    /**
+     * For each transition, the output it produces.
+     */
+    private char[][] myOutputs;
+    /**
+     * The length of the longest label, and at least one, since that much of
+     * the input must be buffered before each step.
+     */
+    private int myMaxLabel;
+
+    /**
+     * Instantiates a transducer for the given machine.
+     *
+     * @param machine the Mealy or Moore machine to run
+     * @throws IllegalArgumentException if the machine has no initial state or
+     *                                  is nondeterministic
+     */
+    public MealyTransducer(MealyMachine machine) {
+        State initial = machine.getInitialState();
+        if (initial == null)
+            throw new IllegalArgumentException("Machine must have an initial state!");
+        if (new MealyNondeterminismDetector()
+                .getNondeterministicStates(machine).length > 0)
+            throw new IllegalArgumentException("Machine must be deterministic!");
+
+        State[] states = machine.getStates();
+        Map<State, Integer> index = new HashMap<State, Integer>();
+        for (int i = 0; i < states.length; i++)
+            index.put(states[i], i);
+        myInitial = index.get(initial);
+        myInitialOutput = machine instanceof MooreMachine ? ((MooreMachine) machine)
+                .getOutput(initial).toCharArray() : new char[0];
+
+        Transition[] transitions = machine.getTransitions();
+        myTargets = new int[transitions.length];
+        myLabels = new char[transitions.length][];
+        myOutputs = new char[transitions.length][];
+        myMaxLabel = 1;
+        char min = Character.MAX_VALUE, max = Character.MIN_VALUE;
+        for (int t = 0; t < transitions.length; t++) {
+            MealyTransition transition = (MealyTransition) transitions[t];
+            myTargets[t] = index.get(transition.getToState());
+            myLabels[t] = transition.getLabel().toCharArray();
+            myOutputs[t] = transition.getOutput().toCharArray();
+            myMaxLabel = Math.max(myMaxLabel, myLabels[t].length);
+            min = (char) Math.min(min, myLabels[t][0]);
+            max = (char) Math.max(max, myLabels[t][0]);
+        }
+
+        myMinChar = min;
+        myColumns = new int[transitions.length == 0 ? 0 : max - min + 1];
+        Arrays.fill(myColumns, -1);
+        for (int t = 0; t < transitions.length; t++) {
+            int c = myLabels[t][0] - min;
+            if (myColumns[c] < 0)
+                myColumns[c] = myColumnCount++;
+        }
+        List<List<Integer>> cells = new ArrayList<List<Integer>>();
+        for (int i = 0; i < states.length * myColumnCount; i++)
+            cells.add(null);
+        for (int t = 0; t < transitions.length; t++) {
+            int cell = index.get(transitions[t].getFromState()) * myColumnCount
+                    + myColumns[myLabels[t][0] - min];
+            if (cells.get(cell) == null)
+                cells.set(cell, new ArrayList<Integer>());
+            cells.get(cell).add(t);
+        }
+        myCells = new int[cells.size()][];
+        for (int i = 0; i < myCells.length; i++) {
+            List<Integer> cell = cells.get(i);
+            if (cell == null)
+                continue;
+            myCells[i] = new int[cell.size()];
+            for (int k = 0; k < myCells[i].length; k++)
+                myCells[i][k] = cell.get(k);
+        }
+    }
+
+    /**
+     * Runs the machine on the input, writing its output as it goes. The input
+     * may be a <CODE>Reader</CODE> or a <CODE>CharBuffer</CODE>, or any other
+     * <CODE>Readable</CODE>. The output is flushed to the writer but the
+     * writer is not closed.
+     *
+     * @param input  the source of the input
+     * @param output the destination of the output
+     * @return <CODE>true</CODE> if all of the input was processed, <CODE>false
+     * </CODE> if the machine stopped in a state with no transition for the
+     * rest of the input, in which case the output produced up to that point
+     * has been written
+     * @throws IOException if reading the input or writing the output fails
+     */
+    public boolean transduce(Readable input, Writer output) throws IOException {
+        char[] in = new char[Math.max(BUFFER_SIZE, 2 * myMaxLabel)];
+        int position = 0, limit = 0;
+        boolean eof = false;
+        char[] out = new char[BUFFER_SIZE];
+        int outLength = write(myInitialOutput, out, 0, output);
+        int state = myInitial;
+        while (true) {
+            if (!eof && limit - position < myMaxLabel) {
+                /* Move the unread input to the front and fill the rest. */
+                System.arraycopy(in, position, in, 0, limit - position);
+                limit -= position;
+                position = 0;
+                while (!eof && limit < in.length) {
+                    int read = input.read(CharBuffer.wrap(in, limit,
+                            in.length - limit));
+                    if (read < 0)
+                        eof = true;
+                    else
+                        limit += read;
+                }
+            }
+            if (position == limit) {
+                output.write(out, 0, outLength);
+                output.flush();
+                return true;
+            }
+
+            int column = in[position] - myMinChar;
+            int[] cell = column < 0 || column >= myColumns.length
+                    || myColumns[column] < 0 ? null
+                    : myCells[state * myColumnCount + myColumns[column]];
+            int chosen = -1;
+            if (cell != null) {
+                for (int k = 0; k < cell.length && chosen < 0; k++) {
+                    char[] label = myLabels[cell[k]];
+                    if (label.length > limit - position)
+                        continue;
+                    int j = 1;
+                    while (j < label.length && label[j] == in[position + j])
+                        j++;
+                    if (j == label.length)
+                        chosen = cell[k];
+                }
+            }
+            if (chosen < 0) {
+                output.write(out, 0, outLength);
+                output.flush();
+                return false;
+            }
+            position += myLabels[chosen].length;
+            state = myTargets[chosen];
+            outLength = write(myOutputs[chosen], out, outLength, output);
+        }
+    }
+
+    /**
+     * Appends characters to the output buffer, writing the buffer out when
+     * it is full.
+     *
+     * @param chars  the characters to append
+     * @param buffer the output buffer
+     * @param length the number of characters already in the buffer
+     * @param output the destination of the output
+     * @return the number of characters in the buffer afterwards
+     * @throws IOException if writing the output fails
+     */
+    private static int write(char[] chars, char[] buffer, int length,
+                             Writer output) throws IOException {
+        if (length + chars.length > buffer.length) {
+            output.write(buffer, 0, length);
+            length = 0;
+            if (chars.length > buffer.length) {
+                output.write(chars);
+                return 0;
+            }
+        }
+        System.arraycopy(chars, 0, buffer, length, chars.length);
+        return length + chars.length;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.pda;
+
+import automata.Automaton;
+import automata.State;
+import automata.Transition;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The DPDA simulator simulates a pushdown automaton that has no
+ * nondeterministic states. Since at most one transition applies in any
+ * configuration, <CODE>simulateInput</CODE> follows the single computation in
+ * one pass over the input, keeping the stack in a character array instead of
+ * creating configuration objects. The step-by-step methods are inherited
+ * unchanged, so the simulator may be used anywhere a
+ * <CODE>PDAStepWithClosureSimulator</CODE> is.
+ * <p>
+ * If the automaton turns out to be nondeterministic after all, or a run of
+ * lambda moves goes on for longer than the stack could justify, the
+ * simulation falls back to the general simulator.
+ *
+ * @see automata.pda.PDANondeterminismDetector
+ */
+public class DPDASimulator extends PDAStepWithClosureSimulator {
+    /**
+     * The result of a run that could not be completed deterministically.
+     */
+    private static final int UNDECIDED = -1;
+    /**
+     * The result of a rejecting run.
+     */
+    private static final int REJECT = 0;
+    /**
+     * The result of an accepting run.
+     */
+    private static final int ACCEPT = 1;
+
+    /**
+     * For each state index, the input each transition reads.
+     */
+    private String[][] myReads;
+    /**
+     * For each state index, the string each transition pops.
+     */
+    private char[][][] myPops;
+    /**
+     * For each state index, the string each transition pushes.
+     */
+    private char[][][] myPushes;
+    /**
+     * For each state index, the index of the state each transition goes to.
+     */
+    private int[][] myTargets;
+    /**
+     * Whether the state with a given index is a final state.
+     */
+    private boolean[] myFinal;
+    /**
+     * The index of the initial state.
+     */
+    private int myInitial;
+    /**
+     * The number of transitions in the automaton.
+     */
+    private int myTransitionCount;
+
+    /**
+     * Creates a DPDA simulator for the given automaton.
+     *
+     * @param automaton the machine to simulate
+     */
+    public DPDASimulator(Automaton automaton) {
+        super(automaton);
+    }
+
+    /**
+     * Runs the automaton on the input string.
+     *
+     * @param input the input string to be run on the automaton
+     * @return true if the automaton accepts the input
+     */
+    public boolean simulateInput(String input) {
+        myConfigurations.clear();
+        if (myReads == null)
+            compile();
+        int result = run(input);
+        if (result == UNDECIDED)
+            return super.simulateInput(input);
+        return result == ACCEPT;
+    }
+
+    /**
+     * Runs the automaton on an input without copying it, unless the
+     * computation turns out not to be deterministic and the input must be
+     * simulated as a string after all.
+     *
+     * @param input the input to be run on the automaton
+     * @return true if the automaton accepts the input
+     */
+    public boolean simulateInput(CharSequence input) {
+        myConfigurations.clear();
+        if (myReads == null)
+            compile();
+        int result = run(input);
+        if (result == UNDECIDED)
+            return super.simulateInput(input.toString());
+        return result == ACCEPT;
+    }
+
+    /**
+     * Gathers the transitions of the automaton into arrays indexed by state.
+     */
+    private void compile() {
+        State[] states = myAutomaton.getStates();
+        Map<State, Integer> index = new HashMap<State, Integer>();
+        for (int i = 0; i < states.length; i++)
+            index.put(states[i], i);
+        State initial = myAutomaton.getInitialState();
+        myInitial = initial == null ? -1 : index.get(initial);
+        myFinal = new boolean[states.length];
+        myReads = new String[states.length][];
+        myPops = new char[states.length][][];
+        myPushes = new char[states.length][][];
+        myTargets = new int[states.length][];
+        myTransitionCount = 0;
+        for (int i = 0; i < states.length; i++) {
+            myFinal[i] = myAutomaton.isFinalState(states[i]);
+            Transition[] transitions = myAutomaton
+                    .getTransitionsFromState(states[i]);
+            myReads[i] = new String[transitions.length];
+            myPops[i] = new char[transitions.length][];
+            myPushes[i] = new char[transitions.length][];
+            myTargets[i] = new int[transitions.length];
+            for (int k = 0; k < transitions.length; k++) {
+                PDATransition transition = (PDATransition) transitions[k];
+                myReads[i][k] = transition.getInputToRead();
+                myPops[i][k] = transition.getStringToPop().toCharArray();
+                myPushes[i][k] = transition.getStringToPush().toCharArray();
+                myTargets[i][k] = index.get(transition.getToState());
+            }
+            myTransitionCount += transitions.length;
+        }
+    }
+
+    /**
+     * Follows the single computation of the automaton on the input. The
+     * stack is kept with its top at the end of the array.
+     *
+     * @param input the input
+     * @return <CODE>ACCEPT</CODE> or <CODE>REJECT</CODE>, or <CODE>UNDECIDED
+     * </CODE> if the computation was not deterministic or did not appear to
+     * terminate
+     */
+    private int run(CharSequence input) {
+        if (myInitial < 0)
+            return REJECT;
+        char[] stack = new char[16];
+        stack[0] = 'Z';
+        int height = 1;
+        int state = myInitial;
+        int position = 0;
+        int lambdaSteps = 0;
+        int lambdaLimit = lambdaLimit(height);
+        while (true) {
+            if (position == input.length()) {
+                if (myAcceptance == FINAL_STATE ? myFinal[state]
+                        : height == 0)
+                    return ACCEPT;
+            }
+            int chosen = -1;
+            String[] reads = myReads[state];
+            char[][] pops = myPops[state];
+            for (int k = 0; k < reads.length; k++) {
+                if (!startsWith(input, reads[k], position))
+                    continue;
+                char[] pop = pops[k];
+                if (pop.length > height)
+                    continue;
+                boolean matches = true;
+                for (int j = 0; j < pop.length && matches; j++)
+                    matches = stack[height - 1 - j] == pop[j];
+                if (!matches)
+                    continue;
+                if (chosen >= 0)
+                    return UNDECIDED;
+                chosen = k;
+            }
+            if (chosen < 0)
+                return REJECT;
+
+            int read = reads[chosen].length();
+            if (read == 0) {
+                if (++lambdaSteps > lambdaLimit)
+                    return UNDECIDED;
+            }
+            height -= pops[chosen].length;
+            char[] push = myPushes[state][chosen];
+            if (height + push.length > stack.length) {
+                char[] grown = new char[Math.max(stack.length * 2,
+                        height + push.length)];
+                System.arraycopy(stack, 0, grown, 0, height);
+                stack = grown;
+            }
+            for (int j = push.length - 1; j >= 0; j--)
+                stack[height++] = push[j];
+            position += read;
+            state = myTargets[state][chosen];
+            if (read != 0) {
+                lambdaSteps = 0;
+                lambdaLimit = lambdaLimit(height);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of consecutive lambda moves allowed before the
+     * computation is assumed not to terminate. A terminating run of lambda
+     * moves may need to unwind the whole stack, so the bound grows with it.
+     *
+     * @param height the height of the stack when the lambda moves start
+     * @return the maximum number of consecutive lambda moves
+     */
+    private int lambdaLimit(int height) {
+        long limit = (long) (height + 1) * (myTransitionCount + 1) * 4;
+        return (int) Math.min(limit, Integer.MAX_VALUE);
+    }
+}
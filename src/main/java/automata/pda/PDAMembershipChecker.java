@@ -0,0 +1,502 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package automata.pda;
+
+import automata.Automaton;
+import automata.State;
+import automata.Transition;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The PDA membership checker decides whether a pushdown automaton accepts a
+ * string without enumerating configurations. The automaton is combined with
+ * the input positions into a pushdown system whose control states are pairs
+ * of (state, input position), and the set of reachable configurations of that
+ * system is computed with the <I>post*</I> saturation construction, which
+ * represents the infinitely many reachable stacks by a finite automaton.
+ * Membership is therefore decided in time polynomial in the size of the
+ * automaton and the length of the input, for both acceptance by final state
+ * and acceptance by empty stack, even on machines with lambda push loops that
+ * make the configuration search in <CODE>PDAStepByStateSimulator</CODE>
+ * diverge.
+ * <p>
+ * The checker only answers yes or no; when a witness trace is wanted the
+ * step-by-step simulators should be used instead.
+ *
+ * @see automata.pda.PDAStepByStateSimulator
+ */
+public class PDAMembershipChecker {
+    /**
+     * The label used for epsilon transitions of the configuration automaton.
+     */
+    private static final int EPSILON = -1;
+    /**
+     * The symbol id of the bottom of stack marker, which lies beneath the
+     * initial stack and is never popped by a transition of the PDA.
+     */
+    private static final int BOTTOM = 0;
+
+    /**
+     * The states of the automaton, whose indices are used as state ids.
+     */
+    private State[] myStates;
+    /**
+     * Whether the state with a given index is a final state.
+     */
+    private boolean[] myFinal;
+    /**
+     * The index of the initial state.
+     */
+    private int myInitial;
+    /**
+     * For each state index, the transitions out of that state.
+     */
+    private PDATransition[][] myTransitionsFrom;
+    /**
+     * For each state index, the indices of the states the transitions out of
+     * that state go to.
+     */
+    private int[][] myTargetsFrom;
+    /**
+     * For each transition, the pop string as symbol ids.
+     */
+    private Map<PDATransition, int[]> myPops = new HashMap<PDATransition, int[]>();
+    /**
+     * For each transition, the push string as symbol ids.
+     */
+    private Map<PDATransition, int[]> myPushes = new HashMap<PDATransition, int[]>();
+    /**
+     * The symbol id of the initial stack symbol <CODE>Z</CODE>.
+     */
+    private int myInitialSymbol;
+    /**
+     * The number of stack symbols, including the bottom marker.
+     */
+    private int mySymbolCount;
+
+    /**
+     * The input currently being checked.
+     */
+    private String myInput;
+    /**
+     * The number of control states that correspond to (state, position)
+     * pairs; every id at or above this is an auxiliary state.
+     */
+    private int myPairCount;
+    /**
+     * The next unused state id of the configuration automaton.
+     */
+    private int myNextId;
+    /**
+     * The rules of the pushdown system, keyed by control state and popped
+     * symbol. Each rule is an array of the target control state, the number
+     * of pushed symbols, and the pushed symbols.
+     */
+    private Map<Long, List<int[]>> myRules;
+    /**
+     * The (state, position) control states whose rules have been generated.
+     */
+    private HashSet<Integer> myExpanded;
+    /**
+     * The states q<SUB>p,a</SUB> introduced for rules that push two symbols.
+     */
+    private Map<Long, Integer> myMidStates;
+    /**
+     * The transitions of the configuration automaton, one set of packed
+     * (from, to) pairs per label.
+     */
+    private List<Set<Long>> myRelation;
+    /**
+     * The transitions out of each state of the configuration automaton, as
+     * (label, to) pairs.
+     */
+    private Map<Integer, List<int[]>> myOutgoing;
+    /**
+     * The sources of the epsilon transitions into each state.
+     */
+    private Map<Integer, List<Integer>> myEpsilonInto;
+
+    /**
+     * Instantiates a membership checker for the given pushdown automaton. The
+     * stack alphabet is gathered once here, so the checker may be reused for
+     * any number of inputs as long as the automaton is not changed.
+     *
+     * @param automaton the pushdown automaton to check membership for
+     */
+    public PDAMembershipChecker(Automaton automaton) {
+        myStates = automaton.getStates();
+        myFinal = new boolean[myStates.length];
+        myTransitionsFrom = new PDATransition[myStates.length][];
+        myTargetsFrom = new int[myStates.length][];
+        Map<State, Integer> index = new HashMap<State, Integer>();
+        for (int i = 0; i < myStates.length; i++)
+            index.put(myStates[i], i);
+        State initial = automaton.getInitialState();
+        myInitial = initial == null ? -1 : index.get(initial);
+
+        Map<Character, Integer> symbols = new HashMap<Character, Integer>();
+        symbols.put('Z', 1);
+        myInitialSymbol = 1;
+        for (int i = 0; i < myStates.length; i++) {
+            myFinal[i] = automaton.isFinalState(myStates[i]);
+            Transition[] transitions = automaton
+                    .getTransitionsFromState(myStates[i]);
+            myTransitionsFrom[i] = new PDATransition[transitions.length];
+            myTargetsFrom[i] = new int[transitions.length];
+            for (int k = 0; k < transitions.length; k++) {
+                PDATransition transition = (PDATransition) transitions[k];
+                myTransitionsFrom[i][k] = transition;
+                myTargetsFrom[i][k] = index.get(transition.getToState());
+                myPops.put(transition, intern(transition.getStringToPop(),
+                        symbols));
+                myPushes.put(transition, intern(transition.getStringToPush(),
+                        symbols));
+            }
+        }
+        mySymbolCount = symbols.size() + 1;
+    }
+
+    /**
+     * Converts a stack string to symbol ids, assigning ids to any new
+     * characters.
+     *
+     * @param string the stack string
+     * @param symbols the map from characters to symbol ids
+     * @return the symbol ids, with the top of the stack first
+     */
+    private static int[] intern(String string, Map<Character, Integer> symbols) {
+        int[] ids = new int[string.length()];
+        for (int i = 0; i < ids.length; i++) {
+            Character c = string.charAt(i);
+            Integer id = symbols.get(c);
+            if (id == null) {
+                id = symbols.size() + 1;
+                symbols.put(c, id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Returns if the automaton accepts the input by final state, that is, if
+     * some computation consumes the whole input and ends in a final state.
+     *
+     * @param input the input string
+     * @return <CODE>true</CODE> if the input is accepted by final state
+     */
+    public boolean acceptsByFinalState(String input) {
+        return accepts(input, true);
+    }
+
+    /**
+     * Returns if the automaton accepts the input by empty stack, that is, if
+     * some computation consumes the whole input and leaves the stack empty.
+     *
+     * @param input the input string
+     * @return <CODE>true</CODE> if the input is accepted by empty stack
+     */
+    public boolean acceptsByEmptyStack(String input) {
+        return accepts(input, false);
+    }
+
+    /**
+     * Returns if the automaton accepts the input.
+     *
+     * @param input the input string
+     * @param finalState <CODE>true</CODE> for acceptance by final state,
+     *                   <CODE>false</CODE> for acceptance by empty stack
+     * @return <CODE>true</CODE> if the input is accepted
+     */
+    public synchronized boolean accepts(String input, boolean finalState) {
+        if (myInitial < 0)
+            return false;
+        try {
+            return saturate(input, finalState);
+        } finally {
+            myInput = null;
+            myRules = null;
+            myExpanded = null;
+            myMidStates = null;
+            myRelation = null;
+            myOutgoing = null;
+            myEpsilonInto = null;
+        }
+    }
+
+    /**
+     * Runs the post* saturation for the input, starting from the
+     * configuration with the initial state, no input read and <CODE>Z</CODE>
+     * on the stack.
+     *
+     * @param input the input string
+     * @param finalState the mode of acceptance
+     * @return <CODE>true</CODE> if the input is accepted
+     */
+    @SuppressWarnings("unchecked")
+    private boolean saturate(String input, boolean finalState) {
+        myInput = input;
+        myPairCount = (input.length() + 1) * myStates.length;
+        myNextId = myPairCount;
+        myRules = new HashMap<Long, List<int[]>>();
+        myExpanded = new HashSet<Integer>();
+        myMidStates = new HashMap<Long, Integer>();
+        myRelation = new ArrayList<>(mySymbolCount + 1);
+        for (int i = 0; i <= mySymbolCount; i++)
+            myRelation.add(new HashSet<Long>());
+        myOutgoing = new HashMap<Integer, List<int[]>>();
+        myEpsilonInto = new HashMap<Integer, List<Integer>>();
+
+        /* The initial configuration automaton accepts "Z" followed by the
+         * bottom marker from the initial control state. */
+        int start = control(myInitial, 0);
+        int middle = myNextId++;
+        int accept = myNextId++;
+        addToRelation(middle, BOTTOM, accept);
+        ArrayDeque<int[]> work = new ArrayDeque<int[]>();
+        work.add(new int[]{start, myInitialSymbol, middle});
+
+        while (!work.isEmpty()) {
+            int[] t = work.poll();
+            int p = t[0], label = t[1], q = t[2];
+            if (!addToRelation(p, label, q))
+                continue;
+            if (finalState && isFinalPair(p))
+                return true;
+            if (label == EPSILON) {
+                for (int[] out : outgoing(q))
+                    work.add(new int[]{p, out[0], out[1]});
+                continue;
+            }
+            for (int[] rule : rules(p, label)) {
+                int target = rule[0];
+                switch (rule[1]) {
+                    case 0:
+                        work.add(new int[]{target, EPSILON, q});
+                        break;
+                    case 1:
+                        work.add(new int[]{target, rule[2], q});
+                        break;
+                    default:
+                        int mid = midState(target, rule[2]);
+                        work.add(new int[]{target, rule[2], mid});
+                        if (addToRelation(mid, rule[3], q)) {
+                            List<Integer> sources = myEpsilonInto.get(mid);
+                            if (sources != null)
+                                for (int source : sources)
+                                    work.add(new int[]{source, rule[3], q});
+                        }
+                }
+            }
+        }
+
+        if (finalState)
+            return false;
+        int base = input.length() * myStates.length;
+        for (int s = 0; s < myStates.length; s++) {
+            int p = base + s;
+            if (myRelation.get(BOTTOM + 1).contains(pack(p, accept)))
+                return true;
+            for (int[] out : outgoing(p))
+                if (out[0] == EPSILON
+                        && myRelation.get(BOTTOM + 1).contains(pack(out[1], accept)))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the control state for a state at an input position.
+     *
+     * @param state the state index
+     * @param position the number of input characters read
+     * @return the control state id
+     */
+    private int control(int state, int position) {
+        return position * myStates.length + state;
+    }
+
+    /**
+     * Returns if the control state is a final state with all input read.
+     *
+     * @param p the control state id
+     * @return <CODE>true</CODE> if the control state is an accepting pair
+     */
+    private boolean isFinalPair(int p) {
+        return p < myPairCount && p / myStates.length == myInput.length()
+                && myFinal[p % myStates.length];
+    }
+
+    /**
+     * Packs a pair of state ids into a single key.
+     */
+    private static long pack(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    /**
+     * Adds a transition to the configuration automaton.
+     *
+     * @param from the source state
+     * @param label the symbol, or <CODE>EPSILON</CODE>
+     * @param to the destination state
+     * @return <CODE>true</CODE> if the transition was not already present
+     */
+    private boolean addToRelation(int from, int label, int to) {
+        if (!myRelation.get(label + 1).add(pack(from, to)))
+            return false;
+        List<int[]> out = myOutgoing.get(from);
+        if (out == null) {
+            out = new ArrayList<int[]>();
+            myOutgoing.put(from, out);
+        }
+        out.add(new int[]{label, to});
+        if (label == EPSILON) {
+            List<Integer> sources = myEpsilonInto.get(to);
+            if (sources == null) {
+                sources = new ArrayList<Integer>();
+                myEpsilonInto.put(to, sources);
+            }
+            sources.add(from);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the transitions out of a state of the configuration automaton.
+     * The list is copied, since processing the transitions may add more.
+     */
+    private List<int[]> outgoing(int state) {
+        List<int[]> out = myOutgoing.get(state);
+        return out == null ? new ArrayList<int[]>() : new ArrayList<int[]>(out);
+    }
+
+    /**
+     * Returns the state q<SUB>p,a</SUB> for a rule that moves to control
+     * state <CODE>p</CODE> and pushes <CODE>a</CODE> above another symbol.
+     */
+    private int midState(int p, int a) {
+        long key = pack(p, a);
+        Integer mid = myMidStates.get(key);
+        if (mid == null) {
+            mid = myNextId++;
+            myMidStates.put(key, mid);
+        }
+        return mid;
+    }
+
+    /**
+     * Returns the rules of the pushdown system for a control state and top
+     * of stack symbol, generating the rules of a (state, position) pair the
+     * first time it is seen.
+     *
+     * @param p the control state
+     * @param symbol the symbol on top of the stack
+     * @return the rules that apply
+     */
+    private List<int[]> rules(int p, int symbol) {
+        if (p < myPairCount && myExpanded.add(p))
+            expand(p);
+        List<int[]> list = myRules.get(pack(p, symbol));
+        return list == null ? new ArrayList<int[]>() : list;
+    }
+
+    /**
+     * Generates the rules for the transitions out of a (state, position)
+     * pair. A transition that pops several symbols is split into a chain of
+     * single pops through fresh control states, and a transition that pops
+     * nothing gets one rule for every possible top of stack symbol.
+     *
+     * @param p the control state of the pair
+     */
+    private void expand(int p) {
+        int state = p % myStates.length;
+        int position = p / myStates.length;
+        for (int k = 0; k < myTransitionsFrom[state].length; k++) {
+            PDATransition transition = myTransitionsFrom[state][k];
+            String read = transition.getInputToRead();
+            if (!myInput.startsWith(read, position))
+                continue;
+            int target = control(myTargetsFrom[state][k],
+                    position + read.length());
+            int[] pop = myPops.get(transition);
+            int[] push = myPushes.get(transition);
+            if (pop.length == 0) {
+                for (int symbol = 0; symbol < mySymbolCount; symbol++) {
+                    int[] word = new int[push.length + 1];
+                    System.arraycopy(push, 0, word, 0, push.length);
+                    word[push.length] = symbol;
+                    addRule(p, symbol, target, word);
+                }
+                continue;
+            }
+            int from = p;
+            for (int i = 0; i < pop.length - 1; i++) {
+                int next = myNextId++;
+                addRule(from, pop[i], next, new int[0]);
+                from = next;
+            }
+            addRule(from, pop[pop.length - 1], target, push);
+        }
+    }
+
+    /**
+     * Adds a rule replacing the top of stack symbol by a word. Words longer
+     * than two symbols are pushed two at a time through fresh control states.
+     *
+     * @param from the control state the rule applies in
+     * @param symbol the symbol on top of the stack
+     * @param to the control state after the rule
+     * @param word the symbols replacing the top of stack, top first
+     */
+    private void addRule(int from, int symbol, int to, int[] word) {
+        int length = word.length;
+        while (length > 2) {
+            int next = myNextId++;
+            putRule(from, symbol, new int[]{next, 2, word[length - 2],
+                    word[length - 1]});
+            from = next;
+            symbol = word[length - 2];
+            length--;
+        }
+        int[] rule = new int[2 + length];
+        rule[0] = to;
+        rule[1] = length;
+        System.arraycopy(word, 0, rule, 2, length);
+        putRule(from, symbol, rule);
+    }
+
+    /**
+     * Stores a rule for a control state and top of stack symbol.
+     */
+    private void putRule(int from, int symbol, int[] rule) {
+        long key = pack(from, symbol);
+        List<int[]> list = myRules.get(key);
+        if (list == null) {
+            list = new ArrayList<int[]>();
+            myRules.put(key, list);
+        }
+        list.add(rule);
+    }
+}
@@ -175,7 +175,11 @@ public class PDAStepByStateSimulator extends AutomatonSimulator {
     }
 
     /**
-     * Runs the automaton on the input string.
+     * Runs the automaton on the input string. Acceptance is decided by a
+     * {@link PDAMembershipChecker}, which runs in polynomial time even for
+     * machines on which the configuration search would never terminate, so
+     * unlike the step-by-step methods this leaves no configurations behind
+     * to trace.
      *
      * @param input the input string to be run on the automaton
      * @return true if the automaton accepts the input
@@ -183,37 +187,8 @@ public class PDAStepByStateSimulator extends AutomatonSimulator {
     public boolean simulateInput(String input) {
         /** clear the configurations to begin new simulation. */
         myConfigurations.clear();
-        Configuration[] initialConfigs = getInitialConfigurations(input);
-        for (int k = 0; k < initialConfigs.length; k++) {
-            PDAConfiguration initialConfiguration = (PDAConfiguration) initialConfigs[k];
-            myConfigurations.add(initialConfiguration);
-        }
-        int count = 0;
-        while (!myConfigurations.isEmpty()) {
-            if (isAccepted())
-                return true;
-            ArrayList<Configuration> configurationsToAdd = new ArrayList<Configuration>();
-            Iterator<Configuration> it = myConfigurations.iterator();
-            while (it.hasNext()) {
-                PDAConfiguration configuration = (PDAConfiguration) it.next();
-                ArrayList<Configuration> configsToAdd = stepConfiguration(configuration);
-                configurationsToAdd.addAll(configsToAdd);
-                it.remove();
-                count++;
-                if (count > 10000) {
-                    int result = JOptionPane.showConfirmDialog(null, "JFLAP has generated 10000 configurations. Continue?");
-                    switch (result) {
-                        case JOptionPane.CANCEL_OPTION:
-                            continue;
-                        case JOptionPane.NO_OPTION:
-                            return false;
-                        default:
-                    }
-                }
-            }
-            myConfigurations.addAll(configurationsToAdd);
-        }
-        return false;
+        PDAMembershipChecker checker = new PDAMembershipChecker(myAutomaton);
+        return checker.accepts(input, myAcceptance == FINAL_STATE);
     }
 
 }
@@ -21,12 +21,14 @@ import automata.Automaton;
 import automata.State;
 import automata.Transition;
 import grammar.Production;
+import grammar.SymbolTable;
 import grammar.cfg.ContextFreeGrammar;
 import gui.grammar.GrammarTableModel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Stack;
 
 /**
@@ -41,6 +43,8 @@ import java.util.Stack;
  * repeatedly calling getProductionsForTransition on every transition in the pda
  * and adding all of the returned productions to your context free grammar. If
  * you do this for every transition in the pda, you will have an equivalent cfg.
+ * For larger automata, convertToReducedContextFreeGrammar creates only the
+ * productions that are reachable from the start symbol and derive strings.
  *
  * @author Ryan Cavalcante
  * @see grammar.cfg.ContextFreeGrammar
@@ -184,11 +188,21 @@ public class PDAToCFGConverter {
     }
 
     /**
-     * Returns a unique variable.
+     * Returns a unique variable. Once the letters run out, the variable is
+     * the name of the group of characters between <CODE>&lt;</CODE> and
+     * <CODE>&gt;</CODE> (e.g. "&lt;q1Aq3&gt;").
      *
+     * @param variable the group of characters the variable stands for
      * @return a unique variable.
      */
-    private String getUniqueVariable() {
+    private String getUniqueVariable(String variable) {
+        if ('A' + UNIQUE_ID > 'Z') {
+            String name = variable.substring(1, variable.length() - 1);
+            if (name.indexOf(SymbolTable.OPEN) == -1
+                    && name.indexOf(SymbolTable.CLOSE) == -1)
+                return SymbolTable.OPEN + name + SymbolTable.CLOSE;
+            return SymbolTable.OPEN + "V" + (UNIQUE_ID++) + SymbolTable.CLOSE;
+        }
         char[] ch = new char[1];
         ch[0] = (char) ('A' + UNIQUE_ID);
         UNIQUE_ID++;
@@ -197,6 +211,22 @@ public class PDAToCFGConverter {
         return new String(ch);
     }
 
+    /**
+     * Maps <CODE>variable</CODE> to the start symbol or to a unique variable,
+     * if it is not mapped yet.
+     *
+     * @param variable  the variable (e.g. "(q1Aq3)")
+     * @param automaton the automaton
+     */
+    private void mapVariable(String variable, Automaton automaton) {
+        if (MAP.get(variable) == null) {
+            if (isStartSymbol(variable, automaton))
+                MAP.put(variable, START_SYMBOL);
+            else
+                MAP.put(variable, getUniqueVariable(variable));
+        }
+    }
+
     /**
      * Returns true if <CODE>variable</CODE> is the start symbol. (i.e.
      * "(q0Zqf)")
@@ -253,24 +283,9 @@ public class PDAToCFGConverter {
                         .concat(state.concat(RIGHT_PAREN))));
 
                 /** Map to unique variables. */
-                if (MAP.get(lhs) == null) {
-                    if (isStartSymbol(lhs, automaton))
-                        MAP.put(lhs, START_SYMBOL);
-                    else
-                        MAP.put(lhs, getUniqueVariable());
-                }
-                if (MAP.get(variable1) == null) {
-                    if (isStartSymbol(variable1, automaton))
-                        MAP.put(variable1, START_SYMBOL);
-                    else
-                        MAP.put(variable1, getUniqueVariable());
-                }
-                if (MAP.get(variable2) == null) {
-                    if (isStartSymbol(variable2, automaton))
-                        MAP.put(variable2, START_SYMBOL);
-                    else
-                        MAP.put(variable2, getUniqueVariable());
-                }
+                mapVariable(lhs, automaton);
+                mapVariable(variable1, automaton);
+                mapVariable(variable2, automaton);
 
                 String rhs = toRead.concat(variable1.concat(variable2));
 
@@ -302,12 +317,7 @@ public class PDAToCFGConverter {
 
         String lhs = LEFT_PAREN.concat(fromState.concat(toPop.concat(toState
                 .concat(RIGHT_PAREN))));
-        if (MAP.get(lhs) == null) {
-            if (isStartSymbol(lhs, automaton))
-                MAP.put(lhs, START_SYMBOL);
-            else
-                MAP.put(lhs, getUniqueVariable());
-        }
+        mapVariable(lhs, automaton);
         String rhs = toRead;
 
         Production production = new Production(lhs, rhs);
@@ -408,6 +418,234 @@ public class PDAToCFGConverter {
         return grammar;
     }
 
+    /**
+     * Returns a ContextFreeGrammar object equivalent to <CODE>automaton</CODE>
+     * that has only the useful productions of the grammar returned by
+     * {@link #convertToContextFreeGrammar}. Rather than create productions
+     * for every pair of states for each transition that pushes two
+     * characters, this first finds which variables (e.g. "(q1Aq3)") derive a
+     * string, that is, for which the automaton can go from q1 to q3 and pop
+     * A. Then, starting from the start symbol, it creates only the
+     * productions of the variables reached whose variables on the right hand
+     * side derive strings, adding them to the grammar as they are found.
+     *
+     * @param automaton the automaton.
+     * @return a cfg equivalent to <CODE>automaton</CODE> with no useless
+     * productions.
+     */
+    public ContextFreeGrammar convertToReducedContextFreeGrammar(Automaton automaton) {
+        if (!(automaton instanceof PushdownAutomaton))
+            throw new IllegalArgumentException(
+                    "automaton must be PushdownAutomaton");
+
+        if (!isInCorrectFormForConversion(automaton))
+            throw new IllegalArgumentException(
+                    "automaton not in correct form for conversion to CFG");
+
+        initializeConverter();
+        ContextFreeGrammar grammar = new ContextFreeGrammar();
+        grammar.setStartVariable(START_SYMBOL);
+
+        /* The transitions from each state on each symbol popped, and the
+         * transitions that push two characters, by the state they go to and
+         * the first character pushed, and by the second character pushed. */
+        HashMap<State, HashMap<String, ArrayList<PDATransition>>> from = new HashMap<>();
+        HashMap<State, HashMap<String, ArrayList<PDATransition>>> byFirst = new HashMap<>();
+        HashMap<String, ArrayList<PDATransition>> bySecond = new HashMap<>();
+        /* For each state and symbol, the states to which the automaton can
+         * go from that state popping that symbol. */
+        HashMap<State, HashMap<String, HashSet<State>>> productive = new HashMap<>();
+        LinkedList<Triple> queue = new LinkedList<>();
+
+        Transition[] transitions = automaton.getTransitions();
+        for (int k = 0; k < transitions.length; k++) {
+            PDATransition trans = (PDATransition) transitions[k];
+            add(from, trans.getFromState(), trans.getStringToPop(), trans);
+            if (isPushLambdaTransition(trans)) {
+                addProductive(productive, queue, trans.getFromState(),
+                        trans.getStringToPop(), trans.getToState());
+            } else if (isPushTwoTransition(trans)) {
+                String toPush = trans.getStringToPush();
+                add(byFirst, trans.getToState(), toPush.substring(0, 1), trans);
+                String second = toPush.substring(1);
+                if (bySecond.get(second) == null)
+                    bySecond.put(second, new ArrayList<PDATransition>());
+                bySecond.get(second).add(trans);
+            }
+        }
+
+        /* Find the variables that derive strings. A variable (rBs) that
+         * derives a string may be the first or the second variable of the
+         * right hand side of a production for a transition pushing two. */
+        while (!queue.isEmpty()) {
+            Triple t = queue.removeFirst();
+            ArrayList<PDATransition> list = get(byFirst, t.from, t.symbol);
+            for (int k = 0; list != null && k < list.size(); k++) {
+                PDATransition trans = list.get(k);
+                HashSet<State> ends = get(productive, t.to, trans
+                        .getStringToPush().substring(1));
+                if (ends == null)
+                    continue;
+                State[] states = ends.toArray(new State[0]);
+                for (int j = 0; j < states.length; j++)
+                    addProductive(productive, queue, trans.getFromState(),
+                            trans.getStringToPop(), states[j]);
+            }
+            list = bySecond.get(t.symbol);
+            for (int k = 0; list != null && k < list.size(); k++) {
+                PDATransition trans = list.get(k);
+                HashSet<State> ends = get(productive, trans.getToState(),
+                        trans.getStringToPush().substring(0, 1));
+                if (ends != null && ends.contains(t.from))
+                    addProductive(productive, queue, trans.getFromState(),
+                            trans.getStringToPop(), t.to);
+            }
+        }
+
+        /* Create the productions of the variables reached from the start
+         * symbol. */
+        State start = automaton.getInitialState();
+        State end = automaton.getFinalStates()[0];
+        HashSet<State> ends = get(productive, start, BOTTOM_OF_STACK);
+        if (ends == null || !ends.contains(end))
+            return grammar;
+        HashSet<String> reached = new HashSet<>();
+        queue.add(new Triple(start, BOTTOM_OF_STACK, end));
+        reached.add(getVariable(start, BOTTOM_OF_STACK, end));
+        while (!queue.isEmpty()) {
+            Triple t = queue.removeFirst();
+            String lhs = getVariable(t.from, t.symbol, t.to);
+            mapVariable(lhs, automaton);
+            ArrayList<PDATransition> list = get(from, t.from, t.symbol);
+            for (int k = 0; list != null && k < list.size(); k++) {
+                PDATransition trans = list.get(k);
+                String toRead = trans.getInputToRead();
+                if (isPushLambdaTransition(trans)) {
+                    if (trans.getToState() == t.to)
+                        grammar.addProduction(getSimplifiedProduction(new Production(
+                                lhs, toRead)));
+                    continue;
+                }
+                if (!isPushTwoTransition(trans))
+                    continue;
+                String first = trans.getStringToPush().substring(0, 1);
+                String second = trans.getStringToPush().substring(1);
+                HashSet<State> middles = get(productive, trans.getToState(), first);
+                if (middles == null)
+                    continue;
+                Iterator<State> it = middles.iterator();
+                while (it.hasNext()) {
+                    State middle = it.next();
+                    HashSet<State> seconds = get(productive, middle, second);
+                    if (seconds == null || !seconds.contains(t.to))
+                        continue;
+                    String variable1 = getVariable(trans.getToState(), first, middle);
+                    String variable2 = getVariable(middle, second, t.to);
+                    if (reached.add(variable1))
+                        queue.add(new Triple(trans.getToState(), first, middle));
+                    if (reached.add(variable2))
+                        queue.add(new Triple(middle, second, t.to));
+                    mapVariable(variable1, automaton);
+                    mapVariable(variable2, automaton);
+                    grammar.addProduction(getSimplifiedProduction(new Production(
+                            lhs, toRead + variable1 + variable2)));
+                }
+            }
+        }
+        return grammar;
+    }
+
+    /**
+     * Returns the variable for going from one state to another popping a
+     * symbol.
+     *
+     * @param from   the state the automaton goes from
+     * @param symbol the symbol popped
+     * @param to     the state the automaton goes to
+     * @return the variable (e.g. "(q1Aq3)")
+     */
+    private static String getVariable(State from, String symbol, State to) {
+        return LEFT_PAREN + from.getName() + symbol + to.getName() + RIGHT_PAREN;
+    }
+
+    /**
+     * Returns the value in a map of states and symbols.
+     *
+     * @param map    the map
+     * @param state  the state
+     * @param symbol the symbol
+     * @return the value, or <CODE>null</CODE> if there is none
+     */
+    private static <T> T get(HashMap<State, HashMap<String, T>> map,
+                             State state, String symbol) {
+        HashMap<String, T> inner = map.get(state);
+        return inner == null ? null : inner.get(symbol);
+    }
+
+    /**
+     * Adds a transition to the list in a map of states and symbols.
+     *
+     * @param map        the map
+     * @param state      the state
+     * @param symbol     the symbol
+     * @param transition the transition
+     */
+    private static void add(HashMap<State, HashMap<String, ArrayList<PDATransition>>> map,
+                            State state, String symbol, PDATransition transition) {
+        if (map.get(state) == null)
+            map.put(state, new HashMap<String, ArrayList<PDATransition>>());
+        HashMap<String, ArrayList<PDATransition>> inner = map.get(state);
+        if (inner.get(symbol) == null)
+            inner.put(symbol, new ArrayList<PDATransition>());
+        inner.get(symbol).add(transition);
+    }
+
+    /**
+     * Records that the automaton can go from one state to another popping a
+     * symbol, and queues that to be followed if it is new.
+     *
+     * @param productive the states reached from each state popping each symbol
+     * @param queue      the queue of new variables that derive strings
+     * @param from       the state the automaton goes from
+     * @param symbol     the symbol popped
+     * @param to         the state the automaton goes to
+     */
+    private static void addProductive(HashMap<State, HashMap<String, HashSet<State>>> productive,
+                                      LinkedList<Triple> queue, State from, String symbol, State to) {
+        if (productive.get(from) == null)
+            productive.put(from, new HashMap<String, HashSet<State>>());
+        HashMap<String, HashSet<State>> inner = productive.get(from);
+        if (inner.get(symbol) == null)
+            inner.put(symbol, new HashSet<State>());
+        if (inner.get(symbol).add(to))
+            queue.add(new Triple(from, symbol, to));
+    }
+
+    /**
+     * A variable of the conversion: the automaton going from one state to
+     * another while popping a symbol.
+     */
+    private static class Triple {
+        /**
+         * The state the automaton goes from.
+         */
+        final State from;
+        /**
+         * The symbol popped.
+         */
+        final String symbol;
+        /**
+         * The state the automaton goes to.
+         */
+        final State to;
+
+        Triple(State from, String symbol, State to) {
+            this.from = from;
+            this.symbol = symbol;
+            this.to = to;
+        }
+    }
+
     /**
      * Recursive function used by <code>purgeProductions()</code> to determine which productions should be
      * included in the grammar.  It takes a variable and recursively checks all productions that have it on
@@ -514,20 +752,20 @@ public class PDAToCFGConverter {
             else {
                 key = productions[i].getLHS();
                 newMap.put(key, MAP.get(key));
-                if (MAP.get(key).charAt(0) <= 'Z')
+                if (MAP.get(key).length() == 1)
                     freeValues.remove(MAP.get(key));
             }
 
         //Finally, assign the new map to the old map, and assign one-letter variables to
-        //any variables that need one.
+        //any variables that need one, as long as there are letters left.
         MAP = newMap;
         Iterator<String> freeIter, mapIter;
         freeIter = freeValues.iterator();
         mapIter = newMap.keySet().iterator();
 
-        while (mapIter.hasNext()) {
+        while (mapIter.hasNext() && freeIter.hasNext()) {
             key = mapIter.next();
-            if (MAP.get(key).charAt(0) > 'Z')
+            if (MAP.get(key).length() > 1)
                 MAP.put(key, freeIter.next());
         }
     }
@@ -61,7 +61,9 @@ public class CNFConverter {
     }
 
     /**
-     * Breaks a string of symbols into separate symbols.
+     * Breaks a string of symbols into separate symbols. Besides the symbols
+     * of the grammar, this knows the variables like <CODE>B(a)</CODE> made
+     * during the conversion.
      *
      * @param string the string of symbols
      * @return the array of separate symbols
@@ -71,6 +73,15 @@ public class CNFConverter {
         LinkedList<String> list = new LinkedList<>();
         for (int i = string.length() - 1; i >= 0; i--) {
             int start = i;
+            if (string.charAt(i) == SymbolTable.CLOSE) {
+                int open = string.lastIndexOf(SymbolTable.OPEN, i - 1);
+                if (open >= 0
+                        && SymbolTable.symbolLength(string, open) == i - open + 1) {
+                    list.addFirst(string.substring(open, i + 1));
+                    i = open;
+                    continue;
+                }
+            }
             if (string.charAt(i) != ')') {
                 list.addFirst(string.substring(i, i + 1));
                 continue;
@@ -90,29 +101,31 @@ public class CNFConverter {
      *
      * @param p the array of productions
      * @return an equivalent set of productions
-     * @throws UnsupportedOperationException if the number of variables needed exceeds 26
      */
     public static Production[] convert(Production[] p) {
         // Figure out what we need, and what's available.
         TreeSet<String> vars = new TreeSet<>(); // Set of available vars.
         for (char c = 'A'; c <= 'Z'; c++)
             vars.add("" + c);
+        Set<String> used = new HashSet<>(); // Set of vars in the grammar.
         TreeSet<String> unresolved = new TreeSet<>(); // Set of vars needing conversion.
         for (int i = 0; i < p.length; i++) {
             String[] tokens = separateString(p[i].getRHS());
             for (int j = 0; j < tokens.length; j++)
-                if (tokens[j].length() == 1)
-                    vars.remove(tokens[j]);
+                if (isResolved(tokens[j]))
+                    used.add(tokens[j]);
                 else
                     unresolved.add(tokens[j]);
-            vars.remove(p[i].getLHS());
+            if (isResolved(p[i].getLHS()))
+                used.add(p[i].getLHS());
         }
-        // Can it be done?
-        int needed = unresolved.size() + 26 - vars.size();
-        if (unresolved.size() > vars.size()) {
-            // We canna do it, captain!
-            throw new UnsupportedOperationException(
-                    "26 variables available, but " + needed + " needed!");
+        vars.removeAll(used);
+        // Once the letters run out, name variables between < and >.
+        int next = 0;
+        while (unresolved.size() > vars.size()) {
+            String name = SymbolTable.OPEN + "V" + (++next) + SymbolTable.CLOSE;
+            if (!used.contains(name))
+                vars.add(name);
         }
         // Build the replacement map.
         HashMap<String, String> replacements = new HashMap<>();
@@ -125,18 +138,29 @@ public class CNFConverter {
             String[] tokens = separateString(p[i].getRHS());
             String rhs = "";
             for (int j = 0; j < tokens.length; j++)
-                if (tokens[j].length() == 1)
+                if (isResolved(tokens[j]))
                     rhs += tokens[j];
                 else
                     rhs += replacements.get(tokens[j]);
             String lhs = p[i].getLHS();
-            if (lhs.length() != 1)
+            if (!isResolved(lhs))
                 lhs = replacements.get(lhs);
             pnew[i] = new Production(lhs, rhs);
         }
         return pnew;
     }
 
+    /**
+     * Returns if a symbol is a symbol of the grammar, rather than one of the
+     * variables made during the conversion.
+     *
+     * @param symbol the symbol
+     * @return if the symbol is in the grammar
+     */
+    private static boolean isResolved(String symbol) {
+        return symbol.indexOf('(') == -1;
+    }
+
     /**
      * Shortens a production to two sides.
      */
@@ -170,7 +194,7 @@ public class CNFConverter {
      */
     public Production[] replacements(Production production) {
         String rhs = production.getRHS(), lhs = production.getLHS();
-        if (rhs.length() == 1) {
+        if (separateString(rhs).length == 1) {
             // Given that unit productions have been removed, this
             // must be a terminal production.
             throw new IllegalArgumentException(production
@@ -51,6 +51,34 @@ public abstract class Grammar implements Serializable, Cloneable {
      * Set of Production rules.
      */
     protected List<Production> myProductions = new ArrayList<>();
+    /**
+     * The productions of the grammar, for finding a production without a
+     * search. This and the other indexes below are kept up to date as
+     * productions are added and removed, and are built again when first
+     * needed after the grammar is read from a file.
+     */
+    private transient Set<Production> myProductionSet;
+    /**
+     * The productions on each left hand side, and read-only views of them.
+     */
+    private transient Map<String, Set<Production>> myProductionsOnLHS,
+            myProductionsOnLHSView;
+    /**
+     * The productions with each symbol on the right hand side.
+     */
+    private transient Map<String, Set<Production>> myProductionsWithSymbol;
+    /**
+     * The number of productions each symbol is in, on either side.
+     */
+    private transient Map<String, Integer> mySymbolCounts;
+    /**
+     * The productions with lambda on the right hand side.
+     */
+    private transient Set<Production> myLambdaProductions;
+    /**
+     * The productions with only terminals on the right hand side.
+     */
+    private transient Set<Production> myTerminalProductions;
     private EnvironmentFrame myEnvFrame = null;
     private String fileName = "";
 
@@ -166,11 +194,11 @@ public abstract class Grammar implements Serializable, Cloneable {
      */
     public void addProduction(Production production) {
         checkProduction(production);
-        GrammarChecker gc = new GrammarChecker();
         /** if production already in grammar. */
-        if (GrammarChecker.isProductionInGrammar(production, this))
+        if (isProduction(production))
             return;
         myProductions.add(production);
+        index(production);
 
         /**
          * add all new variables introduced by production to set of variables.
@@ -212,16 +240,17 @@ public abstract class Grammar implements Serializable, Cloneable {
      * @param production the production to remove.
      */
     public void removeProduction(Production production) {
+        if (!isProduction(production))
+            return;
         myProductions.remove(production);
-        GrammarChecker gc = new GrammarChecker();
+        unindex(production);
         /**
          * Remove any variables that existed only in the production being
          * removed.
          */
         String[] variablesInProduction = production.getVariables();
         for (int k = 0; k < variablesInProduction.length; k++) {
-            if (!GrammarChecker.isVariableInProductions(this,
-                    variablesInProduction[k])) {
+            if (!isSymbolInProductions(variablesInProduction[k])) {
                 removeVariable(variablesInProduction[k]);
             }
         }
@@ -232,13 +261,127 @@ public abstract class Grammar implements Serializable, Cloneable {
          */
         String[] terminalsInProduction = production.getTerminals();
         for (int i = 0; i < terminalsInProduction.length; i++) {
-            if (!GrammarChecker.isTerminalInProductions(this,
-                    terminalsInProduction[i])) {
+            if (!isSymbolInProductions(terminalsInProduction[i])) {
                 removeTerminal(terminalsInProduction[i]);
             }
         }
     }
 
+    /**
+     * Builds the indexes of the productions, if they are not built.
+     */
+    private void buildIndexes() {
+        if (myProductionSet != null)
+            return;
+        myProductionSet = new HashSet<>();
+        myProductionsOnLHS = new HashMap<>();
+        myProductionsOnLHSView = new HashMap<>();
+        myProductionsWithSymbol = new HashMap<>();
+        mySymbolCounts = new HashMap<>();
+        myLambdaProductions = new LinkedHashSet<>();
+        myTerminalProductions = new LinkedHashSet<>();
+        for (int i = 0; i < myProductions.size(); i++)
+            index(myProductions.get(i));
+    }
+
+    /**
+     * Builds the indexes of the productions again. This must be called if a
+     * production of the grammar is changed after it is added, as the
+     * productions are indexed by their sides.
+     */
+    public void reindex() {
+        myProductionSet = null;
+        buildIndexes();
+    }
+
+    /**
+     * Adds a production to the indexes. The production is added to the list
+     * of productions before this is called.
+     *
+     * @param production the production
+     */
+    private void index(Production production) {
+        if (myProductionSet == null) {
+            buildIndexes();
+            return;
+        }
+        myProductionSet.add(production);
+        String lhs = production.getLHS();
+        Set<Production> onLHS = myProductionsOnLHS.get(lhs);
+        if (onLHS == null) {
+            onLHS = new LinkedHashSet<>();
+            myProductionsOnLHS.put(lhs, onLHS);
+            myProductionsOnLHSView.put(lhs, Collections.unmodifiableSet(onLHS));
+        }
+        onLHS.add(production);
+        String[] symbols = production.getSymbolsOnRHS();
+        for (int i = 0; i < symbols.length; i++) {
+            Set<Production> with = myProductionsWithSymbol.get(symbols[i]);
+            if (with == null) {
+                with = new LinkedHashSet<>();
+                myProductionsWithSymbol.put(symbols[i], with);
+            }
+            with.add(production);
+        }
+        Set<String> inProduction = new HashSet<>(Arrays.asList(symbols));
+        inProduction.addAll(Arrays.asList(production.getSymbolsOnLHS()));
+        for (String symbol : inProduction) {
+            Integer count = mySymbolCounts.get(symbol);
+            mySymbolCounts.put(symbol, count == null ? 1 : count + 1);
+        }
+        if (symbols.length == 0)
+            myLambdaProductions.add(production);
+        if (production.getVariablesOnRHS().length == 0)
+            myTerminalProductions.add(production);
+    }
+
+    /**
+     * Removes a production from the indexes.
+     *
+     * @param production the production
+     */
+    private void unindex(Production production) {
+        buildIndexes();
+        if (!myProductionSet.remove(production))
+            return;
+        String lhs = production.getLHS();
+        Set<Production> onLHS = myProductionsOnLHS.get(lhs);
+        onLHS.remove(production);
+        if (onLHS.isEmpty()) {
+            myProductionsOnLHS.remove(lhs);
+            myProductionsOnLHSView.remove(lhs);
+        }
+        String[] symbols = production.getSymbolsOnRHS();
+        for (int i = 0; i < symbols.length; i++) {
+            Set<Production> with = myProductionsWithSymbol.get(symbols[i]);
+            if (with != null && with.remove(production) && with.isEmpty())
+                myProductionsWithSymbol.remove(symbols[i]);
+        }
+        Set<String> inProduction = new HashSet<>(Arrays.asList(symbols));
+        inProduction.addAll(Arrays.asList(production.getSymbolsOnLHS()));
+        for (String symbol : inProduction) {
+            int count = mySymbolCounts.get(symbol) - 1;
+            if (count == 0)
+                mySymbolCounts.remove(symbol);
+            else
+                mySymbolCounts.put(symbol, count);
+        }
+        myLambdaProductions.remove(production);
+        myTerminalProductions.remove(production);
+    }
+
+    /**
+     * Returns true if <CODE>symbol</CODE> is on either side of any
+     * production in the grammar.
+     *
+     * @param symbol the variable or terminal
+     * @return true if <CODE>symbol</CODE> is in any production
+     */
+    public boolean isSymbolInProductions(String symbol) {
+        buildIndexes();
+        return mySymbolCounts.containsKey(symbol);
+    }
+
     /**
      * Returns all productions in the grammar.
      *
@@ -248,6 +391,80 @@ public abstract class Grammar implements Serializable, Cloneable {
         return myProductions.toArray(new Production[0]);
     }
 
+    /**
+     * Returns a read-only view of the productions in the grammar, in the
+     * order they were added. Unlike {@link #getProductions}, this does not
+     * copy the productions; the view changes as the grammar does.
+     *
+     * @return the productions in the grammar
+     */
+    public List<Production> getProductionList() {
+        return Collections.unmodifiableList(myProductions);
+    }
+
+    /**
+     * Returns a read-only view of the productions in the grammar on each left
+     * hand side. Only left hand sides with productions are keys.
+     *
+     * @return the map of left hand sides to their productions
+     */
+    public Map<String, Set<Production>> getProductionsByLHS() {
+        buildIndexes();
+        return Collections.unmodifiableMap(myProductionsOnLHSView);
+    }
+
+    /**
+     * Returns a read-only view of the productions in the grammar whose left
+     * hand side is <CODE>lhs</CODE>.
+     *
+     * @param lhs the left hand side, usually a variable
+     * @return the productions on <CODE>lhs</CODE>, which is empty if there are
+     * none
+     */
+    public Set<Production> getProductionsOn(String lhs) {
+        buildIndexes();
+        Set<Production> productions = myProductionsOnLHSView.get(lhs);
+        return productions == null ? Collections.<Production>emptySet()
+                : productions;
+    }
+
+    /**
+     * Returns a read-only view of the productions in the grammar with
+     * <CODE>symbol</CODE> on the right hand side.
+     *
+     * @param symbol the variable or terminal
+     * @return the productions with <CODE>symbol</CODE> on the right hand side,
+     * which is empty if there are none
+     */
+    public Set<Production> getProductionsWithOnRHS(String symbol) {
+        buildIndexes();
+        Set<Production> productions = myProductionsWithSymbol.get(symbol);
+        return productions == null ? Collections.<Production>emptySet()
+                : Collections.unmodifiableSet(productions);
+    }
+
+    /**
+     * Returns a read-only view of the productions in the grammar with lambda
+     * on the right hand side.
+     *
+     * @return the lambda productions
+     */
+    public Set<Production> getLambdaProductions() {
+        buildIndexes();
+        return Collections.unmodifiableSet(myLambdaProductions);
+    }
+
+    /**
+     * Returns a read-only view of the productions in the grammar with no
+     * variables on the right hand side, including the lambda productions.
+     *
+     * @return the productions with only terminals on the right hand side
+     */
+    public Set<Production> getTerminalProductions() {
+        buildIndexes();
+        return Collections.unmodifiableSet(myTerminalProductions);
+    }
+
     /**
      * Adds <CODE>terminal</CODE> to the set of terminals in the grammar.
      *
@@ -311,7 +528,8 @@ public abstract class Grammar implements Serializable, Cloneable {
      * the grammar.
      */
     public boolean isProduction(Production production) {
-        return myProductions.contains(production);
+        buildIndexes();
+        return myProductionSet.contains(production);
     }
 
     /**
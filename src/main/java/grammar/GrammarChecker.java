@@ -17,7 +17,11 @@
 package grammar;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Grammar checker object can be used to check certain properties of grammar objects.
@@ -96,14 +100,7 @@ public class GrammarChecker {
    * @return true if <CODE>variable</CODE> is in any production of <CODE>grammar</CODE>.
    */
   public static boolean isVariableInProductions(Grammar grammar, String variable) {
-    ProductionChecker pc = new ProductionChecker();
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (ProductionChecker.isVariableInProduction(variable, productions[k])) {
-        return true;
-      }
-    }
-    return false;
+    return grammar.isSymbolInProductions(variable);
   }
 
   /**
@@ -114,14 +111,7 @@ public class GrammarChecker {
    * @return true if <CODE>terminal</CODE> is in any production in <CODE>grammar</CODE>.
    */
   public static boolean isTerminalInProductions(Grammar grammar, String terminal) {
-    ProductionChecker pc = new ProductionChecker();
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (ProductionChecker.isTerminalInProduction(terminal, productions[k])) {
-        return true;
-      }
-    }
-    return false;
+    return grammar.isSymbolInProductions(terminal);
   }
 
   /**
@@ -132,15 +122,7 @@ public class GrammarChecker {
    * @return all productions in <CODE>grammar</CODE> whose lhs is <CODE>variable</CODE>.
    */
   public static Production[] getProductionsOnVariable(String variable, Grammar grammar) {
-    ArrayList<Production> list = new ArrayList<>();
-    ProductionChecker pc = new ProductionChecker();
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (variable.equals(productions[k].getLHS())) {
-        list.add(productions[k]);
-      }
-    }
-    return (Production[]) list.toArray(new Production[0]);
+    return grammar.getProductionsOn(variable).toArray(new Production[0]);
   }
 
   /**
@@ -154,12 +136,9 @@ public class GrammarChecker {
    */
   public static Production[] getNonUnitProductionsOnVariable(String variable, Grammar grammar) {
     ArrayList<Production> list = new ArrayList<>();
-    ProductionChecker pc = new ProductionChecker();
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (variable.equals(productions[k].getLHS())
-          && !ProductionChecker.isUnitProduction(productions[k])) {
-        list.add(productions[k]);
+    for (Production production : grammar.getProductionsOn(variable)) {
+      if (!ProductionChecker.isUnitProduction(production)) {
+        list.add(production);
       }
     }
     return (Production[]) list.toArray(new Production[0]);
@@ -175,11 +154,7 @@ public class GrammarChecker {
    *     grammar</CODE>.
    */
   public static boolean isProductionInGrammar(Production production, Grammar grammar) {
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (production.equals(productions[k])) return true;
-    }
-    return false;
+    return grammar.isProduction(production);
   }
 
   /**
@@ -192,15 +167,14 @@ public class GrammarChecker {
    *     on the rhs or lhs.
    */
   public static Production[] getProductionsWithVariable(String variable, Grammar grammar) {
-    ArrayList<Production> list = new ArrayList<>();
-    ProductionChecker pc = new ProductionChecker();
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (ProductionChecker.isVariableInProduction(variable, productions[k])) {
-        list.add(productions[k]);
+    Set<Production> set = new LinkedHashSet<>(grammar.getProductionsWithOnRHS(variable));
+    for (Map.Entry<String, Set<Production>> entry : grammar.getProductionsByLHS().entrySet()) {
+      if (entry.getKey().equals(variable)
+          || Arrays.asList(SymbolTable.split(entry.getKey())).contains(variable)) {
+        set.addAll(entry.getValue());
       }
     }
-    return (Production[]) list.toArray(new Production[0]);
+    return (Production[]) set.toArray(new Production[0]);
   }
 
   /**
@@ -213,13 +187,7 @@ public class GrammarChecker {
    *     hand side.
    */
   public static Production[] getProductionsWithVariableOnRHS(String variable, Grammar grammar) {
-    ProductionChecker pc = new ProductionChecker();
-    ArrayList<Production> list = new ArrayList<>();
-    Production[] productions = grammar.getProductions();
-    for (int k = 0; k < productions.length; k++) {
-      if (ProductionChecker.isVariableOnRHS(productions[k], variable)) list.add(productions[k]);
-    }
-    return (Production[]) list.toArray(new Production[0]);
+    return grammar.getProductionsWithOnRHS(variable).toArray(new Production[0]);
   }
 
   /**
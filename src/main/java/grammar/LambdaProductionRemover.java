@@ -21,7 +21,10 @@ import grammar.cfg.ContextFreeGrammar;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -107,15 +110,7 @@ public class LambdaProductionRemover {
      */
     public boolean isVariableWithLambdaProduction(String variable,
                                                   Grammar grammar) {
-        ProductionChecker pc = new ProductionChecker();
-        GrammarChecker gc = new GrammarChecker();
-        Production[] productions = GrammarChecker.getProductionsOnVariable(
-                variable, grammar);
-        for (int k = 0; k < productions.length; k++) {
-            if (ProductionChecker.isLambdaProduction(productions[k]))
-                return true;
-        }
-        return false;
+        return grammar.isProduction(new Production(variable, ""));
     }
 
     /**
@@ -170,10 +165,9 @@ public class LambdaProductionRemover {
      *                  grammar that have lambda transitions).
      */
     public void addVariablesWithLambdaProductions(Grammar grammar, Set<String> lambdaSet) {
-        while (areMoreVariablesWithLambdaProductions(grammar, lambdaSet)) {
-            String variable = getNewVariableWithLambdaProduction(grammar,
-                    lambdaSet);
-            addVariableToLambdaSet(variable, lambdaSet);
+        for (Production production : grammar.getLambdaProductions()) {
+            if (grammar.isVariable(production.getLHS()))
+                addVariableToLambdaSet(production.getLHS(), lambdaSet);
         }
     }
 
@@ -297,10 +291,39 @@ public class LambdaProductionRemover {
      */
     public HashSet<String> getCompleteLambdaSet(Grammar grammar) {
         HashSet<String> lambdaSet = getNewLambdaSet();
-        while (areMoreVariablesToAddToLambdaSet(grammar, lambdaSet)) {
-            String variable = getNewVariableThatBelongsInLambdaSet(grammar,
-                    lambdaSet);
-            addVariableToLambdaSet(variable, lambdaSet);
+        /*
+         * Rather than look through the grammar for one more variable at a
+         * time, count for each production of only variables how many of its
+         * variables are not yet in the set. When a variable is added, only
+         * the productions with it on the right hand side are counted down,
+         * and a production whose count reaches zero adds its left hand side.
+         */
+        Map<Production, Integer> remaining = new HashMap<>();
+        LinkedList<String> added = new LinkedList<>();
+        for (Production production : grammar.getLambdaProductions()) {
+            String lhs = production.getLHS();
+            if (grammar.isVariable(lhs) && lambdaSet.add(lhs))
+                added.add(lhs);
+        }
+        while (!added.isEmpty()) {
+            String variable = added.removeFirst();
+            for (Production production : grammar.getProductionsWithOnRHS(variable)) {
+                String lhs = production.getLHS();
+                if (lambdaSet.contains(lhs) || !grammar.isVariable(lhs))
+                    continue;
+                Integer count = remaining.get(production);
+                if (count == null) {
+                    if (ProductionChecker.areTerminalsOnRHS(production))
+                        continue;
+                    count = new HashSet<>(Arrays.asList(production
+                            .getVariablesOnRHS())).size();
+                }
+                remaining.put(production, --count);
+                if (count == 0) {
+                    lambdaSet.add(lhs);
+                    added.add(lhs);
+                }
+            }
         }
         return lambdaSet;
     }
@@ -338,9 +361,9 @@ public class LambdaProductionRemover {
          */
 
         String[] start = new String[]{""};
-        String rhs = production.getRHS();
-        for (int i = 0; i < rhs.length(); i++) {
-            String v = rhs.substring(i, i + 1);
+        String[] rhs = production.getSymbolsOnRHS();
+        for (int i = 0; i < rhs.length; i++) {
+            String v = rhs[i];
             if (lambdaSet.contains(v)) {
                 String[] s = new String[start.length * 2];
                 for (int j = 0; j < start.length; j++) {
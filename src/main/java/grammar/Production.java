@@ -139,14 +139,8 @@ public class Production implements Serializable {
      * @return all variables on the left hand side of the production.
      */
     public String[] getVariablesOnLHS() {
-        ArrayList<String> list = new ArrayList<>();
         if (myLHS == null) return new String[0];
-        for (int i = 0; i < myLHS.length(); i++) {
-            char c = myLHS.charAt(i);
-            if (ProductionChecker.isVariable(c))
-                list.add(myLHS.substring(i, i + 1));
-        }
-        return list.toArray(new String[0]);
+        return getSymbols(myLHS, true);
     }
 
     /**
@@ -155,14 +149,7 @@ public class Production implements Serializable {
      * @return all variables on the right hand side of the production.
      */
     public String[] getVariablesOnRHS() {
-        ProductionChecker pc = new ProductionChecker();
-        ArrayList<String> list = new ArrayList<>();
-        for (int i = 0; i < myRHS.length(); i++) {
-            char c = myRHS.charAt(i);
-            if (ProductionChecker.isVariable(c))
-                list.add(myRHS.substring(i, i + 1));
-        }
-        return list.toArray(new String[0]);
+        return getSymbols(myRHS, true);
     }
 
     /**
@@ -195,14 +182,7 @@ public class Production implements Serializable {
      * @return all terminals on the right hand side of the production.
      */
     public String[] getTerminalsOnRHS() {
-        ProductionChecker pc = new ProductionChecker();
-        ArrayList<String> list = new ArrayList<>();
-        for (int i = 0; i < myRHS.length(); i++) {
-            char c = myRHS.charAt(i);
-            if (ProductionChecker.isTerminal(c))
-                list.add(myRHS.substring(i, i + 1));
-        }
-        return list.toArray(new String[0]);
+        return getSymbols(myRHS, false);
     }
 
     /**
@@ -236,13 +216,7 @@ public class Production implements Serializable {
      * @return all terminals on the left hand side of the production.
      */
     public String[] getTerminalsOnLHS() {
-        ArrayList<String> list = new ArrayList<String>();
-        for (int i = 0; i < myLHS.length(); i++) {
-            char c = myLHS.charAt(i);
-            if (ProductionChecker.isTerminal(c))
-                list.add(myLHS.substring(i, i + 1));
-        }
-        return list.toArray(new String[0]);
+        return getSymbols(myLHS, false);
     }
 
     /**
@@ -264,13 +238,41 @@ public class Production implements Serializable {
     /**
      * Returns the sequence of symbols in either the left or right hand side.
      * For example, for the production <CODE>A -> BCD</CODE> this would return
-     * the array of strings <CODE>{"B","C","D"}</CODE>.
+     * the array of strings <CODE>{"B","C","D"}</CODE>. A variable written
+     * between <CODE>&lt;</CODE> and <CODE>&gt;</CODE> is one symbol.
+     *
+     * @see grammar.SymbolTable#split
      */
     public String[] getSymbolsOnRHS() {
+        return SymbolTable.split(myRHS);
+    }
+
+    /**
+     * Returns the sequence of symbols on the left hand side.
+     *
+     * @return the symbols on the left hand side, in order
+     */
+    public String[] getSymbolsOnLHS() {
+        return SymbolTable.split(myLHS);
+    }
+
+    /**
+     * Returns the variables or the terminals of one side of the production,
+     * in order.
+     *
+     * @param side      the side of the production
+     * @param variables <CODE>true</CODE> for the variables, or
+     *                  <CODE>false</CODE> for the terminals
+     * @return the variables or terminals on that side
+     */
+    private static String[] getSymbols(String side, boolean variables) {
         ArrayList<String> list = new ArrayList<>();
-        for (int i = 0; i < myRHS.length(); i++) {
-            char c = myRHS.charAt(i);
-            list.add(myRHS.substring(i, i + 1));
+        for (int i = 0; i < side.length(); ) {
+            int length = SymbolTable.symbolLength(side, i);
+            String symbol = side.substring(i, i + length);
+            if (SymbolTable.isVariable(symbol) == variables)
+                list.add(symbol);
+            i += length;
         }
         return list.toArray(new String[0]);
     }
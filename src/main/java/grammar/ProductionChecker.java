@@ -67,12 +67,11 @@ public class ProductionChecker {
    */
   public static boolean isLeftLinearProductionWithVariable(Production production) {
     if (!isRestrictedOnLHS(production)) return false;
-    String rhs = production.getRHS();
-    /** if only one variable on rhs and it is first char on rhs. */
+    /** if only one variable on rhs and it is first symbol on rhs. */
     String[] variables = production.getVariablesOnRHS();
     if (variables.length == 1) {
-      char ch = rhs.charAt(0);
-        return isVariable(ch);
+      String[] symbols = production.getSymbolsOnRHS();
+      return isVariable(symbols[0]);
     }
     return false;
   }
@@ -87,12 +86,11 @@ public class ProductionChecker {
    */
   public static boolean isRightLinearProductionWithVariable(Production production) {
     if (!isRestrictedOnLHS(production)) return false;
-    String rhs = production.getRHS();
-    /** if only one variable on rhs and it is last char on rhs. */
+    /** if only one variable on rhs and it is last symbol on rhs. */
     String[] variables = production.getVariablesOnRHS();
     if (variables.length == 1) {
-      char ch = rhs.charAt(rhs.length() - 1);
-        return isVariable(ch);
+      String[] symbols = production.getSymbolsOnRHS();
+      return isVariable(symbols[symbols.length - 1]);
     }
     return false;
   }
@@ -107,10 +105,8 @@ public class ProductionChecker {
    */
   public static boolean isLinearProductionWithNoVariable(Production production) {
     if (!isRestrictedOnLHS(production)) return false;
-    String rhs = production.getRHS();
     /** if rhs is all terminals. */
-    String[] terminals = production.getTerminalsOnRHS();
-      return rhs.length() == terminals.length;
+    return production.getVariablesOnRHS().length == 0;
   }
 
   /**
@@ -121,9 +117,8 @@ public class ProductionChecker {
    */
   public static boolean isUnitProduction(Production production) {
     if (!isRestrictedOnLHS(production)) return false;
-    String rhs = production.getRHS();
-    String[] variablesOnRHS = production.getVariablesOnRHS();
-      return rhs.length() == 1 && variablesOnRHS.length == 1;
+    String[] symbols = production.getSymbolsOnRHS();
+    return symbols.length == 1 && isVariable(symbols[0]);
   }
 
   /**
@@ -145,9 +140,8 @@ public class ProductionChecker {
    * @return true if the left hand side of <CODE>production</CODE> is a single variable.
    */
   public static boolean isRestrictedOnLHS(Production production) {
-    String lhs = production.getLHS();
-    String[] variablesOnLHS = production.getVariablesOnLHS();
-      return lhs.length() == 1 && variablesOnLHS.length == 1;
+    String[] symbols = production.getSymbolsOnLHS();
+    return symbols.length == 1 && isVariable(symbols[0]);
   }
 
   /**
@@ -189,12 +183,7 @@ public class ProductionChecker {
    * @return true if there are 1 or more terminals on the rhs of <CODE>productions</CODE>.
    */
   public static boolean areTerminalsOnRHS(Production production) {
-    String rhs = production.getRHS();
-    for (int k = 0; k < rhs.length(); k++) {
-      char ch = rhs.charAt(k);
-      if (isTerminal(ch)) return true;
-    }
-    return false;
+    return production.getTerminalsOnRHS().length > 0;
   }
 
   /**
@@ -208,6 +197,18 @@ public class ProductionChecker {
     return Character.isUpperCase(ch);
   }
 
+  /**
+   * Returns true if <CODE>symbol</CODE> is a variable, either a single uppercase character or a
+   * name between <CODE>&lt;</CODE> and <CODE>&gt;</CODE>.
+   *
+   * @param symbol the symbol being checked.
+   * @return true if <CODE>symbol</CODE> is a variable.
+   * @see SymbolTable#isVariable(String)
+   */
+  public static boolean isVariable(String symbol) {
+    return SymbolTable.isVariable(symbol);
+  }
+
   /**
    * Returns true if <CODE>ch</CODE> is a terminal. A terminal is determined to be any lowercase
    * character.
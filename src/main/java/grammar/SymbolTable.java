@@ -0,0 +1,109 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package grammar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The symbol table breaks the sides of productions into symbols.
+ * <p>
+ * A symbol is usually a single character, with the upper case letters being
+ * the variables. Since that allows only 26 variables, a variable may also be
+ * any name between <CODE>&lt;</CODE> and <CODE>&gt;</CODE>, as in
+ * <CODE>&lt;expr&gt;</CODE>, which is then a single symbol. A
+ * <CODE>&lt;</CODE> with no <CODE>&gt;</CODE> after it, or with nothing
+ * or another <CODE>&lt;</CODE> between them, is a terminal like any other
+ * character.
+ *
+ * @see grammar.Production#getSymbolsOnRHS
+ */
+
+public class SymbolTable {
+    /**
+     * The character that opens a variable with a longer name.
+     */
+    public static final char OPEN = '<';
+    /**
+     * The character that closes a variable with a longer name.
+     */
+    public static final char CLOSE = '>';
+
+    /**
+     * Returns the length of the symbol that begins at a position in a
+     * string.
+     *
+     * @param string   the string
+     * @param position the position the symbol begins at
+     * @return the number of characters in the symbol
+     */
+    public static int symbolLength(CharSequence string, int position) {
+        if (string.charAt(position) != OPEN)
+            return 1;
+        for (int i = position + 1; i < string.length(); i++) {
+            if (string.charAt(i) == OPEN)
+                return 1;
+            if (string.charAt(i) == CLOSE)
+                return i == position + 1 ? 1 : i - position + 1;
+        }
+        return 1;
+    }
+
+    /**
+     * Breaks a string into its symbols.
+     *
+     * @param string the string, such as the side of a production
+     * @return the symbols of the string, in order
+     */
+    public static String[] split(String string) {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < string.length(); ) {
+            int length = symbolLength(string, i);
+            symbols.add(string.substring(i, i + length));
+            i += length;
+        }
+        return symbols.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the number of symbols in a string.
+     *
+     * @param string the string
+     * @return the number of symbols in the string
+     */
+    public static int count(String string) {
+        int count = 0;
+        for (int i = 0; i < string.length(); i += symbolLength(string, i))
+            count++;
+        return count;
+    }
+
+    /**
+     * Returns if a symbol is a variable, that is, an upper case letter or a
+     * name between <CODE>&lt;</CODE> and <CODE>&gt;</CODE>.
+     *
+     * @param symbol the symbol
+     * @return if the symbol is a variable
+     */
+    public static boolean isVariable(String symbol) {
+        if (symbol.length() == 1)
+            return ProductionChecker.isVariable(symbol.charAt(0));
+        return symbol.length() > 2 && symbol.charAt(0) == OPEN
+                && symbolLength(symbol, 0) == symbol.length();
+    }
+}
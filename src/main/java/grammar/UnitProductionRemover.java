@@ -19,12 +19,17 @@ package grammar;
 
 import automata.State;
 import automata.Transition;
-import automata.UnreachableStatesDetector;
 import automata.vdg.VDGTransition;
 import automata.vdg.VariableDependencyGraph;
 import grammar.cfg.ContextFreeGrammar;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Unit Production remover can be used to convert a grammar to an equivalent
@@ -61,7 +66,8 @@ import java.util.ArrayList;
  * getNewProductions to get the productions necessary to replace the unit
  * productions on said variable. This will return a list of new productions on
  * said variable that accounts for the removal of the unit production to its
- * dependent variable.
+ * dependent variable. The whole conversion can also be done at once, with no
+ * graph, by calling getUnitProductionlessGrammar with only the grammar.
  *
  * @author Ryan Cavalcante
  */
@@ -221,15 +227,34 @@ public class UnitProductionRemover {
                                  VariableDependencyGraph graph) {
         State v1 = getStateForVariable(variable1, graph);
         State v2 = getStateForVariable(variable2, graph);
-        graph.setInitialState(v1);
-        UnreachableStatesDetector usd = new UnreachableStatesDetector(graph);
-        State[] states = usd.getUnreachableStates();
-        graph.setInitialState(null);
-        for (int k = 0; k < states.length; k++) {
-            if (v2 == states[k])
-                return false;
+        return getReachableStates(v1, graph).contains(v2);
+    }
+
+    /**
+     * Returns the states of <CODE>graph</CODE> that can be reached from
+     * <CODE>state</CODE>, including <CODE>state</CODE> itself.
+     *
+     * @param state the state the paths start from
+     * @param graph the graph
+     * @return the states that can be reached from <CODE>state</CODE>
+     */
+    private Set<State> getReachableStates(State state, VariableDependencyGraph graph) {
+        Set<State> reached = new HashSet<>();
+        if (state == null)
+            return reached;
+        LinkedList<State> queue = new LinkedList<>();
+        reached.add(state);
+        queue.add(state);
+        while (!queue.isEmpty()) {
+            Transition[] transitions = graph.getTransitionsFromState(queue
+                    .removeFirst());
+            for (int k = 0; k < transitions.length; k++) {
+                State to = transitions[k].getToState();
+                if (reached.add(to))
+                    queue.add(to);
+            }
         }
-        return true;
+        return reached;
     }
 
     /**
@@ -247,13 +272,14 @@ public class UnitProductionRemover {
     public String[] getDependencies(String variable, Grammar grammar,
                                     VariableDependencyGraph graph) {
         ArrayList<String> list = new ArrayList<>();
+        Set<String> reached = new HashSet<>();
+        for (State state : getReachableStates(getStateForVariable(variable,
+                graph), graph))
+            reached.add(state.getName());
         String[] variables = grammar.getVariables();
         for (int k = 0; k < variables.length; k++) {
-            if (!variable.equals(variables[k])) {
-                if (isDependentOn(variable, variables[k], graph)) {
-                    list.add(variables[k]);
-                }
-            }
+            if (!variable.equals(variables[k]) && reached.contains(variables[k]))
+                list.add(variables[k]);
         }
         return list.toArray(new String[0]);
     }
@@ -316,4 +342,45 @@ public class UnitProductionRemover {
         addAllNewProductionsToGrammar(grammar, uplgrammar, graph);
         return uplgrammar;
     }
+
+    /**
+     * Returns a unit production-less grammar equivalent to <CODE>grammar</CODE>,
+     * without building a variable dependency graph. The unit dependencies are
+     * found as the transitive closure of the unit productions, with a bit set
+     * of the variables each variable depends on.
+     *
+     * @param grammar the grammar
+     * @return a unit production-less grammar equivalent to <CODE>grammar</CODE>.
+     */
+    public Grammar getUnitProductionlessGrammar(Grammar grammar) {
+        String[] variables = grammar.getVariables();
+        Map<String, Integer> index = new HashMap<>();
+        for (int k = 0; k < variables.length; k++)
+            index.put(variables[k], k);
+        BitSet[] dependencies = new BitSet[variables.length];
+        for (int k = 0; k < variables.length; k++)
+            dependencies[k] = new BitSet(variables.length);
+        Production[] units = getUnitProductions(grammar);
+        for (int k = 0; k < units.length; k++)
+            dependencies[index.get(units[k].getLHS())].set(index
+                    .get(units[k].getRHS()));
+        for (int k = 0; k < variables.length; k++)
+            for (int i = 0; i < variables.length; i++)
+                if (dependencies[i].get(k))
+                    dependencies[i].or(dependencies[k]);
+
+        Grammar uplgrammar = new ContextFreeGrammar();
+        addAllNonUnitProductionsToGrammar(grammar, uplgrammar);
+        for (int k = 0; k < variables.length; k++) {
+            BitSet dep = dependencies[k];
+            for (int i = dep.nextSetBit(0); i >= 0; i = dep.nextSetBit(i + 1)) {
+                if (i == k)
+                    continue;
+                Production[] prods = GrammarChecker
+                        .getNonUnitProductionsOnVariable(variables[i], grammar);
+                uplgrammar.addProductions(getNewProductions(variables[k], prods));
+            }
+        }
+        return uplgrammar;
+    }
 }
@@ -26,8 +26,11 @@ import grammar.cfg.ContextFreeGrammar;
 import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -62,10 +65,64 @@ public class UselessProductionRemover {
      */
     public static Set<String> getCompleteUsefulVariableSet(Grammar grammar) {
         Set<String> set = getNewUsefulVariableSet();
-        while (areMoreVariablesThatBelongInUsefulVariableSet(grammar, set)) {
-            String variable = getVariableThatBelongsInUsefulVariableSet(
-                    grammar, set);
-            addToUsefulVariableSet(variable, set);
+        /*
+         * Count for each production how many of its variables are not yet
+         * known to be useful. When a variable is added, only the productions
+         * with it on the right hand side are counted down, and a production
+         * whose count reaches zero makes its left hand side useful.
+         */
+        Map<Production, Integer> remaining = new HashMap<>();
+        LinkedList<String> added = new LinkedList<>();
+        for (Production production : grammar.getTerminalProductions()) {
+            String lhs = production.getLHS();
+            if (grammar.isVariable(lhs) && set.add(lhs))
+                added.add(lhs);
+        }
+        while (!added.isEmpty()) {
+            String variable = added.removeFirst();
+            for (Production production : grammar.getProductionsWithOnRHS(variable)) {
+                String lhs = production.getLHS();
+                if (set.contains(lhs) || !grammar.isVariable(lhs))
+                    continue;
+                Integer count = remaining.get(production);
+                if (count == null)
+                    count = new HashSet<>(Arrays.asList(production
+                            .getVariablesOnRHS())).size();
+                remaining.put(production, --count);
+                if (count == 0) {
+                    addToUsefulVariableSet(lhs, set);
+                    added.add(lhs);
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Returns the set of variables in <CODE>grammar</CODE> that can be
+     * reached from the start variable, following the variables on the right
+     * hand sides of the productions on each variable reached.
+     *
+     * @param grammar the grammar
+     * @return the set of variables reachable from the start variable, which
+     * includes the start variable if it is in the grammar
+     */
+    public static Set<String> getReachableVariableSet(Grammar grammar) {
+        Set<String> set = new HashSet<>();
+        String start = grammar.getStartVariable();
+        if (start == null || !grammar.isVariable(start))
+            return set;
+        LinkedList<String> queue = new LinkedList<>();
+        set.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            for (Production production : grammar.getProductionsOn(queue
+                    .removeFirst())) {
+                String[] variables = production.getVariablesOnRHS();
+                for (int k = 0; k < variables.length; k++)
+                    if (set.add(variables[k]))
+                        queue.add(variables[k]);
+            }
         }
         return set;
     }
@@ -95,23 +152,8 @@ public class UselessProductionRemover {
      */
     public static Set<String> getTerminalProductions(Grammar grammar) {
         Set<String> terminalDerivers = new TreeSet<>();
-        Production[] p = grammar.getProductions();
-        for (int i = 0; i < p.length; i++) {
-            String lhs = p[i].getLHS();
-            if (terminalDerivers.contains(lhs))
-                continue;
-            String rhs = p[i].getRHS();
-            for (int k = 0; k < rhs.length(); k++) {
-                char ch = rhs.charAt(k);
-                if (ProductionChecker.isVariable(ch)) {
-                    lhs = null;
-                    break;
-                }
-            }
-            if (lhs == null)
-                continue;
-            terminalDerivers.add(lhs);
-        }
+        for (Production production : grammar.getTerminalProductions())
+            terminalDerivers.add(production.getLHS());
         return terminalDerivers;
     }
 
@@ -157,27 +199,6 @@ public class UselessProductionRemover {
         return null;
     }
 
-    /**
-     * Returns true if <CODE>set</CODE> contains a variable equivalent to
-     * <CODE>ch</CODE>.
-     *
-     * @param ch  the character
-     * @param set the set of useful variables
-     * @return true if <CODE>set</CODE> contains a variable equivalent to
-     * <CODE>ch</CODE>.
-     */
-    private static boolean isInUsefulVariableSet(char ch, Set<String> set) {
-        Iterator<String> it = set.iterator();
-        while (it.hasNext()) {
-            String variable = it.next();
-            char var = variable.charAt(0);
-            if (ch == var) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Returns true if <CODE>production</CODE> can derive a string. (i.e. if
      * all letters on the right hand side of the production are either terminals
@@ -190,12 +211,9 @@ public class UselessProductionRemover {
      * terminals or useful variables (variables in <CODE>set</CODE>).
      */
     private static boolean isUsefulProduction(Production production, Set<String> set) {
-        ProductionChecker pc = new ProductionChecker();
-        String rhs = production.getRHS();
-        for (int k = 0; k < rhs.length(); k++) {
-            char ch = rhs.charAt(k);
-            if (!ProductionChecker.isTerminal(ch)
-                    && !isInUsefulVariableSet(ch, set)) {
+        String[] variables = production.getVariablesOnRHS();
+        for (int k = 0; k < variables.length; k++) {
+            if (!set.contains(variables[k])) {
                 return false;
             }
         }
@@ -215,9 +233,9 @@ public class UselessProductionRemover {
      * production.
      */
     public static boolean isValidProduction(Production production, Set<String> set) {
-        String lhs = production.getLHS();
-        for (int k = 0; k < lhs.length(); k++) {
-            if (!isInUsefulVariableSet(lhs.charAt(k), set))
+        String[] lhs = production.getSymbolsOnLHS();
+        for (int k = 0; k < lhs.length; k++) {
+            if (!set.contains(lhs[k]))
                 return false;
         }
         return isUsefulProduction(production, set);
@@ -444,13 +462,9 @@ public class UselessProductionRemover {
             Production production, VariableDependencyGraph graph) {
         ArrayList<Transition> list = new ArrayList<>();
         String v1 = production.getLHS();
-        ProductionChecker pc = new ProductionChecker();
-        String rhs = production.getRHS();
-        for (int k = 0; k < rhs.length(); k++) {
-            char ch = rhs.charAt(k);
-            if (ProductionChecker.isVariable(ch)) {
-                list.add(getTransition(v1, String.valueOf(ch), graph));
-            }
+        String[] variables = production.getVariablesOnRHS();
+        for (int k = 0; k < variables.length; k++) {
+            list.add(getTransition(v1, variables[k], graph));
         }
         return list.toArray(new Transition[0]);
     }
@@ -530,13 +544,10 @@ public class UselessProductionRemover {
                 grammar.getStartVariable()))
             return g;
         grammar = getTerminalGrammar(grammar);
-        VariableDependencyGraph graph = getVariableDependencyGraph(grammar);
-        Set<String> useless = new HashSet<String>(Arrays.asList(getUselessVariables(g, graph)));
+        Set<String> reachable = getReachableVariableSet(grammar);
         Production[] p = grammar.getProductions();
         for (int i = 0; i < p.length; i++) {
-            Set<String> variables = new HashSet<String>(Arrays.asList(p[i].getVariables()));
-            variables.retainAll(useless);
-            if (variables.size() > 0)
+            if (!reachable.containsAll(Arrays.asList(p[i].getVariables())))
                 continue;
             g.addProduction(p[i]);
         }
@@ -18,10 +18,31 @@
 package grammar.lsystem;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Given an L-system, this will expand the L-system, creating the vast lists of
  * symbols generated by successive expansions of the L-system.
+ * <p>
+ * Since the lists grow geometrically with the level, the symbols of a level
+ * may instead be streamed with {@link #streamForLevel}, which holds levels of
+ * up to a few million symbols and descends the tree of replacements below the
+ * deepest of them keeping only one list position per level, so that deep
+ * levels are never held in memory. Each distinct symbol is given an
+ * integer code when the expander is made, and the streams descend arrays of
+ * codes, so that a client such as a renderer may read the codes of a level
+ * with {@link #codesForLevel} and look up what to do for each symbol in an
+ * array instead of by the string.
+ * <p>
+ * The levels held in memory are expanded in chunks of symbols on a fork/join
+ * pool. Where a symbol has more than one replacement, the choice depends only
+ * on the seed and the position of the symbol in the tree of replacements (or,
+ * with contexts, in its level), never on the order in which chunks are
+ * expanded, so an expander with a given seed always makes the same levels.
+ * <p>
+ * An expander may be read from more than one thread. The levels held are
+ * made while holding the lock of the expander, so each is made only once.
  *
  * @author Thomas Finley
  */
@@ -31,6 +52,19 @@ public class Expander {
      * An empty list.
      */
     protected static final List<String>[] EMPTY_ARRAY = new List[0];
+    /**
+     * No replacements, as codes.
+     */
+    private static final int[][] NO_REPLACEMENTS = new int[0][];
+    /**
+     * The number of symbols of a level expanded together in one task.
+     */
+    private static final int CHUNK_SIZE = 8192;
+    /**
+     * The most symbols of a level of an L-system without contexts that
+     * {@link #codesForLevel} holds in memory; larger levels are streamed.
+     */
+    private static final int HELD_LIMIT = 1 << 22;
     /**
      * For generating random seeds.
      */
@@ -40,13 +74,39 @@ public class Expander {
      */
     private final LSystem lsystem;
     /**
-     * For stochiastic l-systemness, this will generate random numbers.
+     * The seed for the randomizer, from which the streamed expansions choose
+     * among replacements.
      */
-    private final Random stochiastic;
+    private final long seed;
     /**
      * The cached expansions. At index 0 is the axiom.
      */
     private final List<List<String>> cachedExpansions = new ArrayList<>();
+    /**
+     * For L-systems without contexts, the cached expansions as codes.
+     */
+    private final List<int[]> cachedCodes = new ArrayList<>();
+    /**
+     * For stochastic L-systems without contexts, the position in the tree of
+     * replacements of each symbol of the cached expansions, hashed.
+     */
+    private final List<long[]> cachedKeys = new ArrayList<>();
+    /**
+     * The symbols of the L-system, by code.
+     */
+    private final List<String> symbols = new ArrayList<>();
+    /**
+     * The codes of the symbols.
+     */
+    private final Map<String, Integer> codes = new HashMap<>();
+    /**
+     * The axiom, as codes.
+     */
+    private int[] axiomCodes;
+    /**
+     * For each code, the replacements of its symbol as codes.
+     */
+    private int[][][] replacementCodes;
     /**
      * The contexts.
      */
@@ -69,21 +129,53 @@ public class Expander {
      * @param seed    the seed for the randomizer
      */
     public Expander(LSystem lsystem, long seed) {
-        stochiastic = new Random(seed);
+        this.seed = seed;
         this.lsystem = lsystem;
         cachedExpansions.add(lsystem.getAxiom());
+        initializeCodes();
         initializeContexts();
+        cachedCodes.add(axiomCodes);
+        long[] keys = null;
+        if (lsystem.nondeterministic()) {
+            keys = new long[axiomCodes.length];
+            long path = mix(seed);
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = mix(path + i);
+        }
+        cachedKeys.add(keys);
+    }
+
+    /**
+     * Returns the number of distinct symbols in the L-system, which are coded
+     * from 0 to one less than this.
+     *
+     * @return the number of symbol codes
+     */
+    public int getSymbolCount() {
+        return symbols.size();
+    }
+
+    /**
+     * Returns the symbol for a code.
+     *
+     * @param code the code of the symbol
+     * @return the symbol
+     */
+    public String getSymbol(int code) {
+        return symbols.get(code);
     }
 
     /**
      * Returns the expansion at a given level of recursion. An input of 0 will
-     * return the axiom (i.e., no replacement or recursion has occurred).
+     * return the axiom (i.e., no replacement or recursion has occurred). For
+     * L-systems without contexts, the expansion is the same as
+     * {@link #streamForLevel}.
      *
      * @param level the level of recursion to sink to
      * @return the list of string symbols
      * @throws IllegalArgumentException if the level is less than 0
      */
-    public List<String> expansionForLevel(int level) {
+    public synchronized List<String> expansionForLevel(int level) {
         if (level < 0)
             throw new IllegalArgumentException("Recursion level " + level
                     + " impossible!");
@@ -91,101 +183,392 @@ public class Expander {
             return (List<String>) cachedExpansions.get(level);
         List<String> lastOne = (List<String>) cachedExpansions.get(cachedExpansions.size() - 1);
         for (int i = cachedExpansions.size(); i <= level; i++)
-            cachedExpansions.add(lastOne = expand(lastOne));
+            cachedExpansions.add(lastOne = expand(lastOne, i));
         return lastOne;
     }
 
+    /**
+     * Returns the symbols at a given level of recursion without holding them
+     * in memory. Each iterator of the result yields the same symbols, so the
+     * symbols may be read more than once. Where a symbol has more than one
+     * replacement, the choice depends only on the seed and the position of
+     * the symbol in the tree of replacements, so the symbols of a level are
+     * the replacements of the symbols of the level before.
+     * <p>
+     * Replacements that depend on the context of a symbol need the whole
+     * level before, so for L-systems with contexts this returns
+     * {@link #expansionForLevel}.
+     *
+     * @param level the level of recursion to sink to
+     * @return the symbols of the level
+     * @throws IllegalArgumentException if the level is less than 0
+     */
+    public Iterable<String> streamForLevel(final int level) {
+        if (level < 0)
+            throw new IllegalArgumentException("Recursion level " + level
+                    + " impossible!");
+        if (contexts != null)
+            return expansionForLevel(level);
+        return new Iterable<String>() {
+            public Iterator<String> iterator() {
+                final PrimitiveIterator.OfInt it = codesForLevel(level);
+                return new Iterator<String>() {
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public String next() {
+                        return symbols.get(it.nextInt());
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the codes of the symbols at a given level of recursion, in the
+     * same order as {@link #streamForLevel}. Each call returns a new iterator
+     * over the same symbols. For L-systems without contexts, levels of up to
+     * a few million symbols are expanded in parallel and held, and larger
+     * levels are streamed from the largest level held.
+     *
+     * @param level the level of recursion to sink to
+     * @return an iterator over the codes of the symbols of the level
+     * @throws IllegalArgumentException if the level is less than 0
+     * @see #getSymbol
+     */
+    public synchronized PrimitiveIterator.OfInt codesForLevel(int level) {
+        if (level < 0)
+            throw new IllegalArgumentException("Recursion level " + level
+                    + " impossible!");
+        if (contexts == null) {
+            while (cachedCodes.size() <= level)
+                if (!expandHeld())
+                    break;
+            if (level < cachedCodes.size())
+                return Arrays.stream(cachedCodes.get(level)).iterator();
+            return new LevelIterator(level);
+        }
+        final Iterator<String> it = expansionForLevel(level).iterator();
+        return new PrimitiveIterator.OfInt() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public int nextInt() {
+                return codes.get(it.next());
+            }
+        };
+    }
+
+    /**
+     * Returns the number of symbols at a given level of recursion, without
+     * expanding to that level if the L-system has no contexts and is
+     * deterministic.
+     *
+     * @param level the level of recursion
+     * @return the number of symbols in {@link #streamForLevel}
+     * @throws IllegalArgumentException if the level is less than 0
+     */
+    public long sizeForLevel(int level) {
+        if (contexts != null)
+            return expansionForLevel(level).size();
+        if (lsystem.nondeterministic()) {
+            long size = 0;
+            for (PrimitiveIterator.OfInt it = codesForLevel(level); it
+                    .hasNext(); it.nextInt())
+                size++;
+            return size;
+        }
+        // The size of each symbol after each number of replacements.
+        long[] sizes = new long[symbols.size()];
+        Arrays.fill(sizes, 1);
+        for (int i = 0; i < level; i++) {
+            long[] replaced = new long[sizes.length];
+            for (int code = 0; code < sizes.length; code++) {
+                int[][] replacements = replacementCodes[code];
+                if (replacements.length == 0) {
+                    replaced[code] = 1;
+                    continue;
+                }
+                for (int j = 0; j < replacements[0].length; j++)
+                    replaced[code] += sizes[replacements[0][j]];
+            }
+            sizes = replaced;
+        }
+        long size = 0;
+        for (int i = 0; i < axiomCodes.length; i++)
+            size += sizes[axiomCodes[i]];
+        return size;
+    }
+
+    /**
+     * Mixes the bits of a number, as in the SplitMix generator.
+     *
+     * @param z the number
+     * @return the mixed number
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
     /**
      * Does the expansion of a given string list thing.
      *
      * @param symbols the list of symbols to expand
+     * @param level   the level of the expansion
      * @return the expansion of the passed in symbols
      */
-    private List<String> expand(List<String> symbols) {
+    private List<String> expand(List<String> symbols, int level) {
         if (contexts == null)
-            return expandNoContext(symbols);
-        return expandContext(symbols);
+            return expandNoContext(level);
+        return expandContext(symbols, level);
     }
 
     /**
-     * Does the expansion of a given string list thing given that we have no
+     * Returns the replacement chosen for a symbol given that we have no
      * "contexts" to worry about.
      *
-     * @param symbols the list of symbols to expand
-     * @return the expansion of the passed in symbols
+     * @param code the code of the symbol
+     * @param key  the hashed position of the symbol in the tree of
+     *             replacements
+     * @return the codes of the replacement, or <CODE>null</CODE> if the
+     * symbol cannot be replaced
      */
-    private List<String> expandNoContext(List<String> symbols) {
-        List<String> ne = new ArrayList<>();
-        for (int i = 0; i < symbols.size(); i++) {
-            String s = (String) symbols.get(i);
-            List<String>[] replacements = lsystem.getReplacements(s);
-            List<String> replacement = null;
-            switch (replacements.length) {
-                case 0:
-                    // This cannot be replaced, so we skip to the next symbol.
-                    ne.add(s);
-                    continue;
-                case 1:
-                    // There is only one replacement possibility.
-                    replacement = replacements[0];
-                    break;
-                default:
-                    // If there's more than one possibility, we choose one
-                    // nearly at random.
-                    replacement = replacements[stochiastic
-                            .nextInt(replacements.length)];
-                    break;
-            }
-            Iterator<String> it2 = replacement.iterator();
-            while (it2.hasNext())
-                ne.add(it2.next()); // Add replacements!
+    private int[] choose(int code, long key) {
+        int[][] replacements = replacementCodes[code];
+        switch (replacements.length) {
+            case 0:
+                return null;
+            case 1:
+                return replacements[0];
+            default:
+                return replacements[(int) ((key >>> 1) % replacements.length)];
         }
-        return ne;
+    }
+
+    /**
+     * Does the expansion of the level before a given level, given that we
+     * have no "contexts" to worry about. The level is expanded as codes in
+     * two passes over chunks of symbols: the first finds how many symbols
+     * each chunk becomes, and the second writes them in their places.
+     *
+     * @param level the level to expand to
+     * @return the expansion
+     */
+    private List<String> expandNoContext(int level) {
+        long[] offsets = countNoContext(level);
+        if (offsets[offsets.length - 1] > Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError("Expansion of level " + level
+                    + " is too large to hold.");
+        return expandNoContext(level, offsets);
+    }
+
+    /**
+     * Expands the level after the largest level held, given that we have no
+     * "contexts" to worry about, if it has no more than {@link #HELD_LIMIT}
+     * symbols.
+     *
+     * @return true if the level was expanded, false if it is too large
+     */
+    private boolean expandHeld() {
+        int level = cachedCodes.size();
+        long[] offsets = countNoContext(level);
+        if (offsets[offsets.length - 1] > HELD_LIMIT)
+            return false;
+        cachedExpansions.add(expandNoContext(level, offsets));
+        return true;
+    }
+
+    /**
+     * Counts the symbols each chunk of the level before a given level
+     * becomes, given that we have no "contexts" to worry about.
+     *
+     * @param level the level to expand to
+     * @return the position in the level of the symbols of each chunk, and
+     * last the size of the level
+     */
+    private long[] countNoContext(int level) {
+        final int[] codes = cachedCodes.get(level - 1);
+        final long[] keys = cachedKeys.get(level - 1);
+        final int chunks = (codes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final long[] offsets = new long[chunks + 1];
+        forEachChunk(codes.length, new ChunkTask() {
+            public void run(int chunk, int from, int to) {
+                long size = 0;
+                for (int i = from; i < to; i++) {
+                    int[] replacement = choose(codes[i], keys == null ? 0
+                            : keys[i]);
+                    size += replacement == null ? 1 : replacement.length;
+                }
+                offsets[chunk + 1] = size;
+            }
+        });
+        for (int i = 0; i < chunks; i++)
+            offsets[i + 1] += offsets[i];
+        return offsets;
+    }
+
+    /**
+     * Writes the expansion of the level before a given level, given that we
+     * have no "contexts" to worry about, into the positions counted for
+     * each chunk.
+     *
+     * @param level   the level to expand to
+     * @param offsets the positions from {@link #countNoContext}
+     * @return the expansion
+     */
+    private List<String> expandNoContext(int level, final long[] offsets) {
+        final int[] codes = cachedCodes.get(level - 1);
+        final long[] keys = cachedKeys.get(level - 1);
+        final int[] newCodes = new int[(int) offsets[offsets.length - 1]];
+        final long[] newKeys = keys == null ? null : new long[newCodes.length];
+        forEachChunk(codes.length, new ChunkTask() {
+            public void run(int chunk, int from, int to) {
+                int position = (int) offsets[chunk];
+                for (int i = from; i < to; i++) {
+                    long key = keys == null ? 0 : keys[i];
+                    int[] replacement = choose(codes[i], key);
+                    if (replacement == null) {
+                        // This cannot be replaced, so it stays.
+                        if (newKeys != null)
+                            newKeys[position] = key;
+                        newCodes[position++] = codes[i];
+                        continue;
+                    }
+                    for (int j = 0; j < replacement.length; j++) {
+                        if (newKeys != null)
+                            newKeys[position] = mix(key + j);
+                        newCodes[position++] = replacement[j];
+                    }
+                }
+            }
+        });
+        cachedCodes.add(newCodes);
+        cachedKeys.add(newKeys);
+        return new CodeList(newCodes);
     }
 
     /**
      * Does the expansion of a given string list thing given that we have
      * contexts. This can be computationally more expensive, though not horribly
-     * so.
+     * so. The replacements are chosen in parallel chunks, since each depends
+     * only on the symbols about it, and then put together in order.
      *
      * @param symbols the list of symbols to expand
+     * @param level   the level of the expansion
      * @return the expansion of the passed in symbols
      */
-    private List<String> expandContext(List<String> symbols) {
+    private List<String> expandContext(final List<String> symbols, int level) {
+        final long levelKey = mix(mix(seed) + level);
+        final List<List<String>> chosen = new ArrayList<>(
+                Collections.<List<String>>nCopies(symbols.size(), null));
+        forEachChunk(symbols.size(), new ChunkTask() {
+            public void run(int chunk, int from, int to) {
+                ArrayList<List<String>> replacementsList = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    replacementsList.clear();
+                    for (int j = 0; j < contexts.length; j++) {
+                        List<String>[] l = contexts[j].matches(symbols, i);
+                        for (int k = 0; k < l.length; k++)
+                            replacementsList.add(l[k]);
+                    }
+                    switch (replacementsList.size()) {
+                        case 0:
+                            // This cannot be replaced.
+                            break;
+                        case 1:
+                            chosen.set(i, replacementsList.get(0));
+                            break;
+                        default:
+                            // If there's more than one possibility, we choose
+                            // one nearly at random.
+                            long key = mix(levelKey + i);
+                            chosen.set(i, replacementsList.get((int) ((key >>> 1) % replacementsList
+                                    .size())));
+                            break;
+                    }
+                }
+            }
+        });
         List<String> ne = new ArrayList<>();
-        for (int i = 0; i < symbols.size(); i++) {
-            String s = (String) symbols.get(i);
-            ArrayList<List<String>> replacementsList = new ArrayList<>();
-            for (int j = 0; j < contexts.length; j++) {
-                List<String>[] l = contexts[j].matches(symbols, i);
-                contexts[j].matches(symbols, i);
-                for (int k = 0; k < l.length; k++)
-                    replacementsList.add(l[k]);
+        for (int i = 0; i < chosen.size(); i++) {
+            if (chosen.get(i) == null)
+                ne.add(symbols.get(i));
+            else
+                ne.addAll(chosen.get(i));
+        }
+        return ne;
+    }
+
+    /**
+     * Runs a task on each chunk of a range of positions, on the fork/join
+     * pool if there is more than one chunk.
+     *
+     * @param size the number of positions
+     * @param task the task
+     */
+    private static void forEachChunk(int size, ChunkTask task) {
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks == 1)
+            task.run(0, 0, size);
+        else if (chunks > 1)
+            ForkJoinPool.commonPool().invoke(
+                    new ChunkAction(task, size, 0, chunks));
+    }
+
+    /**
+     * Gives each symbol of the axiom and of the replacements a code, and
+     * codes the axiom and the replacements of each symbol.
+     */
+    private final void initializeCodes() {
+        axiomCodes = encode(lsystem.getAxiom());
+        Iterator<String> it = lsystem.getSymbolsWithReplacements().iterator();
+        while (it.hasNext()) {
+            List<String>[] replacements = lsystem.getReplacements(it.next());
+            for (int i = 0; i < replacements.length; i++)
+                encode(replacements[i]);
+        }
+        replacementCodes = new int[symbols.size()][][];
+        for (int code = 0; code < replacementCodes.length; code++) {
+            List<String>[] replacements = lsystem.getReplacements(symbols
+                    .get(code));
+            if (replacements.length == 0) {
+                replacementCodes[code] = NO_REPLACEMENTS;
+                continue;
             }
-            List<String>[] replacements = (List<String>[]) replacementsList
-                    .toArray(EMPTY_ARRAY);
-            List<String> replacement = null;
-            switch (replacements.length) {
-                case 0:
-                    // This cannot be replaced, so we skip to the next symbol.
-                    ne.add(s);
-                    continue;
-                case 1:
-                    // There is only one replacement possibility.
-                    replacement = replacements[0];
-                    break;
-                default:
-                    // If there's more than one possibility, we choose one
-                    // nearly at random.
-                    replacement = replacements[stochiastic
-                            .nextInt(replacements.length)];
-                    break;
+            replacementCodes[code] = new int[replacements.length][];
+            for (int i = 0; i < replacements.length; i++)
+                replacementCodes[code][i] = encode(replacements[i]);
+        }
+    }
+
+    /**
+     * Returns the codes of a list of symbols, giving codes to the symbols that
+     * have none.
+     *
+     * @param list the list of symbols
+     * @return the codes of the symbols
+     */
+    private int[] encode(List<String> list) {
+        int[] encoded = new int[list.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            String symbol = list.get(i);
+            Integer code = codes.get(symbol);
+            if (code == null) {
+                code = symbols.size();
+                codes.put(symbol, code);
+                symbols.add(symbol);
             }
-            Iterator<String> it2 = replacement.iterator();
-            while (it2.hasNext())
-                ne.add(it2.next()); // Add replacements!
+            encoded[i] = code;
         }
-        return ne;
+        return encoded;
     }
 
     /**
@@ -230,6 +613,169 @@ public class Expander {
             contexts = (Context[]) contextsList.toArray(new Context[0]);
     }
 
+    /**
+     * This iterates over the codes of the symbols of a level by descending the
+     * tree of replacements from the deepest level held. For each level above,
+     * it keeps the replacement being read and the position in it.
+     */
+    private class LevelIterator implements PrimitiveIterator.OfInt {
+        /**
+         * The number of levels from the level held to the level whose symbols
+         * are returned.
+         */
+        private final int level;
+        /**
+         * The hashed positions in the tree of the symbols of the level held,
+         * or <CODE>null</CODE> if the L-system is deterministic.
+         */
+        private final long[] keys;
+        /**
+         * For each level down to the current one, the codes being read.
+         */
+        private final int[][] lists;
+        /**
+         * For each level, the position of the next symbol to read.
+         */
+        private final int[] positions;
+        /**
+         * For each level, a hash of the position of its list in the tree.
+         */
+        private final long[] paths;
+        /**
+         * The current level, or -1 when there are no more symbols.
+         */
+        private int depth = 0;
+        /**
+         * The code of the next symbol, or -1 if it has not been found.
+         */
+        private int next = -1;
+
+        /**
+         * Instantiates an iterator over a level.
+         *
+         * @param level the level of recursion
+         */
+        public LevelIterator(int level) {
+            int held = Math.min(level, cachedCodes.size() - 1);
+            this.level = level - held;
+            lists = new int[this.level + 1][];
+            positions = new int[this.level + 1];
+            paths = new long[this.level + 1];
+            lists[0] = cachedCodes.get(held);
+            keys = cachedKeys.get(held);
+        }
+
+        public boolean hasNext() {
+            while (next < 0 && depth >= 0) {
+                if (positions[depth] == lists[depth].length) {
+                    depth--;
+                    continue;
+                }
+                int i = positions[depth]++;
+                int code = lists[depth][i];
+                int[][] replacements = depth == level ? NO_REPLACEMENTS
+                        : replacementCodes[code];
+                if (replacements.length == 0) {
+                    // This cannot be replaced, so it is in the level.
+                    next = code;
+                    break;
+                }
+                long path = depth > 0 ? mix(paths[depth] + i)
+                        : keys == null ? 0 : keys[i];
+                int[] replacement = replacements[0];
+                if (replacements.length > 1)
+                    replacement = replacements[(int) ((path >>> 1) % replacements.length)];
+                depth++;
+                lists[depth] = replacement;
+                positions[depth] = 0;
+                paths[depth] = path;
+            }
+            return next >= 0;
+        }
+
+        public int nextInt() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            int code = next;
+            next = -1;
+            return code;
+        }
+    }
+
+    /**
+     * A task run on a chunk of the positions of a level.
+     */
+    private interface ChunkTask {
+        /**
+         * Runs the task on a chunk.
+         *
+         * @param chunk the index of the chunk
+         * @param from  the first position of the chunk
+         * @param to    the position after the last of the chunk
+         */
+        void run(int chunk, int from, int to);
+    }
+
+    /**
+     * Runs a task on a range of chunks, splitting the range in half until
+     * there is one chunk.
+     */
+    private static class ChunkAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /**
+         * The task.
+         */
+        private final ChunkTask task;
+        /**
+         * The number of positions.
+         */
+        private final int size;
+        /**
+         * The first chunk and the chunk after the last one.
+         */
+        private final int first, last;
+
+        ChunkAction(ChunkTask task, int size, int first, int last) {
+            this.task = task;
+            this.size = size;
+            this.first = first;
+            this.last = last;
+        }
+
+        protected void compute() {
+            if (last - first == 1) {
+                task.run(first, first * CHUNK_SIZE, Math.min(size,
+                        (first + 1) * CHUNK_SIZE));
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new ChunkAction(task, size, first, middle),
+                    new ChunkAction(task, size, middle, last));
+        }
+    }
+
+    /**
+     * A level of codes seen as a list of symbols.
+     */
+    private class CodeList extends AbstractList<String> implements RandomAccess {
+        /**
+         * The codes of the symbols.
+         */
+        private final int[] codes;
+
+        CodeList(int[] codes) {
+            this.codes = codes;
+        }
+
+        public String get(int index) {
+            return symbols.get(codes[index]);
+        }
+
+        public int size() {
+            return codes.length;
+        }
+    }
+
     /**
      * This is a class that is used to perform limited matchings of a list.
      */
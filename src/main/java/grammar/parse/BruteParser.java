@@ -19,11 +19,20 @@ package grammar.parse;
 
 import grammar.Grammar;
 import grammar.Production;
+import grammar.SymbolTable;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * The <CODE>BruteParser</CODE> is an abstract class that will perform a brute
  * force parse of a grammar.
+ * <p>
+ * The search is best first: the derivations whose lengths are nearest the
+ * length of the target are expanded first, and of those the oldest. Each call
+ * to the parse takes a batch of derivations from the front and expands them
+ * at once on a shared pool of threads. The one step derivations of the
+ * suffixes of a derivation are remembered in a cache of bounded size, since
+ * the derivations in the search share many suffixes.
  *
  * @author Thomas Finley
  */
@@ -34,14 +43,39 @@ public abstract class BruteParser {
     private static final int[] S = new int[0];
     private static final ParseNode E = new ParseNode("", P, S);
     /**
-     * This set holds those strings already added to the tree.
+     * The most derivations expanded by one call to the parse.
      */
-    private final Set<String> alreadyAdded = new HashSet<>();
+    private static final int BATCH_SIZE = 64;
+    /**
+     * The most suffixes whose possibilities are remembered.
+     */
+    private static final int CACHE_SIZE = 4096;
+    /**
+     * The threads that expand the derivations, shared by all parsers, or
+     * <CODE>null</CODE> if none has been needed yet.
+     */
+    private static ExecutorService executor = null;
+    /**
+     * This set holds those strings already added to the tree. It is read and
+     * written by the threads expanding the derivations.
+     */
+    private final Set<String> alreadyAdded = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     /**
      * This holds those strings that have already been derived, with a map to
-     * those nodes for each string.
+     * those nodes for each string. The least recently used string is dropped
+     * once there are too many. The lists in it are never changed.
      */
-    private final Map<String, List<ParseNode>> prederived = new HashMap<>();
+    private final Map<String, List<ParseNode>> prederived = Collections
+            .synchronizedMap(new LinkedHashMap<String, List<ParseNode>>(16,
+                    0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, List<ParseNode>> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
     /**
      * The set of listeners.
      */
@@ -54,14 +88,23 @@ public abstract class BruteParser {
      * The array of productions.
      */
     protected Production[] productions;
+    /**
+     * The productions by the first symbol of their left sides.
+     */
+    private Map<String, Production[]> productionsOnFirst = new HashMap<>();
     /**
      * This is the target string.
      */
     protected String target;
     /**
-     * This holds the list of nodes for the BFS.
+     * This holds the nodes of the search, with the best first.
      */
-    protected LinkedList<ParseNode> queue = new LinkedList<>();
+    private PriorityQueue<Entry> queue = new PriorityQueue<>();
+    /**
+     * The number of nodes added to the queue, which orders the nodes that are
+     * equally good.
+     */
+    private long queued = 0;
     /**
      * The "smaller" set, those symbols that may possibly reduce to nothing.
      */
@@ -131,22 +174,40 @@ public abstract class BruteParser {
                                 + target.charAt(i) + ".");
 
         queue.clear();
+        queued = 0;
+        prederived.clear();
 
         grammar = Unrestricted.optimize(grammar);
         if (grammar == null)
             return;
-        queue.add(new ParseNode(grammar.getStartVariable(), P, S));
         consideredNodes = 0;
         deletedNodes = 0;
 
         smaller = Collections.unmodifiableSet(Unrestricted
                 .smallerSymbols(grammar));
-        Collections.unmodifiableSet(Unrestricted
-                .smallerSymbols(grammar));
 
         this.grammar = grammar;
         productions = grammar.getProductions();
         this.target = target;
+
+        Map<String, List<Production>> onFirst = new HashMap<>();
+        for (int i = 0; i < productions.length; i++) {
+            String lhs = productions[i].getLHS();
+            if (lhs.length() == 0)
+                continue;
+            String first = lhs.substring(0, SymbolTable.symbolLength(lhs, 0));
+            List<Production> list = onFirst.get(first);
+            if (list == null) {
+                list = new ArrayList<>();
+                onFirst.put(first, list);
+            }
+            list.add(productions[i]);
+        }
+        productionsOnFirst.clear();
+        for (Map.Entry<String, List<Production>> entry : onFirst.entrySet())
+            productionsOnFirst.put(entry.getKey(), entry.getValue().toArray(P));
+
+        enqueue(new ParseNode(grammar.getStartVariable(), P, S));
     }
 
     /**
@@ -212,71 +273,79 @@ public abstract class BruteParser {
 
     /**
      * Returns a list of possible one step parses for a given string. The first
-     * entry is always the identity.
+     * entry is always the identity. The list returned must not be changed.
+     * <p>
+     * Each production is applied at the start of the string, and the first
+     * symbol is otherwise kept, with the possibilities of the rest of the
+     * string following; this gives every way to apply productions at places
+     * in the string that do not overlap. The possibilities of the rest of the
+     * string are cached.
      */
     private List<ParseNode> getPossibilities(String c) {
-        List<ParseNode> possibilities = new ArrayList<>();
-        if (prederived.containsKey(c)) {
-            return prederived.get(c);
-        }
-        HashSet<String> alreadyEncountered = new HashSet<>();
-        if (c.length() == 0) {
-            possibilities.add(E);
+        if (c.length() == 0)
+            return Collections.singletonList(E);
+        List<ParseNode> possibilities = prederived.get(c);
+        if (possibilities != null)
             return possibilities;
+        possibilities = new ArrayList<>();
+        HashSet<String> alreadyEncountered = new HashSet<>();
+        int symbolLength = SymbolTable.symbolLength(c, 0);
+        String first = c.substring(0, symbolLength);
+        // The identity, which keeps the first symbol.
+        for (ParseNode node : getPossibilities(c.substring(symbolLength))) {
+            String a = first + node.getDerivation();
+            int[] s = node.getSubstitutions();
+            int[] newS = new int[s.length];
+            for (int j = 0; j < s.length; j++)
+                newS[j] = s[j] + symbolLength;
+            // Make the node with the substitution.
+            if (alreadyEncountered.add(a))
+                possibilities.add(new ParseNode(a, node.getProductions(), newS));
         }
-        for (int i = -1; i < productions.length; i++) {
-            Production prod = i == -1 ? new Production(c.substring(0, 1), c
-                    .substring(0, 1)) : productions[i];
-            // Find the start of the production.
-            int start = c.indexOf(prod.getLHS());
-            int lengthSubs = prod.getLHS().length();
-            if (start == -1) {
+        Production[] onFirst = productionsOnFirst.get(first);
+        for (int i = 0; onFirst != null && i < onFirst.length; i++) {
+            Production prod = onFirst[i];
+            String lhs = prod.getLHS();
+            if (!c.startsWith(lhs) || !isSymbolBoundary(c, lhs.length()))
                 continue;
-            }
-            List<ParseNode> list = getPossibilities(c.substring(start + lengthSubs));
-            Iterator<ParseNode> it = list.iterator();
-            String prepend = c.substring(0, start) + prod.getRHS();
-            int lengthReplace = start + prod.getLHS().length();
-            // Make adjustments for each entry.
-            while (it.hasNext()) {
-                ParseNode node = it.next();
-                String d = node.getDerivation();
+            int lengthReplace = lhs.length();
+            for (ParseNode node : getPossibilities(c.substring(lengthReplace))) {
+                String a = prod.getRHS() + node.getDerivation();
                 Production[] p = node.getProductions();
-                String a = prepend + d;
                 int[] s = node.getSubstitutions();
-                if (i == -1) {
-                    int[] newS = new int[s.length];
-                    for (int j = 0; j < p.length; j++) {
-                        newS[j] = s[j] + lengthReplace;
-                    }
-                    // Make the node with the substitution.
-                    if (alreadyEncountered.add(a)) {
-                        node = new ParseNode(a, p, newS);
-                        possibilities.add(node);
-                        beingConsideredNodes++;
-                    }
-                } else {
-                    Production[] newP = new Production[p.length + 1];
-                    int[] newS = new int[s.length + 1];
-                    newS[0] = start;
-                    newP[0] = prod;
-                    for (int j = 0; j < p.length; j++) {
-                        newP[j + 1] = p[j];
-                        newS[j + 1] = s[j] + lengthReplace;
-                    }
-                    // Make the node with the substitution.
-                    if (alreadyEncountered.add(a)) {
-                        node = new ParseNode(a, newP, newS);
-                        possibilities.add(node);
-                        beingConsideredNodes++;
-                    }
+                Production[] newP = new Production[p.length + 1];
+                int[] newS = new int[s.length + 1];
+                newS[0] = 0;
+                newP[0] = prod;
+                for (int j = 0; j < p.length; j++) {
+                    newP[j + 1] = p[j];
+                    newS[j + 1] = s[j] + lengthReplace;
                 }
+                // Make the node with the substitution.
+                if (alreadyEncountered.add(a))
+                    possibilities.add(new ParseNode(a, newP, newS));
             }
         }
-        // prederived.put(c, possibilities);
+        possibilities = Collections.unmodifiableList(possibilities);
+        prederived.put(c, possibilities);
         return possibilities;
     }
 
+    /**
+     * Returns if a symbol of a string ends at a position.
+     *
+     * @param c        the string
+     * @param position the position in the string
+     * @return <CODE>true</CODE> if the symbols of the string up to the
+     * position end there
+     */
+    private static boolean isSymbolBoundary(String c, int position) {
+        int i = 0;
+        while (i < position)
+            i += SymbolTable.symbolLength(c, i);
+        return i == position;
+    }
+
     /**
      * Any node that is not accepted and can have no children is futile. Since
      * the tree is doubly linked, the entire BFS tree will be preserved. By
@@ -319,7 +388,7 @@ public abstract class BruteParser {
 
     /**
      * Returns the number of nodes on the current "consideration" queue. These
-     * nodes have not yet been added.
+     * nodes have not yet been expanded.
      */
     public int getConsiderationNodeCount() {
         return beingConsideredNodes;
@@ -339,46 +408,172 @@ public abstract class BruteParser {
                 .length();
     }
 
+    /**
+     * Returns if this parser can decide the target without the search, in
+     * which case {@link #decide} is called instead. By default this is
+     * <CODE>false</CODE>.
+     *
+     * @return <CODE>true</CODE> if {@link #decide} should be used
+     */
+    protected boolean isDecidable() {
+        return false;
+    }
+
+    /**
+     * Decides the target without the search. This is called on the parsing
+     * thread if {@link #isDecidable} returns <CODE>true</CODE>.
+     *
+     * @return the answer node, whose ancestors are the derivation of the
+     * target, or <CODE>null</CODE> if the target cannot be derived
+     */
+    protected ParseNode decide() {
+        return null;
+    }
+
     /**
      * The parsing method.
      */
     private synchronized void parse() {
+        if (consideredNodes == 0 && isDecidable()) {
+            answer = decide();
+            isDone = true;
+            parseThread = null;
+            queue.clear();
+            distributeEvent(new BruteParserEvent(this, answer == null
+                    ? BruteParserEvent.REJECT : BruteParserEvent.ACCEPT));
+            return;
+        }
         if (queue.isEmpty()) {
             isDone = true;
             parseThread = null;
+            beingConsideredNodes = 0;
             distributeEvent(new BruteParserEvent(this, BruteParserEvent.REJECT));
             return;
         }
-        // Get one element.
-        ParseNode node = queue.removeFirst();
-        beingConsideredNodes = 0;
-        List<ParseNode> pos = getPossibilities(node.getDerivation());
-        beingConsideredNodes = 0;
-        Iterator<ParseNode> it = pos.iterator();
+        // Get the best elements.
+        ParseNode[] nodes = new ParseNode[Math.min(queue.size(), BATCH_SIZE)];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = queue.poll().node;
+        List<List<ParseNode>> children = expand(nodes);
+        for (int i = 0; i < nodes.length; i++) {
+            ParseNode node = nodes[i];
+            Iterator<ParseNode> it = children.get(i).iterator();
+            while (it.hasNext()) {
+                ParseNode pNode = new ParseNode(it.next());
+                node.add(pNode);
+                enqueue(pNode);
+                consideredNodes++;
+
+                if (pNode.getDerivation().equals(target)) {
+                    answer = pNode;
+                    isDone = true;
+                    parseThread = null;
+                    queue.clear();
+                    beingConsideredNodes = 0;
+                    distributeEvent(new BruteParserEvent(this,
+                            BruteParserEvent.ACCEPT));
+                    return;
+                }
+            }
+            // Was anything added?
+            if (node.isLeaf())
+                removeFutility(node);
+        }
+        beingConsideredNodes = queue.size();
+    }
+
+    /**
+     * Adds a node to the queue.
+     *
+     * @param node the node to search from later
+     */
+    private void enqueue(ParseNode node) {
+        int distance = Math.abs(SymbolTable.count(node.getDerivation())
+                - target.length());
+        queue.add(new Entry(node, distance, queued++));
+    }
+
+    /**
+     * Returns the nodes that a node may derive in one step that were not yet
+     * added to the tree and could still derive the target. The nodes returned
+     * are marked as added.
+     *
+     * @param node the node to expand
+     * @return the new nodes, which must be copied before they are put in the
+     * tree
+     */
+    private List<ParseNode> expand(ParseNode node) {
+        List<ParseNode> children = new ArrayList<>();
+        Iterator<ParseNode> it = getPossibilities(node.getDerivation())
+                .iterator();
         while (it.hasNext()) {
             ParseNode pNode = it.next();
             if (!alreadyAdded.add(pNode.getDerivation()))
                 continue;
             if (!isPossibleDerivation(pNode.getDerivation()))
                 continue;
-            pNode = new ParseNode(pNode);
-            node.add(pNode);
-            queue.add(pNode);
-            consideredNodes++;
-
-            if (pNode.getDerivation().equals(target)) {
-                answer = pNode;
-                isDone = true;
-                parseThread = null;
-                queue.clear();
-                distributeEvent(new BruteParserEvent(this,
-                        BruteParserEvent.ACCEPT));
-                return;
-            }
+            children.add(pNode);
         }
-        // Was anything added?
-        if (node.isLeaf())
-            removeFutility(node);
+        return children;
+    }
+
+    /**
+     * Expands several nodes at once on the shared threads.
+     *
+     * @param nodes the nodes to expand
+     * @return the list of new nodes for each node, in the same order
+     * @see #expand(ParseNode)
+     */
+    private List<List<ParseNode>> expand(ParseNode[] nodes) {
+        List<List<ParseNode>> children = new ArrayList<>();
+        if (nodes.length == 1) {
+            children.add(expand(nodes[0]));
+            return children;
+        }
+        List<Callable<List<ParseNode>>> tasks = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i++) {
+            final ParseNode node = nodes[i];
+            tasks.add(new Callable<List<ParseNode>>() {
+                public List<ParseNode> call() {
+                    return expand(node);
+                }
+            });
+        }
+        try {
+            List<Future<List<ParseNode>>> futures = getExecutor().invokeAll(
+                    tasks);
+            for (int i = 0; i < futures.size(); i++)
+                children.add(futures.get(i).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        return children;
+    }
+
+    /**
+     * Returns the threads that expand the derivations, starting them if they
+     * have not been started. They are daemon threads, so they do not keep the
+     * program running.
+     *
+     * @return the shared threads
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime()
+                    .availableProcessors(), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Brute parser");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
     }
 
     /**
@@ -409,4 +604,35 @@ public abstract class BruteParser {
         while (it.hasNext())
             it.next().bruteParserStateChange(event);
     }
+
+    /**
+     * A node on the queue, with how near its derivation is to the length of
+     * the target.
+     */
+    private static class Entry implements Comparable<Entry> {
+        /**
+         * The node.
+         */
+        final ParseNode node;
+        /**
+         * The difference in symbols between the derivation and the target.
+         */
+        final int distance;
+        /**
+         * The order in which the node was queued.
+         */
+        final long order;
+
+        Entry(ParseNode node, int distance, long order) {
+            this.node = node;
+            this.distance = distance;
+            this.order = order;
+        }
+
+        public int compareTo(Entry entry) {
+            if (distance != entry.distance)
+                return distance < entry.distance ? -1 : 1;
+            return order < entry.order ? -1 : order > entry.order ? 1 : 0;
+        }
+    }
 }
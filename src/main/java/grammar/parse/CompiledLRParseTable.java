@@ -0,0 +1,273 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package grammar.parse;
+
+import grammar.Grammar;
+import grammar.Production;
+import grammar.SymbolTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * A compiled LR parse table holds the directives of an {@link LRParseTable}
+ * packed into integer arrays, so that a parse need not look at the strings of
+ * the table. Each action is one integer holding its kind in the low two bits
+ * and the state to shift to or production to reduce by in the rest, and each
+ * goto is the state to go to, or -1 if there is none.
+ * <p>
+ * Where the table has more than one directive in an entry, the first of them
+ * in the table's order is used, and the entry is recorded as a conflict that
+ * may be looked at with {@link #getConflicts}.
+ *
+ * @see grammar.parse.LRDriver
+ */
+
+public class CompiledLRParseTable {
+    /**
+     * The kind of an empty entry.
+     */
+    public static final int ERROR = 0;
+    /**
+     * The kind of a shift.
+     */
+    public static final int SHIFT = 1;
+    /**
+     * The kind of a reduction.
+     */
+    public static final int REDUCE = 2;
+    /**
+     * The kind of the accepting entry.
+     */
+    public static final int ACCEPT = 3;
+
+    /**
+     * The number of states.
+     */
+    private int myStates;
+    /**
+     * The number of terminal columns, including $.
+     */
+    private int myTerminals;
+    /**
+     * The number of variable columns.
+     */
+    private int myVariables;
+    /**
+     * The smallest character that is a terminal.
+     */
+    private char myMinChar;
+    /**
+     * For each character from <CODE>myMinChar</CODE> on, its terminal column,
+     * or -1 if it is not a terminal.
+     */
+    private int[] myCharColumns;
+    /**
+     * The actions, indexed by state times the number of terminals plus the
+     * terminal column.
+     */
+    private int[] myActions;
+    /**
+     * The gotos, indexed by state times the number of variables plus the
+     * variable column.
+     */
+    private int[] myGotos;
+    /**
+     * For each production, the column of its left hand side.
+     */
+    private int[] myLHS;
+    /**
+     * For each production, the number of symbols on its right hand side.
+     */
+    private int[] myLengths;
+    /**
+     * The productions of the grammar.
+     */
+    private Production[] myProductions;
+    /**
+     * The entries with more than one directive, each as the state, the
+     * column in the table, and the directives.
+     */
+    private List<Object[]> myConflicts = new ArrayList<>();
+
+    /**
+     * Compiles a parse table.
+     *
+     * @param grammar the augmented grammar the table is for
+     * @param table   the parse table
+     */
+    public CompiledLRParseTable(Grammar grammar, LRParseTable table) {
+        myStates = table.getRowCount();
+        myProductions = grammar.getProductions();
+        String[] terminals = grammar.getTerminals();
+        myTerminals = terminals.length + 1;
+        myVariables = table.getColumnCount() - 1 - myTerminals;
+
+        char min = Character.MAX_VALUE, max = Character.MIN_VALUE;
+        for (int i = 0; i < terminals.length; i++) {
+            min = (char) Math.min(min, terminals[i].charAt(0));
+            max = (char) Math.max(max, terminals[i].charAt(0));
+        }
+        myMinChar = min;
+        myCharColumns = new int[terminals.length == 0 ? 0 : max - min + 1];
+        Arrays.fill(myCharColumns, -1);
+        for (int i = 0; i < terminals.length; i++)
+            myCharColumns[terminals[i].charAt(0) - min] = table
+                    .columnForSymbol(terminals[i]) - 1;
+
+        /* The start production of the augmented grammar has no column, as
+         * it is never reduced by. */
+        Map<String, Integer> variables = new HashMap<>();
+        for (int v = 0; v < myVariables; v++)
+            variables.put(table.getColumnName(v + 1 + myTerminals), v);
+        myLHS = new int[myProductions.length];
+        myLengths = new int[myProductions.length];
+        for (int p = 0; p < myProductions.length; p++) {
+            Integer lhs = variables.get(myProductions[p].getLHS());
+            myLHS[p] = lhs == null ? -1 : lhs;
+            myLengths[p] = SymbolTable.count(myProductions[p].getRHS());
+        }
+
+        myActions = new int[myStates * myTerminals];
+        myGotos = new int[myStates * myVariables];
+        Arrays.fill(myGotos, -1);
+        for (int state = 0; state < myStates; state++) {
+            for (int column = 1; column < table.getColumnCount(); column++) {
+                SortedSet<String> set = table.getSetAt(state, column);
+                if (set.isEmpty())
+                    continue;
+                if (set.size() > 1)
+                    myConflicts.add(new Object[]{state,
+                            table.getColumnName(column),
+                            set.toArray(new String[0])});
+                String directive = set.first();
+                if (column > myTerminals) {
+                    myGotos[state * myVariables + column - 1 - myTerminals] = Integer
+                            .parseInt(directive);
+                    continue;
+                }
+                int cell = state * myTerminals + column - 1;
+                switch (directive.charAt(0)) {
+                    case 'a':
+                        myActions[cell] = ACCEPT;
+                        break;
+                    case 's':
+                        myActions[cell] = Integer.parseInt(directive
+                                .substring(1)) << 2 | SHIFT;
+                        break;
+                    case 'r':
+                        myActions[cell] = Integer.parseInt(directive
+                                .substring(1)) << 2 | REDUCE;
+                        break;
+                    default:
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of states.
+     *
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return myStates;
+    }
+
+    /**
+     * Returns the terminal column of a character of the input.
+     *
+     * @param c the character
+     * @return the terminal column, or -1 if the character is not a terminal
+     */
+    public int terminal(char c) {
+        int i = c - myMinChar;
+        return i < 0 || i >= myCharColumns.length ? -1 : myCharColumns[i];
+    }
+
+    /**
+     * Returns the terminal column of $, the end of the input.
+     *
+     * @return the column of $
+     */
+    public int end() {
+        return myTerminals - 1;
+    }
+
+    /**
+     * Returns the action for a state and terminal. The kind of the action is
+     * the action's low two bits, and the state to shift to or production to
+     * reduce by is the rest of the action shifted right by two.
+     *
+     * @param state    the state
+     * @param terminal the terminal column
+     * @return the action
+     */
+    public int action(int state, int terminal) {
+        return myActions[state * myTerminals + terminal];
+    }
+
+    /**
+     * Returns the state to go to from a state on the left hand side of a
+     * production.
+     *
+     * @param state      the state
+     * @param production the production reduced by
+     * @return the state to go to, or -1 if there is none
+     */
+    public int goTo(int state, int production) {
+        int lhs = myLHS[production];
+        return lhs < 0 ? -1 : myGotos[state * myVariables + lhs];
+    }
+
+    /**
+     * Returns the number of symbols on the right side of a production, which
+     * is the number of states a reduction by it pops.
+     *
+     * @param production the production
+     * @return the length of the production's right hand side
+     */
+    public int length(int production) {
+        return myLengths[production];
+    }
+
+    /**
+     * Returns a production of the grammar.
+     *
+     * @param production the index of the production
+     * @return the production
+     */
+    public Production getProduction(int production) {
+        return myProductions[production];
+    }
+
+    /**
+     * Returns the entries of the table with more than one directive. Each is
+     * an array of the state as an <CODE>Integer</CODE>, the symbol of the
+     * column, and the array of directives, the first of which is the one
+     * used.
+     *
+     * @return the conflicting entries
+     */
+    public Object[][] getConflicts() {
+        return myConflicts.toArray(new Object[0][]);
+    }
+}
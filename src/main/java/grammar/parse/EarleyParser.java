@@ -0,0 +1,636 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package grammar.parse;
+
+import grammar.Grammar;
+import grammar.Production;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Earley parser decides whether a string is derived by a grammar whose
+ * productions each have a single variable on the left hand side. Unlike the
+ * {@link CYKParser} the grammar need not be in Chomsky normal form, and lambda
+ * and unit productions are handled directly, so any context free grammar may
+ * be parsed as the user wrote it. Parsing takes cubic time in the length of
+ * the string at worst, quadratic time for unambiguous grammars, and linear
+ * time for most grammars one would write by hand.
+ * <p>
+ * Lambda productions are handled as described by Aycock and Horspool: when an
+ * item is waiting on a variable that can derive lambda, the item is also
+ * advanced past that variable right away, so items never need to be completed
+ * in the set they were predicted in.
+ * <p>
+ * Right recursion is handled as described by Leo: when a completion can only
+ * lead to a single chain of further completions, only the item at the top of
+ * the chain is added, so right recursive grammars also parse in linear time.
+ * <p>
+ * Each item remembers how it was first derived, so for an accepted string the
+ * parser can also give a leftmost derivation, as the chain of
+ * {@link ParseNode} objects that the {@link BruteParser} would produce.
+ */
+
+public class EarleyParser {
+    /**
+     * The next symbol of a dotted rule whose dot is at the end.
+     */
+    private static final int END = -1;
+    /**
+     * The child of an item advanced past a terminal.
+     */
+    private static final int TERMINAL = -1;
+    /**
+     * The child of an item advanced past a variable that derives lambda.
+     */
+    private static final int NULLED = -2;
+    /**
+     * The child of a predicted item, which has nothing before its dot.
+     */
+    private static final int PREDICTED = -3;
+    /**
+     * No Leo entry.
+     */
+    private static final int NONE = -1;
+    /**
+     * A Leo entry not looked for yet.
+     */
+    private static final int UNKNOWN = -2;
+    /**
+     * A Leo entry being looked for.
+     */
+    private static final int BUSY = -3;
+
+    /**
+     * The productions of the grammar.
+     */
+    private Production[] myProductions;
+    /**
+     * The start variable of the grammar.
+     */
+    private String myStartVariable;
+    /**
+     * The index of the start variable, or -1 if it has no productions.
+     */
+    private int myStart;
+    /**
+     * The number of variables.
+     */
+    private int myVariableCount;
+    /**
+     * For each production, the index of its left hand side variable.
+     */
+    private int[] myProductionLHS;
+    /**
+     * For each production, the dotted rule with the dot at the beginning. The
+     * dotted rules of a production are numbered consecutively.
+     */
+    private int[] myProductionRule;
+    /**
+     * For each dotted rule, the index of its production.
+     */
+    private int[] myRuleProduction;
+    /**
+     * For each dotted rule, the symbol after the dot: a variable index, or
+     * the result of {@link #terminal} for a terminal, or <CODE>END</CODE>.
+     */
+    private int[] myRuleNext;
+    /**
+     * For each variable, the dotted rules that begin its productions.
+     */
+    private int[][] myVariableRules;
+    /**
+     * For each variable, whether it derives lambda.
+     */
+    private boolean[] myNullable;
+    /**
+     * For each variable that derives lambda, the production to start a
+     * derivation of lambda with. Following these productions always ends.
+     */
+    private int[] myNullProduction;
+
+    /**
+     * For each item of the last parse, its dotted rule.
+     */
+    private int[] myItemRule;
+    /**
+     * For each item of the last parse, the position it was predicted at.
+     */
+    private int[] myItemOrigin;
+    /**
+     * For each item of the last parse, the item it was advanced from.
+     */
+    private int[] myItemPredecessor;
+    /**
+     * For each item of the last parse, the completed item it was advanced
+     * with, or <CODE>TERMINAL</CODE>, <CODE>NULLED</CODE> or <CODE>PREDICTED
+     * </CODE>.
+     */
+    private int[] myItemChild;
+    /**
+     * For each item of the last parse, the Leo entry whose chain of
+     * completions was skipped in adding it, or <CODE>NONE</CODE>.
+     */
+    private int[] myItemLeo;
+    /**
+     * The number of items of the last parse.
+     */
+    private int myItemCount;
+    /**
+     * For each finished set of the last parse, the offsets into its waiting
+     * items at which the items waiting on each variable begin.
+     */
+    private int[][] myWaitOffsets;
+    /**
+     * For each finished set of the last parse, its items waiting on a
+     * variable, grouped by the variable.
+     */
+    private int[][] myWaitItems;
+    /**
+     * For each set of the last parse, the Leo entry for each variable, or
+     * <CODE>UNKNOWN</CODE> if it has not been looked for yet.
+     */
+    private int[][] myLeoEntries;
+    /**
+     * For each Leo entry, the only item of its set waiting on its variable.
+     */
+    private int[] myLeoItem;
+    /**
+     * For each Leo entry, the entry for the completion its item leads to, or
+     * <CODE>NONE</CODE>.
+     */
+    private int[] myLeoParent;
+    /**
+     * For each Leo entry, the item at the top of its chain.
+     */
+    private int[] myLeoTop;
+    /**
+     * The number of Leo entries.
+     */
+    private int myLeoCount;
+
+    /**
+     * Instantiates a parser for a grammar.
+     *
+     * @param grammar the grammar to parse with
+     * @throws IllegalArgumentException if some production of the grammar does
+     *                                  not have a single variable on its left
+     *                                  hand side
+     */
+    public EarleyParser(Grammar grammar) {
+        if (!canParse(grammar))
+            throw new IllegalArgumentException(
+                    "Grammar must have a single variable on the left side of each production!");
+        myProductions = grammar.getProductions();
+        myStartVariable = grammar.getStartVariable();
+        String[] variables = grammar.getVariables();
+        myVariableCount = variables.length;
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < variables.length; i++)
+            index.put(variables[i], i);
+        Integer start = index.get(myStartVariable);
+        myStart = start == null ? -1 : start;
+
+        int rules = 0;
+        for (int p = 0; p < myProductions.length; p++)
+            rules += myProductions[p].getSymbolsOnRHS().length + 1;
+        myProductionLHS = new int[myProductions.length];
+        myProductionRule = new int[myProductions.length];
+        myRuleProduction = new int[rules];
+        myRuleNext = new int[rules];
+        int[] counts = new int[myVariableCount];
+        int rule = 0;
+        for (int p = 0; p < myProductions.length; p++) {
+            myProductionLHS[p] = index.get(myProductions[p].getLHS());
+            myProductionRule[p] = rule;
+            counts[myProductionLHS[p]]++;
+            String[] symbols = myProductions[p].getSymbolsOnRHS();
+            for (int k = 0; k <= symbols.length; k++) {
+                myRuleProduction[rule] = p;
+                if (k == symbols.length)
+                    myRuleNext[rule] = END;
+                else if (grammar.isVariable(symbols[k]))
+                    myRuleNext[rule] = index.get(symbols[k]);
+                else
+                    myRuleNext[rule] = terminal(symbols[k].charAt(0));
+                rule++;
+            }
+        }
+        myVariableRules = new int[myVariableCount][];
+        for (int v = 0; v < myVariableCount; v++)
+            myVariableRules[v] = new int[counts[v]];
+        for (int p = 0; p < myProductions.length; p++) {
+            int v = myProductionLHS[p];
+            myVariableRules[v][myVariableRules[v].length - counts[v]--] = myProductionRule[p];
+        }
+        findNullable();
+    }
+
+    /**
+     * Returns if a grammar can be parsed by this parser, that is, if each of
+     * its productions has a single variable on the left hand side.
+     *
+     * @param grammar the grammar to check
+     * @return <CODE>true</CODE> if the grammar can be parsed
+     */
+    public static boolean canParse(Grammar grammar) {
+        Production[] productions = grammar.getProductions();
+        for (int i = 0; i < productions.length; i++)
+            if (!grammar.isVariable(productions[i].getLHS()))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns if the grammar derives a string.
+     *
+     * @param input the string to parse
+     * @return <CODE>true</CODE> if the grammar derives the string
+     */
+    public synchronized boolean accepts(String input) {
+        boolean accepted = recognize(input) >= 0;
+        clear();
+        return accepted;
+    }
+
+    /**
+     * Parses a string, and returns a leftmost derivation of it. The
+     * derivation is a chain of parse nodes, each the only child of the one
+     * before, beginning with the start variable and ending with the string.
+     * Each node holds the one production that was substituted in its parent
+     * derivation and the position it was substituted at.
+     *
+     * @param input the string to parse
+     * @return the last node of the derivation, or <CODE>null</CODE> if the
+     * grammar does not derive the string
+     */
+    public synchronized ParseNode parse(String input) {
+        int answer = recognize(input);
+        ParseNode node = answer < 0 ? null : derive(answer);
+        clear();
+        return node;
+    }
+
+    /**
+     * Returns the symbol code of a terminal, which is always negative and
+     * different from <CODE>END</CODE>.
+     *
+     * @param terminal the terminal
+     * @return the code of the terminal
+     */
+    private static int terminal(char terminal) {
+        return -2 - terminal;
+    }
+
+    /**
+     * Finds the variables that derive lambda, and a production for each to
+     * derive it with. A production is only chosen for a variable if all the
+     * variables on its right side were found to derive lambda earlier, so
+     * following the chosen productions cannot go around in a cycle.
+     */
+    private void findNullable() {
+        myNullable = new boolean[myVariableCount];
+        myNullProduction = new int[myVariableCount];
+        Arrays.fill(myNullProduction, -1);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < myProductions.length; p++) {
+                int lhs = myProductionLHS[p];
+                if (myNullable[lhs])
+                    continue;
+                int rule = myProductionRule[p];
+                while (myRuleNext[rule] >= 0 && myNullable[myRuleNext[rule]])
+                    rule++;
+                if (myRuleNext[rule] != END)
+                    continue;
+                myNullable[lhs] = true;
+                myNullProduction[lhs] = p;
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * Builds the item sets for a string.
+     *
+     * @param input the string to parse
+     * @return the completed item for the start variable spanning the whole
+     * string, or -1 if the grammar does not derive the string
+     */
+    private int recognize(String input) {
+        int n = input.length();
+        myItemRule = new int[64];
+        myItemOrigin = new int[64];
+        myItemPredecessor = new int[64];
+        myItemChild = new int[64];
+        myItemLeo = new int[64];
+        myItemCount = 0;
+        myWaitOffsets = new int[n + 1][];
+        myWaitItems = new int[n + 1][];
+        myLeoEntries = new int[n + 1][];
+        myLeoItem = new int[16];
+        myLeoParent = new int[16];
+        myLeoTop = new int[16];
+        myLeoCount = 0;
+        if (myStart < 0)
+            return -1;
+        Map<Long, Integer> seen = new HashMap<>();
+        boolean[] predicted = new boolean[myVariableCount];
+        int[] scanned = new int[16];
+        int scannedCount = 0;
+        int setStart = 0;
+        for (int i = 0; i <= n; i++) {
+            setStart = myItemCount;
+            seen.clear();
+            Arrays.fill(predicted, false);
+            if (i == 0) {
+                predicted[myStart] = true;
+                for (int rule : myVariableRules[myStart])
+                    add(seen, n, rule, 0, -1, PREDICTED);
+            }
+            for (int s = 0; s < scannedCount; s++)
+                add(seen, n, myItemRule[scanned[s]] + 1,
+                        myItemOrigin[scanned[s]], scanned[s], TERMINAL);
+            scannedCount = 0;
+            int symbol = i < n ? terminal(input.charAt(i)) : END;
+
+            for (int k = setStart; k < myItemCount; k++) {
+                int rule = myItemRule[k];
+                int next = myRuleNext[rule];
+                if (next == END) {
+                    int origin = myItemOrigin[k];
+                    if (origin == i)
+                        continue;
+                    int lhs = myProductionLHS[myRuleProduction[rule]];
+                    int entry = leo(origin, lhs);
+                    if (entry != NONE) {
+                        int top = myLeoTop[entry];
+                        int item = add(seen, n, myItemRule[top] + 1,
+                                myItemOrigin[top], top, k);
+                        if (item >= 0 && myLeoParent[entry] != NONE)
+                            myItemLeo[item] = entry;
+                        continue;
+                    }
+                    int[] offsets = myWaitOffsets[origin];
+                    int[] waiting = myWaitItems[origin];
+                    for (int w = offsets[lhs]; w < offsets[lhs + 1]; w++)
+                        add(seen, n, myItemRule[waiting[w]] + 1,
+                                myItemOrigin[waiting[w]], waiting[w], k);
+                } else if (next >= 0) {
+                    if (!predicted[next]) {
+                        predicted[next] = true;
+                        for (int r : myVariableRules[next])
+                            add(seen, n, r, i, -1, PREDICTED);
+                    }
+                    if (myNullable[next])
+                        add(seen, n, rule + 1, myItemOrigin[k], k, NULLED);
+                } else if (next == symbol) {
+                    if (scannedCount == scanned.length)
+                        scanned = Arrays.copyOf(scanned, scannedCount * 2);
+                    scanned[scannedCount++] = k;
+                }
+            }
+
+            /* Group the items waiting on variables by the variable. */
+            int[] offsets = new int[myVariableCount + 1];
+            for (int k = setStart; k < myItemCount; k++)
+                if (myRuleNext[myItemRule[k]] >= 0)
+                    offsets[myRuleNext[myItemRule[k]] + 1]++;
+            for (int v = 0; v < myVariableCount; v++)
+                offsets[v + 1] += offsets[v];
+            int[] fill = Arrays.copyOf(offsets, myVariableCount);
+            int[] waiting = new int[offsets[myVariableCount]];
+            for (int k = setStart; k < myItemCount; k++)
+                if (myRuleNext[myItemRule[k]] >= 0)
+                    waiting[fill[myRuleNext[myItemRule[k]]]++] = k;
+            myWaitOffsets[i] = offsets;
+            myWaitItems[i] = waiting;
+
+            if (i < n && scannedCount == 0)
+                return -1;
+        }
+        for (int k = setStart; k < myItemCount; k++) {
+            int rule = myItemRule[k];
+            if (myRuleNext[rule] == END && myItemOrigin[k] == 0
+                    && myProductionLHS[myRuleProduction[rule]] == myStart)
+                return k;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the Leo entry for the completion of a variable from a finished
+     * set. There is an entry if the set has only one item waiting on the
+     * variable, and the variable is the last symbol of that item, so that the
+     * completion can only lead to the completion of that item. The entry
+     * then leads on to the entry for that completion in turn, if there is
+     * one. Completions of the start variable from the first set are never
+     * skipped, since they are needed to accept.
+     *
+     * @param set      the set the variable was predicted in
+     * @param variable the variable being completed
+     * @return the Leo entry, or <CODE>NONE</CODE> if there is none
+     */
+    private int leo(int set, int variable) {
+        /* Walk up the chain until an entry already looked for, and then fill
+         * in the entries from the top down. */
+        int[] sets = new int[4], variables = new int[4], items = new int[4];
+        int count = 0;
+        int result;
+        while (true) {
+            if (myLeoEntries[set] == null) {
+                myLeoEntries[set] = new int[myVariableCount];
+                Arrays.fill(myLeoEntries[set], UNKNOWN);
+            }
+            int known = myLeoEntries[set][variable];
+            if (known != UNKNOWN) {
+                result = known == BUSY ? NONE : known;
+                break;
+            }
+            int[] offsets = myWaitOffsets[set];
+            int w = offsets[variable + 1] - offsets[variable] == 1
+                    ? myWaitItems[set][offsets[variable]] : NONE;
+            if (w == NONE || myRuleNext[myItemRule[w] + 1] != END) {
+                myLeoEntries[set][variable] = NONE;
+                result = NONE;
+                break;
+            }
+            myLeoEntries[set][variable] = BUSY;
+            if (count == sets.length) {
+                sets = Arrays.copyOf(sets, count * 2);
+                variables = Arrays.copyOf(variables, count * 2);
+                items = Arrays.copyOf(items, count * 2);
+            }
+            sets[count] = set;
+            variables[count] = variable;
+            items[count++] = w;
+            variable = myProductionLHS[myRuleProduction[myItemRule[w]]];
+            set = myItemOrigin[w];
+            if (variable == myStart && set == 0) {
+                result = NONE;
+                break;
+            }
+        }
+        for (int m = count - 1; m >= 0; m--) {
+            if (myLeoCount == myLeoItem.length) {
+                int size = myLeoCount * 2;
+                myLeoItem = Arrays.copyOf(myLeoItem, size);
+                myLeoParent = Arrays.copyOf(myLeoParent, size);
+                myLeoTop = Arrays.copyOf(myLeoTop, size);
+            }
+            myLeoItem[myLeoCount] = items[m];
+            myLeoParent[myLeoCount] = result;
+            myLeoTop[myLeoCount] = result == NONE ? items[m] : myLeoTop[result];
+            result = myLeoCount++;
+            myLeoEntries[sets[m]][variables[m]] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Adds an item to the set being built, unless the set already has it.
+     *
+     * @param seen        the items already in the set
+     * @param n           the length of the string
+     * @param rule        the dotted rule of the item
+     * @param origin      the position the item was predicted at
+     * @param predecessor the item this was advanced from
+     * @param child       how this item was advanced
+     * @return the new item, or -1 if the set already had it
+     */
+    private int add(Map<Long, Integer> seen, int n, int rule, int origin,
+                    int predecessor, int child) {
+        Long key = (long) rule * (n + 1) + origin;
+        if (seen.containsKey(key))
+            return -1;
+        seen.put(key, myItemCount);
+        return append(rule, origin, predecessor, child);
+    }
+
+    /**
+     * Appends an item to the items of the parse.
+     *
+     * @param rule        the dotted rule of the item
+     * @param origin      the position the item was predicted at
+     * @param predecessor the item this was advanced from
+     * @param child       how this item was advanced
+     * @return the new item
+     */
+    private int append(int rule, int origin, int predecessor, int child) {
+        if (myItemCount == myItemRule.length) {
+            int size = myItemCount * 2;
+            myItemRule = Arrays.copyOf(myItemRule, size);
+            myItemOrigin = Arrays.copyOf(myItemOrigin, size);
+            myItemPredecessor = Arrays.copyOf(myItemPredecessor, size);
+            myItemChild = Arrays.copyOf(myItemChild, size);
+            myItemLeo = Arrays.copyOf(myItemLeo, size);
+        }
+        myItemRule[myItemCount] = rule;
+        myItemOrigin[myItemCount] = origin;
+        myItemPredecessor[myItemCount] = predecessor;
+        myItemChild[myItemCount] = child;
+        myItemLeo[myItemCount] = NONE;
+        return myItemCount++;
+    }
+
+    /**
+     * Builds the leftmost derivation for a completed item. Each item was
+     * first derived only from items added before it, so following the
+     * children always ends.
+     *
+     * @param answer the completed item for the start variable
+     * @return the last node of the derivation
+     */
+    private ParseNode derive(int answer) {
+        ParseNode node = new ParseNode(myStartVariable, new Production[0],
+                new int[0]);
+        StringBuilder derivation = new StringBuilder(myStartVariable);
+        int position = 0;
+        /* Entries are completed items, TERMINAL, or -2 - v for a variable v
+         * that derives lambda. */
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = answer;
+        while (size > 0) {
+            int top = stack[--size];
+            if (top == TERMINAL) {
+                position++;
+                continue;
+            }
+            if (top >= 0 && myItemLeo[top] != NONE)
+                restore(top);
+            int production = top >= 0 ? myRuleProduction[myItemRule[top]]
+                    : myNullProduction[-2 - top];
+            Production p = myProductions[production];
+            derivation.replace(position, position + p.getLHS().length(),
+                    p.getRHS());
+            ParseNode child = new ParseNode(derivation.toString(),
+                    new Production[]{p}, new int[]{position});
+            node.add(child);
+            node = child;
+
+            /* Push the children from right to left. */
+            int first = myProductionRule[production];
+            int rule = first;
+            while (myRuleNext[rule] != END)
+                rule++;
+            if (size + rule - first > stack.length)
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size
+                        + rule - first));
+            if (top >= 0) {
+                for (int item = top; myItemChild[item] != PREDICTED; item = myItemPredecessor[item]) {
+                    int c = myItemChild[item];
+                    stack[size++] = c == NULLED ? -2
+                            - myRuleNext[myItemRule[item] - 1] : c;
+                }
+            } else {
+                for (int r = rule - 1; r >= first; r--)
+                    stack[size++] = -2 - myRuleNext[r];
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Adds the completed items that were skipped in adding an item from a
+     * Leo entry, and makes the last of them the item's child.
+     *
+     * @param item the item added from a Leo entry
+     */
+    private void restore(int item) {
+        int entry = myItemLeo[item];
+        int child = myItemChild[item];
+        for (; myLeoParent[entry] != NONE; entry = myLeoParent[entry]) {
+            int w = myLeoItem[entry];
+            child = append(myItemRule[w] + 1, myItemOrigin[w], w, child);
+        }
+        myItemChild[item] = child;
+        myItemLeo[item] = NONE;
+    }
+
+    /**
+     * Lets go of the items of the last parse.
+     */
+    private void clear() {
+        myItemRule = myItemOrigin = myItemPredecessor = myItemChild = myItemLeo = null;
+        myWaitOffsets = myWaitItems = myLeoEntries = null;
+        myLeoItem = myLeoParent = myLeoTop = null;
+        myItemCount = myLeoCount = 0;
+    }
+}
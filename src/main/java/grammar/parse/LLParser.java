@@ -0,0 +1,255 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package grammar.parse;
+
+import grammar.Grammar;
+import grammar.Production;
+import grammar.SymbolTable;
+import java.util.Arrays;
+import java.util.SortedSet;
+
+/**
+ * The <CODE>LLParser</CODE> runs the predictive parse of an
+ * {@link LLParseTable} without any of the views. The table is compiled once
+ * into an array of expansions indexed by variable and lookahead, with the
+ * symbols coded as integers, so each string is parsed in a loop over a
+ * primitive stack. This allows an LL(1) grammar to be tested on many strings
+ * quickly.
+ * <p>
+ * As in the LL parse pane, if an entry of the table holds more than one
+ * expansion the first is used.
+ *
+ * @see grammar.parse.LLParseTableGenerator
+ */
+
+public class LLParser {
+    /**
+     * The number of lookahead columns, the terminals and then $.
+     */
+    private int myColumns;
+    /**
+     * The index of the start variable, or -1 if it is not in the table.
+     */
+    private int myStart;
+    /**
+     * The smallest character that is a terminal.
+     */
+    private char myMinChar;
+    /**
+     * For each character from <CODE>myMinChar</CODE> on, its column, or -1 if
+     * it is not a terminal.
+     */
+    private int[] myCharColumns;
+    /**
+     * For each variable times the number of columns plus the column, the
+     * expansion to use, or -1 if there is none.
+     */
+    private int[] myTable;
+    /**
+     * For each expansion, the symbols it pushes, with a variable coded as its
+     * row and a terminal as -1 minus its column.
+     */
+    private int[][] myExpansions;
+    /**
+     * For each expansion, the production it applies.
+     */
+    private Production[] myProductions;
+
+    /**
+     * Instantiates a parser for a grammar and its parse table.
+     *
+     * @param grammar the grammar
+     * @param table   the LL(1) parse table for the grammar
+     * @throws IllegalArgumentException if an expansion in the table has a
+     *                                  symbol with no row or column in it
+     */
+    public LLParser(Grammar grammar, LLParseTable table) {
+        int rows = table.getRowCount();
+        myColumns = table.getColumnCount() - 1;
+        String[] variables = new String[rows];
+        for (int row = 0; row < rows; row++)
+            variables[row] = (String) table.getValueAt(row, 0);
+        String[] terminals = new String[myColumns];
+        for (int column = 0; column < myColumns; column++)
+            terminals[column] = table.getColumnName(column + 1);
+        myStart = Arrays.asList(variables).indexOf(grammar.getStartVariable());
+
+        char min = Character.MAX_VALUE, max = Character.MIN_VALUE;
+        for (int column = 0; column < myColumns - 1; column++) {
+            min = (char) Math.min(min, terminals[column].charAt(0));
+            max = (char) Math.max(max, terminals[column].charAt(0));
+        }
+        myMinChar = min;
+        myCharColumns = new int[myColumns == 1 ? 0 : max - min + 1];
+        Arrays.fill(myCharColumns, -1);
+        for (int column = 0; column < myColumns - 1; column++)
+            myCharColumns[terminals[column].charAt(0) - min] = column;
+
+        myTable = new int[rows * myColumns];
+        Arrays.fill(myTable, -1);
+        myExpansions = new int[rows * myColumns][];
+        myProductions = new Production[rows * myColumns];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            /* Entries holding the same expansion share it. */
+            String[] seen = new String[myColumns];
+            int[] seenIndex = new int[myColumns];
+            int seenCount = 0;
+            for (int column = 0; column < myColumns; column++) {
+                SortedSet<String> entry = table.get(variables[row],
+                        terminals[column]);
+                if (entry.isEmpty())
+                    continue;
+                String expansion = entry.first();
+                int index = -1;
+                for (int k = 0; k < seenCount && index < 0; k++)
+                    if (seen[k].equals(expansion))
+                        index = seenIndex[k];
+                if (index < 0) {
+                    index = count++;
+                    myExpansions[index] = code(expansion, grammar, variables,
+                            terminals);
+                    myProductions[index] = new Production(variables[row],
+                            expansion);
+                    seen[seenCount] = expansion;
+                    seenIndex[seenCount++] = index;
+                }
+                myTable[row * myColumns + column] = index;
+            }
+        }
+        myExpansions = Arrays.copyOf(myExpansions, count);
+        myProductions = Arrays.copyOf(myProductions, count);
+    }
+
+    /**
+     * Codes the symbols of an expansion.
+     *
+     * @param expansion the right side of a production
+     * @param grammar   the grammar
+     * @param variables the variables of the table, in row order
+     * @param terminals the terminals of the table, in column order
+     * @return the coded symbols
+     * @throws IllegalArgumentException if a symbol of the expansion has no
+     *                                  row or column in the table
+     */
+    private static int[] code(String expansion, Grammar grammar,
+                              String[] variables, String[] terminals) {
+        String[] split = SymbolTable.split(expansion);
+        int[] symbols = new int[split.length];
+        for (int i = 0; i < symbols.length; i++) {
+            String symbol = split[i];
+            boolean variable = grammar.isVariable(symbol);
+            int index = Arrays.asList(variable ? variables : terminals)
+                    .indexOf(symbol);
+            if (index < 0)
+                throw new IllegalArgumentException("The "
+                        + (variable ? "variable " : "terminal ") + symbol
+                        + " of " + expansion + " is not in the parse table.");
+            symbols[i] = variable ? index : -1 - index;
+        }
+        return symbols;
+    }
+
+    /**
+     * Returns if the grammar derives a string, according to the table.
+     *
+     * @param input the string to parse
+     * @return <CODE>true</CODE> if the string is parsed
+     */
+    public boolean parse(String input) {
+        return run(input, null) >= 0;
+    }
+
+    /**
+     * Parses a string and returns the expansions used, in the order they were
+     * used. This is the leftmost derivation of the string, and also the parse
+     * tree in preorder: each expansion's children are the expansions of the
+     * variables it pushes, from left to right.
+     *
+     * @param input the string to parse
+     * @return the expansions used, each to be given to {@link #getProduction},
+     * or <CODE>null</CODE> if the string was not parsed
+     */
+    public int[] derive(String input) {
+        int[][] derivation = new int[1][16];
+        int length = run(input, derivation);
+        return length < 0 ? null : Arrays.copyOf(derivation[0], length);
+    }
+
+    /**
+     * Returns the production of an expansion.
+     *
+     * @param expansion an expansion returned by {@link #derive}
+     * @return the production applied by the expansion
+     */
+    public Production getProduction(int expansion) {
+        return myProductions[expansion];
+    }
+
+    /**
+     * Runs the parse.
+     *
+     * @param input      the string to parse
+     * @param derivation a one element array holding the array to record the
+     *                   expansions in, which is replaced if it is too small, or
+     *                   <CODE>null</CODE> if they should not be recorded
+     * @return the number of expansions used, or -1 if the string was not
+     * parsed
+     */
+    private int run(String input, int[][] derivation) {
+        if (myStart < 0)
+            return -1;
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = myStart;
+        int position = 0, length = input.length();
+        int expansions = 0;
+        while (size > 0) {
+            int lookahead = myColumns - 1;
+            if (position < length) {
+                int c = input.charAt(position) - myMinChar;
+                if (c < 0 || c >= myCharColumns.length || myCharColumns[c] < 0)
+                    return -1;
+                lookahead = myCharColumns[c];
+            }
+            int symbol = stack[--size];
+            if (symbol < 0) {
+                if (-1 - symbol != lookahead)
+                    return -1;
+                position++;
+                continue;
+            }
+            int expansion = myTable[symbol * myColumns + lookahead];
+            if (expansion < 0)
+                return -1;
+            if (derivation != null) {
+                if (expansions == derivation[0].length)
+                    derivation[0] = Arrays.copyOf(derivation[0], expansions * 2);
+                derivation[0][expansions] = expansion;
+            }
+            expansions++;
+            int[] symbols = myExpansions[expansion];
+            if (size + symbols.length > stack.length)
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size
+                        + symbols.length));
+            for (int i = symbols.length - 1; i >= 0; i--)
+                stack[size++] = symbols[i];
+        }
+        return position == length ? expansions : -1;
+    }
+}
@@ -0,0 +1,741 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package grammar.parse;
+
+import grammar.Grammar;
+import grammar.Production;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class generates LALR(1) and canonical LR(1) {@link LRParseTable}s
+ * directly from an augmented grammar, without building the item goto graph
+ * of the views. Where the {@link LRParseTableGenerator} reduces on the follow
+ * set of a variable, these tables reduce only on the lookaheads that may
+ * really follow in each state, and so have no conflicts for many grammars
+ * that are not SLR(1).
+ * <p>
+ * An item is coded as a single integer, the index of its production's first
+ * item plus the position of the dot, and a set of lookaheads as a bit set
+ * over the terminals. A state is identified by its kernel, the items not
+ * predicted by the closure, which is hashed to find states already built.
+ * The LALR(1) table is built over the LR(0) states, with the lookaheads of
+ * the kernel items found by spontaneous generation and propagation.
+ *
+ * @see grammar.parse.CompiledLRParseTable
+ */
+
+public class LR1ParseTableGenerator {
+    /**
+     * The augmented grammar.
+     */
+    private Grammar myGrammar;
+    /**
+     * The names of the terminals, with $ last.
+     */
+    private String[] myTerminalNames;
+    /**
+     * The names of the variables, with the start variable of the augmented
+     * grammar last.
+     */
+    private String[] myVariableNames;
+    /**
+     * The number of terminals, including $. A symbol less than this is a
+     * terminal, and any other is the variable of the symbol less this.
+     */
+    private int myTerminals;
+    /**
+     * The bit of a lookahead set that marks lookaheads to be propagated.
+     */
+    private int myMarker;
+    /**
+     * The number of longs in a lookahead set.
+     */
+    private int myWords;
+    /**
+     * The index of the start production of the augmented grammar.
+     */
+    private int myStartProduction;
+    /**
+     * For each production, its left hand side.
+     */
+    private int[] myLHS;
+    /**
+     * For each production, its first item, the one with the dot leftmost.
+     */
+    private int[] myFirstItem;
+    /**
+     * For each variable, its productions.
+     */
+    private int[][] myVariableProductions;
+    /**
+     * For each item, its production.
+     */
+    private int[] myItemProduction;
+    /**
+     * For each item, the symbol after the dot, or -1 if the dot is last.
+     */
+    private int[] myItemNext;
+    /**
+     * For each item, the first set of the symbols after the one after the
+     * dot.
+     */
+    private long[][] myItemFirst;
+    /**
+     * For each item, if the symbols after the one after the dot derive
+     * lambda.
+     */
+    private boolean[] myItemNullable;
+
+    /**
+     * The kernels of the states.
+     */
+    private List<Kernel> myStates = new ArrayList<>();
+    /**
+     * The states for kernels already built.
+     */
+    private Map<Kernel, Integer> myStateForKernel = new HashMap<>();
+    /**
+     * For each state, its transitions as pairs of the symbol and the state
+     * gone to.
+     */
+    private List<int[]> myTransitions = new ArrayList<>();
+
+    /**
+     * For each variable, the lookaheads of its predicted items in the last
+     * closure.
+     */
+    private long[][] myClosure;
+    /**
+     * For each variable, if it was predicted in the last closure.
+     */
+    private boolean[] myPredicted;
+    /**
+     * The variables predicted in the last closure.
+     */
+    private int[] myPredictedList;
+    /**
+     * The number of variables predicted in the last closure.
+     */
+    private int myPredictedCount;
+    /**
+     * The variables whose lookaheads must still be passed on in a closure.
+     */
+    private int[] myPending;
+    /**
+     * For each variable, if it is pending.
+     */
+    private boolean[] myIsPending;
+
+    /**
+     * Generates an LALR(1) parse table.
+     *
+     * @param grammar the augmented grammar
+     * @return the parse table
+     * @throws IllegalArgumentException if the grammar is not augmented
+     */
+    public static LRParseTable generateLALR(Grammar grammar) {
+        LR1ParseTableGenerator generator = new LR1ParseTableGenerator(grammar);
+        return generator.table(generator.buildLALR());
+    }
+
+    /**
+     * Generates a canonical LR(1) parse table. This may have many more
+     * states than the LALR(1) table, but is free of conflicts for every
+     * LR(1) grammar.
+     *
+     * @param grammar the augmented grammar
+     * @return the parse table
+     * @throws IllegalArgumentException if the grammar is not augmented
+     */
+    public static LRParseTable generateLR1(Grammar grammar) {
+        LR1ParseTableGenerator generator = new LR1ParseTableGenerator(grammar);
+        return generator.table(generator.buildLR1());
+    }
+
+    /**
+     * Codes the productions and items of a grammar.
+     *
+     * @param grammar the augmented grammar
+     * @throws IllegalArgumentException if the grammar is not augmented
+     */
+    private LR1ParseTableGenerator(Grammar grammar) {
+        myGrammar = grammar;
+        Production[] productions = grammar.getProductions();
+        myStartProduction = -1;
+        for (int p = 0; p < productions.length; p++) {
+            if (grammar.isVariable(productions[p].getLHS()))
+                continue;
+            if (myStartProduction >= 0)
+                throw new IllegalArgumentException("The grammar is not augmented.");
+            myStartProduction = p;
+        }
+        if (myStartProduction < 0)
+            throw new IllegalArgumentException("The grammar is not augmented.");
+
+        String[] terminals = grammar.getTerminals();
+        myTerminalNames = Arrays.copyOf(terminals, terminals.length + 1);
+        myTerminalNames[terminals.length] = "$";
+        myTerminals = myTerminalNames.length;
+        myMarker = myTerminals;
+        myWords = myTerminals / 64 + 1;
+        String[] variables = grammar.getVariables();
+        myVariableNames = Arrays.copyOf(variables, variables.length + 1);
+        myVariableNames[variables.length] = productions[myStartProduction]
+                .getLHS();
+        Map<String, Integer> codes = new HashMap<>();
+        for (int t = 0; t < myTerminals; t++)
+            codes.put(myTerminalNames[t], t);
+        for (int v = 0; v < myVariableNames.length; v++)
+            codes.put(myVariableNames[v], myTerminals + v);
+
+        int[][] rhs = new int[productions.length][];
+        myLHS = new int[productions.length];
+        myFirstItem = new int[productions.length + 1];
+        int[] counts = new int[myVariableNames.length];
+        for (int p = 0; p < productions.length; p++) {
+            myLHS[p] = codes.get(productions[p].getLHS()) - myTerminals;
+            counts[myLHS[p]]++;
+            String[] symbols = productions[p].getSymbolsOnRHS();
+            rhs[p] = new int[symbols.length];
+            for (int i = 0; i < symbols.length; i++)
+                rhs[p][i] = codes.get(symbols[i]);
+            myFirstItem[p + 1] = myFirstItem[p] + symbols.length + 1;
+        }
+        myVariableProductions = new int[myVariableNames.length][];
+        for (int v = 0; v < counts.length; v++)
+            myVariableProductions[v] = new int[counts[v]];
+        Arrays.fill(counts, 0);
+        for (int p = 0; p < productions.length; p++)
+            myVariableProductions[myLHS[p]][counts[myLHS[p]]++] = p;
+
+        /* The first sets and nullability of the variables. */
+        long[][] first = new long[myVariableNames.length][myWords];
+        boolean[] nullable = new boolean[myVariableNames.length];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < productions.length; p++) {
+                int i = 0;
+                for (; i < rhs[p].length; i++) {
+                    int symbol = rhs[p][i];
+                    if (symbol < myTerminals) {
+                        changed |= add(first[myLHS[p]], symbol);
+                        break;
+                    }
+                    changed |= or(first[myLHS[p]], first[symbol - myTerminals]);
+                    if (!nullable[symbol - myTerminals])
+                        break;
+                }
+                if (i == rhs[p].length && !nullable[myLHS[p]])
+                    changed = nullable[myLHS[p]] = true;
+            }
+        }
+
+        /* What follows the next symbol of each item, found from the end of
+         * each production back. */
+        int items = myFirstItem[productions.length];
+        myItemProduction = new int[items];
+        myItemNext = new int[items];
+        myItemFirst = new long[items][];
+        myItemNullable = new boolean[items];
+        for (int p = 0; p < productions.length; p++) {
+            int last = myFirstItem[p] + rhs[p].length;
+            myItemProduction[last] = p;
+            myItemNext[last] = -1;
+            long[] after = new long[myWords];
+            boolean afterNullable = true;
+            for (int i = rhs[p].length - 1; i >= 0; i--) {
+                int item = myFirstItem[p] + i;
+                myItemProduction[item] = p;
+                myItemNext[item] = rhs[p][i];
+                myItemFirst[item] = after;
+                myItemNullable[item] = afterNullable;
+                after = after.clone();
+                int symbol = rhs[p][i];
+                if (symbol < myTerminals) {
+                    Arrays.fill(after, 0);
+                    add(after, symbol);
+                    afterNullable = false;
+                } else {
+                    if (!nullable[symbol - myTerminals])
+                        Arrays.fill(after, 0);
+                    or(after, first[symbol - myTerminals]);
+                    afterNullable &= nullable[symbol - myTerminals];
+                }
+            }
+        }
+
+        myClosure = new long[myVariableNames.length][myWords];
+        myPredicted = new boolean[myVariableNames.length];
+        myPredictedList = new int[myVariableNames.length];
+        myPending = new int[myVariableNames.length];
+        myIsPending = new boolean[myVariableNames.length];
+    }
+
+    /**
+     * Builds the LR(0) states, and then the lookaheads of their kernel items.
+     *
+     * @return for each state, the lookaheads of its kernel items
+     */
+    private long[][][] buildLALR() {
+        build(false);
+
+        /* Number the kernel items of all the states. */
+        int[] offsets = new int[myStates.size() + 1];
+        for (int s = 0; s < myStates.size(); s++)
+            offsets[s + 1] = offsets[s] + myStates.get(s).items.length;
+        long[][] lookaheads = new long[offsets[myStates.size()]][myWords];
+        int[] from = new int[16], to = new int[16];
+        int edges = 0;
+
+        /* Close each kernel item alone, with the marker as its lookahead, to
+         * find the lookaheads it generates and those it passes on. */
+        long[] marker = new long[myWords];
+        add(marker, myMarker);
+        long[][] single = {marker};
+        int[] item = new int[1];
+        for (int s = 0; s < myStates.size(); s++) {
+            Kernel kernel = myStates.get(s);
+            int[] transitions = myTransitions.get(s);
+            for (int k = 0; k < kernel.items.length; k++) {
+                item[0] = kernel.items[k];
+                close(item, single);
+                for (int i = -1; i < myPredictedCount; i++) {
+                    int[] productions = i < 0 ? null
+                            : myVariableProductions[myPredictedList[i]];
+                    int count = i < 0 ? 1 : productions.length;
+                    for (int j = 0; j < count; j++) {
+                        int closed = i < 0 ? item[0]
+                                : myFirstItem[productions[j]];
+                        int symbol = myItemNext[closed];
+                        if (symbol < 0)
+                            continue;
+                        long[] set = i < 0 ? marker
+                                : myClosure[myPredictedList[i]];
+                        int target = target(transitions, symbol);
+                        int t = offsets[target]
+                                + Arrays.binarySearch(
+                                myStates.get(target).items, closed + 1);
+                        or(lookaheads[t], set);
+                        if (contains(set, myMarker)) {
+                            lookaheads[t][myMarker >> 6] &= ~(1L << myMarker);
+                            if (edges == from.length) {
+                                from = Arrays.copyOf(from, edges * 2);
+                                to = Arrays.copyOf(to, edges * 2);
+                            }
+                            from[edges] = offsets[s] + k;
+                            to[edges++] = t;
+                        }
+                    }
+                }
+                clear();
+            }
+        }
+        add(lookaheads[offsets[0]], myTerminals - 1);
+
+        /* Pass on the lookaheads until none change. */
+        int[] edgeStart = new int[lookaheads.length + 1];
+        for (int e = 0; e < edges; e++)
+            edgeStart[from[e] + 1]++;
+        for (int k = 0; k < lookaheads.length; k++)
+            edgeStart[k + 1] += edgeStart[k];
+        int[] fill = Arrays.copyOf(edgeStart, lookaheads.length);
+        int[] edgeTo = new int[edges];
+        for (int e = 0; e < edges; e++)
+            edgeTo[fill[from[e]]++] = to[e];
+        int[] queue = new int[lookaheads.length];
+        boolean[] queued = new boolean[lookaheads.length];
+        int head = 0, size = 0;
+        for (int k = 0; k < lookaheads.length; k++) {
+            queue[size++] = k;
+            queued[k] = true;
+        }
+        while (size > 0) {
+            int k = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            queued[k] = false;
+            for (int e = edgeStart[k]; e < edgeStart[k + 1]; e++)
+                if (or(lookaheads[edgeTo[e]], lookaheads[k])
+                        && !queued[edgeTo[e]]) {
+                    queue[(head + size++) % queue.length] = edgeTo[e];
+                    queued[edgeTo[e]] = true;
+                }
+        }
+
+        long[][][] result = new long[myStates.size()][][];
+        for (int s = 0; s < result.length; s++)
+            result[s] = Arrays.copyOfRange(lookaheads, offsets[s],
+                    offsets[s + 1]);
+        return result;
+    }
+
+    /**
+     * Builds the canonical LR(1) states.
+     *
+     * @return for each state, the lookaheads of its kernel items
+     */
+    private long[][][] buildLR1() {
+        build(true);
+        long[][][] result = new long[myStates.size()][][];
+        for (int s = 0; s < result.length; s++)
+            result[s] = myStates.get(s).lookaheads;
+        return result;
+    }
+
+    /**
+     * Builds the states reachable from the start state, and the transitions
+     * between them.
+     *
+     * @param lookaheads if states are told apart by their lookaheads as well
+     *                   as their items, as in LR(1), or not, as in LR(0)
+     */
+    private void build(boolean lookaheads) {
+        int symbols = myTerminals + myVariableNames.length;
+        int[][] buckets = new int[symbols][];
+        long[][][] bucketLookaheads = new long[symbols][][];
+        int[] bucketSizes = new int[symbols];
+        int[] used = new int[symbols];
+        long[][] sources = new long[myItemProduction.length][];
+
+        long[] end = new long[myWords];
+        add(end, myTerminals - 1);
+        state(new int[]{myFirstItem[myStartProduction]},
+                lookaheads ? new long[][]{end} : null);
+        for (int s = 0; s < myStates.size(); s++) {
+            Kernel kernel = myStates.get(s);
+            long[][] kernelLookaheads = kernel.lookaheads;
+            if (kernelLookaheads == null) {
+                kernelLookaheads = new long[kernel.items.length][];
+                Arrays.fill(kernelLookaheads, new long[myWords]);
+            }
+            close(kernel.items, kernelLookaheads);
+
+            /* Sort the items with a symbol after the dot by the symbol. */
+            int usedCount = 0;
+            for (int i = -1; i < myPredictedCount; i++) {
+                int[] items = i < 0 ? kernel.items : null;
+                int[] productions = i < 0 ? null
+                        : myVariableProductions[myPredictedList[i]];
+                int count = i < 0 ? items.length : productions.length;
+                for (int j = 0; j < count; j++) {
+                    int item = i < 0 ? items[j] : myFirstItem[productions[j]];
+                    int symbol = myItemNext[item];
+                    if (symbol < 0)
+                        continue;
+                    if (bucketSizes[symbol] == 0) {
+                        used[usedCount++] = symbol;
+                        if (buckets[symbol] == null) {
+                            buckets[symbol] = new int[4];
+                            bucketLookaheads[symbol] = new long[4][];
+                        }
+                    }
+                    if (bucketSizes[symbol] == buckets[symbol].length) {
+                        int size = bucketSizes[symbol] * 2;
+                        buckets[symbol] = Arrays.copyOf(buckets[symbol], size);
+                        bucketLookaheads[symbol] = Arrays.copyOf(
+                                bucketLookaheads[symbol], size);
+                    }
+                    bucketLookaheads[symbol][bucketSizes[symbol]] = i < 0
+                            ? kernelLookaheads[j]
+                            : myClosure[myPredictedList[i]];
+                    buckets[symbol][bucketSizes[symbol]++] = item + 1;
+                }
+            }
+
+            /* Each symbol goes to the state whose kernel is its items. */
+            Arrays.sort(used, 0, usedCount);
+            int[] transitions = new int[usedCount * 2];
+            for (int u = 0; u < usedCount; u++) {
+                int symbol = used[u];
+                int size = bucketSizes[symbol];
+                int[] items = Arrays.copyOf(buckets[symbol], size);
+                Arrays.sort(items);
+                long[][] targetLookaheads = null;
+                if (lookaheads) {
+                    /* Find the lookaheads of the sorted items. */
+                    long[][] bySource = bucketLookaheads[symbol];
+                    for (int k = 0; k < size; k++)
+                        sources[buckets[symbol][k]] = bySource[k];
+                    targetLookaheads = new long[size][];
+                    for (int k = 0; k < size; k++)
+                        targetLookaheads[k] = sources[items[k]].clone();
+                }
+                transitions[2 * u] = symbol;
+                transitions[2 * u + 1] = state(items, targetLookaheads);
+                bucketSizes[symbol] = 0;
+            }
+            myTransitions.add(transitions);
+            clear();
+        }
+    }
+
+    /**
+     * Returns the state with a kernel, adding it if there is none yet.
+     *
+     * @param items      the sorted items of the kernel
+     * @param lookaheads the lookaheads of the items, or <CODE>null</CODE> if
+     *                   states are not told apart by lookaheads
+     * @return the state
+     */
+    private int state(int[] items, long[][] lookaheads) {
+        Kernel kernel = new Kernel(items, lookaheads);
+        Integer state = myStateForKernel.get(kernel);
+        if (state != null)
+            return state;
+        myStateForKernel.put(kernel, myStates.size());
+        myStates.add(kernel);
+        return myStates.size() - 1;
+    }
+
+    /**
+     * Returns the state a state goes to on a symbol.
+     *
+     * @param transitions the transitions of the state
+     * @param symbol      the symbol
+     * @return the state gone to
+     */
+    private static int target(int[] transitions, int symbol) {
+        int low = 0, high = transitions.length / 2 - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (transitions[2 * middle] < symbol)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return transitions[2 * low + 1];
+    }
+
+    /**
+     * Finds the closure of a kernel. The items predicted for a variable all
+     * have the same lookaheads, so the closure is kept as the variables
+     * predicted and the lookaheads of each, which must be cleared with
+     * {@link #clear} before the next closure.
+     *
+     * @param items      the kernel items
+     * @param lookaheads the lookaheads of each kernel item
+     */
+    private void close(int[] items, long[][] lookaheads) {
+        int pending = 0;
+        for (int k = 0; k < items.length; k++)
+            pending = predict(items[k], lookaheads[k], pending);
+        while (pending > 0) {
+            int variable = myPending[--pending];
+            myIsPending[variable] = false;
+            for (int p : myVariableProductions[variable])
+                pending = predict(myFirstItem[p], myClosure[variable], pending);
+        }
+    }
+
+    /**
+     * Predicts the variable after the dot of an item, if there is one, passing
+     * on the lookaheads that follow it.
+     *
+     * @param item       the item
+     * @param lookaheads the lookaheads of the item
+     * @param pending    the number of variables pending
+     * @return the new number of variables pending
+     */
+    private int predict(int item, long[] lookaheads, int pending) {
+        int symbol = myItemNext[item];
+        if (symbol < myTerminals)
+            return pending;
+        int variable = symbol - myTerminals;
+        boolean changed = or(myClosure[variable], myItemFirst[item]);
+        if (myItemNullable[item])
+            changed |= or(myClosure[variable], lookaheads);
+        if (!myPredicted[variable]) {
+            myPredicted[variable] = true;
+            myPredictedList[myPredictedCount++] = variable;
+            changed = true;
+        }
+        if (changed && !myIsPending[variable]) {
+            myIsPending[variable] = true;
+            myPending[pending++] = variable;
+        }
+        return pending;
+    }
+
+    /**
+     * Clears the last closure.
+     */
+    private void clear() {
+        for (int i = 0; i < myPredictedCount; i++) {
+            myPredicted[myPredictedList[i]] = false;
+            Arrays.fill(myClosure[myPredictedList[i]], 0);
+        }
+        myPredictedCount = 0;
+    }
+
+    /**
+     * Fills in a parse table from the states built and the lookaheads of
+     * their kernel items.
+     *
+     * @param lookaheads for each state, the lookaheads of its kernel items
+     * @return the parse table
+     */
+    private LRParseTable table(long[][][] lookaheads) {
+        LRParseTable table = new LRParseTable(myGrammar, myStates.size()) {
+            /**
+             *
+             */
+            private static final long serialVersionUID = 1L;
+
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        int accept = myFirstItem[myStartProduction] + 1;
+        for (int s = 0; s < myStates.size(); s++) {
+            int[] transitions = myTransitions.get(s);
+            for (int t = 0; t < transitions.length; t += 2) {
+                int symbol = transitions[t];
+                if (symbol < myTerminals)
+                    table.appendValueAt("s" + transitions[t + 1], s,
+                            myTerminalNames[symbol]);
+                else
+                    table.appendValueAt("" + transitions[t + 1], s,
+                            myVariableNames[symbol - myTerminals]);
+            }
+
+            int[] items = myStates.get(s).items;
+            close(items, lookaheads[s]);
+            for (int k = 0; k < items.length; k++) {
+                if (items[k] == accept)
+                    table.appendValueAt("acc", s, "$");
+                else if (myItemNext[items[k]] < 0)
+                    reduce(table, s, myItemProduction[items[k]],
+                            lookaheads[s][k]);
+            }
+            for (int i = 0; i < myPredictedCount; i++) {
+                int variable = myPredictedList[i];
+                for (int p : myVariableProductions[variable])
+                    if (myItemNext[myFirstItem[p]] < 0)
+                        reduce(table, s, p, myClosure[variable]);
+            }
+            clear();
+        }
+        return table;
+    }
+
+    /**
+     * Adds the reductions by a production on each of a set of lookaheads.
+     *
+     * @param table      the parse table
+     * @param state      the state to reduce in
+     * @param production the production to reduce by
+     * @param lookaheads the lookaheads to reduce on
+     */
+    private void reduce(LRParseTable table, int state, int production,
+                        long[] lookaheads) {
+        for (int t = 0; t < myTerminals; t++)
+            if (contains(lookaheads, t))
+                table.appendValueAt("r" + production, state,
+                        myTerminalNames[t]);
+    }
+
+    /**
+     * Adds a bit to a set.
+     *
+     * @param set the set
+     * @param bit the bit
+     * @return if the set changed
+     */
+    private static boolean add(long[] set, int bit) {
+        long old = set[bit >> 6];
+        set[bit >> 6] |= 1L << bit;
+        return set[bit >> 6] != old;
+    }
+
+    /**
+     * Returns if a set has a bit.
+     *
+     * @param set the set
+     * @param bit the bit
+     * @return if the set has the bit
+     */
+    private static boolean contains(long[] set, int bit) {
+        return (set[bit >> 6] & 1L << bit) != 0;
+    }
+
+    /**
+     * Adds the bits of one set to another.
+     *
+     * @param set   the set to add to
+     * @param other the set to add
+     * @return if the set changed
+     */
+    private static boolean or(long[] set, long[] other) {
+        boolean changed = false;
+        for (int i = 0; i < set.length; i++) {
+            long old = set[i];
+            set[i] |= other[i];
+            changed |= set[i] != old;
+        }
+        return changed;
+    }
+
+    /**
+     * The kernel of a state, its sorted items and, for LR(1) states, their
+     * lookaheads.
+     */
+    private static class Kernel {
+        /**
+         * The sorted items.
+         */
+        private int[] items;
+        /**
+         * The lookaheads of the items, or <CODE>null</CODE>.
+         */
+        private long[][] lookaheads;
+        /**
+         * The hash code.
+         */
+        private int hash;
+
+        /**
+         * Instantiates a kernel.
+         *
+         * @param items      the sorted items
+         * @param lookaheads the lookaheads of the items, or <CODE>null</CODE>
+         */
+        private Kernel(int[] items, long[][] lookaheads) {
+            this.items = items;
+            this.lookaheads = lookaheads;
+            hash = Arrays.hashCode(items) * 31
+                    + Arrays.deepHashCode(lookaheads);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object object) {
+            if (!(object instanceof Kernel))
+                return false;
+            Kernel kernel = (Kernel) object;
+            return hash == kernel.hash && Arrays.equals(items, kernel.items)
+                    && Arrays.deepEquals(lookaheads, kernel.lookaheads);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package grammar.parse;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The LR driver runs the shift/reduce parse of a
+ * {@link CompiledLRParseTable} over an input without any of the views. Only
+ * states are kept on the stack, in an integer array, and the input is read a
+ * block at a time, so inputs of any length may be parsed.
+ *
+ * @see gui.grammar.parse.LRParsePane
+ */
+
+public class LRDriver {
+    /**
+     * The size of the input buffer.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The table to parse with.
+     */
+    private CompiledLRParseTable myTable;
+
+    /**
+     * Instantiates a driver for a compiled table.
+     *
+     * @param table the compiled parse table
+     */
+    public LRDriver(CompiledLRParseTable table) {
+        myTable = table;
+    }
+
+    /**
+     * Returns if the table accepts a string.
+     *
+     * @param input the string to parse
+     * @return <CODE>true</CODE> if the string is accepted
+     */
+    public boolean parse(CharSequence input) {
+        try {
+            return run(CharBuffer.wrap(input), null) >= 0;
+        } catch (IOException e) {
+            // Reading a character buffer cannot fail.
+            return false;
+        }
+    }
+
+    /**
+     * Returns if the table accepts the input read from a source, which may be
+     * a <CODE>Reader</CODE> or any other <CODE>Readable</CODE>.
+     *
+     * @param input the source of the input
+     * @return <CODE>true</CODE> if the input is accepted
+     * @throws IOException if reading the input fails
+     */
+    public boolean parse(Readable input) throws IOException {
+        return run(input, null) >= 0;
+    }
+
+    /**
+     * Parses a string and returns the productions reduced by, in order. This
+     * is the rightmost derivation of the string in reverse.
+     *
+     * @param input the string to parse
+     * @return the indices of the productions reduced by, or <CODE>null</CODE>
+     * if the string is not accepted
+     */
+    public int[] derive(CharSequence input) {
+        int[][] reductions = new int[1][16];
+        try {
+            int length = run(CharBuffer.wrap(input), reductions);
+            return length < 0 ? null : Arrays.copyOf(reductions[0], length);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs the parse.
+     *
+     * @param input      the source of the input
+     * @param reductions a one element array holding the array to record the
+     *                   reductions in, which is replaced if it is too small, or
+     *                   <CODE>null</CODE> if they should not be recorded
+     * @return the number of reductions, or -1 if the input is not accepted
+     * @throws IOException if reading the input fails
+     */
+    private int run(Readable input, int[][] reductions) throws IOException {
+        CompiledLRParseTable table = myTable;
+        if (table.getStateCount() == 0)
+            return -1;
+        char[] buffer = new char[BUFFER_SIZE];
+        CharBuffer in = CharBuffer.wrap(buffer);
+        in.limit(0);
+        boolean eof = false;
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = 0;
+        int count = 0;
+        /* A table written by hand could reduce forever without shifting,
+         * which no table for a grammar does; this bounds the reductions
+         * between shifts. */
+        long reduces = 0;
+        long limit = table.getStateCount() + 1;
+        int lookahead = -2;
+        while (true) {
+            if (lookahead == -2) {
+                while (!in.hasRemaining() && !eof) {
+                    in.clear();
+                    if (input.read(in) < 0)
+                        eof = true;
+                    in.flip();
+                }
+                lookahead = in.hasRemaining() ? table.terminal(in.get())
+                        : table.end();
+                if (lookahead < 0)
+                    return -1;
+            }
+            int action = table.action(stack[size - 1], lookahead);
+            switch (action & 3) {
+                case CompiledLRParseTable.SHIFT:
+                    if (action >>> 2 >= table.getStateCount())
+                        return -1;
+                    if (size == stack.length)
+                        stack = Arrays.copyOf(stack, size * 2);
+                    stack[size++] = action >>> 2;
+                    lookahead = -2;
+                    reduces = 0;
+                    limit = (long) (size + 1) * (table.getStateCount() + 1);
+                    break;
+                case CompiledLRParseTable.REDUCE:
+                    int production = action >>> 2;
+                    size -= table.length(production);
+                    if (size < 1)
+                        return -1;
+                    int state = table.goTo(stack[size - 1], production);
+                    if (state < 0 || state >= table.getStateCount()
+                            || ++reduces > limit)
+                        return -1;
+                    if (size == stack.length)
+                        stack = Arrays.copyOf(stack, size * 2);
+                    stack[size++] = state;
+                    if (reductions != null) {
+                        if (count == reductions[0].length)
+                            reductions[0] = Arrays.copyOf(reductions[0],
+                                    count * 2);
+                        reductions[0][count] = production;
+                    }
+                    count++;
+                    break;
+                case CompiledLRParseTable.ACCEPT:
+                    return count;
+                default:
+                    return -1;
+            }
+        }
+    }
+}
@@ -69,6 +69,17 @@ public class LRParseTable extends AbstractTableModel implements Serializable,
      * @param fsa     the goto graph for the grammar
      */
     public LRParseTable(Grammar grammar, FiniteStateAutomaton fsa) {
+        this(grammar, fsa.getStates().length);
+    }
+
+    /**
+     * Instantiates a new LR parse table with a number of states, for a table
+     * built without a goto graph.
+     *
+     * @param grammar the augmented grammar
+     * @param states  the number of states
+     */
+    public LRParseTable(Grammar grammar, int states) {
         ArrayList<String> term = new ArrayList<>(Arrays.asList(grammar.getTerminals()));
         ArrayList<String> vars = new ArrayList<>(Arrays.asList(grammar.getVariables()));
         this.grammar = grammar;
@@ -83,7 +94,7 @@ public class LRParseTable extends AbstractTableModel implements Serializable,
         for (int i = 0; i < variables.length; i++)
             symbolsToColumn.put(variables[i], new Integer(i + 1
                     + terminals.length));
-        entries = new String[fsa.getStates().length][terminals.length
+        entries = new String[states][terminals.length
                 + variables.length + 1];
         for (int i = 0; i < entries.length; i++)
             for (int j = 0; j < entries[i].length; j++)
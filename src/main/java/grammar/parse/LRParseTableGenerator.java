@@ -73,10 +73,9 @@ public abstract class LRParseTableGenerator {
             Iterator<Production> it = items.iterator();
             while (it.hasNext()) {
                 Production p = it.next();
-                if (p.getLHS().length() == 2) {
+                if (!grammar.isVariable(p.getLHS())) {
                     // This is the S' production.
-                    if (p.getRHS().length() == 2
-                            && p.getRHS().charAt(1) == Operations.ITEM_POSITION)
+                    if (p.getRHS().endsWith("" + Operations.ITEM_POSITION))
                         pt.appendValueAt("acc", finals[i].getID(), "$");
                     continue;
                 }
@@ -61,7 +61,7 @@ public abstract class LRParser {
                 // Reduce!
                 int prodNumber = Integer.parseInt(entry.substring(1));
                 Production red = productions[prodNumber];
-                for (int i = 0; i < 2 * red.getRHS().length(); i++)
+                for (int i = 0; i < 2 * SymbolTable.count(red.getRHS()); i++)
                     stack.pop();
                 state = stack.peekInt();
                 stack.push(red.getLHS());
@@ -116,7 +116,7 @@ public abstract class LRParser {
                 Production red = productions[prodNumber];
                 DefaultMutableTreeNode node = new DefaultMutableTreeNode(red
                         .getLHS());
-                for (int i = 0; i < red.getRHS().length(); i++) {
+                for (int i = 0; i < SymbolTable.count(red.getRHS()); i++) {
                     stack.pop(); // Pops the state.
                     MutableTreeNode c = (MutableTreeNode) stack.pop();
                     node.insert(c, 0);
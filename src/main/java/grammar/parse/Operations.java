@@ -41,11 +41,6 @@ public class Operations {
      * The cached follow sets, maps from grammars to follow sets.
      */
     private static final WeakHashMap<Grammar, Map<String, Set<String>>> CACHED_FOLLOW = new WeakHashMap<>();
-    /**
-     * The cached variables to productions maps, maps from grammars to maps from
-     * variables to productions on that variable.
-     */
-    private static final WeakHashMap<Grammar, Map<String, Set<Production>>> CACHED_VPMAP = new WeakHashMap<>();
 
     /**
      * Dang class ain't for the instantiating!
@@ -53,13 +48,6 @@ public class Operations {
     private Operations() {
     }
 
-    /**
-     * Given a map to sets and a key, return the set.
-     */
-    private static Set<String> setForKey(Map<String, Set<String>> map, Object key) {
-        return map.get(key);
-    }
-
     /**
      * Calculate the first sets of a grammar.
      *
@@ -70,33 +58,19 @@ public class Operations {
     public static Map<String, Set<String>> first(Grammar grammar) {
         if (CACHED_FIRST.containsKey(grammar))
             return CACHED_FIRST.get(grammar);
+        SymbolSets sets = new SymbolSets(grammar);
         Map<String, Set<String>> first = new HashMap<>();
         // Put the terminals in the map.
-        String[] terminals = grammar.getTerminals();
-        for (int i = 0; i < terminals.length; i++) {
+        for (int i = 0; i < sets.terminals.length; i++) {
             Set<String> termSet = new HashSet<>();
-            termSet.add(terminals[i]);
-            first.put(terminals[i], termSet);
-        }
-        // Put the variables in the map as empty sets.
-        String[] variables = grammar.getVariables();
-        for (int i = 0; i < variables.length; i++) {
-            first.put(variables[i], new HashSet<String>());
+            termSet.add(sets.terminals[i]);
+            first.put(sets.terminals[i], termSet);
         }
-
-        // Repeatedly go over the productions until there is no more
-        // change.
-        boolean hasChanged = true;
-        Production[] productions = grammar.getProductions();
-        while (hasChanged) {
-            hasChanged = false;
-            for (int i = 0; i < productions.length; i++) {
-                String variable = productions[i].getLHS();
-                String rhs = productions[i].getRHS();
-                Set<String> firstRhs = first(first, rhs);
-                if (setForKey(first, variable).addAll(firstRhs))
-                    hasChanged = true;
-            }
+        for (int i = 0; i < sets.variables.length; i++) {
+            Set<String> varSet = sets.toSet(sets.first[i]);
+            if (sets.nullable[i])
+                varSet.add("");
+            first.put(sets.variables[i], varSet);
         }
         CACHED_FIRST.put(grammar, Collections.unmodifiableMap(first));
         return first(grammar);
@@ -112,23 +86,17 @@ public class Operations {
      */
     public static Set<String> first(Map<String, Set<String>> firstSets, String sequence) {
         Set<String> first = new HashSet<>();
-        if (sequence.equals(""))
-            first.add("");
-        for (int j = 0; j < sequence.length(); j++) {
-            Set<String> s = setForKey(firstSets, sequence.substring(j, j + 1));
-            if (!s.contains("")) {
-                // Doesn't contain lambda. Add it and get the
-                // hell out of dodge.
-                first.addAll(s);
-                break;
-            }
-            // Does contain lambda. Damn it.
-            if (j != sequence.length() - 1)
-                s.remove("");
-            first.addAll(s);
-            if (j != sequence.length() - 1)
-                s.add("");
+        String[] symbols = SymbolTable.split(sequence);
+        for (int j = 0; j < symbols.length; j++) {
+            Set<String> s = firstSets.get(symbols[j]);
+            for (String symbol : s)
+                if (!symbol.equals(""))
+                    first.add(symbol);
+            // Only go on while the symbols so far may derive lambda.
+            if (!s.contains(""))
+                return first;
         }
+        first.add("");
         return first;
     }
 
@@ -142,47 +110,20 @@ public class Operations {
     public static Map<String, Set<String>> follow(Grammar grammar) {
         if (CACHED_FOLLOW.containsKey(grammar))
             return CACHED_FOLLOW.get(grammar);
+        SymbolSets sets = new SymbolSets(grammar);
+        sets.follow(grammar.getStartVariable());
         Map<String, Set<String>> follow = new HashMap<>();
-        // Add the mapping from the initial variable to the end of
-        // string character.
+        // The initial variable is followed by the end of string
+        // character, even if it has no productions.
         Set<String> initialSet = new HashSet<>();
         initialSet.add("$");
         follow.put(grammar.getStartVariable(), initialSet);
-        // Make every follow mapping empty for now.
-        String[] variables = grammar.getVariables();
-        for (int i = 0; i < variables.length; i++)
-            if (!variables[i].equals(grammar.getStartVariable()))
-                follow.put(variables[i], new HashSet<String>());
-        // Get the first sets.
-        Map<String, Set<String>> firstSets = first(grammar);
-        // Iterate repeatedly over the productions until we're
-        // completely done.
-        Production[] productions = grammar.getProductions();
-        boolean hasChanged = true;
-        while (hasChanged) {
-            hasChanged = false;
-            for (int i = 0; i < productions.length; i++) {
-                String variable = productions[i].getLHS();
-                String rhs = productions[i].getRHS();
-                for (int j = 0; j < rhs.length(); j++) {
-                    String rhsVariable = rhs.substring(j, j + 1);
-                    if (!grammar.isVariable(rhsVariable))
-                        continue;
-                    Set<String> firstFollowing = first(firstSets, rhs.substring(j + 1));
-                    // Is lambda in that following the variable? For
-                    // A->aBb where lambda is in FIRST(b), everything
-                    // in FOLLOW(A) is in FOLLOW(B).
-                    if (firstFollowing.remove("")) {
-                        if (setForKey(follow, rhsVariable).addAll(
-                                setForKey(follow, variable)))
-                            hasChanged = true;
-                    }
-                    // For A->aBb, everything in FIRST(b) except
-                    // lambda is put in FOLLOW(B).
-                    if (setForKey(follow, rhsVariable).addAll(firstFollowing))
-                        hasChanged = true;
-                }
-            }
+        for (int i = 0; i < sets.variables.length; i++) {
+            Set<String> followSet = sets.toSet(sets.follow[i]);
+            if (follow.containsKey(sets.variables[i]))
+                follow.get(sets.variables[i]).addAll(followSet);
+            else
+                follow.put(sets.variables[i], followSet);
         }
         CACHED_FOLLOW.put(grammar, Collections.unmodifiableMap(follow));
         return follow(grammar);
@@ -260,6 +201,7 @@ public class Operations {
             return null;
         }
         startProduction.setLHS(start + "'");
+        g.reindex();
         for (int i = 0; i < prods.length; i++)
             g.addProduction(prods[i]);
         return g;
@@ -289,7 +231,8 @@ public class Operations {
                 if (p == item.getRHS().length())
                     continue;
                 // We want all productions with this variable.
-                String var = item.getRHS().substring(p, p + 1);
+                String var = item.getRHS().substring(p, p
+                        + SymbolTable.symbolLength(item.getRHS(), p));
                 Set<Production> ps = vp.get(var);
                 if (ps == null) {
                     continue;
@@ -325,13 +268,13 @@ public class Operations {
             if (p == item.getRHS().length())
                 continue;
             // We want all productions with this variable.
-            String var = item.getRHS().substring(p, p + 1);
+            String var = item.getRHS().substring(p, p
+                    + SymbolTable.symbolLength(item.getRHS(), p));
             if (!var.equals(symbol))
                 continue;
 
-            String newRhs = item.getRHS().substring(0, p - 1)
-                    + item.getRHS().charAt(p) + ITEM_POSITION
-                    + item.getRHS().substring(p + 1);
+            String newRhs = item.getRHS().substring(0, p - 1) + var
+                    + ITEM_POSITION + item.getRHS().substring(p + var.length());
             more.add(new Production(item.getLHS(), newRhs));
         }
         return closure(grammar, more);
@@ -339,23 +282,15 @@ public class Operations {
 
     /**
      * Given a grammar, returns a mapping of variables in the grammar to a set
-     * of productions on that variable.
+     * of productions on that variable. This is the grammar's own index, so
+     * it stays up to date as the grammar changes.
      *
      * @param grammar the grammar to get a map for
      * @return the map of variables to productions
+     * @see grammar.Grammar#getProductionsByLHS
      */
     public static Map<String, Set<Production>> getVariableProductionMap(Grammar grammar) {
-        if (CACHED_VPMAP.containsKey(grammar))
-            return Collections.unmodifiableMap(CACHED_VPMAP.get(grammar));
-        Map<String, Set<Production>> vp = new HashMap<>();
-        CACHED_VPMAP.put(grammar, vp);
-        Production[] p = grammar.getProductions();
-        for (int i = 0; i < p.length; i++) {
-            if (!vp.containsKey(p[i].getLHS()))
-                vp.put(p[i].getLHS(), new HashSet<Production>());
-            vp.get(p[i].getLHS()).add(p[i]);
-        }
-        return getVariableProductionMap(grammar);
+        return grammar.getProductionsByLHS();
     }
 
     /**
@@ -369,11 +304,13 @@ public class Operations {
     public static Production[] getItems(Production production) {
         StringBuffer sb = new StringBuffer(production.getRHS());
         String rhs = production.getRHS();
-        Production[] items = new Production[rhs.length() + 1];
-        for (int i = 0; i <= rhs.length(); i++) {
+        Production[] items = new Production[SymbolTable.count(rhs) + 1];
+        for (int i = 0, k = 0; k < items.length; k++) {
             sb.insert(i, ITEM_POSITION);
-            items[i] = new Production(production.getLHS(), sb.toString());
+            items[k] = new Production(production.getLHS(), sb.toString());
             sb.deleteCharAt(i);
+            if (i < rhs.length())
+                i += SymbolTable.symbolLength(rhs, i);
         }
         return items;
     }
@@ -394,15 +331,238 @@ public class Operations {
             int position = item.getRHS().indexOf(ITEM_POSITION) + 1;
             if (position == item.getRHS().length())
                 continue;
-            symbols.add(item.getRHS().substring(position, position + 1));
+            symbols.add(item.getRHS().substring(position, position
+                    + SymbolTable.symbolLength(item.getRHS(), position)));
         }
         return symbols.toArray(new String[0]);
     }
-}
 
+    /**
+     * The first and follow sets of a grammar, worked out with the symbols
+     * coded as integers and the sets as bit sets. Rather than going over all
+     * the productions until nothing changes, each set that grows is put on a
+     * worklist, and only passed on to the sets that depend on it, so each
+     * dependency is followed only when its source changes.
+     */
+    private static class SymbolSets {
+        /**
+         * The terminals; terminal <CODE>i</CODE> is bit <CODE>i</CODE> of a
+         * set, and the end of string character is the bit after the last.
+         */
+        private String[] terminals;
+        /**
+         * The variables, including the left sides of all productions.
+         */
+        private String[] variables;
+        /**
+         * For each production, its left hand side.
+         */
+        private int[] lhs;
+        /**
+         * For each production, the symbols on its right hand side, with a
+         * terminal coded as its index and a variable as -1 minus its index.
+         */
+        private int[][] rhs;
+        /**
+         * For each variable, if it derives lambda.
+         */
+        private boolean[] nullable;
+        /**
+         * For each variable, its first set, without lambda.
+         */
+        private BitSet[] first;
+        /**
+         * For each variable, its follow set, once {@link #follow} is called.
+         */
+        private BitSet[] follow;
 
+        /**
+         * Codes a grammar and finds its first sets.
+         *
+         * @param grammar the grammar
+         */
+        private SymbolSets(Grammar grammar) {
+            terminals = grammar.getTerminals();
+            Map<String, Integer> codes = new HashMap<>();
+            for (int i = 0; i < terminals.length; i++)
+                codes.put(terminals[i], i);
+            Production[] productions = grammar.getProductions();
+            List<String> names = new ArrayList<>(Arrays.asList(grammar
+                    .getVariables()));
+            for (int i = 0; i < productions.length; i++)
+                names.add(productions[i].getLHS());
+            names.add(grammar.getStartVariable());
+            List<String> vars = new ArrayList<>();
+            for (String variable : names)
+                if (variable != null && !codes.containsKey(variable)) {
+                    codes.put(variable, -1 - vars.size());
+                    vars.add(variable);
+                }
+            variables = vars.toArray(new String[0]);
+            lhs = new int[productions.length];
+            rhs = new int[productions.length][];
+            for (int i = 0; i < productions.length; i++) {
+                lhs[i] = -1 - codes.get(productions[i].getLHS());
+                String[] symbols = productions[i].getSymbolsOnRHS();
+                rhs[i] = new int[symbols.length];
+                for (int j = 0; j < symbols.length; j++)
+                    rhs[i][j] = codes.get(symbols[j]);
+            }
+            findNullable();
+            findFirst();
+        }
 
+        /**
+         * Finds the variables that derive lambda. Each production counts the
+         * symbols on its right that are not yet known to derive lambda, and
+         * each variable found to is taken off the counts of the productions
+         * it is in.
+         */
+        private void findNullable() {
+            nullable = new boolean[variables.length];
+            int[] remaining = new int[rhs.length];
+            List<List<Integer>> occurrences = new ArrayList<>();
+            for (int v = 0; v < variables.length; v++)
+                occurrences.add(new ArrayList<Integer>());
+            int[] queue = new int[variables.length];
+            int size = 0;
+            for (int p = 0; p < rhs.length; p++) {
+                boolean terminal = false;
+                for (int j = 0; j < rhs[p].length; j++)
+                    terminal |= rhs[p][j] >= 0;
+                if (terminal)
+                    continue;
+                remaining[p] = rhs[p].length;
+                for (int j = 0; j < rhs[p].length; j++)
+                    occurrences.get(-1 - rhs[p][j]).add(p);
+                if (remaining[p] == 0 && !nullable[lhs[p]]) {
+                    nullable[lhs[p]] = true;
+                    queue[size++] = lhs[p];
+                }
+            }
+            for (int head = 0; head < size; head++)
+                for (int p : occurrences.get(queue[head]))
+                    if (--remaining[p] == 0 && !nullable[lhs[p]]) {
+                        nullable[lhs[p]] = true;
+                        queue[size++] = lhs[p];
+                    }
+        }
 
+        /**
+         * Finds the first sets of the variables. For a production
+         * <CODE>A->aBb</CODE> where <CODE>a</CODE> derives lambda, the
+         * first set of <CODE>B</CODE> is passed on to <CODE>A</CODE>.
+         */
+        private void findFirst() {
+            first = new BitSet[variables.length];
+            List<List<Integer>> dependents = new ArrayList<>();
+            for (int v = 0; v < variables.length; v++) {
+                first[v] = new BitSet();
+                dependents.add(new ArrayList<Integer>());
+            }
+            for (int p = 0; p < rhs.length; p++) {
+                for (int j = 0; j < rhs[p].length; j++) {
+                    int symbol = rhs[p][j];
+                    if (symbol >= 0) {
+                        first[lhs[p]].set(symbol);
+                        break;
+                    }
+                    dependents.get(-1 - symbol).add(lhs[p]);
+                    if (!nullable[-1 - symbol])
+                        break;
+                }
+            }
+            propagate(first, dependents);
+        }
 
+        /**
+         * Finds the follow sets of the variables. For a production
+         * <CODE>A->aBb</CODE>, the first set of <CODE>b</CODE> is put in the
+         * follow set of <CODE>B</CODE>, and if <CODE>b</CODE> derives lambda
+         * the follow set of <CODE>A</CODE> is passed on to <CODE>B</CODE>.
+         *
+         * @param start the start variable
+         */
+        private void follow(String start) {
+            follow = new BitSet[variables.length];
+            List<List<Integer>> dependents = new ArrayList<>();
+            for (int v = 0; v < variables.length; v++) {
+                follow[v] = new BitSet();
+                dependents.add(new ArrayList<Integer>());
+                if (variables[v].equals(start))
+                    follow[v].set(terminals.length);
+            }
+            for (int p = 0; p < rhs.length; p++) {
+                // Walk back along the production, keeping the first set of
+                // what follows.
+                BitSet after = new BitSet();
+                boolean afterNullable = true;
+                for (int j = rhs[p].length - 1; j >= 0; j--) {
+                    int symbol = rhs[p][j];
+                    if (symbol >= 0) {
+                        after.clear();
+                        after.set(symbol);
+                        afterNullable = false;
+                        continue;
+                    }
+                    int variable = -1 - symbol;
+                    follow[variable].or(after);
+                    if (afterNullable && variable != lhs[p])
+                        dependents.get(lhs[p]).add(variable);
+                    if (!nullable[variable]) {
+                        after.clear();
+                        afterNullable = false;
+                    }
+                    after.or(first[variable]);
+                }
+            }
+            propagate(follow, dependents);
+        }
 
+        /**
+         * Passes each set on to the sets that depend on it, until none
+         * change.
+         *
+         * @param sets       the sets, one for each variable
+         * @param dependents for each variable, the variables whose sets
+         *                   include its set
+         */
+        private void propagate(BitSet[] sets, List<List<Integer>> dependents) {
+            int[] queue = new int[variables.length];
+            boolean[] queued = new boolean[variables.length];
+            int head = 0, size = variables.length;
+            for (int v = 0; v < variables.length; v++) {
+                queue[v] = v;
+                queued[v] = true;
+            }
+            while (size > 0) {
+                int v = queue[head];
+                head = (head + 1) % queue.length;
+                size--;
+                queued[v] = false;
+                for (int d : dependents.get(v)) {
+                    int before = sets[d].cardinality();
+                    sets[d].or(sets[v]);
+                    if (sets[d].cardinality() != before && !queued[d]) {
+                        queue[(head + size++) % queue.length] = d;
+                        queued[d] = true;
+                    }
+                }
+            }
+        }
 
+        /**
+         * Returns the symbols of a set.
+         *
+         * @param set the set
+         * @return the terminals in the set, and the end of string character
+         * if it is in the set
+         */
+        private Set<String> toSet(BitSet set) {
+            Set<String> symbols = new HashSet<>();
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))
+                symbols.add(i < terminals.length ? terminals[i] : "$");
+            return symbols;
+        }
+    }
+}
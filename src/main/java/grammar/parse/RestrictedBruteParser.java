@@ -18,6 +18,7 @@
 package grammar.parse;
 
 import grammar.Grammar;
+import grammar.SymbolTable;
 import java.util.*;
 
 /**
@@ -38,6 +39,18 @@ public class RestrictedBruteParser extends BruteParser {
         super(grammar, target);
     }
 
+    /**
+     * Restricted grammars that are context free are parsed by an
+     * {@link EarleyParser}, which is much faster than the search.
+     */
+    protected boolean isDecidable() {
+        return grammar != null && EarleyParser.canParse(grammar);
+    }
+
+    protected ParseNode decide() {
+        return new EarleyParser(grammar).parse(target);
+    }
+
     public boolean isPossibleDerivation(String derivation) {
         if (Unrestricted.minimumLength(derivation, smaller) > target.length())
             return false;
@@ -54,15 +67,17 @@ public class RestrictedBruteParser extends BruteParser {
         if (derivation.length() == 0) {
             startBookend = endBookend = false;
         } else {
-            startBookend = !grammar.isVariable(derivation.substring(0, 1));
-            endBookend = !grammar.isVariable(derivation.substring(derivation
-                    .length() - 1));
+            String[] symbols = SymbolTable.split(derivation);
+            startBookend = !grammar.isVariable(symbols[0]);
+            endBookend = !grammar.isVariable(symbols[symbols.length - 1]);
         }
 
         /* Break up groups of terminals into the "discrete" array. */
-        for (int i = 0; i <= derivation.length(); i++) {
+        for (int i = 0, length = 1; i <= derivation.length(); i += length) {
+            length = i == derivation.length() ? 1 : SymbolTable.symbolLength(
+                    derivation, i);
             String symbol = i == derivation.length() ? null : derivation
-                    .substring(i, i + 1);
+                    .substring(i, i + length);
             if (symbol == null || grammar.isVariable(symbol)) {
                 // if (symbol == null) endBookend = true;
                 if (sb.length() == 0)
@@ -18,6 +18,7 @@
 package grammar.parse;
 
 import grammar.Grammar;
+import grammar.SymbolTable;
 import java.util.ArrayList;
 
 /**
@@ -55,15 +56,17 @@ public class RestrictedUserParser extends UserParser {
         if (derivation.length() == 0) {
             startBookend = endBookend = false;
         } else {
-            startBookend = !myGrammar.isVariable(derivation.substring(0, 1));
-            endBookend = !myGrammar.isVariable(derivation.substring(derivation
-                    .length() - 1));
+            String[] symbols = SymbolTable.split(derivation);
+            startBookend = !myGrammar.isVariable(symbols[0]);
+            endBookend = !myGrammar.isVariable(symbols[symbols.length - 1]);
         }
 
         /* Break up groups of terminals into the "discrete" array. */
-        for (int i = 0; i <= derivation.length(); i++) {
+        for (int i = 0, length = 1; i <= derivation.length(); i += length) {
+            length = i == derivation.length() ? 1 : SymbolTable.symbolLength(
+                    derivation, i);
             String symbol = i == derivation.length() ? null : derivation
-                    .substring(i, i + 1);
+                    .substring(i, i + length);
             if (symbol == null || myGrammar.isVariable(symbol)) {
                 // if (symbol == null) endBookend = true;
                 if (sb.length() == 0)
@@ -19,6 +19,7 @@ package grammar.parse;
 
 import grammar.Grammar;
 import grammar.Production;
+import grammar.SymbolTable;
 import grammar.UnrestrictedGrammar;
 import java.util.*;
 
@@ -46,23 +47,27 @@ public class Unrestricted {
      */
     public static int minimumLength(String string, Set<String> smaller) {
         int length = 0;
-        for (int j = 0; j < string.length(); j++)
-            if (!smaller.contains(string.substring(j, j + 1)))
+        for (int j = 0; j < string.length(); ) {
+            int symbolLength = SymbolTable.symbolLength(string, j);
+            if (!smaller.contains(string.substring(j, j + symbolLength)))
                 length++;
+            j += symbolLength;
+        }
         return length;
     }
 
     /**
-     * Counts the number of characters in a given string.
+     * Counts the number of times a symbol is in a given string.
      *
      * @param s the string
-     * @param c the character
-     * @return the number of occurances of the character in the string
+     * @param c the symbol
+     * @return the number of occurances of the symbol in the string
      */
-    private static int count(String s, char c) {
+    private static int count(String s, String c) {
         int count = 0;
-        for (int i = 0; i < s.length(); i++)
-            if (s.charAt(i) == c)
+        String[] symbols = SymbolTable.split(s);
+        for (int i = 0; i < symbols.length; i++)
+            if (symbols[i].equals(c))
                 count++;
         return count;
     }
@@ -89,12 +94,12 @@ public class Unrestricted {
                 int rightLength = minimumLength(right, smaller);
                 int leftLength = minimumLength(left, smaller);
                 if (leftLength > rightLength) {
-                    for (int j = 0; j < left.length(); j++) {
-                        String symbol = left.substring(j, j + 1);
-                        char s = symbol.charAt(0);
+                    String[] symbols = SymbolTable.split(left);
+                    for (int j = 0; j < symbols.length; j++) {
+                        String symbol = symbols[j];
                         if (smaller.contains(symbol))
                             continue;
-                        if (count(left, s) <= count(right, s))
+                        if (count(left, symbol) <= count(right, symbol))
                             continue;
                         smaller.add(symbol);
                         added = true;
@@ -114,7 +119,7 @@ public class Unrestricted {
     public static boolean isUnrestricted(Grammar grammar) {
         Production[] prods = grammar.getProductions();
         for (int i = 0; i < prods.length; i++)
-            if (prods[i].getLHS().length() != 1)
+            if (SymbolTable.count(prods[i].getLHS()) != 1)
                 return true;
         return false;
     }
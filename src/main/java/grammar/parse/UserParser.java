@@ -19,6 +19,7 @@ package grammar.parse;
 
 import grammar.Grammar;
 import grammar.Production;
+import grammar.SymbolTable;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Set;
@@ -146,25 +147,56 @@ public abstract class UserParser {
 		}*/
 
         myCurrentProduction = myProductions[index];
-        int length = myCurrentProduction.getLHS().length();
+        String derivation = myAnswer.getDerivation();
         int count = 0;
-        for (int i = 0; i < myAnswer.getDerivation().length(); i++) {
-            if (i + length > myAnswer.getDerivation().length())
-                break;
-            if (myAnswer.getDerivation().substring(i, i + length).equals(myCurrentProduction.getLHS())) {
+        for (int i = 0; i < derivation.length(); i += SymbolTable.symbolLength(derivation, i)) {
+            if (matchesAt(derivation, myCurrentProduction.getLHS(), i))
                 count++;
-            }
         }
         return count;
     }
 
+    /**
+     * Returns if the symbols of a string starting at a position are those of
+     * a side of a production, so that a variable is never matched by part of
+     * a longer one.
+     *
+     * @param string   the string
+     * @param side     the side of the production
+     * @param position the position of a symbol in the string
+     * @return true if the side is in the string at the position
+     */
+    private static boolean matchesAt(String string, String side, int position) {
+        if (!string.startsWith(side, position))
+            return false;
+        int end = position;
+        while (end < position + side.length())
+            end += SymbolTable.symbolLength(string, end);
+        return end == position + side.length();
+    }
+
+    /**
+     * Returns the position in a string of one of its symbols.
+     *
+     * @param string the string
+     * @param symbol the index of the symbol
+     * @return the index of the first character of the symbol
+     */
+    private static int offset(String string, int symbol) {
+        int position = 0;
+        for (int i = 0; i < symbol; i++)
+            position += SymbolTable.symbolLength(string, position);
+        return position;
+    }
+
 
     /**
      * Returns a Next possible one step parse for a given string.
      * The first entry is always the identity.
      *
      * @param c     the current String
-     * @param index the index of String where we are going to apply the production rule
+     * @param index the index of the symbol of the String where we are going to apply the
+     *              production rule, or -1 for the first place it applies
      */
     private ParseNode getNextResult(String c, int index) {
         if (c.length() == 0) {
@@ -174,8 +206,12 @@ public abstract class UserParser {
         // Find the start of the production.
         int start = 0;
 
-        if (index < 0)
-            index = c.indexOf(myCurrentProduction.getLHS());
+        if (index < 0) {
+            index = 0;
+            while (!matchesAt(c, myCurrentProduction.getLHS(), index))
+                index += SymbolTable.symbolLength(c, index);
+        } else
+            index = offset(c, index);
         //System.out.println("MY Current Production = "+myCurrentProduction);
 
         //System.out.println("MY RHS = "+myCurrentProduction.getRHS());
@@ -287,7 +323,7 @@ public abstract class UserParser {
      * However, this method is called whenever more than two variables are going to be applied with same production
      * at same time
      *
-     * @param tempIndices Indices of where the substitution will occur
+     * @param tempIndices Indices of the symbols where the substitution will occur
      */
     public void subsitute(int[] tempIndices) {
         ParseNode node = myQueue.removeFirst();
@@ -312,12 +348,14 @@ public abstract class UserParser {
      * However, unlike getNextResult method, this one creates multiple production and substituion array.
      *
      * @param c           Current String
-     * @param tempIndices Indices of where the substitution will occur
+     * @param tempIndices Indices of the symbols where the substitution will occur
      * @return The next parseNode derived from this production
      */
     private ParseNode getNextSubstitution(String c, int[] tempIndices) {
         // Find the start of the production.
-        int[] multipleSubstitutionArray = tempIndices;
+        int[] multipleSubstitutionArray = new int[tempIndices.length];
+        for (int i = 0; i < tempIndices.length; i++)
+            multipleSubstitutionArray[i] = offset(c, tempIndices[i]);
 
         int start = 0;
         String prepend = "";
@@ -327,7 +365,8 @@ public abstract class UserParser {
             if (i == 0)
                 start = multipleSubstitutionArray[i];
             else
-                start = multipleSubstitutionArray[i] + i * (myCurrentProduction.getRHS().length() - 1);
+                start = multipleSubstitutionArray[i] + i * (myCurrentProduction.getRHS().length()
+                        - myCurrentProduction.getLHS().length());
             prepend = c.substring(0, start) + myCurrentProduction.getRHS() + c.substring(start + myCurrentProduction.getLHS().length());
             c = prepend;
             multipleProductionArray[i] = myCurrentProduction;
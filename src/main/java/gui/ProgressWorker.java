@@ -0,0 +1,175 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+/**
+ * A progress worker runs a long piece of work for a controller off the event
+ * thread. The work is done in {@link #work}, which should operate only on
+ * private copies of whatever the views display and check {@link #isCancelled}
+ * as it goes; the result is then applied to the real models in one batch by
+ * {@link #finish} on the event thread. While the work runs, a modal dialog
+ * shows the progress and lets the user cancel, which both keeps the views
+ * from being edited underneath the work and keeps them repainting. Work that
+ * finishes quickly never shows the dialog at all.
+ */
+
+public abstract class ProgressWorker<T> extends SwingWorker<T, Void> {
+    /**
+     * How long to wait before showing the progress dialog, in milliseconds.
+     */
+    private static final long DIALOG_DELAY = 300;
+    /**
+     * The component the dialog is shown over.
+     */
+    private final Component parent;
+    /**
+     * The progress dialog.
+     */
+    private final JDialog dialog;
+
+    /**
+     * Instantiates a new <CODE>ProgressWorker</CODE>.
+     *
+     * @param parent the component the progress dialog is shown over
+     * @param title  the title of the progress dialog
+     */
+    public ProgressWorker(Component parent, String title) {
+        this.parent = parent;
+        Window window = parent == null ? null : SwingUtilities
+                .getWindowAncestor(parent);
+        dialog = new JDialog(window, title, JDialog.DEFAULT_MODALITY_TYPE);
+        final JProgressBar bar = new JProgressBar(0, 100);
+        bar.setStringPainted(true);
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                cancel(false);
+            }
+        });
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(bar, BorderLayout.CENTER);
+        panel.add(cancel, BorderLayout.EAST);
+        dialog.setContentPane(panel);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialog.pack();
+        dialog.setSize(Math.max(dialog.getWidth(), 320), dialog.getHeight());
+        dialog.setLocationRelativeTo(parent);
+        addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("progress".equals(e.getPropertyName()))
+                    bar.setValue((Integer) e.getNewValue());
+            }
+        });
+    }
+
+    /**
+     * Does the work. This is called on a background thread.
+     *
+     * @return the result of the work, which is passed to {@link #finish}
+     * @throws Exception if the work fails
+     */
+    protected abstract T work() throws Exception;
+
+    /**
+     * Applies the result of the work. This is called on the event thread,
+     * and only if the work completed without being cancelled.
+     *
+     * @param result the result of the work
+     */
+    protected abstract void finish(T result);
+
+    /**
+     * Reports how far along the work is. This may be called from the
+     * background thread.
+     *
+     * @param done  the number of units of work done
+     * @param total the total number of units of work
+     */
+    protected void report(int done, int total) {
+        if (total > 0)
+            setProgress((int) Math.min(100, Math.max(0, 100L * done / total)));
+    }
+
+    /**
+     * Starts the work. This must be called on the event thread. It returns
+     * once the work has stopped, either done or cancelled, though events are
+     * still dispatched while the dialog is up; {@link #finish} is called from
+     * the event queue after this returns.
+     */
+    public void start() {
+        execute();
+        try {
+            get(DIALOG_DELAY, TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException e) {
+            // Slow enough to be worth showing the progress.
+        } catch (InterruptedException e) {
+            return;
+        } catch (ExecutionException e) {
+            return;
+        } catch (CancellationException e) {
+            return;
+        }
+        if (!isDone())
+            dialog.setVisible(true);
+    }
+
+    protected final T doInBackground() throws Exception {
+        return work();
+    }
+
+    protected final void done() {
+        dialog.setVisible(false);
+        dialog.dispose();
+        if (isCancelled())
+            return;
+        try {
+            finish(get());
+        } catch (InterruptedException e) {
+            // Cannot happen once the work is done.
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            String message = cause.getMessage() == null ? cause.toString()
+                    : cause.getMessage();
+            JOptionPane.showMessageDialog(parent, dialog.getTitle()
+                    + " failed with error:\n" + message, "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
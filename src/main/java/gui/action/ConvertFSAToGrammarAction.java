@@ -74,15 +74,6 @@ public class ConvertFSAToGrammarAction extends ConvertAutomatonToGrammarAction {
      * Checks the FSA to make sure it's ready to be converted.
      */
     protected boolean checkAutomaton() {
-        // If we have more than 26 states, we can't have a single
-        // letter for all states.
-        if (getAutomaton().getStates().length > 26) {
-            JOptionPane.showMessageDialog(Universe
-                            .frameForEnvironment(getEnvironment()),
-                    "There may be at most 26 states for conversion.",
-                    "Number of States Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
         // Check for transitions with capital letters.
         Set<Transition> bad = new HashSet<>();
         Transition[] t = getAutomaton().getTransitions();
@@ -21,6 +21,7 @@ import grammar.CNFConverter;
 import grammar.Grammar;
 import grammar.Production;
 import grammar.ProductionChecker;
+import grammar.SymbolTable;
 import grammar.UnrestrictedGrammar;
 import gui.environment.EnvironmentFrame;
 import gui.environment.GrammarEnvironment;
@@ -111,7 +112,7 @@ public class GrammarTypeTestAction extends GrammarAction {
         } else {
             int tt = 0;
             for (int i = 0; i < p.length; i++) {
-                if (p[i].getLHS().length() <= p[i].getRHS().length()) {
+                if (SymbolTable.count(p[i].getLHS()) <= SymbolTable.count(p[i].getRHS())) {
                     tt++;
                 }
             }
@@ -157,10 +158,10 @@ public class GrammarTypeTestAction extends GrammarAction {
                 if (p[i].getRHS().length() == 0)
                     count++;
                 else {
-                    char firstCh = p[i].getRHS().charAt(0);
-                    if (ProductionChecker.isTerminal(firstCh)) {
-                        for (int j = 1; j < p[i].getRHS().length(); j++) {
-                            if (!ProductionChecker.isVariable(p[i].getRHS().charAt(j))) {
+                    String[] symbols = p[i].getSymbolsOnRHS();
+                    if (!ProductionChecker.isVariable(symbols[0])) {
+                        for (int j = 1; j < symbols.length; j++) {
+                            if (!ProductionChecker.isVariable(symbols[j])) {
                                 isGNF = false;
                             }
                         }
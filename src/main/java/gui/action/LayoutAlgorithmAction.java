@@ -18,9 +18,6 @@
 package gui.action;
 
 import automata.Automaton;
-import automata.graph.AutomatonGraph;
-import automata.graph.LayoutAlgorithm;
-import automata.graph.LayoutAlgorithmFactory;
 import automata.mealy.MealyMachine;
 import automata.pda.PushdownAutomaton;
 import automata.turing.TuringMachine;
@@ -29,7 +26,8 @@ import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 
 /**
- * This action allows for a layout algorithm to be applied to an automaton.
+ * This action allows for a layout algorithm to be applied to an automaton.  The layout is
+ * run in the background by the {@link LayoutService}, and the states move as it goes.
  *
  * @author Chris Morgan
  */
@@ -84,12 +82,9 @@ public class LayoutAlgorithmAction extends AutomatonAction {
             vertexBuffer = 65;
         else
             vertexBuffer = 50;
-        AutomatonGraph graph = LayoutAlgorithmFactory.getAutomatonGraph(algorithm, automaton);
-        LayoutAlgorithm layout = LayoutAlgorithmFactory.getLayoutAlgorithm(algorithm,
+        LayoutService.layout(environment, automaton, algorithm,
                 new Dimension((int) environment.getSize().getWidth() - (int) assumedUsedSpace.getWidth(),
                         (int) environment.getSize().getHeight() - (int) assumedUsedSpace.getHeight()),
-                new Dimension(30, 30), vertexBuffer);
-        layout.layout(graph, null);
-        graph.moveAutomatonStates();
+                new Dimension(30, 30), vertexBuffer, LayoutService.DEFAULT_RESTARTS);
     }
 }
@@ -0,0 +1,348 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package gui.action;
+
+import automata.Automaton;
+import automata.State;
+import automata.event.AutomataStateEvent;
+import automata.event.AutomataStateListener;
+import automata.event.AutomataTransitionEvent;
+import automata.event.AutomataTransitionListener;
+import automata.graph.AutomatonGraph;
+import automata.graph.CrossingCounter;
+import automata.graph.Graph;
+import automata.graph.LayoutAlgorithm;
+import automata.graph.LayoutAlgorithmFactory;
+import automata.graph.LayoutListener;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.geom.Point2D;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * The <code>LayoutService</code> lays out automata with the algorithms of the
+ * {@link LayoutAlgorithmFactory} on a pool of worker threads, so that the interface does not
+ * wait on a large layout.  While the layout goes, the states of the automaton are moved to the
+ * positions so far, no more often than a few times a second, so the view shows the layout
+ * settling; the states are moved only on the event dispatch thread.
+ * <p>
+ * For algorithms with a random element, several layouts may be run at once, each but the
+ * first from vertices scattered at random, and the one whose edges cross the fewest times is
+ * kept.  A new layout of an automaton cancels any layout of it still running, as does adding
+ * or removing a state or transition while it runs.  All methods are to be called on the event
+ * dispatch thread.
+ *
+ * @see LayoutAlgorithmAction
+ */
+public class LayoutService {
+    /**
+     * The number of layouts run at once by default for an algorithm with a random element,
+     * which is as many as there are processors, up to four.
+     */
+    public static final int DEFAULT_RESTARTS = Math.max(1, Math.min(4,
+            Runtime.getRuntime().availableProcessors()));
+    /**
+     * The least time in milliseconds between moves of the states while a layout goes.
+     */
+    private static final long FRAME_INTERVAL = 50;
+    /**
+     * The threads layouts are run on.
+     */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            DEFAULT_RESTARTS, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Layout");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    /**
+     * The layouts running, by automaton.  The hash of an automaton changes as its states
+     * move, so automata are told apart by identity.
+     */
+    private static final Map<Automaton, Job> JOBS = new IdentityHashMap<>();
+
+    /**
+     * Starts laying out an automaton, cancelling any layout of it still running.
+     *
+     * @param parent       the component over which a failure of the layout is reported.
+     * @param automaton    the automaton whose states will be moved.
+     * @param algorithm    a numerical identifier for the algorithm that will be used, from
+     *                     <code>LayoutAlgorithmFactory</code>.
+     * @param size         the size of the area the automaton is laid out in.
+     * @param vertexDim    the space a vertex is assumed to take.
+     * @param vertexBuffer the minimum space between vertices.
+     * @param restarts     the number of layouts to run at once if the algorithm has a random
+     *                     element.
+     * @return the layout started
+     */
+    public static Job layout(Component parent, Automaton automaton, int algorithm,
+                             Dimension size, Dimension vertexDim, double vertexBuffer,
+                             int restarts) {
+        cancel(automaton);
+        if (!isRandomized(algorithm))
+            restarts = 1;
+        Job job = new Job(parent, automaton, Math.max(1, restarts));
+        Random random = new Random();
+        for (int i = 0; i < job.graphs.length; i++) {
+            job.graphs[i] = LayoutAlgorithmFactory.getAutomatonGraph(algorithm, automaton);
+            job.layouts[i] = LayoutAlgorithmFactory.getLayoutAlgorithm(algorithm, size,
+                    vertexDim, vertexBuffer);
+            if (i > 0 && algorithm == LayoutAlgorithmFactory.GEM)
+                scatter(job.graphs[i], size, random);
+        }
+        job.layouts[0].setLayoutListener(job);
+        automaton.addStateListener(job);
+        automaton.addTransitionListener(job);
+        JOBS.put(automaton, job);
+        for (int i = 0; i < job.graphs.length; i++)
+            POOL.execute(job.new Restart(i));
+        return job;
+    }
+
+    /**
+     * Cancels the layout of an automaton, if one is running.  The states stay where the layout
+     * last moved them.
+     *
+     * @param automaton the automaton
+     */
+    public static void cancel(Automaton automaton) {
+        Job job = JOBS.remove(automaton);
+        if (job != null)
+            job.cancel();
+    }
+
+    /**
+     * Returns whether an algorithm gives different layouts when run again.
+     *
+     * @param algorithm the identifier of the algorithm
+     * @return true if several layouts with the algorithm may be compared
+     */
+    private static boolean isRandomized(int algorithm) {
+        return algorithm == LayoutAlgorithmFactory.GEM
+                || algorithm == LayoutAlgorithmFactory.RANDOM
+                || algorithm == LayoutAlgorithmFactory.RANDOM_CHOICE;
+    }
+
+    /**
+     * Moves the vertices of a graph to random points in an area.
+     *
+     * @param graph  the graph
+     * @param size   the area
+     * @param random the source of the points
+     */
+    private static void scatter(Graph graph, Dimension size, Random random) {
+        Object[] vertices = graph.vertices();
+        for (int i = 0; i < vertices.length; i++)
+            graph.moveVertex(vertices[i], new Point2D.Double(random.nextDouble()
+                    * size.getWidth(), random.nextDouble() * size.getHeight()));
+    }
+
+    /**
+     * A layout of an automaton, made of one or more layouts of graphs of it run at once.  The
+     * graphs are made when the layout starts, so the job listens to the automaton and is
+     * cancelled if a state or transition is added or removed.
+     */
+    public static class Job implements LayoutListener, AutomataStateListener,
+            AutomataTransitionListener {
+        /**
+         * The component over which a failure is reported.
+         */
+        private final Component parent;
+        /**
+         * The automaton laid out.
+         */
+        private final Automaton automaton;
+        /**
+         * The graphs laid out, one for each restart.
+         */
+        private final AutomatonGraph[] graphs;
+        /**
+         * The algorithms laying out the graphs.
+         */
+        private final LayoutAlgorithm[] layouts;
+        /**
+         * The number of edge crossings of each finished graph.
+         */
+        private final long[] crossings;
+        /**
+         * The error of each restart that failed, or <code>null</code>.
+         */
+        private final RuntimeException[] errors;
+        /**
+         * The number of restarts not finished.
+         */
+        private int running;
+        /**
+         * Whether the layout was cancelled.
+         */
+        private volatile boolean cancelled = false;
+        /**
+         * The time the states were last moved while the layout goes.
+         */
+        private long lastFrame = 0;
+        /**
+         * Whether a move of the states is waiting on the event dispatch thread.
+         */
+        private volatile boolean framePending = false;
+
+        Job(Component parent, Automaton automaton, int restarts) {
+            this.parent = parent;
+            this.automaton = automaton;
+            graphs = new AutomatonGraph[restarts];
+            layouts = new LayoutAlgorithm[restarts];
+            crossings = new long[restarts];
+            errors = new RuntimeException[restarts];
+            running = restarts;
+        }
+
+        /**
+         * Stops the layout.  The states are not moved again.
+         */
+        public void cancel() {
+            cancelled = true;
+            for (int i = 0; i < layouts.length; i++)
+                layouts[i].cancel();
+        }
+
+        /**
+         * Returns whether the layout was cancelled.
+         *
+         * @return true if the layout was cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Cancels the layout if a state is added or removed.
+         *
+         * @param event the event
+         */
+        public void automataStateChange(AutomataStateEvent event) {
+            if (event.isAdd() || event.isDelete())
+                LayoutService.cancel(automaton);
+        }
+
+        /**
+         * Cancels the layout if a transition is added or removed.
+         *
+         * @param event the event
+         */
+        public void automataTransitionChange(AutomataTransitionEvent event) {
+            if (event.isAdd() || event.isDelete())
+                LayoutService.cancel(automaton);
+        }
+
+        /**
+         * Copies the positions of the first restart so far and moves the states to them, if
+         * the states were not moved too recently.
+         *
+         * @param graph the graph being laid out
+         */
+        public void layoutProgress(Graph graph) {
+            long now = System.currentTimeMillis();
+            if (cancelled || framePending || now - lastFrame < FRAME_INTERVAL)
+                return;
+            lastFrame = now;
+            framePending = true;
+            final Object[] vertices = graph.vertices();
+            final Point[] points = new Point[vertices.length];
+            for (int i = 0; i < vertices.length; i++) {
+                Point2D point = graph.pointForVertex(vertices[i]);
+                points[i] = new Point((int) point.getX(), (int) point.getY());
+            }
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    framePending = false;
+                    if (cancelled)
+                        return;
+                    for (int i = 0; i < vertices.length; i++)
+                        ((State) vertices[i]).setPoint(points[i]);
+                }
+            });
+        }
+
+        /**
+         * Called on the event dispatch thread when every restart has finished, to move the
+         * states to the best layout.
+         */
+        private void finish() {
+            if (JOBS.get(automaton) == this)
+                JOBS.remove(automaton);
+            // The listeners are removed here rather than when cancelled, since a job may be
+            // cancelled from inside the automaton's loop over its listeners.
+            automaton.removeStateListener(this);
+            automaton.removeTransitionListener(this);
+            if (cancelled)
+                return;
+            int best = -1;
+            for (int i = 0; i < graphs.length; i++)
+                if (errors[i] == null && (best < 0 || crossings[i] < crossings[best]))
+                    best = i;
+            if (best < 0) {
+                String message = errors[0].getMessage() == null ? errors[0].toString()
+                        : errors[0].getMessage();
+                JOptionPane.showMessageDialog(parent, "Layout failed with error:\n" + message,
+                        "Layout failed", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            graphs[best].moveAutomatonStates();
+        }
+
+        /**
+         * One of the layouts of the job.
+         */
+        private class Restart implements Runnable {
+            /**
+             * The index of the restart.
+             */
+            private final int index;
+
+            Restart(int index) {
+                this.index = index;
+            }
+
+            public void run() {
+                try {
+                    if (!cancelled) {
+                        layouts[index].layout(graphs[index], null);
+                        if (graphs.length > 1 && !cancelled)
+                            crossings[index] = CrossingCounter.countCrossings(graphs[index]);
+                    }
+                } catch (RuntimeException e) {
+                    errors[index] = e;
+                }
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        if (--running == 0)
+                            finish();
+                    }
+                });
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package gui.action;
 import automata.Automaton;
 import automata.AutomatonSimulator;
 import automata.Configuration;
+import automata.CorpusSimulator;
 import automata.NondeterminismDetector;
 import automata.NondeterminismDetectorFactory;
 import automata.SimulatorFactory;
@@ -31,6 +32,7 @@ import automata.turing.TMSimulator;
 import automata.turing.TuringMachine;
 import grammar.Grammar;
 import gui.JTableExtender;
+import gui.ProgressWorker;
 import gui.SplitPaneFactory;
 import gui.TableTextSizeSlider;
 import gui.editor.ArrowDisplayOnlyTool;
@@ -351,6 +353,48 @@ public class MultipleSimulateAction extends NoInteractionSimulateAction {
             }
 
         });
+        // Run a corpus file too large for the table straight to a file.  Turing machines may ask
+        // questions as they run, so they are left to the table.
+        if (getObject() instanceof Automaton && !(getObject() instanceof TuringMachine)
+                && !((InputTableModel) table.getModel()).isMultiple) {
+            bar.add(new AbstractAction("Run Corpus") {
+                /**
+                 *
+                 */
+                private static final long serialVersionUID = 1L;
+
+                public void actionPerformed(ActionEvent e) {
+                    JFileChooser ourChooser = new JFileChooser(System.getProperties().getProperty("user.dir"));
+                    ourChooser.setDialogTitle("Choose file of inputs, one per line");
+                    if (ourChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION)
+                        return;
+                    final File corpus = ourChooser.getSelectedFile();
+                    ourChooser.setDialogTitle("Choose file to write results to");
+                    if (ourChooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION)
+                        return;
+                    final File results = ourChooser.getSelectedFile();
+                    final Component parent = (Component) e.getSource();
+                    // Simulators may ask questions, so create one here on the event thread.
+                    final AutomatonSimulator simulator = SimulatorFactory.getSimulator((Automaton) getObject());
+                    new ProgressWorker<Long>(parent, "Running Corpus") {
+                        protected Long work() throws IOException {
+                            final ProgressWorker<Long> worker = this;
+                            return CorpusSimulator.simulate(simulator, corpus, results,
+                                    new CorpusSimulator.Monitor() {
+                                        public boolean isCancelled() {
+                                            return worker.isCancelled();
+                                        }
+                                    });
+                        }
+
+                        protected void finish(Long count) {
+                            JOptionPane.showMessageDialog(parent, count + " inputs run, results written to "
+                                    + results.getName() + ".");
+                        }
+                    }.start();
+                }
+            });
+        }
         // Add the running input thing.
         bar.add(new AbstractAction("Run Inputs") {
             /**
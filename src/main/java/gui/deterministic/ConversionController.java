@@ -20,8 +20,6 @@ package gui.deterministic;
 import automata.Automaton;
 import automata.State;
 import automata.Transition;
-import automata.event.AutomataStateEvent;
-import automata.event.AutomataStateListener;
 import automata.fsa.FSATransition;
 import automata.fsa.FiniteStateAutomaton;
 import automata.fsa.NFAToDFA;
@@ -29,9 +27,11 @@ import automata.graph.Graph;
 import automata.graph.LayoutAlgorithm;
 import automata.graph.layout.GEMLayoutAlgorithm;
 import debug.EDebug;
+import gui.ProgressWorker;
 import gui.environment.FrameFactory;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -174,11 +174,6 @@ public class ConversionController {
         EDebug.print(inMap);
         EDebug.print(state);
 
-//        EDebug.print(setToState.size());
-//        EDebug.print(state.getLabel());
-        for (Object o : setToState.keySet())
-            EDebug.print(o.toString());
-
         if (inMap != null && inMap != state)
             throw new IllegalArgumentException("This set is in the DFA!");
         setToState.put(set, state);
@@ -298,29 +293,84 @@ public class ConversionController {
     }
 
     /**
-     * This method will expand all states in an automaton.
+     * This method will expand all states in an automaton. The expansion and
+     * the layout of the new states are done on copies of the DFA and graph
+     * in the background, and the new states and transitions are then added
+     * to the DFA all at once.
      */
     public void complete() {
-        final LinkedList<State> stateQueue = new LinkedList<>();
-        // Add all states to the state queue.
-        stateQueue.addAll(Arrays.asList(dfa.getStates()));
-        // When a state is added to the DFA, make sure we know about it.
-        AutomataStateListener listener = new AutomataStateListener() {
-            public void automataStateChange(AutomataStateEvent e) {
-                if (!e.isAdd())
-                    return;
-                // When the DFA gets a new state, add the state to
-                // the end of the queue.
-                stateQueue.addLast(e.getState());
+        final FiniteStateAutomaton work = (FiniteStateAutomaton) dfa.clone();
+        final Graph workGraph = new Graph();
+        Object[] vertices = graph.vertices();
+        for (int i = 0; i < vertices.length; i++)
+            workGraph.addVertex(vertices[i], graph.pointForVertex(vertices[i]));
+        for (int i = 0; i < vertices.length; i++) {
+            Iterator<Object> it = graph.adjacent(vertices[i]).iterator();
+            while (it.hasNext())
+                workGraph.addEdge(vertices[i], it.next());
+        }
+        final Set<Object> iso = new HashSet<Object>(setToState.keySet());
+        final int total = answer.getStates().length;
+
+        new ProgressWorker<FiniteStateAutomaton>(view, "Completing DFA") {
+            protected FiniteStateAutomaton work() {
+                LinkedList<State> stateQueue = new LinkedList<>(Arrays.asList(work.getStates()));
+                int expanded = 0;
+                while (stateQueue.size() != 0) {
+                    if (isCancelled())
+                        return null;
+                    stateQueue.addAll(converter.expandState(stateQueue.removeFirst(), nfa, work));
+                    report(++expanded, total);
+                }
+                // Lay out all the new states together.
+                layout.layout(workGraph, iso);
+                return work;
             }
-        };
-        dfa.addStateListener(listener);
 
-        while (stateQueue.size() != 0)
-            expandState(stateQueue.removeFirst());
+            protected void finish(FiniteStateAutomaton result) {
+                addExpansion(result, workGraph);
+            }
+        }.start();
+    }
 
-        // Remove the state listener.
-        dfa.removeStateListener(listener);
+    /**
+     * Adds the states and transitions of a completed copy of the DFA that
+     * are not yet in the DFA. States are matched by their IDs, which the copy
+     * shares with the DFA, and new states are placed where the copy's graph
+     * laid them out.
+     *
+     * @param completed the completed copy of the DFA
+     * @param laidOut   the graph holding the layout for the new states
+     */
+    private void addExpansion(FiniteStateAutomaton completed, Graph laidOut) {
+        Map<Integer, State> idToState = new HashMap<>();
+        State[] existing = dfa.getStates();
+        for (int i = 0; i < existing.length; i++)
+            idToState.put(existing[i].getID(), existing[i]);
+        State[] states = completed.getStates();
+        for (int i = 0; i < states.length; i++) {
+            if (idToState.containsKey(states[i].getID()))
+                continue;
+            State state = dfa.createStateWithId(new Point(), states[i].getID());
+            idToState.put(state.getID(), state);
+            state.setLabel(states[i].getLabel());
+            if (completed.isFinalState(states[i]))
+                dfa.addFinalState(state);
+            registerState(state);
+            Set<State> set = stateToSet.get(state);
+            Point2D point = laidOut.pointForVertex(set);
+            if (point != null) {
+                graph.moveVertex(set, point);
+                state.getPoint().setLocation(point);
+                state.setPoint(state.getPoint());
+            }
+        }
+        Transition[] transitions = completed.getTransitions();
+        for (int i = 0; i < transitions.length; i++) {
+            FSATransition t = (FSATransition) transitions[i];
+            dfa.addTransition(new FSATransition(idToState.get(t.getFromState()
+                    .getID()), idToState.get(t.getToState().getID()), t.getLabel()));
+        }
     }
 
     /**
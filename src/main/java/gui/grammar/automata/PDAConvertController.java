@@ -90,19 +90,11 @@ public class PDAConvertController extends ConvertController {
      * Returns the grammar that's the result of this conversion.
      *
      * @return the grammar that's the result of this conversion
-     * @throws GrammarCreationException if there are not enough variables to uniquely identify every
-     *                                  variable here
      */
     protected Grammar getGrammar() {
         int oldNumProductions = getModel().getProductions().length;
         converter.purgeProductions(getAutomaton(), getModel());
-        if (oldNumProductions != getModel().getProductions().length && converter.numberVariables() > 26)
-            throw new GrammarCreationException(
-                    "Your list of rules has been trimmed, but there are still more variables than " +
-                            "can be uniquely represented.");
-        else if (converter.numberVariables() > 26)
-            throw new GrammarCreationException("There are more variables than can be uniquely represented.");
-        else if (oldNumProductions != getModel().getProductions().length)
+        if (oldNumProductions != getModel().getProductions().length)
             javax.swing.JOptionPane.showMessageDialog(null, "Your list of rules has been trimmed.");
 
         int rows = getModel().getRowCount();
@@ -192,15 +192,19 @@ class LLParseController {
                     highlight(top, read);
                     // Now the derivation table garbage.
                     String rule = (new Production(top, ENTRY)).toString();
-                    int first = derivationString.indexOf(top.charAt(0));
+                    // The variable replaced is the leftmost, the first symbol equal to it.
+                    int first = 0;
+                    while (!derivationString.startsWith(top, first)
+                            || SymbolTable.symbolLength(derivationString, first) != top.length())
+                        first += SymbolTable.symbolLength(derivationString, first);
                     derivationString = derivationString.substring(0, first) + ENTRY
-                            + derivationString.substring(first + 1);
+                            + derivationString.substring(first + top.length());
                     pane.derivationModel.addRow(new String[]{rule,
                             derivationString});
                     // What? About? Lambda?
                     if (ENTRY.length() == 0)
                         ENTRY = Universe.curProfile.getEmptyString();
-                    ENTRYP = ENTRY.length() - 1;
+                    ENTRYP = SymbolTable.count(ENTRY) - 1;
                     pane.statusDisplay.setText("Replacing " + top + " with "
                             + ENTRY + ".");
 
@@ -344,9 +348,10 @@ class LLParseController {
                         node.insert(child, 0);
                         nodes.add(child);
                     } else {
-                        for (int i = entry.length() - 1; i >= 0; i--) {
+                        String[] symbols = SymbolTable.split(entry);
+                        for (int i = symbols.length - 1; i >= 0; i--) {
                             MutableTreeNode child = new DefaultMutableTreeNode(
-                                    entry.substring(i, i + 1));
+                                    symbols[i]);
                             node.insert(child, 0);
                             stack.push(child);
                             nodes.add(child);
@@ -181,7 +181,7 @@ class LRParseController {
                 }
                 // Past lambda case.
                 String popped = "";
-                for (int i = 0; i < red.getRHS().length(); i++) {
+                for (int i = 0; i < SymbolTable.count(red.getRHS()); i++) {
                     STACK.pop(); // Pops the state.
                     popped = STACK.pop() + popped; // Pops the symbol.
                 }
@@ -299,7 +299,7 @@ class LRParseController {
                 Production red = productions[prodNumber];
                 DefaultMutableTreeNode node = new DefaultMutableTreeNode(red
                         .getLHS());
-                for (int i = 0; i < red.getRHS().length(); i++) {
+                for (int i = 0; i < SymbolTable.count(red.getRHS()); i++) {
                     stack.pop(); // Pops the state.
                     MutableTreeNode c = (MutableTreeNode) stack.pop();
                     node.insert(c, 0);
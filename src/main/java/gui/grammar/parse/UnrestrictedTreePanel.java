@@ -183,12 +183,12 @@ public class UnrestrictedTreePanel extends TreePanel {
                 UnrestrictedTreeNode[] b = currentBottom
                         .toArray(U);
                 i--;
-                for (int j = 0; j < rhs.length(); j++) {
-                    UnrestrictedTreeNode node = new UnrestrictedTreeNode(""
-                            + rhs.charAt(j));
+                String[] symbols = SymbolTable.split(rhs);
+                for (int j = 0; j < symbols.length; j++) {
+                    UnrestrictedTreeNode node = new UnrestrictedTreeNode(symbols[j]);
                     node.highest = node.lowest = level;
                     currentTop.add(node);
-                    if (j == rhs.length() - 1)
+                    if (j == symbols.length - 1)
                         nodeToParentGroup.put(node, b);
                 }
 
@@ -555,8 +555,8 @@ public class UnrestrictedTreePanel extends TreePanel {
             derivation = getDerivation(level, production);
         }
         if (myVariableMap != null) {
-            String[] lhs = p.toString().split("");
-            String[] rhs = derivation.split("");
+            String[] lhs = SymbolTable.split(p.toString());
+            String[] rhs = SymbolTable.split(derivation);
             String new_lhs = "";
             String new_rhs = "";
             for (int i = 0; i < lhs.length; i++) {
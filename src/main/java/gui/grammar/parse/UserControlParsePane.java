@@ -18,6 +18,7 @@
 package gui.grammar.parse;
 
 import grammar.Grammar;
+import grammar.SymbolTable;
 import grammar.parse.ParseNode;
 import grammar.parse.UserParser;
 import gui.SplitPaneFactory;
@@ -294,7 +295,7 @@ public class UserControlParsePane extends BruteParsePane {
         // controller.step();
         int count = myParser.checkValidAndParse(grammarTable.getSelectedRow());
         String lhs = myParser.getLHSForProduction(grammarTable.getSelectedRow());
-        int length = lhs.length();
+        int length = SymbolTable.count(lhs);
         int index = -1;
         if (count > 0) {
             if (count > 1) {
@@ -389,8 +390,9 @@ public class UserControlParsePane extends BruteParsePane {
      */
     private void addAnswerToList(String answer) {
         myJListModel.removeAllElements();
-        for (int i = 0; i < answer.length(); i++) {
-            myJListModel.addElement(answer.substring(i, i + 1));
+        String[] symbols = SymbolTable.split(answer);
+        for (int i = 0; i < symbols.length; i++) {
+            myJListModel.addElement(symbols[i]);
         }
     }
 
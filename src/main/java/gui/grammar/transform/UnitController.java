@@ -146,7 +146,7 @@ public class UnitController {
                 }
                 // Get the desired productions.
                 Grammar desiredGrammar = remover.getUnitProductionlessGrammar(
-                        grammar, vdg);
+                        grammar);
                 p = desiredGrammar.getProductions();
                 Collections.addAll(desiredProductions, p);
                 updateDisplay();
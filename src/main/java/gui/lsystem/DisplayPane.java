@@ -20,6 +20,7 @@ package gui.lsystem;
 import grammar.lsystem.Expander;
 import grammar.lsystem.LSystem;
 import gui.ImageDisplayComponent;
+import gui.environment.Universe;
 import gui.transform.Matrix;
 import java.awt.BorderLayout;
 import java.awt.Graphics;
@@ -28,17 +29,29 @@ import java.awt.Image;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -89,6 +102,15 @@ public class DisplayPane extends JPanel {
      * The current expander.
      */
     private Expander expander = null;
+    /**
+     * The drawing last displayed, which is printed without moving the turtle
+     * again, or <CODE>null</CODE> if it is not drawn yet.
+     */
+    private volatile Geometry geometry = null;
+    /**
+     * The drawing being made, or <CODE>null</CODE> before the first.
+     */
+    private Drawer drawer = null;
 
     /**
      * Implements a display pane.
@@ -135,6 +157,7 @@ public class DisplayPane extends JPanel {
         bottomPanel.add(s2);
         bottomPanel.add(new JLabel("Yaw"));
         bottomPanel.add(s3);
+        bottomPanel.add(new JButton(saveAction));
         //bottomPanel.setBackground(Color.WHITE);
         JScrollPane scroller = new JScrollPane(imageDisplay);
         add(scroller, BorderLayout.CENTER);
@@ -144,55 +167,145 @@ public class DisplayPane extends JPanel {
     }
 
     /**
-     * Updates the display.Graphics2D;
+     * Updates the display. The drawing is made by a worker in the
+     * background; a drawing still being made for an earlier update is
+     * cancelled, and what it made is dropped.
      */
     private void updateDisplay() {
-        int recursionDepth = spinnerModel.getNumber().intValue();
-        final List<String> expansion = expander.expansionForLevel(recursionDepth);
-        progressBar.setMaximum(expansion.size() * 2);
+        if (drawer != null)
+            drawer.stop();
         imageDisplay.setImage(null);
-        Image renderImage = null;
-
-        final javax.swing.Timer t = new javax.swing.Timer(30,
-                new ActionListener() {
-                    public void actionPerformed(ActionEvent e) {
-                        int i = renderer.getDoneSymbols() - 1;
-                        progressBar.setValue(i);
-                        progressBar.repaint();
-                    }
-                });
+        geometry = null;
+        Matrix m = new Matrix();
+        double pitch = pitchModel.getNumber().doubleValue(), roll = rollModel
+                .getNumber().doubleValue(), yaw = yawModel.getNumber()
+                .doubleValue();
+        m.pitch(pitch);
+        m.roll(roll);
+        m.yaw(yaw);
+        drawer = new Drawer(spinnerModel.getNumber().intValue(),
+                lsystem.getValues(), m);
+        drawer.execute();
+    }
 
-        final Thread drawThread = new Thread() {
-            public void run() {
-                if (expansion.size() < 70) {
-                    String expansionString = LSystemInputPane
-                            .listAsString(expansion);
-                    expansionDisplay.setText(expansionString);
-                } else
-                    expansionDisplay.setText("Suffice to say, quite long.");
-                // Now, set the display.
-                Map<Object, Object> parameters = lsystem.getValues();
-
-                t.start();
-                Matrix m = new Matrix();
-                double pitch = pitchModel.getNumber().doubleValue(), roll = rollModel
-                        .getNumber().doubleValue(), yaw = yawModel.getNumber()
-                        .doubleValue();
-                m.pitch(pitch);
-                m.roll(roll);
-                m.yaw(yaw);
-                Point origin = new Point(); // Ignored, for now.
-                Image image = renderer.render(expansion, parameters, m, null,
-                        origin);
-                imageDisplay.setImage(image);
-                t.stop();
-                imageDisplay.repaint();
-                imageDisplay.revalidate();
-                progressBar.setValue(progressBar.getMaximum());
+    /**
+     * A drawer makes the image of a level of the L-system in the background,
+     * with its own renderer, and shows it when it is done unless it was
+     * stopped first.
+     */
+    private class Drawer extends SwingWorker<Image, Long> {
+        /**
+         * The renderer of this drawing.
+         */
+        private final Renderer renderer = new Renderer();
+        /**
+         * The level of recursion drawn.
+         */
+        private final int level;
+        /**
+         * The parameters of the L-system.
+         */
+        private final Map<Object, Object> parameters;
+        /**
+         * The initial transform of the turtle.
+         */
+        private final Matrix matrix;
+        /**
+         * The timer that shows the progress of the renderer.
+         */
+        private final javax.swing.Timer timer;
+        /**
+         * The expansion as a string, or a note that it is too long to show.
+         */
+        private volatile String expansionString;
+        /**
+         * The drawing, once it is traced.
+         */
+        private volatile Geometry traced;
+
+        /**
+         * Instantiates a drawer, and starts showing its progress.
+         *
+         * @param level      the level of recursion to draw
+         * @param parameters the parameters of the L-system
+         * @param matrix     the initial transform of the turtle
+         */
+        Drawer(int level, Map<Object, Object> parameters, Matrix matrix) {
+            this.level = level;
+            this.parameters = parameters;
+            this.matrix = matrix;
+            timer = new javax.swing.Timer(30, new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    int i = renderer.getDoneSymbols() - 1;
+                    progressBar.setValue(i);
+                    progressBar.repaint();
+                }
+            });
+            timer.start();
+        }
+
+        /**
+         * Stops the drawing. Nothing it made is shown.
+         */
+        void stop() {
+            cancel(false);
+            renderer.cancel();
+            timer.stop();
+        }
+
+        protected Image doInBackground() {
+            // The size may take as long to find as the symbols.
+            long size = expander.sizeForLevel(level);
+            if (size < 70) {
+                List<String> symbols = new ArrayList<>();
+                for (String symbol : expander.streamForLevel(level))
+                    symbols.add(symbol);
+                expansionString = LSystemInputPane.listAsString(symbols);
+            } else
+                expansionString = "Suffice to say, quite long.";
+            publish(size);
+            if (isCancelled())
+                return null;
+            traced = renderer.trace(expander, level, parameters, matrix);
+            if (isCancelled())
+                return null;
+            return new TiledRasterizer(traced, 1.0).toImage();
+        }
+
+        protected void process(List<Long> sizes) {
+            if (isCancelled())
+                return;
+            progressBar.setMaximum((int) Math.min(sizes.get(0),
+                    Integer.MAX_VALUE));
+            expansionDisplay.setText(expansionString);
+        }
+
+        protected void done() {
+            timer.stop();
+            if (isCancelled())
+                return;
+            Image image;
+            try {
+                image = get();
+            } catch (InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                JOptionPane.showMessageDialog(DisplayPane.this,
+                        "Drawing failed with error:\n" + (cause.getMessage()
+                                == null ? cause.toString() : cause.getMessage()),
+                        "Drawing failed", JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        };
-        drawThread.start();
-    }    /**
+            geometry = traced;
+            imageDisplay.setImage(image);
+            imageDisplay.repaint();
+            imageDisplay.revalidate();
+            progressBar.setValue(progressBar.getMaximum());
+        }
+    }
+
+    /**
      * The action for redisplaying.
      */
     private final Action displayAction = new AbstractAction("Redisplay") {
@@ -207,14 +320,97 @@ public class DisplayPane extends JPanel {
         }
     };
 
+    /**
+     * The action for saving the displayed L-system as a PNG image.
+     */
+    private final Action saveAction = new AbstractAction("Save Image...") {
+        /**
+         *
+         */
+        private static final long serialVersionUID = 1L;
+
+        public void actionPerformed(ActionEvent e) {
+            saveImage();
+        }
+    };
+
+    /**
+     * Saves the displayed L-system as a PNG image, at a scale the user
+     * chooses. The image is written a row of tiles at a time, so it may be
+     * much larger than the display.
+     */
+    private void saveImage() {
+        final Geometry traced = geometry;
+        if (traced == null)
+            return;
+        String answer = JOptionPane.showInputDialog(this,
+                "Scale of the image:", "2");
+        if (answer == null)
+            return;
+        final double scale;
+        try {
+            scale = Double.parseDouble(answer);
+            if (!(scale > 0.0))
+                throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "The scale must be a "
+                    + "positive number.", "Bad Scale", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        File chosen = null;
+        int result = Universe.CHOOSER.showSaveDialog(this);
+        while (result == JFileChooser.APPROVE_OPTION) {
+            chosen = Universe.CHOOSER.getSelectedFile();
+            if (!chosen.getName().toLowerCase().endsWith(".png"))
+                chosen = new File(chosen.getAbsolutePath() + ".png");
+            if (!chosen.exists())
+                break;
+            int confirm = JOptionPane.showConfirmDialog(Universe.CHOOSER,
+                    "File exists. Shall I overwrite?", "FILE OVERWRITE ATTEMPTED",
+                    JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION)
+                break;
+            result = Universe.CHOOSER.showSaveDialog(this);
+        }
+        if (result != JFileChooser.APPROVE_OPTION)
+            return;
+        final File file = chosen;
+        new Thread() {
+            public void run() {
+                try {
+                    OutputStream out = new BufferedOutputStream(
+                            new FileOutputStream(file));
+                    try {
+                        new TiledRasterizer(traced, scale).writePNG(out);
+                    } finally {
+                        out.close();
+                    }
+                } catch (final IOException e) {
+                    // Dialogs belong on the event dispatch thread.
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            JOptionPane.showMessageDialog(DisplayPane.this,
+                                    "Save failed with error:\n" + e.getMessage(),
+                                    "Save failed", JOptionPane.ERROR_MESSAGE);
+                        }
+                    });
+                }
+            }
+        }.start();
+    }
+
     /**
      * Prints the current displayed L-system.
      *
      * @param g the graphics interface for the printer device
      */
     public void printComponent(Graphics g) {
+        Geometry traced = geometry;
+        if (traced != null) {
+            renderer.rasterize(traced, (Graphics2D) g, new Point());
+            return;
+        }
         int recursionDepth = spinnerModel.getNumber().intValue();
-        List<String> expansion = expander.expansionForLevel(recursionDepth);
         // Now, set the display.
         Map<Object, Object> parameters = lsystem.getValues();
         Matrix m = new Matrix();
@@ -224,7 +420,8 @@ public class DisplayPane extends JPanel {
         m.pitch(pitch);
         m.roll(roll);
         m.yaw(yaw);
-        renderer.render(expansion, parameters, m, (Graphics2D) g, new Point());
+        renderer.render(expander, recursionDepth, parameters, m,
+                (Graphics2D) g, new Point());
     }
 
     /**
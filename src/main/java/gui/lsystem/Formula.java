@@ -0,0 +1,281 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package gui.lsystem;
+
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Stack;
+
+/**
+ * A <CODE>Formula</CODE> is a mathematical expression of the parameters of
+ * a turtle, parsed once into a tree so that it may be evaluated many times
+ * without reading the string again. The parsing follows the rules the turtle
+ * has always used: numbers and parameter names next to each other are added,
+ * a parameter with no value is zero, and <CODE>^</CODE> binds tighter than
+ * <CODE>*</CODE> and <CODE>/</CODE>, which bind tighter than <CODE>+</CODE>
+ * and <CODE>-</CODE>. Parts of the formula without parameters are computed
+ * when it is parsed.
+ *
+ * @see Turtle#valueOf(Formula)
+ */
+
+abstract class Formula {
+    /**
+     * The value of a parameter with no value.
+     */
+    private static final Number ZERO = new Integer(0);
+
+    /**
+     * Parses a mathematical expression. An expression that cannot be parsed,
+     * because an operator is unknown or missing an operand, gives a formula
+     * that throws the error when it is evaluated.
+     *
+     * @param string the mathematical expression
+     * @return the formula of the expression
+     */
+    public static Formula compile(String string) {
+        string = string.replaceAll("-", " -");
+        StringReader reader = new StringReader(string);
+        StreamTokenizer st = new StreamTokenizer(reader);
+        st.ordinaryChar('/');
+        ArrayList<Object> list = new ArrayList<>();
+        boolean number = false;
+        Character plus = new Character('+');
+
+        try {
+            while (st.nextToken() != StreamTokenizer.TT_EOF) {
+                switch (st.ttype) {
+                    case StreamTokenizer.TT_WORD:
+                        if (number)
+                            list.add(plus);
+                        number = true;
+                        list.add(new Parameter(st.sval));
+                        break;
+                    case StreamTokenizer.TT_NUMBER:
+                        if (number)
+                            list.add(plus);
+                        number = true;
+                        list.add(new Constant(new Double(st.nval)));
+                        break;
+                    case StreamTokenizer.TT_EOL:
+                        break;
+                    default:
+                        number = false;
+                        list.add(new Character((char) st.ttype));
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            return new Constant(new Double(Double.NaN));
+        }
+        try {
+            return compile(list.iterator());
+        } catch (RuntimeException e) {
+            return new Failure(e);
+        }
+    }
+
+    /**
+     * The recursive helper function for the <CODE>compile</CODE> function,
+     * which reads up to the closing parenthesis or the end.
+     *
+     * @param it the iterator through operators and formulas
+     * @return the formula read
+     */
+    private static Formula compile(Iterator<Object> it) {
+        Stack<Formula> values = new Stack<>();
+        Stack<Character> operators = new Stack<>();
+        values.push(new Constant(new Double(0.0)));
+
+        while (it.hasNext()) {
+            Object o = it.next();
+            if (o instanceof Formula) {
+                values.push((Formula) o);
+                continue;
+            }
+            Character character = (Character) o;
+            char c = character.charValue();
+            if (c == ')')
+                break;
+            if (c == '(') {
+                values.push(compile(it));
+                continue;
+            }
+            while (!operators.isEmpty()) {
+                boolean toCollapse = false;
+                char last = operators.peek().charValue();
+                switch (c) {
+                    case '+':
+                    case '-':
+                        if (last == '-' || last == '+')
+                            toCollapse = true;
+                    case '*':
+                    case '/':
+                        if (last == '*' || last == '/')
+                            toCollapse = true;
+                    case '^':
+                        if (last == '^')
+                            toCollapse = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Bad operator " + c);
+                }
+                if (!toCollapse)
+                    break;
+                Formula b = values.pop(), a = values.pop();
+                operators.pop();
+                values.push(operation(last, a, b));
+            }
+            operators.push(character);
+        }
+        while (!operators.isEmpty()) {
+            char last = operators.pop().charValue();
+            Formula b = values.pop(), a = values.pop();
+            values.push(operation(last, a, b));
+        }
+        return values.pop();
+    }
+
+    /**
+     * Returns the formula for an operator on two formulas, computing it now
+     * if neither has parameters.
+     *
+     * @param operator the operator
+     * @param a        the left operand
+     * @param b        the right operand
+     * @return the formula of the operation
+     */
+    private static Formula operation(char operator, Formula a, Formula b) {
+        Formula formula = new Operation(operator, a, b);
+        if (a instanceof Constant && b instanceof Constant)
+            return new Constant(formula.evaluate(null));
+        return formula;
+    }
+
+    /**
+     * Evaluates this formula.
+     *
+     * @param values the map of parameter names to numbers
+     * @return the value of the formula
+     */
+    public abstract Number evaluate(Map<Object, Object> values);
+
+    /**
+     * A number.
+     */
+    private static class Constant extends Formula {
+        /**
+         * The number.
+         */
+        private final Number myValue;
+
+        Constant(Number value) {
+            myValue = value;
+        }
+
+        public Number evaluate(Map<Object, Object> values) {
+            return myValue;
+        }
+    }
+
+    /**
+     * An expression that could not be parsed.
+     */
+    private static class Failure extends Formula {
+        /**
+         * The error in parsing.
+         */
+        private final RuntimeException myError;
+
+        Failure(RuntimeException error) {
+            myError = error;
+        }
+
+        public Number evaluate(Map<Object, Object> values) {
+            throw myError;
+        }
+    }
+
+    /**
+     * The value of a parameter.
+     */
+    private static class Parameter extends Formula {
+        /**
+         * The name of the parameter.
+         */
+        private final String myName;
+
+        Parameter(String name) {
+            myName = name;
+        }
+
+        public Number evaluate(Map<Object, Object> values) {
+            Number n = (Number) values.get(myName);
+            return n == null ? ZERO : n;
+        }
+    }
+
+    /**
+     * An operator on two formulas.
+     */
+    private static class Operation extends Formula {
+        /**
+         * The operator.
+         */
+        private final char myOperator;
+        /**
+         * The operands.
+         */
+        private final Formula myLeft, myRight;
+
+        Operation(char operator, Formula left, Formula right) {
+            myOperator = operator;
+            myLeft = left;
+            myRight = right;
+        }
+
+        public Number evaluate(Map<Object, Object> values) {
+            double a = myLeft.evaluate(values).doubleValue();
+            double b = myRight.evaluate(values).doubleValue();
+            switch (myOperator) {
+                case '^':
+                    a = Math.pow(a, b);
+                    break;
+                case '*':
+                    a *= b;
+                    break;
+                case '/':
+                    a /= b;
+                    break;
+                case '+':
+                    a += b;
+                    break;
+                case '-':
+                    a -= b;
+                    break;
+                default:
+                    // An unknown operator leaves the left operand.
+            }
+            return new Double(a);
+        }
+    }
+}
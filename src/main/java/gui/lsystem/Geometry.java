@@ -0,0 +1,361 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package gui.lsystem;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Stroke;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * A <CODE>Geometry</CODE> is the drawing of an L-system recorded by a
+ * {@link Renderer} as the turtle moves, so that it may be drawn again at any
+ * scale without moving the turtle again. The drawing is a list of paths, each
+ * either stroked or filled, with the color and line width it is drawn with;
+ * the points of all the paths are kept together in one array of floats.
+ *
+ * @see Renderer#trace
+ * @see Renderer#rasterize
+ */
+
+public class Geometry {
+    /**
+     * The kinds of path.
+     */
+    private static final byte STROKE = 0, FILL = 1;
+    /**
+     * The coordinates of the points, two floats for each point.
+     */
+    private float[] coordinates = new float[64];
+    /**
+     * For each point, if a path segment starts at it rather than a line
+     * leading to it.
+     */
+    private boolean[] moves = new boolean[32];
+    /**
+     * The number of points.
+     */
+    private int points = 0;
+    /**
+     * For each path, the index of its first point.
+     */
+    private int[] starts = new int[16];
+    /**
+     * For each path, if it is stroked or filled.
+     */
+    private byte[] kinds = new byte[16];
+    /**
+     * For each path, the RGB value of its color.
+     */
+    private int[] colors = new int[16];
+    /**
+     * For each path, the width of its lines, or NaN if the lines are drawn
+     * with the stroke of the graphics.
+     */
+    private float[] widths = new float[16];
+    /**
+     * The number of paths.
+     */
+    private int paths = 0;
+    /**
+     * The color paths are being drawn with.
+     */
+    private Color color = Color.black;
+    /**
+     * The width lines are being drawn with.
+     */
+    private float width = Float.NaN;
+    /**
+     * The bounds of the turtle's travels.
+     */
+    private Rectangle2D bounds = new Rectangle2D.Double();
+
+    /**
+     * Instantiates an empty geometry.
+     */
+    Geometry() {
+    }
+
+    /**
+     * Sets the color later paths are drawn with.
+     *
+     * @param color the color
+     */
+    void setColor(Color color) {
+        this.color = color;
+    }
+
+    /**
+     * Sets the stroke later paths are drawn with. The turtle only makes basic
+     * strokes, which differ only in their width.
+     *
+     * @param stroke the stroke
+     */
+    void setStroke(Stroke stroke) {
+        width = ((BasicStroke) stroke).getLineWidth();
+    }
+
+    /**
+     * Records the stroking of a path. A path with no lines is not recorded,
+     * since stroking it draws nothing.
+     *
+     * @param path the path, which is copied
+     */
+    void draw(GeneralPath path) {
+        add(path, STROKE);
+    }
+
+    /**
+     * Records the filling of a path.
+     *
+     * @param path the path, which is copied
+     */
+    void fill(GeneralPath path) {
+        add(path, FILL);
+    }
+
+    /**
+     * Sets the bounds of the drawing.
+     *
+     * @param bounds the bounds of the turtle's travels
+     */
+    void setBounds(Rectangle2D bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Returns the bounds of the drawing, that is, of the places the turtle
+     * has been, without the widths of the lines.
+     *
+     * @return the bounds of the drawing
+     */
+    public Rectangle2D getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Returns the number of recorded paths.
+     *
+     * @return the number of paths
+     */
+    public int getPathCount() {
+        return paths;
+    }
+
+    /**
+     * Records a path.
+     *
+     * @param path the path
+     * @param kind the kind of path
+     */
+    private void add(GeneralPath path, byte kind) {
+        int start = points;
+        boolean lines = false;
+        float[] segment = new float[6];
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it
+                .next()) {
+            int type = it.currentSegment(segment);
+            if (type == PathIterator.SEG_CLOSE)
+                continue;
+            lines |= type == PathIterator.SEG_LINETO;
+            addPoint(segment[0], segment[1], type == PathIterator.SEG_MOVETO);
+        }
+        if (kind == STROKE && !lines) {
+            points = start;
+            return;
+        }
+        if (paths == starts.length) {
+            int length = paths * 2;
+            starts = Arrays.copyOf(starts, length);
+            kinds = Arrays.copyOf(kinds, length);
+            colors = Arrays.copyOf(colors, length);
+            widths = Arrays.copyOf(widths, length);
+        }
+        starts[paths] = start;
+        kinds[paths] = kind;
+        colors[paths] = color.getRGB();
+        widths[paths] = width;
+        paths++;
+    }
+
+    /**
+     * Records a point of the path being added.
+     *
+     * @param x    the x coordinate
+     * @param y    the y coordinate
+     * @param move if a segment starts at the point
+     */
+    private void addPoint(float x, float y, boolean move) {
+        if (points == moves.length) {
+            moves = Arrays.copyOf(moves, points * 2);
+            coordinates = Arrays.copyOf(coordinates, points * 4);
+        }
+        coordinates[2 * points] = x;
+        coordinates[2 * points + 1] = y;
+        moves[points++] = move;
+    }
+
+    /**
+     * Returns the index of the first point of a path.
+     *
+     * @param path the path
+     * @return the index of its first point
+     */
+    int getStart(int path) {
+        return starts[path];
+    }
+
+    /**
+     * Returns the index after the last point of a path.
+     *
+     * @param path the path
+     * @return the index after its last point
+     */
+    int getEnd(int path) {
+        return path + 1 == paths ? points : starts[path + 1];
+    }
+
+    /**
+     * Returns if a path is filled rather than stroked.
+     *
+     * @param path the path
+     * @return <CODE>true</CODE> if the path is filled
+     */
+    boolean isFilled(int path) {
+        return kinds[path] == FILL;
+    }
+
+    /**
+     * Returns the width of the lines of a path.
+     *
+     * @param path the path
+     * @return the width, or NaN if the stroke of the graphics is used
+     */
+    float getLineWidth(int path) {
+        return widths[path];
+    }
+
+    /**
+     * Returns if a segment starts at a point.
+     *
+     * @param point the index of the point
+     * @return <CODE>true</CODE> if the point is moved to
+     */
+    boolean isMove(int point) {
+        return moves[point];
+    }
+
+    /**
+     * Returns the x coordinate of a point.
+     *
+     * @param point the index of the point
+     * @return the x coordinate
+     */
+    float getX(int point) {
+        return coordinates[2 * point];
+    }
+
+    /**
+     * Returns the y coordinate of a point.
+     *
+     * @param point the index of the point
+     * @return the y coordinate
+     */
+    float getY(int point) {
+        return coordinates[2 * point + 1];
+    }
+
+    /**
+     * Draws the recorded paths, in order, to a graphics object whose
+     * transform has already been set.
+     *
+     * @param g the graphics object to draw to
+     */
+    public void draw(Graphics2D g) {
+        Stroke original = g.getStroke();
+        GeneralPath path = new GeneralPath();
+        for (int i = 0; i < paths; i++)
+            draw(g, original, i, getStart(i), getEnd(i), path);
+    }
+
+    /**
+     * Draws some of the points of a path, with the color and stroke of the
+     * path. The first point is moved to, so a stroked path may be drawn in
+     * pieces that share their end points.
+     *
+     * @param g        the graphics object to draw to
+     * @param original the stroke of the graphics before any path was drawn
+     * @param path     the path
+     * @param from     the index of the first point to draw
+     * @param to       the index after the last point to draw
+     * @param shape    a path to reuse for the drawing
+     */
+    void draw(Graphics2D g, Stroke original, int path, int from, int to,
+              GeneralPath shape) {
+        shape.reset();
+        append(shape, from, to, false);
+        draw(g, original, path, shape);
+    }
+
+    /**
+     * Adds some points of a path to a shape. The first point is moved to,
+     * unless the points continue the line of points already added, in which
+     * case it is the last point added and is skipped, so that the join there
+     * is drawn as it is in the whole path.
+     *
+     * @param shape     the shape to add to
+     * @param from      the index of the first point to add
+     * @param to        the index after the last point to add
+     * @param continues if the first point ends the points already added
+     */
+    void append(GeneralPath shape, int from, int to, boolean continues) {
+        for (int p = continues ? from + 1 : from; p < to; p++) {
+            float x = coordinates[2 * p], y = coordinates[2 * p + 1];
+            if (p == from || moves[p])
+                shape.moveTo(x, y);
+            else
+                shape.lineTo(x, y);
+        }
+    }
+
+    /**
+     * Draws a shape made of points of a path, with the color and stroke of
+     * the path.
+     *
+     * @param g        the graphics object to draw to
+     * @param original the stroke of the graphics before any path was drawn
+     * @param path     the path
+     * @param shape    the shape
+     */
+    void draw(Graphics2D g, Stroke original, int path, GeneralPath shape) {
+        if (g.getColor().getRGB() != colors[path])
+            g.setColor(new Color(colors[path], true));
+        Stroke stroke = Float.isNaN(widths[path]) ? original
+                : new BasicStroke(widths[path]);
+        if (!stroke.equals(g.getStroke()))
+            g.setStroke(stroke);
+        if (kinds[path] == FILL)
+            g.fill(shape);
+        else
+            g.draw(shape);
+    }
+}
@@ -17,6 +17,7 @@
 
 package gui.lsystem;
 
+import grammar.lsystem.Expander;
 import gui.transform.Matrix;
 import java.awt.Graphics2D;
 import java.awt.Image;
@@ -31,9 +32,9 @@ import java.util.EmptyStackException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeSet;
@@ -44,6 +45,10 @@ import java.util.TreeSet;
  * <p>
  * <p>
  * The following symbols have significance:
+ * <p>
+ * Each distinct symbol is read once into a command, which keeps its handler
+ * and any argument parsed as a {@link Formula}, so that the symbols of a
+ * rendering, which repeat many times, are not split and parsed again.
  *
  * @author Thomas Finley
  * @see grammar.lsystem.Expander
@@ -77,6 +82,10 @@ public class Renderer {
      * The command handler maps from symbols to the appropriate handler.
      */
     private final Map<String, CommandHandler> handlers = new HashMap<>();
+    /**
+     * The commands read from symbols so far, by symbol.
+     */
+    private final Map<String, Command> commands = new HashMap<>();
     /**
      * The stack of turtles.
      */
@@ -85,21 +94,15 @@ public class Renderer {
      * Lines paths.
      */
     private final GeneralPath linePath = new GeneralPath();
-    /**
-     * <CODE>true</CODE> if we are actually drawing, elsewise we're in the
-     * phase where we're still trying to discover the bounds (in which case
-     * actually drawing isn't strictly required).
-     */
-    private boolean areDrawing = false;
     private boolean isActive = false;
     /**
      * The current turtle.
      */
     private Turtle currentTurtle;
     /**
-     * The current graphics object.
+     * The geometry being recorded.
      */
-    private Graphics2D g;
+    private Geometry geometry;
     /**
      * The polygon. Null if no polygon is being drawn right now.
      */
@@ -113,9 +116,9 @@ public class Renderer {
      */
     private int completedSymbols;
     /**
-     * The number of symbols to process.
+     * If the renderer was cancelled, so that it reads no more symbols.
      */
-    private int totalSymbols;
+    private volatile boolean cancelled = false;
 
     /**
      * Instantiates a renderer object.
@@ -170,14 +173,22 @@ public class Renderer {
     /**
      * Returns the progress in the current rendering.
      *
-     * @return the number of symbols processed, the max value of which is twice
-     * the number of symbols passed into the <CODE>render</CODE>
-     * method
+     * @return the number of symbols processed, the max value of which is the
+     * number of symbols passed into the <CODE>render</CODE> method
      */
     public int getDoneSymbols() {
         return completedSymbols;
     }
 
+    /**
+     * Cancels the renderer from another thread. A trace that is running stops
+     * reading symbols and returns what was drawn so far, and any later trace
+     * reads no symbols at all.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
     /**
      * Does an assignment from a key to a value, calling the handler as well as
      * setting the value in the turtle.
@@ -186,10 +197,26 @@ public class Renderer {
      * @param value the value, possibly a mathematical expression
      */
     public void assign(String key, String value) {
+        assign(key, value, null);
+    }
+
+    /**
+     * Does an assignment from a key to a value, whose expression may have
+     * been parsed already.
+     *
+     * @param key     the key
+     * @param value   the value, possibly a mathematical expression
+     * @param formula the parsed value, or <CODE>null</CODE> if it has not been
+     *                parsed
+     */
+    private void assign(String key, String value, Formula formula) {
         try {
             try {
                 if (!NONASSIGN_WORDS.contains(key)) {
-                    currentTurtle.assign(key, value);
+                    if (formula == null)
+                        currentTurtle.assign(key, value);
+                    else
+                        currentTurtle.assign(key, formula);
                     value = currentTurtle.get(key).toString();
                 }
             } catch (Throwable e) {
@@ -205,9 +232,11 @@ public class Renderer {
     /**
      * Given a list of symbols and a dictionary of parameters, this will render
      * a representation of those symbols to either a graphics, or a returned
-     * image.
+     * image. The symbols are read once, into a {@link Geometry} that is then
+     * drawn, and may be streamed rather than held in a list.
      *
-     * @param symbols    a list of symbols
+     * @param symbols    the symbols, such as a stream from an
+     *                   {@link grammar.lsystem.Expander}
      * @param parameters the parameters
      * @param matrix     the initial transform matrix for the turtle, or if <CODE>null</CODE>
      *                   it is assumed to be the identity matrix
@@ -222,145 +251,266 @@ public class Renderer {
      * @throws IllegalArgumentException if there is a passed in graphics object and its clip area is
      *                                  not set
      */
-    public Image render(List<String> symbols, Map<Object, Object> parameters, Matrix matrix,
+    public Image render(Iterable<String> symbols, Map<Object, Object> parameters, Matrix matrix,
                         Graphics2D graphics, Point2D origin) {
-        BufferedImage image = null;
-        Rectangle2D bounds = new Rectangle2D.Double();
-        if (graphics != null && graphics.getClip() == null)
-            throw new IllegalArgumentException(
-                    "Graphics needs a non-null clip!");
-        if (matrix == null)
-            matrix = new Matrix();
-        totalSymbols = symbols.size() * 2;
-        completedSymbols = 0;
-        isActive = true;
-        for (int i = 0; i < 2; i++) {
-            areDrawing = i == 1;
-            drawnSofar = 0;
-            // Set up the initial conditions.
-            turtleStack.clear();
-            currentTurtle = new Turtle();
-            currentTurtle.matrix = matrix;
-            currentTurtle = new Turtle(currentTurtle);
-            // Set up the graphics object.
-            if (!areDrawing || graphics == null) {
-                image = new BufferedImage((int) bounds.getWidth() + 10,
-                        (int) bounds.getHeight() + 10,
-                        BufferedImage.TYPE_INT_ARGB);
-                g = image.createGraphics();
-                if (areDrawing) {
-                    g.translate(-bounds.getX() + 5.0, -bounds.getY() + 5.0);
-                    origin
-                            .setLocation(5.0 - bounds.getX(), 5.0 - bounds
-                                    .getY());
-                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                            RenderingHints.VALUE_ANTIALIAS_ON);
-                }
-            } else {
-                image = null;
-                g = (Graphics2D) graphics.create();
-                Rectangle2D newBounds = new Rectangle2D.Double(
-                        bounds.getX() - 5.0, bounds.getY() - 5.0, bounds
-                        .getWidth() + 10.0, bounds.getHeight() + 10.0);
-                Rectangle2D ourBounds = g.getClipBounds();
-                double aRatio = newBounds.getWidth() / newBounds.getHeight();
-                double vRatio = ourBounds.getWidth() / ourBounds.getHeight();
-                if (aRatio > vRatio) {
-                    // The L-system is wider than the clip bounds.
-                    double targetHeight = newBounds.getWidth() / vRatio;
-                    targetHeight -= newBounds.getHeight();
-                    // Must extend by targetHeight.
-                    newBounds.setRect(newBounds.getX(), newBounds.getY()
-                                    - targetHeight / 2.0, newBounds.getWidth(),
-                            newBounds.getHeight() + targetHeight);
-                } else {
-                    // The L-system is taller than the clip bounds.
-                    double targetWidth = newBounds.getHeight() * vRatio;
-                    targetWidth -= newBounds.getWidth();
-                    // Extend by targetWidth.
-                    newBounds.setRect(newBounds.getX() - targetWidth / 2.0,
-                            newBounds.getY(), newBounds.getWidth()
-                                    + targetWidth, newBounds.getHeight());
+        checkClip(graphics);
+        return rasterize(trace(symbols, parameters, matrix), graphics, origin);
+    }
+
+    /**
+     * Renders the symbols of a level of an L-system, reading them as codes
+     * from the expander.
+     *
+     * @param expander   the expander of the L-system
+     * @param level      the level of recursion to render
+     * @param parameters the parameters
+     * @param matrix     the initial transform matrix for the turtle, or if <CODE>null</CODE>
+     *                   it is assumed to be the identity matrix
+     * @param graphics   the graphics to render to, or <CODE>null</CODE> to
+     *                   have this function return an image
+     * @param origin     stores in the passed in point the location where the turtle
+     *                   started
+     * @return an image of a rendering of these symbols, or <CODE>null</CODE>
+     * if there was a passed in graphics object
+     * @throws IllegalArgumentException if there is a passed in graphics object and its clip area is
+     *                                  not set
+     * @see #render(Iterable, Map, Matrix, Graphics2D, Point2D)
+     */
+    public Image render(Expander expander, int level,
+                        Map<Object, Object> parameters, Matrix matrix,
+                        Graphics2D graphics, Point2D origin) {
+        checkClip(graphics);
+        return rasterize(trace(expander, level, parameters, matrix), graphics,
+                origin);
+    }
+
+    /**
+     * Moves the turtle over a list of symbols, recording what it draws.
+     *
+     * @param symbols    the symbols
+     * @param parameters the parameters
+     * @param matrix     the initial transform matrix for the turtle, or if <CODE>null</CODE>
+     *                   it is assumed to be the identity matrix
+     * @return the drawing of the symbols
+     */
+    public Geometry trace(final Iterable<String> symbols,
+                          Map<Object, Object> parameters, Matrix matrix) {
+        return trace(new Program() {
+            void run() {
+                Iterator<String> it = symbols.iterator();
+                while (it.hasNext() && !cancelled) {
+                    completedSymbols++;
+                    execute(getCommand(it.next()));
                 }
-                double scale = ourBounds.getWidth() / newBounds.getWidth();
-                g.scale(scale, scale);
-                g.translate(ourBounds.getX() - newBounds.getX(), ourBounds
-                        .getY()
-                        - newBounds.getY());
-                origin.setLocation(ourBounds.getX() - newBounds.getX(),
-                        ourBounds.getY() - newBounds.getY());
             }
-            // Do the initial parameters.
-            Iterator<Entry<Object, Object>> it = parameters.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<Object, Object> entry = it.next();
-                try {
-                    assign((String) entry.getKey(), (String) entry.getValue());
-                } catch (Throwable e) {
-                    // We have an error in the handler!
+        }, parameters, matrix);
+    }
+
+    /**
+     * Moves the turtle over the symbols of a level of an L-system, recording
+     * what it draws. The command for each code is found once, before the
+     * symbols are read, so each symbol is just an index into an array.
+     *
+     * @param expander   the expander of the L-system
+     * @param level      the level of recursion
+     * @param parameters the parameters
+     * @param matrix     the initial transform matrix for the turtle, or if <CODE>null</CODE>
+     *                   it is assumed to be the identity matrix
+     * @return the drawing of the symbols
+     */
+    public Geometry trace(final Expander expander, final int level,
+                          Map<Object, Object> parameters, Matrix matrix) {
+        final Command[] byCode = new Command[expander.getSymbolCount()];
+        for (int i = 0; i < byCode.length; i++)
+            byCode[i] = getCommand(expander.getSymbol(i));
+        return trace(new Program() {
+            void run() {
+                PrimitiveIterator.OfInt it = expander.codesForLevel(level);
+                while (it.hasNext() && !cancelled) {
+                    completedSymbols++;
+                    execute(byCode[it.nextInt()]);
                 }
             }
-            // Set the initial drawing state.
-            g.setColor(currentTurtle.getColor());
-            capLinePath();
-            // Repeatedly read symbols, and call the appropriate
-            // command handler.
-            Iterator<String> it2 = symbols.iterator();
-            while (it2.hasNext()) {
-                completedSymbols++;
-                String symbol = it2.next();
-                Renderer.CommandHandler handler = getHandler(symbol);
-                if (handler != null) {
-                    try {
-                        handler.handle(null);
-                    } catch (Throwable e) {
-                        // We have an error!
-                    }
-                    continue;
-                }
-                // OKAY, perhaps this is an assignment?
-                int equalsPosition = symbol.indexOf('=');
-                if (equalsPosition != -1) {
-                    String key = symbol.substring(0, equalsPosition);
-                    String value = symbol.substring(equalsPosition + 1);
-                    // Get the assignment.
-                    assign(key, value);
-                }
-                // Well, let's go on. Perhaps this is a symbol with
-                // an argument.
-                int leftParenPosition = symbol.indexOf('('), rightParenPosition = symbol
-                        .lastIndexOf(')');
-                if (leftParenPosition != -1 && rightParenPosition != -1
-                        && leftParenPosition < rightParenPosition) {
-                    String key = symbol.substring(0, leftParenPosition);
-                    String value = symbol.substring(leftParenPosition + 1,
-                            rightParenPosition);
-                    handler = getHandler(key);
-                    try {
-                        handler.handle(value);
-                    } catch (Throwable e) {
-                        // Another error. Whew.
-                    }
-                    continue;
-                }
+        }, parameters, matrix);
+    }
+
+    /**
+     * Runs the commands of a program, recording what the turtle draws.
+     *
+     * @param program    the program of commands
+     * @param parameters the parameters
+     * @param matrix     the initial transform matrix for the turtle, or if <CODE>null</CODE>
+     *                   it is assumed to be the identity matrix
+     * @return the drawing, with the bounds of the turtle's travels
+     */
+    private Geometry trace(Program program, Map<Object, Object> parameters,
+                           Matrix matrix) {
+        if (matrix == null)
+            matrix = new Matrix();
+        completedSymbols = 0;
+        isActive = true;
+        drawnSofar = 0;
+        // Set up the initial conditions.
+        turtleStack.clear();
+        polygon = null;
+        currentTurtle = new Turtle();
+        currentTurtle.matrix = matrix;
+        currentTurtle = new Turtle(currentTurtle);
+        geometry = new Geometry();
+        // Do the initial parameters.
+        Iterator<Entry<Object, Object>> it = parameters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Object, Object> entry = it.next();
+            try {
+                assign((String) entry.getKey(), (String) entry.getValue());
+            } catch (Throwable e) {
+                // We have an error in the handler!
             }
-            capLinePath();
-            g.dispose();
-            // We pop all the turtle stacks to make sure the bounds
-            // are okay...
-            while (!turtleStack.isEmpty())
-                popTurtleStack();
-            bounds = currentTurtle.getBounds();
         }
+        // Set the initial drawing state.
+        geometry.setColor(currentTurtle.getColor());
+        capLinePath();
+        // Repeatedly read symbols, and call the appropriate
+        // command handler.
+        program.run();
+        capLinePath();
+        // We pop all the turtle stacks to make sure the bounds
+        // are okay...
+        while (!turtleStack.isEmpty())
+            popTurtleStack();
+        Geometry traced = geometry;
+        traced.setBounds(currentTurtle.getBounds());
+        geometry = null;
         isActive = false;
-        areDrawing = false;
+        return traced;
+    }
+
+    /**
+     * Draws a recorded drawing to either a graphics, or a returned image. The
+     * image is the size of the bounds of the drawing with a small margin; on
+     * a graphics, the drawing is scaled to fill the clip bounds.
+     *
+     * @param geometry the drawing
+     * @param graphics the graphics to draw to, or <CODE>null</CODE> to have
+     *                 this function return an image
+     * @param origin   stores in the passed in point the location where the
+     *                 turtle started
+     * @return an image of the drawing, or <CODE>null</CODE> if there was a
+     * passed in graphics object
+     * @throws IllegalArgumentException if there is a passed in graphics object and its clip area is
+     *                                  not set
+     */
+    public Image rasterize(Geometry geometry, Graphics2D graphics,
+                           Point2D origin) {
+        checkClip(graphics);
+        Rectangle2D bounds = geometry.getBounds();
+        BufferedImage image = null;
+        Graphics2D g;
+        if (graphics == null) {
+            image = new BufferedImage((int) bounds.getWidth() + 10,
+                    (int) bounds.getHeight() + 10,
+                    BufferedImage.TYPE_INT_ARGB);
+            g = image.createGraphics();
+            g.translate(-bounds.getX() + 5.0, -bounds.getY() + 5.0);
+            origin.setLocation(5.0 - bounds.getX(), 5.0 - bounds.getY());
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+        } else {
+            g = (Graphics2D) graphics.create();
+            Rectangle2D newBounds = new Rectangle2D.Double(
+                    bounds.getX() - 5.0, bounds.getY() - 5.0, bounds
+                    .getWidth() + 10.0, bounds.getHeight() + 10.0);
+            Rectangle2D ourBounds = g.getClipBounds();
+            double aRatio = newBounds.getWidth() / newBounds.getHeight();
+            double vRatio = ourBounds.getWidth() / ourBounds.getHeight();
+            if (aRatio > vRatio) {
+                // The L-system is wider than the clip bounds.
+                double targetHeight = newBounds.getWidth() / vRatio;
+                targetHeight -= newBounds.getHeight();
+                // Must extend by targetHeight.
+                newBounds.setRect(newBounds.getX(), newBounds.getY()
+                                - targetHeight / 2.0, newBounds.getWidth(),
+                        newBounds.getHeight() + targetHeight);
+            } else {
+                // The L-system is taller than the clip bounds.
+                double targetWidth = newBounds.getHeight() * vRatio;
+                targetWidth -= newBounds.getWidth();
+                // Extend by targetWidth.
+                newBounds.setRect(newBounds.getX() - targetWidth / 2.0,
+                        newBounds.getY(), newBounds.getWidth()
+                                + targetWidth, newBounds.getHeight());
+            }
+            double scale = ourBounds.getWidth() / newBounds.getWidth();
+            g.scale(scale, scale);
+            g.translate(ourBounds.getX() - newBounds.getX(), ourBounds
+                    .getY()
+                    - newBounds.getY());
+            origin.setLocation(ourBounds.getX() - newBounds.getX(),
+                    ourBounds.getY() - newBounds.getY());
+        }
+        geometry.draw(g);
+        g.dispose();
         return image;
     }
 
+    /**
+     * Checks that a graphics to render to has a clip area.
+     *
+     * @param graphics the graphics, or <CODE>null</CODE>
+     * @throws IllegalArgumentException if the graphics has no clip area
+     */
+    private static void checkClip(Graphics2D graphics) {
+        if (graphics != null && graphics.getClip() == null)
+            throw new IllegalArgumentException(
+                    "Graphics needs a non-null clip!");
+    }
+
     public boolean isActive() {
         return isActive;
     }
 
+    /**
+     * Returns the command for a symbol, reading it the first time the symbol
+     * is seen.
+     *
+     * @param symbol the symbol
+     * @return the command for the symbol
+     */
+    private Command getCommand(String symbol) {
+        Command command = commands.get(symbol);
+        if (command == null) {
+            command = new Command(symbol);
+            commands.put(symbol, command);
+        }
+        return command;
+    }
+
+    /**
+     * Runs a command, ignoring any errors in its handlers.
+     *
+     * @param command the command
+     */
+    private void execute(Command command) {
+        if (command.handler != null) {
+            try {
+                command.handler.handle(null);
+            } catch (Throwable e) {
+                // We have an error!
+            }
+            return;
+        }
+        if (command.key != null)
+            assign(command.key, command.value, command.valueFormula);
+        if (command.argument != null) {
+            try {
+                command.argumentHandler.handle(command.argument,
+                        command.formula);
+            } catch (Throwable e) {
+                // Another error. Whew.
+            }
+        }
+    }
+
     /**
      * This will pop the turtle stack.
      */
@@ -369,8 +519,8 @@ public class Renderer {
             Turtle lt = (Turtle) turtleStack.pop();
             lt.updateBounds(currentTurtle);
             currentTurtle = lt;
-            g.setColor(currentTurtle.getColor());
-            g.setStroke(currentTurtle.getStroke());
+            geometry.setColor(currentTurtle.getColor());
+            geometry.setStroke(currentTurtle.getStroke());
         } catch (EmptyStackException e) {
             // We just ignore it.
         }
@@ -380,13 +530,92 @@ public class Renderer {
      *
      */
     private final void capLinePath() {
-        g.draw(linePath); // Dump the path to the graphics...
+        geometry.draw(linePath); // Dump the path to the geometry...
         linePath.reset(); // Clear the path...
         linePath.moveTo((float) currentTurtle.position.getX(),
                 (float) currentTurtle.position.getY());
         // We've started anew!
     }
 
+    /**
+     * The symbols of a rendering, run as commands.
+     */
+    private abstract class Program {
+        /**
+         * Runs the command of each symbol in order.
+         */
+        abstract void run();
+    }
+
+    /**
+     * A symbol read into what it does. A symbol with a handler of its own
+     * calls that handler; otherwise it may assign a value to a key, with
+     * <CODE>key=value</CODE>, and may call a handler with an argument, with
+     * <CODE>key(argument)</CODE>.
+     */
+    private class Command {
+        /**
+         * The handler of the symbol itself, or <CODE>null</CODE>.
+         */
+        final CommandHandler handler;
+        /**
+         * The key assigned to, or <CODE>null</CODE> if this is not an
+         * assignment.
+         */
+        String key;
+        /**
+         * The value assigned.
+         */
+        String value;
+        /**
+         * The value assigned, parsed, or <CODE>null</CODE> if it is not
+         * numerical.
+         */
+        Formula valueFormula;
+        /**
+         * The handler called with an argument.
+         */
+        CommandHandler argumentHandler;
+        /**
+         * The argument, or <CODE>null</CODE> if there is none.
+         */
+        String argument;
+        /**
+         * The argument, parsed.
+         */
+        Formula formula;
+
+        /**
+         * Reads a symbol into a command.
+         *
+         * @param symbol the symbol
+         */
+        Command(String symbol) {
+            handler = getHandler(symbol);
+            if (handler != null)
+                return;
+            // OKAY, perhaps this is an assignment?
+            int equalsPosition = symbol.indexOf('=');
+            if (equalsPosition != -1) {
+                key = symbol.substring(0, equalsPosition);
+                value = symbol.substring(equalsPosition + 1);
+                if (!NONASSIGN_WORDS.contains(key))
+                    valueFormula = Formula.compile(value);
+            }
+            // Perhaps this is a symbol with an argument.
+            int leftParenPosition = symbol.indexOf('('), rightParenPosition = symbol
+                    .lastIndexOf(')');
+            if (leftParenPosition != -1 && rightParenPosition != -1
+                    && leftParenPosition < rightParenPosition) {
+                argumentHandler = getHandler(symbol.substring(0,
+                        leftParenPosition));
+                argument = symbol.substring(leftParenPosition + 1,
+                        rightParenPosition);
+                formula = Formula.compile(argument);
+            }
+        }
+    }
+
     // / THE COMMAND HANDLERS!
 
     /**
@@ -405,12 +634,35 @@ public class Renderer {
             // just ignore commands. Subclasses will do something,
             // presumably.
         }
+
+        /**
+         * Handles the command with an argument that has already been parsed.
+         * By default the parsed argument is not used.
+         *
+         * @param symbol  an optional argument to the handler, but may be <CODE>null</CODE>
+         * @param formula the argument parsed, or <CODE>null</CODE> if there is
+         *                no argument
+         */
+        void handle(String symbol, Formula formula) {
+            handle(symbol);
+        }
+    }
+
+    /**
+     * This is a command handler whose argument is a mathematical expression.
+     */
+    private abstract class NumericHandler extends CommandHandler {
+        public final void handle(String symbol) {
+            handle(symbol, symbol == null ? null : Formula.compile(symbol));
+        }
+
+        abstract void handle(String symbol, Formula formula);
     }
 
     /**
      * This handles moving the cursor.
      */
-    private class MoveHandler extends CommandHandler {
+    private class MoveHandler extends NumericHandler {
         private final boolean pendown;
         private final boolean forward;
         private final Line2D line = new Line2D.Double();
@@ -420,17 +672,15 @@ public class Renderer {
             this.forward = forward;
         }
 
-        public final void handle(String symbol) {
+        final void handle(String symbol, Formula formula) {
             // Evaluate if necessary.
-            if (symbol == null)
+            if (formula == null)
                 currentTurtle.go(forward);
             else {
-                double d = currentTurtle.valueOf(symbol).doubleValue();
+                double d = currentTurtle.valueOf(formula).doubleValue();
                 currentTurtle.go(forward ? d : -d);
             }
 
-            if (!areDrawing)
-                return;
             if (pendown) {
                 if (polygon == null) {
                     // We're not adding to the polygon!
@@ -452,19 +702,19 @@ public class Renderer {
     /**
      * This handles turning.
      */
-    private class TurnHandler extends CommandHandler {
+    private class TurnHandler extends NumericHandler {
         private final boolean clockwise;
 
         public TurnHandler(boolean clockwise) {
             this.clockwise = clockwise;
         }
 
-        public final void handle(String symbol) {
+        final void handle(String symbol, Formula formula) {
             // Evaluate if necessary.
-            if (symbol == null)
+            if (formula == null)
                 currentTurtle.turn(clockwise);
             else {
-                double d = currentTurtle.valueOf(symbol).doubleValue();
+                double d = currentTurtle.valueOf(formula).doubleValue();
                 currentTurtle.turn(clockwise ? -d : d);
             }
         }
@@ -473,18 +723,18 @@ public class Renderer {
     /**
      * This handles pitching.
      */
-    private class PitchHandler extends CommandHandler {
+    private class PitchHandler extends NumericHandler {
         private final boolean down;
 
         public PitchHandler(boolean down) {
             this.down = down;
         }
 
-        public final void handle(String symbol) {
-            if (symbol == null)
+        final void handle(String symbol, Formula formula) {
+            if (formula == null)
                 currentTurtle.pitch(down);
             else {
-                double d = currentTurtle.valueOf(symbol).doubleValue();
+                double d = currentTurtle.valueOf(formula).doubleValue();
                 currentTurtle.pitch(down ? d : -d);
             }
         }
@@ -493,18 +743,18 @@ public class Renderer {
     /**
      * This handles rolling.
      */
-    private class RollHandler extends CommandHandler {
+    private class RollHandler extends NumericHandler {
         private final boolean right;
 
         public RollHandler(boolean right) {
             this.right = right;
         }
 
-        public final void handle(String symbol) {
-            if (symbol == null)
+        final void handle(String symbol, Formula formula) {
+            if (formula == null)
                 currentTurtle.roll(right);
             else {
-                double d = currentTurtle.valueOf(symbol).doubleValue();
+                double d = currentTurtle.valueOf(formula).doubleValue();
                 currentTurtle.roll(right ? -d : d);
             }
         }
@@ -533,22 +783,22 @@ public class Renderer {
     /**
      * This handles changing the width of lines.
      */
-    private class WidthChangeHandler extends CommandHandler {
+    private class WidthChangeHandler extends NumericHandler {
         private final boolean increment;
 
         public WidthChangeHandler(boolean increment) {
             this.increment = increment;
         }
 
-        public final void handle(String symbol) {
+        final void handle(String symbol, Formula formula) {
             capLinePath();
-            if (symbol == null)
+            if (formula == null)
                 currentTurtle.changeLineWidth(increment);
             else {
-                double d = currentTurtle.valueOf(symbol).doubleValue();
+                double d = currentTurtle.valueOf(formula).doubleValue();
                 currentTurtle.changeLineWidth(increment ? d : -d);
             }
-            g.setStroke(currentTurtle.getStroke());
+            geometry.setStroke(currentTurtle.getStroke());
         }
     }
 
@@ -557,11 +807,9 @@ public class Renderer {
      */
     private class DrawColorHandler extends CommandHandler {
         public final void handle(String symbol) {
-            if (!areDrawing)
-                return;
             capLinePath();
             currentTurtle.setColor(symbol);
-            g.setColor(currentTurtle.getColor());
+            geometry.setColor(currentTurtle.getColor());
         }
     }
 
@@ -570,8 +818,6 @@ public class Renderer {
      */
     private class PolygonColorHandler extends CommandHandler {
         public final void handle(String symbol) {
-            if (!areDrawing)
-                return;
             currentTurtle.setPolygonColor(symbol);
         }
     }
@@ -590,11 +836,9 @@ public class Renderer {
      */
     private class LineWidthHandler extends CommandHandler {
         public final void handle(String symbol) {
-            if (!areDrawing)
-                return;
             capLinePath();
             currentTurtle.setLineWidth(Double.parseDouble(symbol));
-            g.setStroke(currentTurtle.getStroke());
+            geometry.setStroke(currentTurtle.getStroke());
         }
     }
 
@@ -621,7 +865,7 @@ public class Renderer {
      */
     private class BeginPolygonHandler extends CommandHandler {
         public final void handle(String symbol) {
-            if (!areDrawing || polygon != null)
+            if (polygon != null)
                 return; // Hrm.
             capLinePath();
             polygon = new GeneralPath();
@@ -635,14 +879,12 @@ public class Renderer {
      */
     private class ClosePolygonHandler extends CommandHandler {
         public final void handle(String symbol) {
-            if (!areDrawing)
-                return;
             capLinePath();
             polygon.closePath();
-            g.setColor(currentTurtle.polygonColor);
-            g.fill(polygon);
+            geometry.setColor(currentTurtle.polygonColor);
+            geometry.fill(polygon);
             polygon = null;
-            g.setColor(currentTurtle.color);
+            geometry.setColor(currentTurtle.color);
             drawnSofar++;
         }
     }
@@ -668,7 +910,7 @@ public class Renderer {
     /**
      * This handles changing the hue angle.
      */
-    private class HueChangeHandler extends CommandHandler {
+    private class HueChangeHandler extends NumericHandler {
         private final boolean add;
         private final boolean polygon;
 
@@ -677,24 +919,22 @@ public class Renderer {
             this.add = add;
         }
 
-        public final void handle(String symbol) {
-            if (!areDrawing)
-                return;
+        final void handle(String symbol, Formula formula) {
             capLinePath();
-            if (symbol == null)
+            if (formula == null)
                 if (polygon)
                     currentTurtle.changePolygonHue(add);
                 else
                     currentTurtle.changeHue(add);
             else {
-                double d = currentTurtle.valueOf(symbol).doubleValue();
+                double d = currentTurtle.valueOf(formula).doubleValue();
                 d = add ? d : -d;
                 if (polygon)
                     currentTurtle.changePolygonHue(d);
                 else
                     currentTurtle.changeHue(d);
             }
-            g.setColor(currentTurtle.getColor());
+            geometry.setColor(currentTurtle.getColor());
         }
     }
 }
@@ -0,0 +1,484 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package gui.lsystem;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A <CODE>TiledRasterizer</CODE> draws a {@link Geometry} in square tiles,
+ * drawing the tiles at once on a fork/join pool. Each tile draws only the
+ * pieces of paths that may touch it: long stroked paths are split into pieces
+ * of a bounded number of points, and each tile keeps the list of pieces whose
+ * bounds meet it, in the order they were drawn. A tile draws the pieces of
+ * one path it has as one shape, with pieces that follow each other joined as
+ * in the whole path, so the tiles make the same image as drawing the whole
+ * drawing at once.
+ * <p>
+ * The drawing may be made into one image, or written as a PNG file one row of
+ * tiles at a time, so that drawings at print resolution need not fit in
+ * memory as one image.
+ *
+ * @see Renderer#rasterize
+ */
+
+public class TiledRasterizer {
+    /**
+     * The width and height of a tile, in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+    /**
+     * The most points in a piece of a stroked path.
+     */
+    private static final int PIECE_SIZE = 128;
+    /**
+     * The bytes that begin a PNG file.
+     */
+    private static final byte[] PNG_SIGNATURE = {(byte) 137, 80, 78, 71, 13,
+            10, 26, 10};
+    /**
+     * The drawing.
+     */
+    private final Geometry geometry;
+    /**
+     * The transform from the drawing to the pixels of the image.
+     */
+    private final AffineTransform transform;
+    /**
+     * The size of the image.
+     */
+    private final int width, height;
+    /**
+     * The number of columns and rows of tiles.
+     */
+    private final int columns, rows;
+    /**
+     * For each piece, its path and the range of its points.
+     */
+    private int[] piecePaths = new int[64], pieceFroms = new int[64],
+            pieceTos = new int[64];
+    /**
+     * The number of pieces.
+     */
+    private int pieces = 0;
+    /**
+     * For each tile, by row and then column, the pieces that may touch it.
+     */
+    private final int[][] tilePieces;
+    /**
+     * For each tile, the number of pieces that may touch it.
+     */
+    private final int[] tileCounts;
+
+    /**
+     * Instantiates a rasterizer for the image of a drawing at a scale. At
+     * scale 1 the image is the one {@link Renderer#rasterize} makes, with a
+     * margin of 5 pixels about the bounds; at other scales the margin and the
+     * lines are scaled too.
+     *
+     * @param geometry the drawing
+     * @param scale    the scale of the image
+     */
+    public TiledRasterizer(Geometry geometry, double scale) {
+        this(geometry, transformFor(geometry, scale), (int) ((geometry
+                .getBounds().getWidth() + 10.0) * scale), (int) ((geometry
+                .getBounds().getHeight() + 10.0) * scale));
+    }
+
+    /**
+     * Instantiates a rasterizer for a drawing.
+     *
+     * @param geometry  the drawing
+     * @param transform the transform from the drawing to the pixels of the
+     *                  image
+     * @param width     the width of the image
+     * @param height    the height of the image
+     */
+    public TiledRasterizer(Geometry geometry, AffineTransform transform,
+                           int width, int height) {
+        this.geometry = geometry;
+        this.transform = new AffineTransform(transform);
+        this.width = Math.max(width, 1);
+        this.height = Math.max(height, 1);
+        columns = (this.width + TILE_SIZE - 1) / TILE_SIZE;
+        rows = (this.height + TILE_SIZE - 1) / TILE_SIZE;
+        tilePieces = new int[columns * rows][];
+        tileCounts = new int[columns * rows];
+        index();
+    }
+
+    /**
+     * Returns the transform that puts a drawing at a scale in an image with a
+     * margin.
+     *
+     * @param geometry the drawing
+     * @param scale    the scale
+     * @return the transform
+     */
+    private static AffineTransform transformFor(Geometry geometry,
+                                                double scale) {
+        Rectangle2D bounds = geometry.getBounds();
+        AffineTransform transform = AffineTransform.getScaleInstance(scale,
+                scale);
+        transform.translate(-bounds.getX() + 5.0, -bounds.getY() + 5.0);
+        return transform;
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return the width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Splits the paths into pieces, and adds each piece to the tiles its
+     * bounds meet.
+     */
+    private void index() {
+        double scale = Math.sqrt(Math.abs(transform.getDeterminant()));
+        for (int path = 0; path < geometry.getPathCount(); path++) {
+            int start = geometry.getStart(path), end = geometry.getEnd(path);
+            float lineWidth = geometry.getLineWidth(path);
+            // Mitered corners may reach five line widths past a point.
+            double margin = 2.0 + 5.0 * scale
+                    * (Float.isNaN(lineWidth) ? 1.0 : lineWidth);
+            if (geometry.isFilled(path)) {
+                addPiece(path, start, end, margin);
+                continue;
+            }
+            int from = start;
+            while (from < end - 1) {
+                int to = Math.min(from + PIECE_SIZE, end);
+                addPiece(path, from, to, margin);
+                // The next piece starts at the last point of this one, or
+                // at the segment start after it.
+                from = to < end && geometry.isMove(to) ? to : to - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a piece of a path to the tiles it may touch.
+     *
+     * @param path   the path
+     * @param from   the index of its first point
+     * @param to     the index after its last point
+     * @param margin how far past its points, in pixels, the piece may draw
+     */
+    private void addPiece(int path, int from, int to, double margin) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int p = from; p < to; p++) {
+            minX = Math.min(minX, geometry.getX(p));
+            minY = Math.min(minY, geometry.getY(p));
+            maxX = Math.max(maxX, geometry.getX(p));
+            maxY = Math.max(maxY, geometry.getY(p));
+        }
+        if (minX > maxX)
+            return;
+        Rectangle2D bounds = transform.createTransformedShape(
+                new Rectangle2D.Float(minX, minY, maxX - minX, maxY - minY))
+                .getBounds2D();
+        int firstColumn = Math.max(0, (int) Math.floor((bounds.getMinX() - margin)
+                / TILE_SIZE));
+        int lastColumn = Math.min(columns - 1, (int) Math.floor((bounds
+                .getMaxX() + margin) / TILE_SIZE));
+        int firstRow = Math.max(0, (int) Math.floor((bounds.getMinY() - margin)
+                / TILE_SIZE));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((bounds.getMaxY() + margin)
+                / TILE_SIZE));
+        if (firstColumn > lastColumn || firstRow > lastRow)
+            return;
+        if (pieces == piecePaths.length) {
+            piecePaths = Arrays.copyOf(piecePaths, pieces * 2);
+            pieceFroms = Arrays.copyOf(pieceFroms, pieces * 2);
+            pieceTos = Arrays.copyOf(pieceTos, pieces * 2);
+        }
+        piecePaths[pieces] = path;
+        pieceFroms[pieces] = from;
+        pieceTos[pieces] = to;
+        for (int row = firstRow; row <= lastRow; row++)
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int tile = row * columns + column;
+                int[] list = tilePieces[tile];
+                if (list == null)
+                    list = tilePieces[tile] = new int[8];
+                else if (tileCounts[tile] == list.length)
+                    list = tilePieces[tile] = Arrays.copyOf(list,
+                            list.length * 2);
+                list[tileCounts[tile]++] = pieces;
+            }
+        pieces++;
+    }
+
+    /**
+     * Draws the whole drawing into one image, drawing the tiles in parallel.
+     *
+     * @return the image
+     */
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        drawRow(image, 0, rows);
+        return image;
+    }
+
+    /**
+     * Writes the drawing as a PNG image. One row of tiles is drawn at a time,
+     * with its tiles drawn in parallel, and written before the next is drawn.
+     *
+     * @param out the stream to write to, which is not closed
+     * @throws IOException if the writing fails
+     */
+    public void writePNG(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(PNG_SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(8); // Bits per sample.
+        headerData.writeByte(6); // Red, green, blue and alpha.
+        headerData.writeByte(0); // Deflate.
+        headerData.writeByte(0); // Adaptive filtering.
+        headerData.writeByte(0); // Not interlaced.
+        writeChunk(data, "IHDR", header.toByteArray(), header.size());
+
+        Deflater deflater = new Deflater();
+        DeflaterOutputStream compressed = new DeflaterOutputStream(
+                new ChunkOutputStream(data), deflater, 1 << 16);
+        BufferedImage strip = new BufferedImage(width, Math.min(TILE_SIZE,
+                height), BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = new int[width];
+        byte[] line = new byte[1 + 4 * width];
+        for (int row = 0; row < rows; row++) {
+            int top = row * TILE_SIZE, lines = Math.min(TILE_SIZE, height
+                    - top);
+            Arrays.fill(((DataBufferInt) strip.getRaster().getDataBuffer())
+                    .getData(), 0);
+            drawRow(strip, row, row + 1);
+            for (int y = 0; y < lines; y++) {
+                strip.getRGB(0, y, width, 1, pixels, 0, width);
+                line[0] = 0; // No filter.
+                for (int x = 0; x < width; x++) {
+                    int argb = pixels[x];
+                    line[1 + 4 * x] = (byte) (argb >> 16);
+                    line[2 + 4 * x] = (byte) (argb >> 8);
+                    line[3 + 4 * x] = (byte) argb;
+                    line[4 + 4 * x] = (byte) (argb >>> 24);
+                }
+                compressed.write(line);
+            }
+        }
+        compressed.finish();
+        compressed.flush();
+        deflater.end();
+        writeChunk(data, "IEND", new byte[0], 0);
+        data.flush();
+    }
+
+    /**
+     * Draws rows of tiles into an image in parallel. The first of the rows is
+     * drawn at the top of the image.
+     *
+     * @param image    the image
+     * @param firstRow the first row of tiles
+     * @param lastRow  the row after the last row of tiles
+     */
+    private void drawRow(BufferedImage image, int firstRow, int lastRow) {
+        ForkJoinPool.commonPool().invoke(
+                new TileAction(image, firstRow, firstRow * columns, lastRow
+                        * columns));
+    }
+
+    /**
+     * Draws one tile into an image.
+     *
+     * @param image    the image
+     * @param firstRow the row of tiles at the top of the image
+     * @param tile     the tile
+     */
+    private void drawTile(BufferedImage image, int firstRow, int tile) {
+        if (tileCounts[tile] == 0)
+            return;
+        int left = (tile % columns) * TILE_SIZE;
+        int top = (tile / columns) * TILE_SIZE;
+        int tileWidth = Math.min(TILE_SIZE, width - left);
+        int tileHeight = Math.min(TILE_SIZE, height - top);
+        int imageTop = top - firstRow * TILE_SIZE;
+        Graphics2D g = image.getSubimage(left, imageTop, tileWidth,
+                tileHeight).createGraphics();
+        g.translate(-left, -top);
+        g.transform(transform);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        Stroke original = g.getStroke();
+        GeneralPath shape = new GeneralPath();
+        int[] list = tilePieces[tile];
+        for (int i = 0; i < tileCounts[tile]; ) {
+            // The pieces of a path are numbered in order, so those of one
+            // path in the list are next to each other.
+            int path = piecePaths[list[i]];
+            shape.reset();
+            int last = -1;
+            for (; i < tileCounts[tile] && piecePaths[list[i]] == path; i++) {
+                int piece = list[i];
+                geometry.append(shape, pieceFroms[piece], pieceTos[piece],
+                        piece == last + 1 && last >= 0
+                                && pieceFroms[piece] == pieceTos[last] - 1);
+                last = piece;
+            }
+            geometry.draw(g, original, path, shape);
+        }
+        g.dispose();
+    }
+
+    /**
+     * Writes a PNG chunk.
+     *
+     * @param out    the stream to write to
+     * @param type   the four letter type of the chunk
+     * @param bytes  the data of the chunk
+     * @param length the number of bytes of data
+     * @throws IOException if the writing fails
+     */
+    private static void writeChunk(DataOutputStream out, String type,
+                                   byte[] bytes, int length) throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(bytes, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(bytes, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Draws a range of tiles, splitting the range among the threads of the
+     * pool.
+     */
+    private class TileAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /**
+         * The image drawn into.
+         */
+        private final BufferedImage image;
+        /**
+         * The row of tiles at the top of the image.
+         */
+        private final int firstRow;
+        /**
+         * The first tile and the tile after the last one to draw.
+         */
+        private final int from, to;
+
+        TileAction(BufferedImage image, int firstRow, int from, int to) {
+            this.image = image;
+            this.firstRow = firstRow;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from == 1) {
+                drawTile(image, firstRow, from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileAction(image, firstRow, from, middle),
+                    new TileAction(image, firstRow, middle, to));
+        }
+    }
+
+    /**
+     * The compressed image data, written as IDAT chunks.
+     */
+    private static class ChunkOutputStream extends OutputStream {
+        /**
+         * The stream the chunks are written to.
+         */
+        private final DataOutputStream out;
+        /**
+         * The data of the chunk being collected.
+         */
+        private final byte[] buffer = new byte[1 << 16];
+        /**
+         * The number of bytes collected.
+         */
+        private int size = 0;
+
+        ChunkOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        public void write(int b) throws IOException {
+            if (size == buffer.length)
+                flush();
+            buffer[size++] = (byte) b;
+        }
+
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException {
+            while (length > 0) {
+                if (size == buffer.length)
+                    flush();
+                int n = Math.min(length, buffer.length - size);
+                System.arraycopy(bytes, offset, buffer, size, n);
+                size += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        public void flush() throws IOException {
+            if (size == 0)
+                return;
+            writeChunk(out, "IDAT", buffer, size);
+            size = 0;
+        }
+    }
+}
@@ -23,16 +23,10 @@ import java.awt.Color;
 import java.awt.Stroke;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.io.IOException;
 import java.io.Serializable;
-import java.io.StreamTokenizer;
-import java.io.StringReader;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Stack;
 import java.util.StringTokenizer;
 
 /**
@@ -209,164 +203,6 @@ class Turtle implements Cloneable, Serializable {
 
     // / METHODS RELATING TO COLOR
 
-    /**
-     * Given a string representing a mathematical expression, this returns the
-     * value of that expression. If there are any variables in the expression
-     * they should be contained within the map of values.
-     *
-     * @param string the mathematical expression
-     * @param values the map of string objects to number objects
-     */
-    private static Number valueOf(String string, Map<Object, Object> values) {
-        string = string.replaceAll("-", " -");
-        StringReader reader = new StringReader(string);
-        StreamTokenizer st = new StreamTokenizer(reader);
-        st.ordinaryChar('/');
-        ArrayList<Object> list = new ArrayList<>();
-        Number zero = new Integer(0);
-        boolean number = false;
-        Character plus = new Character('+');
-
-        try {
-            while (st.nextToken() != StreamTokenizer.TT_EOF) {
-                switch (st.ttype) {
-                    case StreamTokenizer.TT_WORD:
-                        // Attempt to resolve the symbol to a number.
-                        Number n = (Number) values.get(st.sval);
-                        if (number)
-                            list.add(plus);
-                        number = true;
-                        list.add(n == null ? zero : n);
-                        break;
-                    case StreamTokenizer.TT_NUMBER:
-                        if (number)
-                            list.add(plus);
-                        number = true;
-                        list.add(new Double(st.nval));
-                        break;
-                    case StreamTokenizer.TT_EOL:
-                        // Who cares?
-                        break;
-                    default:
-                        number = false;
-                        list.add(new Character((char) st.ttype));
-                        break;
-                }
-            }
-        } catch (IOException e) {
-            return new Double(Double.NaN); // We canna do it, captain!
-        }
-        // So now we have all these symbols in a list... great!
-        Iterator<Object> it = list.iterator();
-        return valueOf(it);
-    }
-
-    /**
-     * The recursive helper function for the <CODE>valueOf</CODE> function.
-     *
-     * @param it the iterator through operators and numbers
-     */
-    private static Number valueOf(Iterator<Object> it) {
-        Stack<Object> values = new Stack<>();
-        Stack<Character> operators = new Stack<>();
-        values.push(new Double(0.0));
-
-        while (it.hasNext()) {
-            Object o = it.next();
-            if (o instanceof Number) {
-                values.push(o);
-                continue;
-            }
-            Character character = (Character) o;
-            char c = character.charValue();
-            if (c == ')')
-                break; // Done!
-            if (c == '(') {
-                values.push(valueOf(it));
-                continue;
-            }
-            while (!operators.isEmpty()) {
-                boolean toCollapse = false;
-                char last = operators.peek().charValue();
-                switch (c) {
-                    case '+':
-                    case '-':
-                        if (last == '-' || last == '+')
-                            toCollapse = true;
-                    case '*':
-                    case '/':
-                        if (last == '*' || last == '/')
-                            toCollapse = true;
-                    case '^':
-                        if (last == '^')
-                            toCollapse = true;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Bad operator " + c);
-                        // Eh.
-                }
-                if (!toCollapse)
-                    break; // Let it be.
-                // Collapse!
-                double b = ((Number) values.pop()).doubleValue(), a = ((Number) values
-                        .pop()).doubleValue();
-                operators.pop(); // Get rid of it...
-                switch (last) {
-                    case '^':
-                        a = Math.pow(a, b);
-                        break;
-                    case '*':
-                        a *= b;
-                        break;
-                    case '/':
-                        a /= b;
-                        break;
-                    case '+':
-                        a += b;
-                        break;
-                    case '-':
-                        a -= b;
-                        break;
-                    default:
-                        // Eh.
-                }
-                values.push(new Double(a));
-            }
-            operators.push(character);
-            continue;
-
-        }
-        // We've run out, or it's time to return. Do pending ops and leave.
-
-        while (!operators.isEmpty()) {
-            // Collapse!
-            char last = operators.pop().charValue();
-            double b = ((Number) values.pop()).doubleValue(), a = ((Number) values
-                    .pop()).doubleValue();
-            switch (last) {
-                case '^':
-                    a = Math.pow(a, b);
-                    break;
-                case '*':
-                    a *= b;
-                    break;
-                case '/':
-                    a /= b;
-                    break;
-                case '+':
-                    a += b;
-                    break;
-                case '-':
-                    a -= b;
-                    break;
-                default:
-                    // Eh.
-            }
-            values.push(new Double(a));
-        }
-        return (Number) values.pop();
-    }
-
     /**
      * Updates the bounds to include the current position.
      */
@@ -742,7 +578,18 @@ class Turtle implements Cloneable, Serializable {
      * @return the value of the evaluation
      */
     public Number valueOf(String string) {
-        return valueOf(string, parametersToNumbers);
+        return valueOf(Formula.compile(string));
+    }
+
+    /**
+     * Returns the value of a parsed mathematical expression with the
+     * parameters of this turtle.
+     *
+     * @param formula the parsed mathematical expression
+     * @return the value of the evaluation
+     */
+    public Number valueOf(Formula formula) {
+        return formula.evaluate(parametersToNumbers);
     }
 
     /**
@@ -756,6 +603,16 @@ class Turtle implements Cloneable, Serializable {
         parametersToNumbers.put(parameter, valueOf(expression));
     }
 
+    /**
+     * Assigns a value to a parameter from a parsed mathematical expression.
+     *
+     * @param parameter the parameter name
+     * @param formula   the parsed mathematical expression
+     */
+    public void assign(String parameter, Formula formula) {
+        parametersToNumbers.put(parameter, valueOf(formula));
+    }
+
     /**
      * Returns the value for a parameter.
      *
@@ -21,6 +21,7 @@ import automata.State;
 import automata.fsa.FiniteStateAutomaton;
 import automata.fsa.MinimizeTreeNode;
 import automata.fsa.Minimizer;
+import gui.ProgressWorker;
 import gui.tree.SelectTreeDrawer;
 import gui.tree.Trees;
 import gui.viewer.SelectionDrawer;
@@ -410,31 +411,105 @@ class MinimizeController {
     }
 
     /**
-     * This does the splitting of all states in a tree for you.
+     * This does the splitting of all states in a tree for you. The splitting
+     * is done off the event thread on a copy of the tree, and the new groups
+     * are added to the real tree once it is done.
      *
      * @param root the root of the subtree to split completely
      */
-    public void splitSubtree(MinimizeTreeNode root) {
+    public void splitSubtree(final MinimizeTreeNode root) {
         if (expanding != null) {
             JOptionPane.showMessageDialog(view,
                     "We must finish expanding group "
                             + minimizer.getString(expanding.getStates())
                             + "\nbefore we expand anything else.");
         }
-        TreeNode[] children = Trees.children(root);
-        if (children.length == 0) {
-            if (!minimizer.isSplittable(root.getStates(), getAutomaton(),
-                    getTree())) {
-                root.setTerminal("");
-                return;
+        Map<MinimizeTreeNode, MinimizeTreeNode> copies = new HashMap<>();
+        final DefaultTreeModel tree = new DefaultTreeModel(copy(
+                (MinimizeTreeNode) getTree().getRoot(), copies));
+        final MinimizeTreeNode copyRoot = copies.get(root);
+        final FiniteStateAutomaton automaton = getAutomaton();
+        new ProgressWorker<MinimizeTreeNode>(view, "Completing Subtree") {
+            private int done = 0;
+
+            protected MinimizeTreeNode work() {
+                splitSubtree(copyRoot);
+                return isCancelled() ? null : copyRoot;
             }
-            root.setTerminal(minimizer.getTerminalToSplit(root.getStates(),
-                    getAutomaton(), getTree()));
-            split(root);
-            children = Trees.children(root);
+
+            protected void finish(MinimizeTreeNode result) {
+                graft(root, result);
+                getTree().nodeStructureChanged(root);
+                view.repaint();
+                setEnabledness();
+            }
+
+            /**
+             * Splits the groups of a subtree of the copy of the tree.
+             *
+             * @param node the root of the subtree
+             */
+            private void splitSubtree(MinimizeTreeNode node) {
+                if (isCancelled())
+                    return;
+                TreeNode[] children = Trees.children(node);
+                if (children.length == 0) {
+                    if (!minimizer.isSplittable(node.getStates(), automaton,
+                            tree)) {
+                        node.setTerminal("");
+                        done += node.getStates().length;
+                        report(done, copyRoot.getStates().length);
+                        return;
+                    }
+                    node.setTerminal(minimizer.getTerminalToSplit(node
+                            .getStates(), automaton, tree));
+                    ArrayList<State[]> groups = minimizer.splitOnTerminal(node
+                            .getStates(), node.getTerminal(), automaton, tree);
+                    for (State[] group : groups)
+                        tree.insertNodeInto(new MinimizeTreeNode(group), node,
+                                node.getChildCount());
+                    children = Trees.children(node);
+                }
+                for (int i = 0; i < children.length; i++)
+                    splitSubtree((MinimizeTreeNode) children[i]);
+            }
+        }.start();
+    }
+
+    /**
+     * Copies a subtree, without firing any events on the tree it is in.
+     *
+     * @param node   the root of the subtree to copy
+     * @param copies the map to record the copy of each node in
+     * @return the copy of the subtree
+     */
+    private MinimizeTreeNode copy(MinimizeTreeNode node,
+                                  Map<MinimizeTreeNode, MinimizeTreeNode> copies) {
+        MinimizeTreeNode copy = new MinimizeTreeNode(node.getUserObject(),
+                node.getTerminal());
+        copies.put(node, copy);
+        for (int i = 0; i < node.getChildCount(); i++)
+            copy.add(copy((MinimizeTreeNode) node.getChildAt(i), copies));
+        return copy;
+    }
+
+    /**
+     * Moves the groups split in a copy of a subtree to the subtree itself.
+     * The caller should notify the tree of the change afterwards.
+     *
+     * @param node the root of the subtree
+     * @param copy the root of the split copy
+     */
+    private void graft(MinimizeTreeNode node, MinimizeTreeNode copy) {
+        node.setTerminal(copy.getTerminal());
+        if (node.getChildCount() == 0) {
+            while (copy.getChildCount() > 0)
+                node.add((MinimizeTreeNode) copy.getChildAt(0));
+            return;
         }
-        for (int i = 0; i < children.length; i++)
-            splitSubtree((MinimizeTreeNode) children[i]);
+        for (int i = 0; i < node.getChildCount(); i++)
+            graft((MinimizeTreeNode) node.getChildAt(i),
+                    (MinimizeTreeNode) copy.getChildAt(i));
     }
 
     /**
@@ -22,6 +22,7 @@ import automata.Transition;
 import automata.fsa.FSAToRegularExpressionConverter;
 import automata.fsa.FSATransition;
 import automata.fsa.FiniteStateAutomaton;
+import gui.ProgressWorker;
 import gui.environment.*;
 import gui.viewer.AutomatonPane;
 import gui.viewer.SelectionDrawer;
@@ -462,17 +463,7 @@ public class FSAToREController {
                 break;
             }
             case COLLAPSE_STATES:
-                State[] s = automaton.getStates();
-                for (int i = 0; i < s.length; i++) {
-                    if (automaton.getFinalStates()[0] == s[i]
-                            || automaton.getInitialState() == s[i])
-                        continue;
-                    Transition[] t = FSAToRegularExpressionConverter.getTransitionsForRemoveState(s[i],
-                            automaton);
-                    FSAToRegularExpressionConverter.removeState(s[i], t, automaton);
-                }
-                remaining = 0;
-                nextStep();
+                collapseAll();
                 break;
             case FINISHED:
                 JOptionPane.showMessageDialog(frame, "You're done.  Go away.",
@@ -486,6 +477,50 @@ public class FSAToREController {
         // nextStep();
     }
 
+    /**
+     * Removes every nonfinal, noninitial state. The states are removed off
+     * the event thread from a copy of the automaton, and then the automaton
+     * itself is given the resulting transitions in one go.
+     */
+    private void collapseAll() {
+        final FiniteStateAutomaton copy = (FiniteStateAutomaton) automaton
+                .clone();
+        new ProgressWorker<FiniteStateAutomaton>(frame, "Removing States") {
+            protected FiniteStateAutomaton work() {
+                State[] s = copy.getStates();
+                for (int i = 0; i < s.length; i++) {
+                    if (isCancelled())
+                        return null;
+                    report(i, s.length);
+                    if (copy.getFinalStates()[0] == s[i]
+                            || copy.getInitialState() == s[i])
+                        continue;
+                    Transition[] t = FSAToRegularExpressionConverter
+                            .getTransitionsForRemoveState(s[i], copy);
+                    FSAToRegularExpressionConverter.removeState(s[i], t, copy);
+                }
+                return copy;
+            }
+
+            protected void finish(FiniteStateAutomaton collapsed) {
+                State[] s = automaton.getStates();
+                for (int i = 0; i < s.length; i++)
+                    if (collapsed.getStateWithID(s[i].getID()) == null)
+                        automaton.removeState(s[i]);
+                Transition[] old = automaton.getTransitions();
+                for (int i = 0; i < old.length; i++)
+                    automaton.removeTransition(old[i]);
+                Transition[] t = collapsed.getTransitions();
+                for (int i = 0; i < t.length; i++)
+                    automaton.addTransition(t[i].copy(
+                            automaton.getStateWithID(t[i].getFromState().getID()),
+                            automaton.getStateWithID(t[i].getToState().getID())));
+                remaining = 0;
+                nextStep();
+            }
+        }.start();
+    }
+
     /**
      * This will export the regular expression.
      */
@@ -0,0 +1,450 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package regular;
+
+import gui.environment.Universe;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An <CODE>Expression</CODE> is a regular expression parsed into a tree, so
+ * that the algorithms on regular expressions need not split strings with the
+ * {@link Discretizer} at every level. Each node is the empty set, the empty
+ * string, a single symbol, the or or the concatenation of two or more
+ * expressions, or the star of an expression. Expressions are never changed
+ * once they are made.
+ * <p>
+ * In the string form the operators are <CODE>+</CODE> for or and
+ * <CODE>*</CODE> for star, with concatenation written by putting expressions
+ * next to each other. The empty string is <CODE>!</CODE> or the empty string
+ * character of the current profile, and the empty set is
+ * <CODE>&#248;</CODE>.
+ *
+ * @see RegularExpression
+ */
+
+public final class Expression {
+    /**
+     * The kinds of node.
+     */
+    public static final int EMPTY = 0, LAMBDA = 1, SYMBOL = 2, OR = 3,
+            CAT = 4, STAR = 5;
+    /**
+     * The character for the empty string in a regular expression.
+     */
+    public static final char LAMBDA_CHARACTER = '!';
+    /**
+     * The character for the empty set in a regular expression.
+     */
+    public static final char EMPTY_CHARACTER = '\u00F8';
+    /**
+     * The expression for the empty set.
+     */
+    public static final Expression EMPTY_SET = new Expression(EMPTY, '\0',
+            null);
+    /**
+     * The expression for the empty string.
+     */
+    public static final Expression EMPTY_STRING = new Expression(LAMBDA,
+            '\0', null);
+    /**
+     * The kind of this node.
+     */
+    private final int myKind;
+    /**
+     * The symbol, if this is a symbol.
+     */
+    private final char mySymbol;
+    /**
+     * The subexpressions, if this is an or, a concatenation or a star.
+     */
+    private final Expression[] myChildren;
+    /**
+     * If the expression matches the empty string.
+     */
+    private final boolean myNullable;
+    /**
+     * The hash code, computed when the expression is made.
+     */
+    private final int myHash;
+
+    /**
+     * Instantiates a node.
+     *
+     * @param kind     the kind of node
+     * @param symbol   the symbol, if it is a symbol
+     * @param children the subexpressions, which are not copied
+     */
+    private Expression(int kind, char symbol, Expression[] children) {
+        myKind = kind;
+        mySymbol = symbol;
+        myChildren = children == null ? new Expression[0] : children;
+        int hash = kind * 31 + symbol;
+        for (int i = 0; i < myChildren.length; i++)
+            hash = hash * 31 + myChildren[i].myHash;
+        myHash = hash;
+        myNullable = nullable(kind, myChildren);
+    }
+
+    /**
+     * Returns the expression for a single symbol.
+     *
+     * @param symbol the symbol
+     * @return the expression matching just that symbol
+     */
+    public static Expression symbol(char symbol) {
+        return new Expression(SYMBOL, symbol, null);
+    }
+
+    /**
+     * Returns the or of expressions. If there is one expression it is
+     * returned itself.
+     *
+     * @param expressions the expressions, at least one
+     * @return the or of the expressions
+     */
+    public static Expression or(Expression... expressions) {
+        if (expressions.length == 1)
+            return expressions[0];
+        return new Expression(OR, '\0', expressions.clone());
+    }
+
+    /**
+     * Returns the concatenation of expressions. If there is one expression it
+     * is returned itself.
+     *
+     * @param expressions the expressions, at least one
+     * @return the concatenation of the expressions
+     */
+    public static Expression cat(Expression... expressions) {
+        if (expressions.length == 1)
+            return expressions[0];
+        return new Expression(CAT, '\0', expressions.clone());
+    }
+
+    /**
+     * Returns the star of an expression.
+     *
+     * @param expression the expression
+     * @return the star of the expression
+     */
+    public static Expression star(Expression expression) {
+        return new Expression(STAR, '\0', new Expression[]{expression});
+    }
+
+    /**
+     * Parses a regular expression.
+     *
+     * @param expression the regular expression, which is checked first
+     * @return the tree of the expression
+     * @throws UnsupportedOperationException if the expression is not properly
+     *                                       formed
+     * @see RegularExpression#asCheckedString
+     */
+    public static Expression parse(RegularExpression expression) {
+        return parse(expression.asCheckedString());
+    }
+
+    /**
+     * Parses a regular expression string.
+     *
+     * @param string the regular expression as a string
+     * @return the tree of the expression
+     * @throws UnsupportedOperationException if the expression is not properly
+     *                                       formed
+     */
+    public static Expression parse(String string) {
+        Parser parser = new Parser(string);
+        Expression expression = parser.or();
+        if (parser.myPosition != string.length())
+            throw new UnsupportedOperationException(
+                    "The parentheses are unbalanced!");
+        return expression;
+    }
+
+    /**
+     * Returns the kind of this node.
+     *
+     * @return one of {@link #EMPTY}, {@link #LAMBDA}, {@link #SYMBOL},
+     * {@link #OR}, {@link #CAT} or {@link #STAR}
+     */
+    public int getKind() {
+        return myKind;
+    }
+
+    /**
+     * Returns the symbol of this node.
+     *
+     * @return the symbol, if this is a symbol
+     */
+    public char getSymbol() {
+        return mySymbol;
+    }
+
+    /**
+     * Returns the number of subexpressions.
+     *
+     * @return the number of subexpressions, which is zero unless this is an
+     * or, a concatenation or a star
+     */
+    public int getChildCount() {
+        return myChildren.length;
+    }
+
+    /**
+     * Returns a subexpression.
+     *
+     * @param index the index of the subexpression
+     * @return the subexpression
+     */
+    public Expression getChild(int index) {
+        return myChildren[index];
+    }
+
+    /**
+     * Returns if this expression matches the empty string.
+     *
+     * @return <CODE>true</CODE> if the empty string is in the language
+     */
+    public boolean isNullable() {
+        return myNullable;
+    }
+
+    /**
+     * Returns if a node matches the empty string.
+     *
+     * @param kind     the kind of node
+     * @param children the subexpressions
+     * @return <CODE>true</CODE> if the empty string is in the language
+     */
+    private static boolean nullable(int kind, Expression[] children) {
+        switch (kind) {
+            case LAMBDA:
+            case STAR:
+                return true;
+            case OR:
+                for (int i = 0; i < children.length; i++)
+                    if (children[i].myNullable)
+                        return true;
+                return false;
+            case CAT:
+                for (int i = 0; i < children.length; i++)
+                    if (!children[i].myNullable)
+                        return false;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns if another object is the same expression, that is, an
+     * expression with the same tree.
+     *
+     * @param object the object to compare
+     * @return <CODE>true</CODE> if the trees are the same
+     */
+    public boolean equals(Object object) {
+        if (object == this)
+            return true;
+        if (!(object instanceof Expression))
+            return false;
+        Expression e = (Expression) object;
+        if (e.myHash != myHash || e.myKind != myKind || e.mySymbol != mySymbol
+                || e.myChildren.length != myChildren.length)
+            return false;
+        for (int i = 0; i < myChildren.length; i++)
+            if (!myChildren[i].equals(e.myChildren[i]))
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the hash code of the tree.
+     *
+     * @return the hash code
+     */
+    public int hashCode() {
+        return myHash;
+    }
+
+    /**
+     * Returns the expression as a string that parses back to an expression
+     * for the same language, with only the parentheses needed.
+     *
+     * @return the regular expression as a string
+     */
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        write(builder, OR);
+        return builder.toString();
+    }
+
+    /**
+     * Writes this expression.
+     *
+     * @param builder  the string being written
+     * @param priority {@link #OR} if this is written where an or may be,
+     *                 {@link #CAT} if a concatenation may be, and {@link #STAR}
+     *                 if only a starred expression or a single symbol may be
+     */
+    private void write(StringBuilder builder, int priority) {
+        switch (myKind) {
+            case EMPTY:
+                builder.append(EMPTY_CHARACTER);
+                return;
+            case LAMBDA:
+                builder.append(LAMBDA_CHARACTER);
+                return;
+            case SYMBOL:
+                builder.append(mySymbol);
+                return;
+            case STAR:
+                myChildren[0].write(builder, STAR + 1);
+                builder.append('*');
+                return;
+        }
+        boolean parens = priority > myKind;
+        if (parens)
+            builder.append('(');
+        for (int i = 0; i < myChildren.length; i++) {
+            if (i > 0 && myKind == OR)
+                builder.append('+');
+            myChildren[i].write(builder, myKind + 1);
+        }
+        if (parens)
+            builder.append(')');
+    }
+
+    /**
+     * The parser reads a regular expression string once, from left to right.
+     */
+    private static class Parser {
+        /**
+         * The string being parsed.
+         */
+        private final String myString;
+        /**
+         * The empty string character of the current profile.
+         */
+        private final char myLambda;
+        /**
+         * The position of the next character to read.
+         */
+        private int myPosition = 0;
+
+        /**
+         * Instantiates a parser for a string.
+         *
+         * @param string the string to parse
+         */
+        Parser(String string) {
+            myString = string;
+            String lambda = Universe.curProfile.getEmptyString();
+            myLambda = lambda.length() == 1 ? lambda.charAt(0)
+                    : LAMBDA_CHARACTER;
+        }
+
+        /**
+         * Returns the next character, or 0 at the end of the string.
+         *
+         * @return the next character
+         */
+        private char peek() {
+            return myPosition < myString.length() ? myString
+                    .charAt(myPosition) : '\0';
+        }
+
+        /**
+         * Parses the or of concatenations.
+         *
+         * @return the expression read
+         */
+        Expression or() {
+            List<Expression> terms = new ArrayList<>();
+            terms.add(cat());
+            while (peek() == '+') {
+                myPosition++;
+                terms.add(cat());
+            }
+            return Expression.or(terms.toArray(new Expression[0]));
+        }
+
+        /**
+         * Parses the concatenation of starred expressions.
+         *
+         * @return the expression read
+         */
+        private Expression cat() {
+            List<Expression> factors = new ArrayList<>();
+            do {
+                factors.add(star());
+            } while (myPosition < myString.length() && peek() != '+'
+                    && peek() != ')');
+            return Expression.cat(factors.toArray(new Expression[0]));
+        }
+
+        /**
+         * Parses an expression followed by any number of stars.
+         *
+         * @return the expression read
+         */
+        private Expression star() {
+            Expression expression = atom();
+            while (peek() == '*') {
+                myPosition++;
+                if (expression.myKind != STAR)
+                    expression = Expression.star(expression);
+            }
+            return expression;
+        }
+
+        /**
+         * Parses a symbol, the empty string, the empty set, or an expression
+         * in parentheses.
+         *
+         * @return the expression read
+         */
+        private Expression atom() {
+            if (myPosition == myString.length())
+                throw new UnsupportedOperationException(
+                        "Operators are poorly formatted.");
+            char c = myString.charAt(myPosition++);
+            switch (c) {
+                case '(':
+                    Expression expression = or();
+                    if (peek() != ')')
+                        throw new UnsupportedOperationException(
+                                "The parentheses are unbalanced!");
+                    myPosition++;
+                    return expression;
+                case ')':
+                case '+':
+                case '*':
+                    throw new UnsupportedOperationException(
+                            "Operators are poorly formatted.");
+                case LAMBDA_CHARACTER:
+                    return EMPTY_STRING;
+                case EMPTY_CHARACTER:
+                    return EMPTY_SET;
+                default:
+                    return c == myLambda ? EMPTY_STRING : symbol(c);
+            }
+        }
+    }
+}
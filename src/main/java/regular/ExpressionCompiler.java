@@ -0,0 +1,318 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package regular;
+
+import automata.State;
+import automata.StatePlacer;
+import automata.fsa.FSATransition;
+import automata.fsa.FiniteStateAutomaton;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The <CODE>ExpressionCompiler</CODE> turns a regular expression into a
+ * finite state automaton without any of the views, by the Glushkov
+ * construction. The expression is parsed once into an {@link Expression},
+ * and each occurrence of a symbol in it becomes a state, reached only on that
+ * symbol. There is one more state, the initial state, and no lambda
+ * transitions.
+ * <p>
+ * The compiler may also test strings itself, without making the automaton:
+ * the sets of states reached are made into the states of a deterministic
+ * automaton as they are first needed, so testing many strings against one
+ * expression takes time linear in each string.
+ *
+ * @see gui.regular.REToFSAController
+ */
+
+public class ExpressionCompiler {
+    /**
+     * The number of states, the initial state and then one for each
+     * occurrence of a symbol.
+     */
+    private int myStates = 1;
+    /**
+     * The symbol of each state, which is the symbol of the transitions into
+     * it.
+     */
+    private char[] mySymbols;
+    /**
+     * For each state, the states it has a transition to.
+     */
+    private BitSet[] myFollow;
+    /**
+     * The final states.
+     */
+    private BitSet myFinal;
+    /**
+     * For each symbol, the states reached on it.
+     */
+    private Map<Character, BitSet> myStatesOn = new HashMap<>();
+    /**
+     * The sets of states made into deterministic states so far.
+     */
+    private Map<BitSet, DeterministicState> myDeterministicStates = new HashMap<>();
+    /**
+     * The deterministic state of the initial state.
+     */
+    private DeterministicState myInitial;
+
+    /**
+     * Instantiates a compiler for a regular expression.
+     *
+     * @param expression the regular expression
+     * @throws UnsupportedOperationException if the expression is not properly
+     *                                       formed
+     */
+    public ExpressionCompiler(RegularExpression expression) {
+        this(Expression.parse(expression));
+    }
+
+    /**
+     * Instantiates a compiler for a parsed regular expression.
+     *
+     * @param expression the regular expression
+     */
+    public ExpressionCompiler(Expression expression) {
+        int size = count(expression) + 1;
+        mySymbols = new char[size];
+        myFollow = new BitSet[size];
+        for (int i = 0; i < size; i++)
+            myFollow[i] = new BitSet(size);
+        Positions positions = positions(expression);
+        myFollow[0].or(positions.first);
+        myFinal = positions.last;
+        if (positions.nullable)
+            myFinal.set(0);
+        for (int i = 1; i < myStates; i++) {
+            BitSet on = myStatesOn.get(mySymbols[i]);
+            if (on == null) {
+                on = new BitSet(myStates);
+                myStatesOn.put(mySymbols[i], on);
+            }
+            on.set(i);
+        }
+        BitSet initial = new BitSet(myStates);
+        initial.set(0);
+        myInitial = getDeterministicState(initial);
+    }
+
+    /**
+     * Converts a regular expression to a finite state automaton.
+     *
+     * @param expression the regular expression
+     * @return a new automaton that accepts the language of the expression
+     * @throws UnsupportedOperationException if the expression is not properly
+     *                                       formed
+     */
+    public static FiniteStateAutomaton convert(RegularExpression expression) {
+        return new ExpressionCompiler(expression).getAutomaton();
+    }
+
+    /**
+     * Returns the number of occurrences of symbols in an expression.
+     *
+     * @param expression the expression
+     * @return the number of symbol nodes in the tree
+     */
+    private static int count(Expression expression) {
+        if (expression.getKind() == Expression.SYMBOL)
+            return 1;
+        int count = 0;
+        for (int i = 0; i < expression.getChildCount(); i++)
+            count += count(expression.getChild(i));
+        return count;
+    }
+
+    /**
+     * Numbers the symbols of an expression as states, and adds the
+     * transitions within the expression.
+     *
+     * @param expression the expression
+     * @return the states that begin and end the expression
+     */
+    private Positions positions(Expression expression) {
+        Positions positions = new Positions();
+        switch (expression.getKind()) {
+            case Expression.EMPTY:
+                break;
+            case Expression.LAMBDA:
+                positions.nullable = true;
+                break;
+            case Expression.SYMBOL:
+                mySymbols[myStates] = expression.getSymbol();
+                positions.first.set(myStates);
+                positions.last.set(myStates);
+                myStates++;
+                break;
+            case Expression.OR:
+                for (int i = 0; i < expression.getChildCount(); i++) {
+                    Positions child = positions(expression.getChild(i));
+                    positions.nullable |= child.nullable;
+                    positions.first.or(child.first);
+                    positions.last.or(child.last);
+                }
+                break;
+            case Expression.CAT:
+                positions.nullable = true;
+                for (int i = 0; i < expression.getChildCount(); i++) {
+                    Positions child = positions(expression.getChild(i));
+                    for (int j = positions.last.nextSetBit(0); j >= 0; j = positions.last
+                            .nextSetBit(j + 1))
+                        myFollow[j].or(child.first);
+                    if (positions.nullable)
+                        positions.first.or(child.first);
+                    if (!child.nullable)
+                        positions.last.clear();
+                    positions.last.or(child.last);
+                    positions.nullable &= child.nullable;
+                }
+                break;
+            case Expression.STAR:
+                positions = positions(expression.getChild(0));
+                for (int j = positions.last.nextSetBit(0); j >= 0; j = positions.last
+                        .nextSetBit(j + 1))
+                    myFollow[j].or(positions.first);
+                positions.nullable = true;
+                break;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the automaton for the expression. State 0 is the initial state,
+     * and each other state is reached only on the symbol of its occurrence.
+     *
+     * @return a new automaton that accepts the language of the expression
+     */
+    public FiniteStateAutomaton getAutomaton() {
+        FiniteStateAutomaton automaton = new FiniteStateAutomaton();
+        StatePlacer placer = new StatePlacer();
+        State[] states = new State[myStates];
+        for (int i = 0; i < myStates; i++) {
+            states[i] = automaton.createStateWithId(placer
+                    .getPointForState(automaton), i);
+            if (myFinal.get(i))
+                automaton.addFinalState(states[i]);
+        }
+        automaton.setInitialState(states[0]);
+        for (int i = 0; i < myStates; i++)
+            for (int j = myFollow[i].nextSetBit(0); j >= 0; j = myFollow[i]
+                    .nextSetBit(j + 1))
+                automaton.addTransition(new FSATransition(states[i],
+                        states[j], String.valueOf(mySymbols[j])));
+        return automaton;
+    }
+
+    /**
+     * Returns if the expression matches a string.
+     *
+     * @param input the string to test
+     * @return <CODE>true</CODE> if the string is in the language of the
+     * expression
+     */
+    public synchronized boolean accepts(CharSequence input) {
+        DeterministicState state = myInitial;
+        for (int i = 0; i < input.length() && state != null; i++) {
+            char c = input.charAt(i);
+            if (!state.moves.containsKey(c))
+                state.moves.put(c, move(state.states, c));
+            state = state.moves.get(c);
+        }
+        return state != null && state.accepting;
+    }
+
+    /**
+     * Returns the deterministic state reached from a set of states on a
+     * symbol.
+     *
+     * @param states the set of states
+     * @param c      the symbol
+     * @return the deterministic state, or <CODE>null</CODE> if no state is
+     * reached
+     */
+    private DeterministicState move(BitSet states, char c) {
+        BitSet on = myStatesOn.get(c);
+        if (on == null)
+            return null;
+        BitSet next = new BitSet(myStates);
+        for (int i = states.nextSetBit(0); i >= 0; i = states.nextSetBit(i + 1))
+            next.or(myFollow[i]);
+        next.and(on);
+        return next.isEmpty() ? null : getDeterministicState(next);
+    }
+
+    /**
+     * Returns the deterministic state for a set of states, making it if it
+     * has not been made.
+     *
+     * @param states the set of states
+     * @return the deterministic state
+     */
+    private DeterministicState getDeterministicState(BitSet states) {
+        DeterministicState state = myDeterministicStates.get(states);
+        if (state == null) {
+            state = new DeterministicState(states, states.intersects(myFinal));
+            myDeterministicStates.put(states, state);
+        }
+        return state;
+    }
+
+    /**
+     * The states that begin and end an expression, and if it matches the
+     * empty string.
+     */
+    private class Positions {
+        /**
+         * If the expression matches the empty string.
+         */
+        boolean nullable = false;
+        /**
+         * The states of the symbols that may begin a string.
+         */
+        BitSet first = new BitSet(myStates);
+        /**
+         * The states of the symbols that may end a string.
+         */
+        BitSet last = new BitSet(myStates);
+    }
+
+    /**
+     * A set of states that may be reached together.
+     */
+    private static class DeterministicState {
+        /**
+         * The states.
+         */
+        final BitSet states;
+        /**
+         * If one of the states is final.
+         */
+        final boolean accepting;
+        /**
+         * The state reached on each symbol seen so far.
+         */
+        final Map<Character, DeterministicState> moves = new HashMap<>();
+
+        DeterministicState(BitSet states, boolean accepting) {
+            this.states = states;
+            this.accepting = accepting;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package regular;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The <CODE>ExpressionFactory</CODE> makes {@link Expression}s in a normal
+ * form, and makes each expression only once, so that expressions for the
+ * same language are often the very same object. An or is flattened, has no
+ * empty set and no subexpression twice, and is sorted, so the order in which
+ * expressions are or-ed does not matter. A concatenation is flattened and has
+ * no lambda, and is the empty set if any part is. Stars of lambda, the empty
+ * set, and of stars are simplified.
+ * <p>
+ * The factory also takes the derivatives of expressions and remembers them.
+ * The derivative of an expression by a symbol matches those strings that the
+ * expression matches after the symbol, and since the expressions are in
+ * normal form an expression has only finitely many derivatives by strings.
+ *
+ * @see ExpressionToDFAConverter
+ */
+
+public class ExpressionFactory {
+    /**
+     * The expressions made so far, each mapped to itself.
+     */
+    private Map<Expression, Expression> myExpressions = new HashMap<>();
+    /**
+     * The order in which the expressions were made, which orders the parts of
+     * an or.
+     */
+    private Map<Expression, Integer> myIDs = new HashMap<>();
+    /**
+     * The derivatives taken so far, by expression and then symbol.
+     */
+    private Map<Expression, Map<Character, Expression>> myDerivatives = new HashMap<>();
+    /**
+     * Orders expressions made by this factory by when they were made.
+     */
+    private Comparator<Expression> myOrder = new Comparator<Expression>() {
+        public int compare(Expression e1, Expression e2) {
+            return myIDs.get(e1) - myIDs.get(e2);
+        }
+    };
+
+    /**
+     * Instantiates a factory.
+     */
+    public ExpressionFactory() {
+        unique(Expression.EMPTY_SET);
+        unique(Expression.EMPTY_STRING);
+    }
+
+    /**
+     * Returns the one expression of this factory equal to an expression,
+     * whose subexpressions must already have been made by this factory.
+     *
+     * @param expression the expression
+     * @return the expression of this factory
+     */
+    private Expression unique(Expression expression) {
+        Expression made = myExpressions.get(expression);
+        if (made != null)
+            return made;
+        myExpressions.put(expression, expression);
+        myIDs.put(expression, myIDs.size());
+        return expression;
+    }
+
+    /**
+     * Returns an expression of this factory for the same language as an
+     * expression.
+     *
+     * @param expression the expression, which may be from anywhere
+     * @return the normal form of the expression
+     */
+    public Expression make(Expression expression) {
+        if (myExpressions.get(expression) == expression)
+            return expression;
+        Expression[] children = new Expression[expression.getChildCount()];
+        for (int i = 0; i < children.length; i++)
+            children[i] = make(expression.getChild(i));
+        switch (expression.getKind()) {
+            case Expression.SYMBOL:
+                return symbol(expression.getSymbol());
+            case Expression.OR:
+                return or(children);
+            case Expression.CAT:
+                return cat(children);
+            case Expression.STAR:
+                return star(children[0]);
+            default:
+                return unique(expression);
+        }
+    }
+
+    /**
+     * Returns the expression for the empty set.
+     *
+     * @return the empty set
+     */
+    public Expression empty() {
+        return Expression.EMPTY_SET;
+    }
+
+    /**
+     * Returns the expression for the empty string.
+     *
+     * @return the empty string
+     */
+    public Expression lambda() {
+        return Expression.EMPTY_STRING;
+    }
+
+    /**
+     * Returns the expression for a symbol.
+     *
+     * @param symbol the symbol
+     * @return the expression for the symbol
+     */
+    public Expression symbol(char symbol) {
+        return unique(Expression.symbol(symbol));
+    }
+
+    /**
+     * Returns the or of expressions made by this factory.
+     *
+     * @param expressions the expressions
+     * @return the or of the expressions, in normal form
+     */
+    public Expression or(Expression... expressions) {
+        List<Expression> parts = new ArrayList<>();
+        for (int i = 0; i < expressions.length; i++) {
+            Expression e = expressions[i];
+            if (e.getKind() == Expression.OR) {
+                for (int j = 0; j < e.getChildCount(); j++)
+                    parts.add(e.getChild(j));
+            } else if (e.getKind() != Expression.EMPTY)
+                parts.add(e);
+        }
+        Collections.sort(parts, myOrder);
+        boolean nullable = false;
+        int size = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            Expression e = parts.get(i);
+            if (size > 0 && parts.get(size - 1) == e)
+                continue;
+            parts.set(size++, e);
+            if (e.getKind() != Expression.LAMBDA)
+                nullable |= e.isNullable();
+        }
+        parts = parts.subList(0, size);
+        // Lambda adds nothing to an or that already matches it.
+        if (nullable)
+            parts.remove(Expression.EMPTY_STRING);
+        if (parts.isEmpty())
+            return Expression.EMPTY_SET;
+        if (parts.size() == 1)
+            return parts.get(0);
+        return unique(Expression.or(parts.toArray(new Expression[0])));
+    }
+
+    /**
+     * Returns the concatenation of expressions made by this factory.
+     *
+     * @param expressions the expressions
+     * @return the concatenation of the expressions, in normal form
+     */
+    public Expression cat(Expression... expressions) {
+        List<Expression> parts = new ArrayList<>();
+        for (int i = 0; i < expressions.length; i++) {
+            Expression e = expressions[i];
+            switch (e.getKind()) {
+                case Expression.EMPTY:
+                    return Expression.EMPTY_SET;
+                case Expression.LAMBDA:
+                    break;
+                case Expression.CAT:
+                    for (int j = 0; j < e.getChildCount(); j++)
+                        addToCat(parts, e.getChild(j));
+                    break;
+                default:
+                    addToCat(parts, e);
+            }
+        }
+        if (parts.isEmpty())
+            return Expression.EMPTY_STRING;
+        if (parts.size() == 1)
+            return parts.get(0);
+        return unique(Expression.cat(parts.toArray(new Expression[0])));
+    }
+
+    /**
+     * Adds a part to the end of a concatenation. A star right after the same
+     * star is left out.
+     *
+     * @param parts the parts of the concatenation
+     * @param part  the part to add
+     */
+    private static void addToCat(List<Expression> parts, Expression part) {
+        if (part.getKind() == Expression.STAR && !parts.isEmpty()
+                && parts.get(parts.size() - 1) == part)
+            return;
+        parts.add(part);
+    }
+
+    /**
+     * Returns the star of an expression made by this factory.
+     *
+     * @param expression the expression
+     * @return the star of the expression, in normal form
+     */
+    public Expression star(Expression expression) {
+        switch (expression.getKind()) {
+            case Expression.EMPTY:
+            case Expression.LAMBDA:
+                return Expression.EMPTY_STRING;
+            case Expression.STAR:
+                return expression;
+            case Expression.OR:
+                // The star matches lambda anyway.
+                for (int i = 0; i < expression.getChildCount(); i++) {
+                    if (expression.getChild(i).getKind() != Expression.LAMBDA)
+                        continue;
+                    List<Expression> parts = new ArrayList<>();
+                    for (int j = 0; j < expression.getChildCount(); j++)
+                        if (j != i)
+                            parts.add(expression.getChild(j));
+                    return star(or(parts.toArray(new Expression[0])));
+                }
+        }
+        return unique(Expression.star(expression));
+    }
+
+    /**
+     * Returns the derivative of an expression made by this factory by a
+     * symbol.
+     *
+     * @param expression the expression
+     * @param symbol     the symbol
+     * @return the expression matching those strings that the expression
+     * matches after the symbol
+     */
+    public Expression derivative(Expression expression, char symbol) {
+        Map<Character, Expression> derivatives = myDerivatives.get(expression);
+        if (derivatives == null) {
+            derivatives = new HashMap<>();
+            myDerivatives.put(expression, derivatives);
+        }
+        Expression derivative = derivatives.get(symbol);
+        if (derivative == null) {
+            derivative = derive(expression, symbol);
+            derivatives.put(symbol, derivative);
+        }
+        return derivative;
+    }
+
+    /**
+     * Takes the derivative of an expression by a symbol.
+     *
+     * @param expression the expression
+     * @param symbol     the symbol
+     * @return the derivative
+     * @see #derivative
+     */
+    private Expression derive(Expression expression, char symbol) {
+        switch (expression.getKind()) {
+            case Expression.SYMBOL:
+                return expression.getSymbol() == symbol ? Expression.EMPTY_STRING
+                        : Expression.EMPTY_SET;
+            case Expression.OR: {
+                Expression[] parts = new Expression[expression.getChildCount()];
+                for (int i = 0; i < parts.length; i++)
+                    parts[i] = derivative(expression.getChild(i), symbol);
+                return or(parts);
+            }
+            case Expression.CAT: {
+                // Each part may begin the rest if those before it match lambda.
+                int count = expression.getChildCount();
+                List<Expression> parts = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    Expression[] rest = new Expression[count - i];
+                    rest[0] = derivative(expression.getChild(i), symbol);
+                    for (int j = i + 1; j < count; j++)
+                        rest[j - i] = expression.getChild(j);
+                    parts.add(cat(rest));
+                    if (!expression.getChild(i).isNullable())
+                        break;
+                }
+                return or(parts.toArray(new Expression[0]));
+            }
+            case Expression.STAR:
+                return cat(derivative(expression.getChild(0), symbol),
+                        expression);
+            default:
+                return Expression.EMPTY_SET;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *  JFLAP - Formal Languages and Automata Package
+ *
+ *
+ *  Susan H. Rodger
+ *  Computer Science Department
+ *  Duke University
+ *  August 27, 2009
+
+ *  Copyright (c) 2002-2009
+ *  All rights reserved.
+
+ *  JFLAP is open source software. Please see the LICENSE for terms.
+ *
+ */
+
+
+package regular;
+
+import automata.State;
+import automata.StatePlacer;
+import automata.fsa.FSATransition;
+import automata.fsa.FiniteStateAutomaton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The <CODE>ExpressionToDFAConverter</CODE> builds a deterministic finite
+ * state automaton from a regular expression with derivatives. Each state is an
+ * expression in the normal form of an {@link ExpressionFactory}, and the
+ * transition on a symbol goes to the derivative by that symbol, so expressions
+ * that are the same in normal form share a state. This gives a small DFA
+ * without building an NFA and then converting and minimizing it.
+ * <p>
+ * The same derivatives decide if two expressions are equivalent: the pairs of
+ * derivatives of the two expressions by each string must agree on matching
+ * lambda. Since the factory remembers the derivatives it has taken, one
+ * converter may compare many expressions with a reference expression quickly.
+ * No state is made for the empty set, so the automata are not complete.
+ *
+ * @see ExpressionCompiler
+ */
+
+public class ExpressionToDFAConverter {
+    /**
+     * The factory the expressions are made by.
+     */
+    private ExpressionFactory myFactory = new ExpressionFactory();
+
+    /**
+     * Instantiates a converter.
+     */
+    public ExpressionToDFAConverter() {
+    }
+
+    /**
+     * Returns the factory the expressions are made by.
+     *
+     * @return the factory
+     */
+    public ExpressionFactory getFactory() {
+        return myFactory;
+    }
+
+    /**
+     * Converts a regular expression to a DFA.
+     *
+     * @param expression the regular expression
+     * @return a new DFA that accepts the language of the expression
+     * @throws UnsupportedOperationException if the expression is not properly
+     *                                       formed
+     */
+    public FiniteStateAutomaton convert(RegularExpression expression) {
+        return convert(Expression.parse(expression));
+    }
+
+    /**
+     * Converts a parsed regular expression to a DFA. The states are numbered
+     * in the order they are found, from the initial state.
+     *
+     * @param expression the regular expression
+     * @return a new DFA that accepts the language of the expression
+     */
+    public FiniteStateAutomaton convert(Expression expression) {
+        expression = myFactory.make(expression);
+        SortedSet<Character> symbols = new TreeSet<>();
+        addSymbols(expression, symbols);
+        char[] alphabet = toArray(symbols);
+        FiniteStateAutomaton dfa = new FiniteStateAutomaton();
+        StatePlacer placer = new StatePlacer();
+        Map<Expression, State> states = new HashMap<>();
+        LinkedList<Expression> queue = new LinkedList<>();
+        State initial = dfa.createStateWithId(placer.getPointForState(dfa), 0);
+        dfa.setInitialState(initial);
+        states.put(expression, initial);
+        queue.add(expression);
+        while (!queue.isEmpty()) {
+            Expression e = queue.removeFirst();
+            State from = states.get(e);
+            if (e.isNullable())
+                dfa.addFinalState(from);
+            for (int i = 0; i < alphabet.length; i++) {
+                Expression d = myFactory.derivative(e, alphabet[i]);
+                if (d.getKind() == Expression.EMPTY)
+                    continue;
+                State to = states.get(d);
+                if (to == null) {
+                    to = dfa.createStateWithId(placer.getPointForState(dfa),
+                            states.size());
+                    states.put(d, to);
+                    queue.add(d);
+                }
+                dfa.addTransition(new FSATransition(from, to, String
+                        .valueOf(alphabet[i])));
+            }
+        }
+        return dfa;
+    }
+
+    /**
+     * Returns if two regular expressions match the same strings.
+     *
+     * @param e1 the first regular expression
+     * @param e2 the second regular expression
+     * @return <CODE>true</CODE> if the languages are the same
+     * @throws UnsupportedOperationException if an expression is not properly
+     *                                       formed
+     */
+    public boolean areEquivalent(RegularExpression e1, RegularExpression e2) {
+        return getDifference(Expression.parse(e1), Expression.parse(e2)) == null;
+    }
+
+    /**
+     * Returns a shortest string matched by one expression and not the other.
+     *
+     * @param e1 the first regular expression
+     * @param e2 the second regular expression
+     * @return a string in one language but not the other, or
+     * <CODE>null</CODE> if the languages are the same
+     */
+    public String getDifference(Expression e1, Expression e2) {
+        e1 = myFactory.make(e1);
+        e2 = myFactory.make(e2);
+        SortedSet<Character> symbols = new TreeSet<>();
+        addSymbols(e1, symbols);
+        addSymbols(e2, symbols);
+        char[] alphabet = toArray(symbols);
+        Map<Expression, Set<Expression>> seen = new HashMap<>();
+        LinkedList<Expression[]> queue = new LinkedList<>();
+        LinkedList<String> strings = new LinkedList<>();
+        add(seen, e1, e2);
+        queue.add(new Expression[]{e1, e2});
+        strings.add("");
+        while (!queue.isEmpty()) {
+            Expression[] pair = queue.removeFirst();
+            String string = strings.removeFirst();
+            if (pair[0].isNullable() != pair[1].isNullable())
+                return string;
+            if (pair[0] == pair[1])
+                continue;
+            for (int i = 0; i < alphabet.length; i++) {
+                Expression d1 = myFactory.derivative(pair[0], alphabet[i]);
+                Expression d2 = myFactory.derivative(pair[1], alphabet[i]);
+                if (!add(seen, d1, d2))
+                    continue;
+                queue.add(new Expression[]{d1, d2});
+                strings.add(string + alphabet[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a pair of expressions to those seen.
+     *
+     * @param seen the pairs seen, by the first expression
+     * @param e1   the first expression
+     * @param e2   the second expression
+     * @return <CODE>true</CODE> if the pair was not seen before
+     */
+    private static boolean add(Map<Expression, Set<Expression>> seen,
+                               Expression e1, Expression e2) {
+        Set<Expression> with = seen.get(e1);
+        if (with == null) {
+            with = new HashSet<>();
+            seen.put(e1, with);
+        }
+        return with.add(e2);
+    }
+
+    /**
+     * Adds the symbols of an expression to a set.
+     *
+     * @param expression the expression
+     * @param symbols    the set to add the symbols to
+     */
+    private static void addSymbols(Expression expression,
+                                   Set<Character> symbols) {
+        Set<Expression> visited = new HashSet<>();
+        List<Expression> stack = new ArrayList<>();
+        stack.add(expression);
+        while (!stack.isEmpty()) {
+            Expression e = stack.remove(stack.size() - 1);
+            if (!visited.add(e))
+                continue;
+            if (e.getKind() == Expression.SYMBOL)
+                symbols.add(e.getSymbol());
+            for (int i = 0; i < e.getChildCount(); i++)
+                stack.add(e.getChild(i));
+        }
+    }
+
+    /**
+     * Returns the symbols of a set in an array.
+     *
+     * @param symbols the set of symbols
+     * @return the symbols, in order
+     */
+    private static char[] toArray(SortedSet<Character> symbols) {
+        char[] alphabet = new char[symbols.size()];
+        int i = 0;
+        for (Character c : symbols)
+            alphabet[i++] = c;
+        return alphabet;
+    }
+}